@@ -46,6 +46,12 @@ public void init() throws ServletException {
         framework = new MojaveFramework();
         framework.init(getServletConfig());
     }
+    
+    @Override
+    public void destroy() {
+        
+        framework.destroy();
+    }
 
     /**
      * Overrides the HttpServlet doGet() method. Executes processRequest().
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * This annotation must be used only with singleton controllers. The actions
+ * of the controller, together with its before and after actions and those of
+ * its interceptors, are invoked one request at a time, in the order in which
+ * the requests arrive, by a single worker that drains the controller's 
+ * mailbox. The controller can thus be written as if it were used by a single
+ * thread, without locks.
+ * </p>
+ * 
+ * <pre>
+ * &#064;Actor
+ * &#064;SingletonController
+ * public class CounterController {
+ * 
+ *     private int count;
+ *     ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The request thread waits for the action to complete, unless the request 
+ * can be put into asynchronous mode, in which case it is returned to the 
+ * container. The view is rendered outside of the mailbox. An asynchronous 
+ * result returned by an action is awaited by the worker, so actions of an
+ * actor controller should not return one.
+ * </p>
+ * 
+ * @author Luis Antunes
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Actor {
+
+}
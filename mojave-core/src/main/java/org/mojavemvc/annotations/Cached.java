@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * This annotation is used with actions that handle GET requests, and whose
+ * response depends only on their bound parameters. The status, headers and 
+ * rendered bytes of the response are cached, and sent to the requests that
+ * follow with the same parameters, without invoking the action, until the 
+ * response expires.
+ * </p>
+ * 
+ * <pre>
+ * &#064;Cached(ttl = 300000, params = "category", vary = "Accept-Language")
+ * &#064;GETAction
+ * public View list(&#064;Param("category") String category) {
+ *  ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The ttl is the number of milliseconds a response is cached for. The params
+ * are the names of the bound parameters that identify a response; if none 
+ * are given, all the bound parameters are used. The vary values are the 
+ * names of request headers that also identify a response. 
+ * </p>
+ * 
+ * <p>
+ * Only complete 200 responses that do not add cookies are cached, and a 
+ * response rendered by the ErrorHandler is never cached. Cached responses 
+ * can be invalidated through the ResponseCache, which can be injected.
+ * </p>
+ * 
+ * <p>
+ * NOTE: A cached response is sent without running any interceptors or the
+ * controller's &#064;BeforeAction method for the request, so it would be 
+ * sent to clients that an interceptor refuses, such as unauthenticated 
+ * clients.
+ * This annotation therefore cannot be used with actions that have 
+ * interceptors, or in controllers that have a &#064;BeforeAction method. It
+ * cannot be used in stateful controllers either.
+ * </p>
+ * 
+ * @author Luis Antunes
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cached {
+    
+    long ttl() default 60000;
+    
+    String[] params() default {};
+    
+    String[] vary() default {};
+}
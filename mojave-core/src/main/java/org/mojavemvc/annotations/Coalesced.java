@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * This annotation is used with actions that handle GET requests. Concurrent
+ * requests for the action with the same route and the same bound parameters
+ * are coalesced: the action is invoked for the first of them, and the others 
+ * wait for it and are sent the same response, status, headers and rendered
+ * bytes included, without invoking the action themselves. 
+ * </p>
+ * 
+ * <pre>
+ * &#064;Coalesced(timeout = 5000)
+ * &#064;GETAction
+ * public View popular(&#064;Param("category") String category) {
+ *  ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The timeout is the number of milliseconds a request waits for the 
+ * invocation in flight; a request that times out, or whose invocation 
+ * fails, invokes the action itself. Requests are coalesced only while an
+ * invocation is in flight; once it completes, its response is not kept.
+ * </p>
+ * 
+ * <p>
+ * NOTE: The response is shared by requests from different clients, so this 
+ * must be used only with actions whose response does not depend on who 
+ * makes the request. Cookies added by the action are sent only with the 
+ * response to the request that invoked it. As the requests that wait are
+ * sent the response without running any interceptors or the controller's 
+ * &#064;BeforeAction method, this annotation cannot be used with actions 
+ * that have interceptors, or in controllers that have a &#064;BeforeAction
+ * method. It cannot be used in stateful controllers either.
+ * </p>
+ * 
+ * @author Luis Antunes
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesced {
+    long timeout() default 10000;
+}
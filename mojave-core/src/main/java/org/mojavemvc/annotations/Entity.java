@@ -26,6 +26,12 @@
  * the content type specified through the {@link Expects}
  * annotation. Only one occurrence is allowed in an
  * &#064;Action method signature.
+ * <p>
+ * If the parameter is declared as an Iterator&lt;T&gt; or an 
+ * Iterable&lt;T&gt;, and the marshaller for the content type is an 
+ * {@link org.mojavemvc.marshalling.IncrementalEntityMarshaller}, the 
+ * request body is unmarshalled one element of type T at a time, as the 
+ * parameter is iterated. The parameter can be iterated only once.
  * 
  * @author Luis Antunes
  */
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * This annotation is used to mark a method in a controller that returns the
+ * entity tag of the resource of one or more of its actions, as a String, 
+ * such as a version number. It is meant to be much cheaper than the action 
+ * itself. The tag is quoted if it is not already.
+ * </p>
+ * 
+ * <pre>
+ * &#064;EntityTag("report")
+ * public String reportVersion(&#064;Param("id") String id) {
+ *     return String.valueOf(reports.version(id));
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The method is invoked for GET and HEAD requests, after the before actions,
+ * with its parameters bound in the same way as those of an action. If the 
+ * request has an If-None-Match header that matches the tag, the response 
+ * is 304 Not Modified, and neither the action nor the after actions are 
+ * invoked. Otherwise, an ETag header is set, and the action is invoked.
+ * When the request has an If-None-Match header, its If-Modified-Since 
+ * header is ignored.
+ * </p>
+ * 
+ * <p>
+ * The value is the names of the action methods the method applies to; if 
+ * none are given, it applies to all the actions of the controller that do 
+ * not have their own. A method returning null leaves the request 
+ * unconditional.
+ * </p>
+ * 
+ * @author Luis Antunes
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface EntityTag {
+    String[] value() default {};
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * This annotation must be used only with stateless controllers. Instead of 
+ * creating a new instance of the controller for every request, instances are
+ * taken from a pool, and returned to it once the request is complete. A new 
+ * instance is created only when the pool is empty, so this is meant for 
+ * controllers whose creation, or whose &#064;AfterConstruct action, is 
+ * expensive.
+ * </p>
+ * 
+ * <pre>
+ * &#064;Pooled(16)
+ * &#064;StatelessController
+ * public class ReportController {
+ *  ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The value is the maximum number of idle instances kept in the pool; an
+ * instance returned to a full pool is discarded. A pooled instance has its
+ * dependencies re-injected when it is reused, as declared with 
+ * &#064;Reinject.
+ * </p>
+ * 
+ * <p>
+ * NOTE: A pooled instance is used by one request at a time, but keeps the 
+ * values of its fields from one request to the next. 
+ * </p>
+ * 
+ * @author Luis Antunes
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Pooled {
+    int value() default 32;
+}
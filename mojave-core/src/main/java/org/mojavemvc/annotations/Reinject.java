@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Determines which dependencies of a singleton or stateful controller are 
+ * injected again when an existing instance handles a new request. A 
+ * controller that is not annotated with this annotation has all its 
+ * dependencies re-injected with every request.
+ * </p>
+ * 
+ * <pre>
+ * &#064;SingletonController
+ * &#064;Reinject(Reinject.Policy.REQUEST_SCOPED)
+ * public class SomeController {
+ * 
+ *     &#064;Inject
+ *     private HttpServletRequest request;
+ *     
+ *     &#064;Inject
+ *     private SomeService service;
+ *  ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * In the controller above, only the request field is re-injected with every
+ * request; the service is injected once, when the controller is created.
+ * </p>
+ * 
+ * @author Luis Antunes
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Reinject {
+    
+    Policy value();
+    
+    public enum Policy {
+        
+        /**
+         * dependencies are injected only when the controller is created
+         */
+        NEVER,
+        
+        /**
+         * only fields and methods that depend on the HttpServletRequest, the 
+         * HttpServletResponse or the HttpSession are re-injected; injecting 
+         * a Provider of these is preferable, as it needs no re-injection
+         */
+        REQUEST_SCOPED,
+        
+        /**
+         * all dependencies are re-injected
+         */
+        ALWAYS
+    }
+}
@@ -25,11 +25,18 @@
  * for an &#064;Action method. Only one occurrence is allowed 
  * on a signature. This annotation is not allowed on an
  * &#064;Action method if it returns a View. 
+ * <p>
+ * If more than one content type is specified, the content type
+ * is chosen per request from its Accept header, respecting the 
+ * quality values of its media ranges. The content types are given
+ * in order of preference; the first is chosen when the request
+ * has no Accept header, and a 406 Not Acceptable response is sent
+ * when none of them are acceptable.
  * 
  * @author Luis Antunes
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface Returns {
-    String value();
+    String[] value();
 }
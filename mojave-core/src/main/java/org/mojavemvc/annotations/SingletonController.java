@@ -24,7 +24,7 @@
  * <p>
  * Only one instance of this controller will exist in the application, placed in
  * the front controller context. Its dependencies, if any, are re-injected with
- * every new request.
+ * every new request, unless a different policy is declared with &#064;Reinject.
  * </p>
  * 
  * <p>
@@ -49,7 +49,9 @@
  * NOTE: It is up to the developer to address thread-safety in singleton
  * controllers. The single instance will be accessed simultaneously by multiple
  * threads, and thus there will be concurrency issues to address. The container
- * will not attempt to address those issues.
+ * will not attempt to address those issues, unless the controller is also 
+ * annotated with &#064;Actor, in which case it is used by one request at a 
+ * time.
  * </p>
  * 
  * @author Luis Antunes
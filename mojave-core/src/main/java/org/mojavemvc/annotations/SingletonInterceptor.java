@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Only one instance of this interceptor will exist in the application. It is
+ * created when first needed, and is then shared by all the actions it
+ * intercepts, and by all requests. Unlike a singleton controller, its
+ * dependencies are injected only once, when it is created.
+ * </p>
+ * 
+ * <p>
+ * Interceptors that are not annotated with this annotation are created for
+ * every request, once for each place in which they are declared.
+ * </p>
+ * 
+ * <pre>
+ * &#064;SingletonInterceptor
+ * public class SomeInterceptor {
+ *  ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * NOTE: It is up to the developer to address thread-safety in singleton
+ * interceptors. The single instance will be accessed simultaneously by 
+ * multiple threads.
+ * </p>
+ * 
+ * @author Luis Antunes
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface SingletonInterceptor {
+}
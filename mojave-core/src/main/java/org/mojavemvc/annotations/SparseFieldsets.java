@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * This annotation is used with actions whose return value is marshalled as
+ * JSON, to let clients select the properties of the return value that are
+ * written with a request parameter, such as
+ * <code>?fields=id,author.name</code>. The value is a comma-separated list
+ * of property paths, where nested properties are separated by dots.
+ * </p>
+ *
+ * <pre>
+ * &#064;SparseFieldsets
+ * &#064;Returns("application/json")
+ * &#064;GETAction
+ * public Order show(&#064;Param("id") String id) {
+ *  ...
+ * }
+ * </pre>
+ *
+ * <p>
+ * The value is the name of the request parameter, which is fields by
+ * default. The parameter is read from the bound parameters of the request,
+ * and applies only when the return value is marshalled as JSON; other
+ * content types are written in full. The responses of actions without this
+ * annotation are never filtered. This annotation can only be used on
+ * actions that return JSON.
+ * </p>
+ *
+ * @author Luis Antunes
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SparseFieldsets {
+    String value() default "fields";
+}
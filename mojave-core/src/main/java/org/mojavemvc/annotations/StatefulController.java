@@ -25,7 +25,8 @@
  * Only one instance of this controller will exist per request session. It is
  * kept in the HttpSession. The instance goes away when the session is
  * invalidated, the session times out, or the application is restarted. Its
- * dependencies, if any, are re-injected with every new request.
+ * dependencies, if any, are re-injected with every new request, unless a 
+ * different policy is declared with &#064;Reinject.
  * </p>
  * 
  * <p>
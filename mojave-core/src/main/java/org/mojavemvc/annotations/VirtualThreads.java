@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * The actions of this controller are invoked on a virtual thread, rather 
+ * than on the container's request thread. This is meant for controllers
+ * whose actions block, for example on JDBC or on remote calls, so that
+ * the number of requests being handled at once is not limited by the size
+ * of the container's thread pool.
+ * </p>
+ * 
+ * <pre>
+ * &#064;StatelessController
+ * &#064;VirtualThreads
+ * public class SomeController {
+ *  ...
+ * }
+ * </pre>
+ * 
+ * <p>
+ * The actions of all controllers can be invoked on virtual threads by 
+ * setting the virtual-threads init-param to true instead.
+ * </p>
+ * 
+ * <p>
+ * NOTE: The request is put into asynchronous mode, so this annotation has
+ * an effect only in a Servlet 3.0 container, where the FrontController or
+ * RequestFilter is declared with async-supported set to true. Virtual 
+ * threads require Java 21; on earlier versions of Java, the actions are 
+ * invoked on the threads of the async-executor.
+ * </p>
+ * 
+ * @author Luis Antunes
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface VirtualThreads {
+}
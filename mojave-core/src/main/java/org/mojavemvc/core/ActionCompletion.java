@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import org.mojavemvc.views.View;
+
+/**
+ * Completes an action invocation whose action returned an asynchronous 
+ * result, once the value of the result is available: the value is 
+ * marshalled, and the after actions of the controller and its interceptors 
+ * are invoked.
+ * 
+ * @author Luis Antunes
+ */
+public interface ActionCompletion {
+
+    /**
+     * @param value
+     *            the value of the asynchronous result
+     * @return the View resulting from the invocation
+     */
+    View complete(Object value) throws Exception;
+}
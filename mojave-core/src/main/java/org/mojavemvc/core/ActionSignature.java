@@ -20,6 +20,7 @@
 import java.util.List;
 import java.util.Map;
 
+import org.mojavemvc.marshalling.FieldFilter;
 import org.mojavemvc.views.View;
 
 /**
@@ -40,5 +41,34 @@ public interface ActionSignature {
     
     View marshall(Object entity);
     
+    /**
+     * Marshall the return value of the action for a request with the 
+     * given Accept header, for actions that return several content types.
+     * 
+     * @param entity the return value of the action
+     * @param accept the Accept header of the request, or null
+     * @return a View
+     */
+    View marshall(Object entity, String accept);
+    
+    /**
+     * Marshall the return value of the action for a request with the 
+     * given Accept header and fields parameter. The fields are only applied
+     * when the return value is marshalled as JSON.
+     * 
+     * @param entity the return value of the action
+     * @param accept the Accept header of the request, or null
+     * @param fields the properties of the return value to write, or null
+     *        to write all of them
+     * @return a View
+     */
+    View marshall(Object entity, String accept, FieldFilter fields);
+    
+    /**
+     * @return true if the content type of the marshalled return value
+     * depends on the Accept header of the request
+     */
+    boolean isNegotiated();
+    
     Annotation[] getAnnotations();
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.concurrent.Callable;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Puts a request into asynchronous mode, so that the request thread can be 
+ * returned to the container while an asynchronous action result completes.
+ * The implementation requires a Servlet 3.0 container, and is only loaded
+ * when one is available.
+ * <p>
+ * Implementations must be thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public interface AsyncActionDispatcher {
+
+    public static final String KEY = AsyncActionDispatcher.class.getName();
+
+    /**
+     * @param req
+     *            the request
+     * @return true if the request can be put into asynchronous mode
+     */
+    boolean isAsyncSupported(HttpServletRequest req);
+
+    /**
+     * Put the request into asynchronous mode, and call the callback on a 
+     * thread of the dispatcher's executor once the result completes or the 
+     * request times out. The request is completed after the callback 
+     * returns. If the request times out, or fails, before the result has
+     * completed, the callback is told that the request is abandoned, the 
+     * result is cancelled if it can be, and the callback is settled once 
+     * the result has completed. This method does not block.
+     * 
+     * @param req
+     *            the request
+     * @param res
+     *            the response
+     * @param actionResult
+     *            the asynchronous result returned by the action
+     * @param adapter
+     *            the adapter for the result
+     * @param callback
+     *            the callback that renders the response
+     */
+    void dispatch(HttpServletRequest req, HttpServletResponse res, Object actionResult, 
+            AsyncResultAdapter adapter, AsyncRequestCallback callback);
+
+    /**
+     * @return true if the actions of all controllers are to be invoked on 
+     *         the dispatcher's action executor, rather than only those of
+     *         controllers annotated with @VirtualThreads
+     */
+    boolean offloadsAllActions();
+
+    /**
+     * Put the request into asynchronous mode, and invoke the action on a 
+     * thread of the dispatcher's action executor, which uses virtual threads
+     * when they are available. The callback is called on the same thread 
+     * with the value returned by the action, and the request is completed 
+     * after the callback returns. If the request times out, or fails, 
+     * before the action has returned, the callback is told that the request
+     * is abandoned, the thread of the action is interrupted, and the 
+     * callback is settled once the action has returned. This method does 
+     * not block.
+     * 
+     * @param req
+     *            the request
+     * @param res
+     *            the response
+     * @param action
+     *            the invocation of the action
+     * @param callback
+     *            the callback that renders the response
+     */
+    void offload(HttpServletRequest req, HttpServletResponse res, Callable<?> action, 
+            AsyncRequestCallback callback);
+
+    /**
+     * Release the dispatcher's threads. Called when the framework is 
+     * taken out of service.
+     */
+    void shutdown();
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+/**
+ * Takes over a request whose action returned an asynchronous result.
+ * 
+ * @author Luis Antunes
+ */
+public interface AsyncActionHandler {
+
+    /**
+     * Arrange for the request to be completed once the asynchronous result 
+     * has completed. This method must not block.
+     * 
+     * @param actionResult
+     *            the asynchronous result returned by the action
+     * @param adapter
+     *            the adapter for the result
+     * @param completion
+     *            completes the action invocation with the result's value
+     */
+    void handle(Object actionResult, AsyncResultAdapter adapter, ActionCompletion completion);
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+/**
+ * Receives the outcome of the asynchronous action result of a request, and 
+ * is told when the request is abandoned: when it times out, or fails, 
+ * before the result has completed. The result may still be running when 
+ * the request is abandoned, so what it uses must not be released until 
+ * the callback is settled.
+ * 
+ * @author Luis Antunes
+ */
+public interface AsyncRequestCallback extends AsyncResultCallback {
+
+    /**
+     * Called, instead of completed or failed, when the request times out 
+     * or fails before the result has completed. The request is completed 
+     * after this method returns, and the result is then cancelled, if it 
+     * can be.
+     * 
+     * @param error
+     *            the timeout or the error of the request
+     */
+    void abandoned(Throwable error);
+
+    /**
+     * Called once the result of an abandoned request has completed, and 
+     * abandoned has returned. The value or error of the result is ignored.
+     */
+    void settled();
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Adapts one kind of asynchronous value that an action may return, such as 
+ * a Callable or a Future, so that the request can be completed when the 
+ * value becomes available.
+ * <p>
+ * Implementations must be thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public interface AsyncResultAdapter {
+
+    /**
+     * @param actionResult
+     *            the non-null value returned by an action
+     * @return true if the value is an asynchronous result handled by this 
+     *         adapter
+     */
+    boolean isAsyncResult(Object actionResult);
+
+    /**
+     * Arranges for the given callback to be called, on a thread of the 
+     * given executor, once the result has completed. This method must not 
+     * block.
+     * 
+     * @param actionResult
+     *            the asynchronous result
+     * @param executor
+     *            the executor to call the callback on
+     * @param callback
+     *            the callback
+     */
+    void onCompletion(Object actionResult, Executor executor, AsyncResultCallback callback);
+
+    /**
+     * Waits for the result to complete on the current thread. This is used
+     * when the request cannot be completed asynchronously.
+     * 
+     * @param actionResult
+     *            the asynchronous result
+     * @return the value of the result
+     * @throws Exception
+     *             the error the result completed with
+     */
+    Object await(Object actionResult) throws Exception;
+}
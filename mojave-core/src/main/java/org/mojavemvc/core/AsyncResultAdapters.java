@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The AsyncResultAdapters for the kinds of asynchronous values that an 
+ * action may return: a CompletionStage, when running on Java 8, a Callable 
+ * and a Future.
+ * 
+ * @author Luis Antunes
+ */
+public class AsyncResultAdapters {
+
+    private static final Logger logger = LoggerFactory.getLogger("org.mojavemvc");
+    
+    private static final String COMPLETION_STAGE = "java.util.concurrent.CompletionStage";
+    
+    private static final String COMPLETION_STAGE_ADAPTER = 
+            "org.mojavemvc.core.CompletionStageResultAdapter";
+    
+    private static final Class<?> completionStageClass = loadCompletionStageClass();
+    
+    private static final AsyncResultAdapter[] adapters = createAdapters();
+    
+    private AsyncResultAdapters() {}
+    
+    /**
+     * Get the adapter for the value returned by an action.
+     * 
+     * @param actionResult
+     *            the value returned by an action
+     * @return the adapter, or null if the value is not an asynchronous result
+     */
+    public static AsyncResultAdapter getAdapter(Object actionResult) {
+        
+        if (actionResult == null) {
+            return null;
+        }
+        for (AsyncResultAdapter adapter : adapters) {
+            if (adapter.isAsyncResult(actionResult)) {
+                return adapter;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Determine whether an action declared to return the given type returns 
+     * an asynchronous result.
+     * 
+     * @param returnType
+     *            the declared return type of an action
+     * @return true if the type is a Callable, a Future or a CompletionStage
+     */
+    public static boolean isAsyncResultType(Class<?> returnType) {
+        
+        if (Callable.class.isAssignableFrom(returnType) || 
+                Future.class.isAssignableFrom(returnType)) {
+            return true;
+        }
+        return completionStageClass != null && 
+                completionStageClass.isAssignableFrom(returnType);
+    }
+    
+    private static Class<?> loadCompletionStageClass() {
+        
+        try {
+            return Class.forName(COMPLETION_STAGE);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+    
+    private static AsyncResultAdapter[] createAdapters() {
+        
+        List<AsyncResultAdapter> list = new ArrayList<AsyncResultAdapter>();
+        /* 
+         * a CompletableFuture is also a Future, so the CompletionStage 
+         * adapter must come first 
+         */
+        if (completionStageClass != null) {
+            try {
+                /* the adapter requires Java 8, so it is only loaded by name */
+                list.add((AsyncResultAdapter) Class.forName(COMPLETION_STAGE_ADAPTER).newInstance());
+            } catch (Exception e) {
+                logger.error("error creating " + COMPLETION_STAGE_ADAPTER, e);
+            }
+        } else {
+            logger.debug(COMPLETION_STAGE + " is not available");
+        }
+        list.add(new CallableResultAdapter());
+        list.add(new FutureResultAdapter());
+        return list.toArray(new AsyncResultAdapter[list.size()]);
+    }
+}
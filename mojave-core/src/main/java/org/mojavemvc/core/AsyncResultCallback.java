@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+/**
+ * Receives the outcome of an asynchronous action result.
+ * 
+ * @author Luis Antunes
+ */
+public interface AsyncResultCallback {
+
+    /**
+     * Called when the result has completed with a value.
+     * 
+     * @param value
+     *            the value of the result, which may be a View or an entity 
+     *            to marshall
+     */
+    void completed(Object value);
+
+    /**
+     * Called when the result has completed with an error.
+     * 
+     * @param error
+     *            the error
+     */
+    void failed(Throwable error);
+}
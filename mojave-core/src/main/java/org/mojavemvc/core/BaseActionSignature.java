@@ -34,6 +34,9 @@
 import org.mojavemvc.forms.Submittable;
 import org.mojavemvc.marshalling.DefaultEntityMarshaller;
 import org.mojavemvc.marshalling.EntityMarshaller;
+import org.mojavemvc.marshalling.FieldFilter;
+import org.mojavemvc.marshalling.JSONEntityMarshaller;
+import org.mojavemvc.views.Response;
 import org.mojavemvc.views.View;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,6 +51,8 @@
 public class BaseActionSignature implements ActionSignature {
 
     protected static final Logger logger = LoggerFactory.getLogger("org.mojavemvc");
+    
+    private static final Object[] NO_ARGS = new Object[0];
 
     /*
      * the method name of the @Action method
@@ -58,18 +63,16 @@ public class BaseActionSignature implements ActionSignature {
      * Given the following signature:
      * 
      * someSignature(@Param("p1") String p1, @Model SomeModel Model, 
-     *  @Param("p2") Date p2, @Resource InputStream in, @Param("p3") UploadedFile file)
-     * 
-     * this array will look like:
+     *  @Param("p2") Date p2, @Resource InputStream in, @Param("p3") UploadedFile file, 
+     *  @Entity SomePojo pojo)
      * 
-     * ["p1"][String.class]
-     * [SomeForm.class][List<PropertyDescriptor>-beanProperties]
-     * ["p2"][Date.class]
-     * [Resource.class][InputStream.class]
-     * ["p3"][UploadedFile.class]
-     * [Entity.class][SomePojo.class]
+     * this array will hold, in order, a binder for "p1" converting to String, 
+     * a binder populating a SomeModel, a binder for "p2" converting to Date, 
+     * a binder supplying the request InputStream, a binder for "p3" and a 
+     * binder unmarshalling a SomePojo; they are resolved once, so that 
+     * getArgs does no type dispatch
      */
-    private final Object[][] paramTypeMap;
+    private final ArgumentBinder[] argumentBinders;
 
     /*
      * an array of the method's parameter types in the order in which they are
@@ -100,29 +103,37 @@ public BaseActionSignature(int fastIndex, String methodName, Class<?>[] paramTyp
 
         this.fastIndex = fastIndex;
         this.methodName = methodName;
-        this.paramTypeMap = new Object[paramTypes.length][2];
         this.paramMarshaller = paramMarshaller;
         this.viewMarshaller = viewMarshaller;
         this.methodAnnotations = methodAnnotations;
+        this.argumentBinders = new ArgumentBinder[paramTypes.length];
 
-        int i = 0;
-        for (Annotation[] annotationsForParam : paramAnnotations) {
-            for (Annotation annotation : annotationsForParam) {
-                if (annotation instanceof Param) {
-                    paramTypeMap[i] = new Object[] { ((Param) annotation).value(), paramTypes[i] };
-                } else if (annotation instanceof Model) {
-                    paramTypeMap[i] = new Object[] { paramTypes[i], getFormTypes(paramTypes[i]) };
-                } else if (annotation instanceof Resource) {
-                    paramTypeMap[i] = new Object[] { Resource.class, paramTypes[i] };
-                } else if (annotation instanceof Entity) {
-                    paramTypeMap[i] = new Object[] { Entity.class, paramTypes[i] };
-                }
-                i++;
-            }
+        for (int i = 0; i < paramTypes.length; i++) {
+            Annotation[] annotationsForParam = 
+                    i < paramAnnotations.length ? paramAnnotations[i] : new Annotation[0];
+            argumentBinders[i] = newArgumentBinder(i, paramTypes[i], annotationsForParam);
         }
 
         parameterTypes = paramTypes;
     }
+    
+    private ArgumentBinder newArgumentBinder(int index, Class<?> paramType, 
+            Annotation[] annotationsForParam) {
+        
+        for (Annotation annotation : annotationsForParam) {
+            if (annotation instanceof Param) {
+                return new ParamBinder(((Param) annotation).value(), 
+                        SignatureParameters.getParameterFromType(paramType));
+            } else if (annotation instanceof Model) {
+                return new ModelBinder(paramType, getFormTypes(paramType));
+            } else if (annotation instanceof Resource) {
+                return new ResourceBinder();
+            } else if (annotation instanceof Entity) {
+                return new EntityBinder(paramMarshaller, paramType);
+            }
+        }
+        return new UnboundBinder(index, methodName);
+    }
 
     public String methodName() {
 
@@ -153,77 +164,39 @@ public View marshall(Object entity) {
         return viewMarshaller.marshall(entity);
     }
     
-    @SuppressWarnings("unchecked")
-    public Object[] getArgs(Map<String, ?> parametersMap, InputStream servletInputStream) {
-
-        List<Object> args = new ArrayList<Object>();
-
-        for (int i = 0; i < paramTypeMap.length; i++) {
-            Object[] mapRow = paramTypeMap[i];
-            Object key = mapRow[0];
-            Object value = mapRow[1];
-            if (key instanceof String && value instanceof Class<?>) {
-
-                Object paramValue = parametersMap.get((String) key);
-                
-                Parameter param = SignatureParameters.getParameterFromType((Class<?>) value);
-                param.populateArgs(args, paramValue);
-
-            } else if (key instanceof Class && value instanceof List) {
-
-                populateArgsForForms((Class<?>) key, parametersMap, (List<PropertyDescriptor>) value, args);
-                
-            } else if (key.equals(Resource.class)) {
-                
-                if (servletInputStream == null) {
-                    throw new RuntimeException("an InputStream is a requested parameter but none has been provided");
-                }
-                args.add(servletInputStream);
-                
-            } else if (key.equals(Entity.class)) {
-                
-                if (paramMarshaller == null) {
-                    throw new RuntimeException("a parameter entity needs to be unmarshalled but no param marshaller exists");
-                }
-                args.add(paramMarshaller.unmarshall(servletInputStream, (Class<?>)value));
+    public View marshall(Object entity, String accept) {
+        return marshall(entity, accept, null);
+    }
+    
+    public View marshall(Object entity, String accept, FieldFilter fields) {
+        EntityMarshaller marshaller = viewMarshaller;
+        if (viewMarshaller instanceof NegotiatedEntityMarshaller) {
+            marshaller = ((NegotiatedEntityMarshaller) viewMarshaller).marshallerFor(accept);
+            if (marshaller == null) {
+                return new Response.NotAcceptable();
             }
         }
-
-        return args.toArray();
+        if (fields != null && marshaller instanceof JSONEntityMarshaller) {
+            return ((JSONEntityMarshaller) marshaller).marshall(entity, fields);
+        }
+        return marshaller.marshall(entity);
     }
+    
+    public boolean isNegotiated() {
+        return viewMarshaller instanceof NegotiatedEntityMarshaller;
+    }
+    
+    public Object[] getArgs(Map<String, ?> parametersMap, InputStream servletInputStream) {
 
-    private void populateArgsForForms(Class<?> formType, Map<String, ?> parametersMap, List<PropertyDescriptor> params,
-            List<Object> args) {
-
-        try {
-
-            Object formBean = formType.newInstance();
-
-            /* set the properties on the bean */
-            for (PropertyDescriptor propertyDescriptor : params) {
-                /* val can be a String or String[] */
-                Object val = parametersMap.get(propertyDescriptor.getName());
-                /* get the write method */
-                Method setter = propertyDescriptor.getWriteMethod();
-                /* there should be only one parameter type */
-                Class<?> setterParamType = setter.getParameterTypes()[0];
-                List<Object> setterArgs = new ArrayList<Object>();
-                
-                Parameter param = SignatureParameters.getParameterFromType(setterParamType);
-                param.populateArgs(setterArgs, val);
-
-                setter.invoke(formBean, setterArgs.toArray());
-            }
-
-            if (formBean instanceof Submittable) {
-                ((Submittable) formBean).onSubmit();
-            }
-
-            args.add(formBean);
-
-        } catch (Exception e) {
-            logger.error("error populating args for forms", e);
+        if (argumentBinders.length == 0) {
+            return NO_ARGS;
         }
+        
+        Object[] args = new Object[argumentBinders.length];
+        for (int i = 0; i < argumentBinders.length; i++) {
+            args[i] = argumentBinders[i].bind(parametersMap, servletInputStream);
+        }
+        return args;
     }
 
     private List<PropertyDescriptor> getFormTypes(Class<?> formType) {
@@ -245,4 +218,121 @@ private List<PropertyDescriptor> getFormTypes(Class<?> formType) {
 
         return params;
     }
-}
\ No newline at end of file
+    
+    /*
+     * produces the value of a single action method argument; an instance 
+     * must be immutable to permit safe concurrent access
+     */
+    private static interface ArgumentBinder {
+        
+        Object bind(Map<String, ?> parametersMap, InputStream servletInputStream);
+    }
+    
+    private static class ParamBinder implements ArgumentBinder {
+        
+        private final String name;
+        private final Parameter param;
+        
+        private ParamBinder(String name, Parameter param) {
+            this.name = name;
+            this.param = param;
+        }
+        
+        public Object bind(Map<String, ?> parametersMap, InputStream servletInputStream) {
+            return param.getValue(parametersMap.get(name));
+        }
+    }
+    
+    private static class ModelBinder implements ArgumentBinder {
+        
+        private final Class<?> formType;
+        private final String[] propertyNames;
+        private final Method[] setters;
+        private final Parameter[] setterParams;
+        
+        private ModelBinder(Class<?> formType, List<PropertyDescriptor> properties) {
+            this.formType = formType;
+            this.propertyNames = new String[properties.size()];
+            this.setters = new Method[properties.size()];
+            this.setterParams = new Parameter[properties.size()];
+            for (int i = 0; i < propertyNames.length; i++) {
+                PropertyDescriptor propertyDescriptor = properties.get(i);
+                propertyNames[i] = propertyDescriptor.getName();
+                setters[i] = propertyDescriptor.getWriteMethod();
+                /* there should be only one parameter type */
+                setterParams[i] = SignatureParameters.getParameterFromType(
+                        setters[i].getParameterTypes()[0]);
+            }
+        }
+        
+        public Object bind(Map<String, ?> parametersMap, InputStream servletInputStream) {
+            
+            try {
+
+                Object formBean = formType.newInstance();
+
+                /* set the properties on the bean */
+                for (int i = 0; i < setters.length; i++) {
+                    /* val can be a String or String[] */
+                    Object val = parametersMap.get(propertyNames[i]);
+                    setters[i].invoke(formBean, setterParams[i].getValue(val));
+                }
+
+                if (formBean instanceof Submittable) {
+                    ((Submittable) formBean).onSubmit();
+                }
+
+                return formBean;
+
+            } catch (Exception e) {
+                logger.error("error populating args for forms", e);
+                return null;
+            }
+        }
+    }
+    
+    private static class ResourceBinder implements ArgumentBinder {
+        
+        public Object bind(Map<String, ?> parametersMap, InputStream servletInputStream) {
+            if (servletInputStream == null) {
+                throw new RuntimeException("an InputStream is a requested parameter but none has been provided");
+            }
+            return servletInputStream;
+        }
+    }
+    
+    private static class EntityBinder implements ArgumentBinder {
+        
+        private final EntityMarshaller paramMarshaller;
+        private final Class<?> entityType;
+        
+        private EntityBinder(EntityMarshaller paramMarshaller, Class<?> entityType) {
+            this.paramMarshaller = paramMarshaller;
+            this.entityType = entityType;
+        }
+        
+        public Object bind(Map<String, ?> parametersMap, InputStream servletInputStream) {
+            if (paramMarshaller == null) {
+                throw new RuntimeException("a parameter entity needs to be unmarshalled but no param marshaller exists");
+            }
+            return paramMarshaller.unmarshall(servletInputStream, entityType);
+        }
+    }
+    
+    private static class UnboundBinder implements ArgumentBinder {
+        
+        private final int index;
+        private final String methodName;
+        
+        private UnboundBinder(int index, String methodName) {
+            this.index = index;
+            this.methodName = methodName;
+        }
+        
+        public Object bind(Map<String, ?> parametersMap, InputStream servletInputStream) {
+            throw new RuntimeException("parameter " + index + " of " + methodName + " is not annotated with @" 
+                    + Param.class.getSimpleName() + ", @" + Model.class.getSimpleName() + ", @" 
+                    + Resource.class.getSimpleName() + " or @" + Entity.class.getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A StatefulControllerStore that keeps controller instances in memory, 
+ * outside of the HttpSession, so that they are not replicated with it. The 
+ * store holds at most a given number of instances, evicting the least 
+ * recently used one when it is full, and discards any instance that has 
+ * not been used for longer than the maximum idle time. A request for a 
+ * session whose instance was evicted gets a new instance.
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class BoundedControllerStore implements StatefulControllerStore {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    
+    public static final long DEFAULT_MAX_IDLE = 30 * 60 * 1000L;
+
+    private final int maxEntries;
+    private final long maxIdle;
+    
+    /*
+     * in access order, so that the eldest entry is the least recently used
+     */
+    private final LinkedHashMap<String, StoredController> entries;
+
+    public BoundedControllerStore() {
+
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * @param maxEntries
+     *            the maximum number of instances held
+     * @param maxIdle
+     *            the time in milliseconds after which an unused instance is
+     *            discarded, or -1 for no limit
+     */
+    public BoundedControllerStore(final int maxEntries, long maxIdle) {
+
+        this.maxEntries = maxEntries;
+        this.maxIdle = maxIdle;
+        this.entries = new LinkedHashMap<String, StoredController>(16, 0.75f, true) {
+            
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredController> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public Object get(HttpServletRequest req, Class<?> controllerClass) {
+
+        String key = newKey(req, controllerClass);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            StoredController entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (isIdle(entry, now)) {
+                entries.remove(key);
+                return null;
+            }
+            entry.lastAccess = now;
+            return entry.controller;
+        }
+    }
+
+    public void put(HttpServletRequest req, Class<?> controllerClass, Object controller) {
+
+        String key = newKey(req, controllerClass);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            entries.put(key, new StoredController(controller, now));
+            evictIdle(now);
+        }
+    }
+
+    /**
+     * @return the number of instances currently held
+     */
+    public int size() {
+
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxEntries() {
+
+        return maxEntries;
+    }
+
+    public long getMaxIdle() {
+
+        return maxIdle;
+    }
+
+    public void destroy() {
+
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /*
+     * the least recently used entries come first, so eviction stops at the 
+     * first entry that is not idle
+     */
+    private void evictIdle(long now) {
+
+        if (maxIdle < 0) {
+            return;
+        }
+        Iterator<StoredController> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (!isIdle(it.next(), now)) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    private boolean isIdle(StoredController entry, long now) {
+
+        return maxIdle >= 0 && now - entry.lastAccess > maxIdle;
+    }
+
+    private static String newKey(HttpServletRequest req, Class<?> controllerClass) {
+
+        return req.getSession().getId() + "|" + controllerClass.getName();
+    }
+
+    private static class StoredController {
+
+        private final Object controller;
+        private long lastAccess;
+
+        private StoredController(Object controller, long lastAccess) {
+            this.controller = controller;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
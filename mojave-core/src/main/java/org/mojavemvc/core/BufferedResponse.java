@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.mojavemvc.core.ResponseSnapshot.Operation;
+import org.mojavemvc.core.ResponseSnapshot.OperationType;
+
+/**
+ * A response that holds the rendered body in memory, and records the status
+ * and headers set on it in a ResponseSnapshot, so that the same response can
+ * be sent to other requests. The status and headers are also set on the 
+ * wrapped response as they are recorded, while the body is written to it 
+ * only by {@link #commit()}. Cookies are added to the wrapped response only,
+ * and are never sent to other requests.
+ * <p>
+ * An instance of this class is used by one thread while the response is 
+ * rendered; once rendering is complete, its snapshot may be sent to other 
+ * responses concurrently.
+ * 
+ * @author Luis Antunes
+ */
+class BufferedResponse extends HttpServletResponseWrapper {
+
+    private final List<Operation> operations = new ArrayList<Operation>();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    private boolean committed;
+    /*
+     * true if the response was completed with sendError or sendRedirect, 
+     * in which case there is no body to send
+     */
+    private boolean sent;
+    private boolean withCookies;
+    private int status = SC_OK;
+    private ResponseSnapshot snapshot;
+
+    BufferedResponse(HttpServletResponse response) {
+
+        super(response);
+    }
+
+    /**
+     * Write the buffered body to the wrapped response.
+     */
+    void commit() throws IOException {
+
+        close();
+        if (!sent && body.size() > 0) {
+            ServletOutputStream out = getResponse().getOutputStream();
+            body.writeTo(out);
+            out.flush();
+        }
+    }
+
+    /**
+     * Write the buffered body to the wrapped response, unless the 
+     * conditional headers of the request match the rendered response, in 
+     * which case the wrapped response is 304 Not Modified.
+     * 
+     * @param request the request, or null to always write the body
+     */
+    void commit(HttpServletRequest request) throws IOException {
+
+        if (request != null && snapshot().isNotModified(request)) {
+            ((HttpServletResponse) getResponse()).setStatus(SC_NOT_MODIFIED);
+            return;
+        }
+        commit();
+    }
+
+    /**
+     * @return the recorded status, headers and body, once rendering is 
+     *         complete
+     */
+    ResponseSnapshot snapshot() {
+
+        if (snapshot == null) {
+            close();
+            snapshot = new ResponseSnapshot(operations, body.toByteArray(), status, sent, withCookies);
+        }
+        return snapshot;
+    }
+
+    private void close() {
+
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    private void record(OperationType type, String name, String value, long number) {
+
+        operations.add(new Operation(type, name, value, number, null));
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    body.write(b, off, len);
+                }
+
+                @Override
+                public void flush() {
+                    committed = true;
+                }
+
+                @Override
+                public void close() {
+                    committed = true;
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+
+        if (outputStream != null) {
+            throw new IllegalStateException("getOutputStream() has already been called");
+        }
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(body, getCharacterEncoding())) {
+                
+                @Override
+                public void flush() {
+                    super.flush();
+                    committed = true;
+                }
+
+                @Override
+                public void close() {
+                    super.flush();
+                    committed = true;
+                }
+            };
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() {
+
+        close();
+        committed = true;
+    }
+
+    @Override
+    public boolean isCommitted() {
+
+        return committed || super.isCommitted();
+    }
+
+    @Override
+    public void resetBuffer() {
+
+        if (committed) {
+            throw new IllegalStateException("the response has already been committed");
+        }
+        close();
+        body.reset();
+    }
+
+    @Override
+    public void reset() {
+
+        resetBuffer();
+        super.reset();
+        operations.clear();
+        status = SC_OK;
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+
+        super.addCookie(cookie);
+        withCookies = true;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+
+        super.sendError(sc, msg);
+        record(OperationType.SEND_ERROR, null, msg, sc);
+        status = sc;
+        committed = sent = true;
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+
+        super.sendError(sc);
+        record(OperationType.SEND_ERROR, null, null, sc);
+        status = sc;
+        committed = sent = true;
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+
+        super.sendRedirect(location);
+        record(OperationType.SEND_REDIRECT, null, location, 0);
+        status = SC_FOUND;
+        committed = sent = true;
+    }
+
+    @Override
+    public void setStatus(int sc) {
+
+        super.setStatus(sc);
+        record(OperationType.SET_STATUS, null, null, sc);
+        status = sc;
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void setStatus(int sc, String sm) {
+
+        super.setStatus(sc, sm);
+        record(OperationType.SET_STATUS, null, sm, sc);
+        status = sc;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+
+        super.setHeader(name, value);
+        record(OperationType.SET_HEADER, name, value, 0);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+
+        super.addHeader(name, value);
+        record(OperationType.ADD_HEADER, name, value, 0);
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+
+        super.setDateHeader(name, date);
+        record(OperationType.SET_DATE_HEADER, name, null, date);
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+
+        super.addDateHeader(name, date);
+        record(OperationType.ADD_DATE_HEADER, name, null, date);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+
+        super.setIntHeader(name, value);
+        record(OperationType.SET_INT_HEADER, name, null, value);
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+
+        super.addIntHeader(name, value);
+        record(OperationType.ADD_INT_HEADER, name, null, value);
+    }
+
+    @Override
+    public void setContentType(String type) {
+
+        super.setContentType(type);
+        record(OperationType.SET_CONTENT_TYPE, null, type, 0);
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+
+        super.setCharacterEncoding(charset);
+        record(OperationType.SET_CHARACTER_ENCODING, null, charset, 0);
+    }
+
+    @Override
+    public void setContentLength(int len) {
+
+        super.setContentLength(len);
+        record(OperationType.SET_CONTENT_LENGTH, null, null, len);
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+
+        super.setLocale(loc);
+        operations.add(new Operation(OperationType.SET_LOCALE, null, null, 0, loc));
+    }
+}
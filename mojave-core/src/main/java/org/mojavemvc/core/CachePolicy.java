@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.mojavemvc.annotations.Cached;
+import org.mojavemvc.views.HTTPHeader;
+
+/**
+ * How the responses of a &#064;Cached action are cached: for how long, and
+ * which bound parameters and request headers identify a response. The 
+ * Accept header always identifies the response of an action whose content 
+ * type is negotiated, and the fields parameter of a &#064;SparseFieldsets
+ * action, which selects the properties of its marshalled return value, 
+ * always identifies a response.
+ * <p>
+ * An instance of this class is immutable and thread-safe, and is held by the
+ * InvocationPlan of the action.
+ * 
+ * @author Luis Antunes
+ */
+public class CachePolicy {
+
+    private final String keyPrefix;
+    private final long ttl;
+    private final String[] params;
+    private final String[] vary;
+    /*
+     * null if the action is not @SparseFieldsets
+     */
+    private final String fieldsParameter;
+
+    /**
+     * @param controllerClass
+     *            the controller class
+     * @param actionMethodName
+     *            the name of the action method
+     * @param cached
+     *            the annotation of the action method
+     */
+    public CachePolicy(Class<?> controllerClass, String actionMethodName, Cached cached) {
+
+        this(controllerClass, actionMethodName, cached, false);
+    }
+
+    /**
+     * @param controllerClass
+     *            the controller class
+     * @param actionMethodName
+     *            the name of the action method
+     * @param cached
+     *            the annotation of the action method
+     * @param negotiated
+     *            whether the content type of the response is chosen from 
+     *            the Accept header of the request
+     */
+    public CachePolicy(Class<?> controllerClass, String actionMethodName, Cached cached, 
+            boolean negotiated) {
+
+        this(controllerClass, actionMethodName, cached, negotiated, null);
+    }
+
+    /**
+     * @param controllerClass
+     *            the controller class
+     * @param actionMethodName
+     *            the name of the action method
+     * @param cached
+     *            the annotation of the action method
+     * @param negotiated
+     *            whether the content type of the response is chosen from 
+     *            the Accept header of the request
+     * @param fieldsParameter
+     *            the name of the parameter selecting the properties of the
+     *            marshalled return value, or null if there is none
+     */
+    public CachePolicy(Class<?> controllerClass, String actionMethodName, Cached cached, 
+            boolean negotiated, String fieldsParameter) {
+
+        this.keyPrefix = ResponseCache.newKeyPrefix(controllerClass, actionMethodName);
+        this.ttl = cached.ttl();
+        this.params = cached.params();
+        this.vary = negotiated ? withAccept(cached.vary()) : cached.vary();
+        this.fieldsParameter = fieldsParameter;
+    }
+
+    private static String[] withAccept(String[] vary) {
+
+        for (String header : vary) {
+            if (header.equalsIgnoreCase(HTTPHeader.ACCEPT)) {
+                return vary;
+            }
+        }
+        String[] withAccept = Arrays.copyOf(vary, vary.length + 1);
+        withAccept[vary.length] = HTTPHeader.ACCEPT;
+        return withAccept;
+    }
+
+    /**
+     * @return the number of milliseconds a response is cached for
+     */
+    public long getTtl() {
+
+        return ttl;
+    }
+
+    /**
+     * Get the key of the response to the given request in the ResponseCache.
+     * The parameters and headers are encoded as they are in the keys of the 
+     * RequestCoalescer, so that a client cannot choose parameter or header 
+     * values that give its request the key of another response.
+     */
+    public String newKey(RoutedRequest routed, HttpServletRequest req) {
+
+        Map<String, Object> parameterMap = routed.getParameterMap();
+        if (params.length > 0 && parameterMap != null) {
+            Map<String, Object> selected = new LinkedHashMap<String, Object>();
+            for (String param : params) {
+                selected.put(param, parameterMap.get(param));
+            }
+            if (fieldsParameter != null) {
+                /* the fields parameter always selects the marshalled properties */
+                selected.put(fieldsParameter, parameterMap.get(fieldsParameter));
+            }
+            parameterMap = selected;
+        }
+        
+        StringBuilder key = new StringBuilder(keyPrefix);
+        key.append(RequestCoalescer.newKey(parameterMap)).append('|');
+        for (String header : vary) {
+            RequestCoalescer.appendKeyElement(key, header, req.getHeader(header));
+        }
+        return key.toString();
+    }
+}
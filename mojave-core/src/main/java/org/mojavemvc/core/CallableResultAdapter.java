@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Handles actions that return a Callable. The Callable is called on the 
+ * executor.
+ * 
+ * @author Luis Antunes
+ */
+public class CallableResultAdapter implements AsyncResultAdapter {
+
+    public boolean isAsyncResult(Object actionResult) {
+        
+        return actionResult instanceof Callable;
+    }
+
+    public void onCompletion(final Object actionResult, Executor executor, 
+            final AsyncResultCallback callback) {
+
+        executor.execute(new Runnable() {
+            public void run() {
+                Object value;
+                try {
+                    value = ((Callable<?>) actionResult).call();
+                } catch (Throwable e) {
+                    callback.failed(e);
+                    return;
+                }
+                callback.completed(value);
+            }
+        });
+    }
+
+    public Object await(Object actionResult) throws Exception {
+        
+        return ((Callable<?>) actionResult).call();
+    }
+}
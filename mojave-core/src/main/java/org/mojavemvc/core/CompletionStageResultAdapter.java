@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Handles actions that return a CompletionStage, such as a 
+ * CompletableFuture. No thread waits for the stage to complete.
+ * <p>
+ * NOTE: this class requires Java 8, and is only loaded when a 
+ * CompletionStage is available.
+ * 
+ * @author Luis Antunes
+ */
+public class CompletionStageResultAdapter implements AsyncResultAdapter {
+
+    public boolean isAsyncResult(Object actionResult) {
+        
+        return actionResult instanceof CompletionStage;
+    }
+
+    public void onCompletion(Object actionResult, Executor executor, 
+            final AsyncResultCallback callback) {
+
+        ((CompletionStage<?>) actionResult).whenCompleteAsync((value, error) -> {
+            if (error != null) {
+                callback.failed(unwrap(error));
+            } else {
+                callback.completed(value);
+            }
+        }, executor);
+    }
+
+    public Object await(Object actionResult) throws Exception {
+        
+        try {
+            return ((CompletionStage<?>) actionResult).toCompletableFuture().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+}
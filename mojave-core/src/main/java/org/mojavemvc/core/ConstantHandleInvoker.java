@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * A MethodInvoker that holds its MethodHandle in a static final field. The
+ * JIT treats such a handle as a constant, and can inline the invoked method
+ * into the caller, which it cannot do through a handle held in an instance 
+ * field. The class is never used as it is: the MethodHandleInvokerFactory 
+ * defines a copy of it for each method, with a {@link HandleLoader} that 
+ * holds the method's handle.
+ * <p>
+ * NOTE: this class requires Java 7, and is compiled separately at that 
+ * source level.
+ * 
+ * @author Luis Antunes
+ */
+public final class ConstantHandleInvoker implements MethodInvoker {
+
+    private static final MethodHandle HANDLE = 
+            HandleLoader.getHandle(MethodHandles.lookup().lookupClass());
+
+    public Object invoke(Object target, Object[] args) throws Exception {
+
+        try {
+            return (Object) HANDLE.invokeExact(target, args);
+        } catch (Throwable e) {
+            /* consistent with FastClass, which wraps whatever the method throws */
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * The class loader of a copy of the ConstantHandleInvoker, holding the 
+     * handle the copy invokes. It delegates every other class to its 
+     * parent.
+     */
+    public static final class HandleLoader extends ClassLoader {
+
+        private final MethodHandle handle;
+        private final Class<?> invokerClass;
+
+        HandleLoader(ClassLoader parent, byte[] invokerBytes, MethodHandle handle) {
+
+            super(parent);
+            this.handle = handle;
+            this.invokerClass = defineClass(ConstantHandleInvoker.class.getName(), 
+                    invokerBytes, 0, invokerBytes.length, 
+                    ConstantHandleInvoker.class.getProtectionDomain());
+        }
+
+        /**
+         * @param invokerClass
+         *            a copy of the ConstantHandleInvoker
+         * @return the handle held by the loader of the copy
+         */
+        public static MethodHandle getHandle(Class<?> invokerClass) {
+
+            ClassLoader loader = invokerClass.getClassLoader();
+            if (!(loader instanceof HandleLoader)) {
+                throw new IllegalStateException(
+                        "ConstantHandleInvoker can only be created by the MethodHandleInvokerFactory");
+            }
+            return ((HandleLoader) loader).handle;
+        }
+
+        MethodInvoker newInvoker() throws Exception {
+
+            return (MethodInvoker) invokerClass.newInstance();
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+
+            /* the copy is being defined while its interface is loaded */
+            if (invokerClass != null && name.equals(invokerClass.getName())) {
+                return invokerClass;
+            }
+            return super.loadClass(name, resolve);
+        }
+    }
+}
@@ -70,6 +70,34 @@ public interface ControllerDatabase {
      */
     ActionSignature getAfterActionMethodFor(Class<?> controllerClass);
 
+    /**
+     * Get the ActionSignature annotated with @LastModified that applies to 
+     * the given action method of the given controller class. 
+     * ActionSignature is thread-safe.
+     * 
+     * @param controllerClass
+     *            the controller class
+     * @param actionMethodName
+     *            the name of the action method
+     * @return the ActionSignature, or null if there is no ActionSignature
+     *         annotated with @LastModified for the action
+     */
+    ActionSignature getLastModifiedMethodFor(Class<?> controllerClass, String actionMethodName);
+
+    /**
+     * Get the ActionSignature annotated with @EntityTag that applies to the 
+     * given action method of the given controller class. ActionSignature is
+     * thread-safe.
+     * 
+     * @param controllerClass
+     *            the controller class
+     * @param actionMethodName
+     *            the name of the action method
+     * @return the ActionSignature, or null if there is no ActionSignature
+     *         annotated with @EntityTag for the action
+     */
+    ActionSignature getEntityTagMethodFor(Class<?> controllerClass, String actionMethodName);
+
     /**
      * Get the ActionSignature annotated with @DefaultAction for the given
      * controller class. ActionSignature is thread-safe.
@@ -99,6 +127,36 @@ public interface ControllerDatabase {
      */
     Set<Class<?>> getInitControllers();
 
+    /**
+     * Get an unmodifiable set of all the singleton controller classes.
+     * 
+     * @return the singleton controller classes
+     */
+    Set<Class<?>> getSingletonControllers();
+
+    /**
+     * Get the SingletonControllerHolder for the given singleton controller 
+     * class. SingletonControllerHolder is thread-safe, and the single instance
+     * of the controller is shared through it.
+     * 
+     * @param controllerClass
+     *            the controller class
+     * @return the SingletonControllerHolder, or null if the class is not a
+     *         singleton controller known to this database
+     */
+    SingletonControllerHolder getSingletonHolder(Class<?> controllerClass);
+
+    /**
+     * Get the ControllerLocator for the given controller class. 
+     * ControllerLocator is thread-safe.
+     * 
+     * @param controllerClass
+     *            the controller class
+     * @return the ControllerLocator, or null if the class is not a 
+     *         controller known to this database
+     */
+    ControllerLocator getControllerLocator(Class<?> controllerClass);
+
     /**
      * Get an unmodifiable list of Classes that represent interceptors for the
      * given class, in the order in which they are declared in the @InterceptedBy
@@ -132,6 +190,17 @@ public interface ControllerDatabase {
      */
     ActionSignature getBeforeActionMethodForInterceptor(Class<?> interceptorClass);
 
+    /**
+     * Get the InterceptorPlan for the given interceptor class. InterceptorPlan
+     * is thread-safe, and a singleton interceptor is shared through it.
+     * 
+     * @param interceptorClass
+     *            the interceptor class
+     * @return the InterceptorPlan, or null if the class is not an interceptor
+     *         known to this database
+     */
+    InterceptorPlan getInterceptorPlan(Class<?> interceptorClass);
+
     /**
      * Get the default controller for the application, if specified.
      * 
@@ -190,6 +259,21 @@ public interface ControllerDatabase {
      */
     FastClass getFastClass(Class<?> clazz);
 
+    /**
+     * Get the MethodInvoker for the method described by the given 
+     * ActionSignature. MethodInvoker is thread-safe.
+     * 
+     * @param clazz
+     *            the controller or interceptor class the method belongs to
+     * @param signature
+     *            the ActionSignature of the method
+     * @return the invoker created for the signature by this database or, if 
+     *         the signature was not created by this database, an invoker that
+     *         uses the FastClass of the given class and the signature's fast 
+     *         index
+     */
+    MethodInvoker getMethodInvoker(Class<?> clazz, ActionSignature signature);
+
     /**
      * Get the HTTP method ActionSignature associated with the given controller
      * class. ActionSignature is a thread-safe class.
@@ -209,4 +293,29 @@ public interface ControllerDatabase {
      * @return the route map for the application
      */
     RouteMap getRouteMap();
+    
+    /**
+     * Get the InvocationPlan for the given ActionSignature. InvocationPlan is 
+     * thread-safe.
+     * 
+     * @param actionSignature
+     *            an action, default action or HTTP method action signature
+     *            created by this database
+     * @return the plan for the action, or null if the signature was not 
+     *         created by this database
+     */
+    InvocationPlan getInvocationPlan(ActionSignature actionSignature);
+    
+    /**
+     * Get the InvocationPlan for a request that matched the given Route 
+     * with the given HTTP method. InvocationPlan is thread-safe.
+     * 
+     * @param route
+     *            the matched route, or null for a request with no path, 
+     *            which is handled by the default controller
+     * @param httpMethod
+     *            the HTTP method of the request
+     * @return the plan, or null if the request does not resolve to an action
+     */
+    InvocationPlan getInvocationPlan(Route route, HttpMethod httpMethod);
 }
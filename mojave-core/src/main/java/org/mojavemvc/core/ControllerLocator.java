@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.mojavemvc.annotations.Pooled;
+import org.mojavemvc.annotations.Reinject.Policy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+
+/**
+ * Obtains the instance of a controller that should handle a request,
+ * according to the controller's scope. Stateful controllers are kept in the 
+ * StatefulControllerStore found in the Context, or in the HTTP session if 
+ * there is none, and singleton controllers in the SingletonControllerHolder 
+ * of the ControllerDatabase.
+ * <p>
+ * A request for a stateful controller waits until any other request of the 
+ * same session for the same controller is complete. It then holds a 
+ * StatefulControllerLease, which must be released once the request is 
+ * complete. Likewise, a request for a &#064;Pooled stateless controller holds
+ * an instance taken from the controller's StatelessControllerPool, which 
+ * must be returned to the pool once the request is complete.
+ * <p>
+ * New instances are created through the Provider of the controller class, 
+ * which is looked up from the Injector once and then reused.
+ * <p>
+ * A store may return an instance other than the one it was given, such as a
+ * deserialized copy, whose transient dependencies are not set. The stateful 
+ * instances created or injected here are therefore remembered, and any other
+ * instance obtained from the store has all of its dependencies injected, 
+ * whatever the controller's &#064;Reinject policy.
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class ControllerLocator {
+
+    private static final Logger logger = LoggerFactory.getLogger("org.mojavemvc");
+
+    private static final StatefulControllerStore DEFAULT_STORE = new HttpSessionControllerStore();
+
+    private final Class<?> controllerClass;
+    private final String controllerClassName;
+    private final ControllerScope scope;
+    private final MethodInvoker afterConstructInvoker;
+    private final SingletonControllerHolder singletonHolder;
+    private final ControllerReinjector reinjector;
+    private final SessionRequestQueue requestQueue;
+    private final StatelessControllerPool pool;
+    
+    /*
+     * the stateful instances whose dependencies are known to be set, held
+     * weakly; the value is checked by identity, since an instance may be 
+     * equal to a copy of it
+     */
+    private final Map<Object, WeakReference<Object>> injectedInstances;
+    
+    /*
+     * the Provider is specific to an Injector, so the one it was obtained 
+     * from is held with it
+     */
+    private volatile CachedProvider provider;
+
+    public ControllerLocator(ControllerDatabase controllerDb, Class<?> controllerClass) {
+
+        this.controllerClass = controllerClass;
+        this.controllerClassName = controllerClass.getName();
+        this.scope = ControllerScope.of(controllerClass);
+        ActionSignature afterConstructSig = controllerDb.getAfterConstructMethodFor(controllerClass);
+        this.afterConstructInvoker = afterConstructSig == null ? null : 
+                controllerDb.getMethodInvoker(controllerClass, afterConstructSig);
+        this.singletonHolder = scope == ControllerScope.SINGLETON ? 
+                getSingletonHolder(controllerDb, controllerClass) : null;
+        Pooled pooled = controllerClass.getAnnotation(Pooled.class);
+        this.pool = pooled == null ? null : new StatelessControllerPool(pooled.value());
+        this.reinjector = scope == ControllerScope.STATELESS && pool == null ? null : 
+                new ControllerReinjector(controllerClass);
+        this.requestQueue = scope == ControllerScope.STATEFUL ? new SessionRequestQueue() : null;
+        this.injectedInstances = scope == ControllerScope.STATEFUL && 
+                reinjector.getPolicy() != Policy.ALWAYS ? 
+                Collections.synchronizedMap(new WeakHashMap<Object, WeakReference<Object>>()) : null;
+    }
+
+    private static SingletonControllerHolder getSingletonHolder(ControllerDatabase controllerDb, 
+            Class<?> controllerClass) {
+
+        SingletonControllerHolder holder = controllerDb.getSingletonHolder(controllerClass);
+        if (holder == null) {
+            throw new IllegalArgumentException("no singleton controller holder exists for " + 
+                    controllerClass.getName());
+        }
+        return holder;
+    }
+
+    public Object locate(Context context, HttpServletRequest request, 
+            Injector injector) throws Exception {
+
+        switch (scope) {
+        case STATEFUL:
+            return locateInStore(context, request, injector);
+        case SINGLETON:
+            return locateSingleton(injector);
+        default:
+            return pool == null ? newController(injector) : locateInPool(request, injector);
+        }
+    }
+
+    private Object locateInPool(HttpServletRequest request, Injector injector) throws Exception {
+
+        /* return anything the request already holds */
+        StatelessControllerPool.release(request);
+        
+        Object actionController = pool.take();
+        if (actionController != null) {
+            /* re-inject Guice-managed dependencies, as declared by the controller */
+            reinjector.reinject(actionController, injector);
+        } else {
+            actionController = newController(injector);
+        }
+        pool.hold(request, actionController);
+        return actionController;
+    }
+
+    private Object locateInStore(Context context, HttpServletRequest request, 
+            Injector injector) throws Exception {
+
+        StatefulControllerLease lease = 
+                (StatefulControllerLease) request.getAttribute(StatefulControllerLease.KEY);
+        if (lease != null && lease.getControllerClass() == controllerClass 
+                && lease.getController() != null) {
+            /* the request already holds the controller */
+            return lease.getController();
+        }
+        if (lease != null) {
+            StatefulControllerLease.release(request);
+        }
+        
+        StatefulControllerStore store = (StatefulControllerStore) context.getAttribute(StatefulControllerStore.KEY);
+        if (store == null) {
+            store = DEFAULT_STORE;
+        }
+        
+        SessionRequestQueue.Turn turn = requestQueue.acquire(request.getSession().getId());
+        lease = new StatefulControllerLease(store, controllerClass, turn);
+        /* from here on, the lease is released when the request is complete */
+        request.setAttribute(StatefulControllerLease.KEY, lease);
+        
+        Object actionController = store.get(request, controllerClass);
+        if (actionController == null) {
+            actionController = newController(injector);
+            markInjected(actionController);
+        } else if (injectedInstances != null && !isInjected(actionController)) {
+            /* a copy made by the store, so all of its dependencies are injected */
+            injector.injectMembers(actionController);
+            markInjected(actionController);
+        } else {
+            /* re-inject Guice-managed dependencies, as declared by the controller */
+            reinjector.reinject(actionController, injector);
+        }
+        lease.setController(actionController);
+        return actionController;
+    }
+
+    private boolean isInjected(Object controller) {
+
+        WeakReference<Object> ref = injectedInstances.get(controller);
+        return ref != null && ref.get() == controller;
+    }
+
+    private void markInjected(Object controller) {
+
+        if (injectedInstances != null) {
+            injectedInstances.put(controller, new WeakReference<Object>(controller));
+        }
+    }
+
+    private Object locateSingleton(Injector injector) throws Exception {
+
+        Object actionController = singletonHolder.getInstance();
+        if (actionController != null) {
+            /* re-inject Guice-managed dependencies, as declared by the controller */
+            reinjector.reinject(actionController, injector);
+        } else {
+            actionController = singletonHolder.getController(injector);
+        }
+        return actionController;
+    }
+
+    private Object newController(Injector injector) throws Exception {
+
+        /* use the Guice Injector */
+        Object actionController = getProvider(injector).get();
+
+        if (afterConstructInvoker != null) {
+            /*
+             * we've already validated that there are no method parameters when
+             * creating the controller database
+             */
+            afterConstructInvoker.invoke(actionController, new Object[] {});
+            logger.debug("invoked after construct action for " + controllerClassName);
+        }
+        return actionController;
+    }
+
+    private Provider<?> getProvider(Injector injector) {
+
+        CachedProvider cached = provider;
+        if (cached == null || cached.injector != injector) {
+            cached = new CachedProvider(injector, injector.getProvider(controllerClass));
+            provider = cached;
+        }
+        return cached.provider;
+    }
+
+    /**
+     * @return the pool of a &#064;Pooled stateless controller, or null if the 
+     *         controller is not pooled
+     */
+    public StatelessControllerPool getPool() {
+
+        return pool;
+    }
+
+    public Class<?> getControllerClass() {
+
+        return controllerClass;
+    }
+
+    public ControllerScope getScope() {
+
+        return scope;
+    }
+
+    private static class CachedProvider {
+
+        private final Injector injector;
+        private final Provider<?> provider;
+
+        private CachedProvider(Injector injector, Provider<?> provider) {
+            this.injector = injector;
+            this.provider = provider;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The mailbox of an &#064;Actor singleton controller. Tasks are posted to a
+ * lock-free queue by any number of threads, and are run one at a time, in 
+ * the order in which they were posted, by a single worker. The worker is 
+ * scheduled on an executor shared by the mailboxes of the application only
+ * while the mailbox has tasks, so an idle mailbox holds no thread. The 
+ * framework creates that executor during initialization, and shuts it down
+ * when it is taken out of service.
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class ControllerMailbox implements Executor {
+
+    private static final Logger logger = LoggerFactory.getLogger("org.mojavemvc");
+
+    /**
+     * The name of the context attribute holding the ExecutorService on 
+     * which the mailboxes of the application schedule their workers.
+     */
+    public static final String KEY = ControllerMailbox.class.getName();
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Executor workerExecutor;
+
+    private final Runnable worker = new Runnable() {
+        public void run() {
+            drain();
+        }
+    };
+
+    /**
+     * @param workerExecutor
+     *            the executor on which the worker is scheduled
+     */
+    public ControllerMailbox(Executor workerExecutor) {
+
+        this.workerExecutor = workerExecutor;
+    }
+
+    /**
+     * Create an executor on which mailboxes can schedule their workers. Its 
+     * threads are created as they are needed, and end once they have been
+     * idle for a while.
+     * 
+     * @return the executor, which must be shut down when it is no longer
+     *         used
+     */
+    public static ExecutorService newWorkerExecutor() {
+
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "mojave-actor-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Post a task to the mailbox. This method does not block.
+     */
+    public void execute(Runnable task) {
+
+        tasks.offer(task);
+        schedule();
+    }
+
+    /**
+     * Post a task to the mailbox, and wait for its result.
+     * 
+     * @param task
+     *            the task
+     * @return the result of the task
+     * @throws Exception
+     *             the exception thrown by the task
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+
+        FutureTask<T> future = new FutureTask<T>(task);
+        execute(future);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get an AsyncResultAdapter that calls a Callable on this mailbox, and
+     * then reports its result on the executor passed to the adapter, so 
+     * that the callback does not hold up the mailbox.
+     * 
+     * @return the adapter
+     */
+    public AsyncResultAdapter newAdapter() {
+
+        return new MailboxAdapter();
+    }
+
+    private void schedule() {
+
+        if (scheduled.compareAndSet(false, true)) {
+            workerExecutor.execute(worker);
+        }
+    }
+
+    private void drain() {
+
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("error running actor task", e);
+            }
+        }
+        scheduled.set(false);
+        /* a task may have been posted after the queue was found empty */
+        if (!tasks.isEmpty()) {
+            schedule();
+        }
+    }
+
+    private class MailboxAdapter extends CallableResultAdapter {
+
+        @Override
+        public void onCompletion(final Object actionResult, final Executor executor, 
+                final AsyncResultCallback callback) {
+
+            execute(new Runnable() {
+                public void run() {
+                    try {
+                        final Object value = ((Callable<?>) actionResult).call();
+                        executor.execute(new Runnable() {
+                            public void run() {
+                                callback.completed(value);
+                            }
+                        });
+                    } catch (final Throwable e) {
+                        executor.execute(new Runnable() {
+                            public void run() {
+                                callback.failed(e);
+                            }
+                        });
+                    }
+                }
+            });
+        }
+
+        @Override
+        public Object await(Object actionResult) throws Exception {
+
+            return call((Callable<?>) actionResult);
+        }
+    }
+}
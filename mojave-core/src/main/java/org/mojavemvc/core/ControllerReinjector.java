@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.mojavemvc.annotations.Reinject;
+import org.mojavemvc.annotations.Reinject.Policy;
+
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.MembersInjector;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.InjectionPoint;
+
+/**
+ * Re-injects the dependencies of an existing singleton or stateful 
+ * controller instance when it handles a new request, according to the 
+ * policy declared by the controller's &#064;Reinject annotation. 
+ * <p>
+ * With the ALWAYS policy, the default, Guice's MembersInjector for the 
+ * controller class is looked up once and reused. With the REQUEST_SCOPED 
+ * policy, the injection points that depend on the request, the response or 
+ * the session are found when this object is created, and only those are 
+ * injected again.
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class ControllerReinjector {
+
+    private static final Set<Key<?>> REQUEST_SCOPED_KEYS = new HashSet<Key<?>>(Arrays.<Key<?>>asList(
+            Key.get(HttpServletRequest.class), Key.get(HttpServletResponse.class), 
+            Key.get(HttpSession.class)));
+
+    private final Class<?> controllerClass;
+    private final Policy policy;
+    private final InjectionPoint[] requestScopedPoints;
+
+    /*
+     * the MembersInjector is specific to an Injector, so the one it was 
+     * obtained from is held with it
+     */
+    private volatile CachedMembersInjector membersInjector;
+
+    public ControllerReinjector(Class<?> controllerClass) {
+
+        this.controllerClass = controllerClass;
+        Reinject reinject = controllerClass.getAnnotation(Reinject.class);
+        this.policy = reinject == null ? Policy.ALWAYS : reinject.value();
+        this.requestScopedPoints = policy == Policy.REQUEST_SCOPED ? 
+                findRequestScopedPoints(controllerClass) : new InjectionPoint[0];
+    }
+
+    private static InjectionPoint[] findRequestScopedPoints(Class<?> controllerClass) {
+
+        List<InjectionPoint> points = new ArrayList<InjectionPoint>();
+        for (InjectionPoint point : InjectionPoint.forInstanceMethodsAndFields(controllerClass)) {
+            for (Dependency<?> dependency : point.getDependencies()) {
+                if (REQUEST_SCOPED_KEYS.contains(dependency.getKey())) {
+                    makeAccessible(point.getMember());
+                    points.add(point);
+                    break;
+                }
+            }
+        }
+        return points.toArray(new InjectionPoint[points.size()]);
+    }
+
+    private static void makeAccessible(Member member) {
+
+        if (member instanceof Field) {
+            ((Field) member).setAccessible(true);
+        } else if (member instanceof Method) {
+            ((Method) member).setAccessible(true);
+        }
+    }
+
+    /**
+     * Re-inject the dependencies of the given controller instance.
+     * 
+     * @param controller
+     *            an existing instance of the controller class
+     * @param injector
+     *            the injector that provides the dependencies
+     * @throws Exception
+     *             if a dependency cannot be injected
+     */
+    public void reinject(Object controller, Injector injector) throws Exception {
+
+        switch (policy) {
+        case NEVER:
+            return;
+        case REQUEST_SCOPED:
+            reinjectRequestScoped(controller, injector);
+            return;
+        default:
+            getMembersInjector(injector).injectMembers(controller);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private MembersInjector<Object> getMembersInjector(Injector injector) {
+
+        CachedMembersInjector cached = membersInjector;
+        if (cached == null || cached.injector != injector) {
+            cached = new CachedMembersInjector(injector, 
+                    (MembersInjector<Object>) injector.getMembersInjector(controllerClass));
+            membersInjector = cached;
+        }
+        return cached.membersInjector;
+    }
+
+    private void reinjectRequestScoped(Object controller, Injector injector) throws Exception {
+
+        for (InjectionPoint point : requestScopedPoints) {
+            List<Dependency<?>> dependencies = point.getDependencies();
+            Member member = point.getMember();
+            if (member instanceof Field) {
+                ((Field) member).set(controller, injector.getInstance(dependencies.get(0).getKey()));
+            } else {
+                Object[] args = new Object[dependencies.size()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = injector.getInstance(dependencies.get(i).getKey());
+                }
+                ((Method) member).invoke(controller, args);
+            }
+        }
+    }
+
+    public Policy getPolicy() {
+
+        return policy;
+    }
+
+    private static class CachedMembersInjector {
+
+        private final Injector injector;
+        private final MembersInjector<Object> membersInjector;
+
+        private CachedMembersInjector(Injector injector, MembersInjector<Object> membersInjector) {
+            this.injector = injector;
+            this.membersInjector = membersInjector;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import org.mojavemvc.annotations.SingletonController;
+import org.mojavemvc.annotations.StatefulController;
+
+/**
+ * The lifecycle of a controller instance, as declared by its controller
+ * annotation.
+ * 
+ * @author Luis Antunes
+ */
+public enum ControllerScope {
+
+    /**
+     * a new instance is created for each request
+     */
+    STATELESS,
+    
+    /**
+     * an instance is kept in the user's HTTP session
+     */
+    STATEFUL,
+    
+    /**
+     * a single instance is shared by all requests
+     */
+    SINGLETON;
+    
+    /**
+     * Get the scope declared by the given controller class.
+     * 
+     * @param controllerClass
+     *            the controller class
+     * @return the scope of the controller
+     */
+    public static ControllerScope of(Class<?> controllerClass) {
+        
+        if (controllerClass.isAnnotationPresent(StatefulController.class)) {
+            return STATEFUL;
+        }
+        if (controllerClass.isAnnotationPresent(SingletonController.class)) {
+            return SINGLETON;
+        }
+        return STATELESS;
+    }
+}
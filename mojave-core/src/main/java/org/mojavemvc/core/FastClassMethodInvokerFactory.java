@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.lang.reflect.Method;
+
+import net.sf.cglib.reflect.FastClass;
+
+/**
+ * The default MethodInvokerFactory, which invokes methods through the 
+ * cglib FastClass of the controller or interceptor class.
+ * 
+ * @author Luis Antunes
+ */
+public class FastClassMethodInvokerFactory implements MethodInvokerFactory {
+
+    public MethodInvoker createInvoker(FastClass fastClass, Method method) {
+
+        return new FastClassMethodInvoker(fastClass, 
+                fastClass.getIndex(method.getName(), method.getParameterTypes()));
+    }
+
+    public static class FastClassMethodInvoker implements MethodInvoker {
+
+        private final FastClass fastClass;
+        private final int fastIndex;
+
+        public FastClassMethodInvoker(FastClass fastClass, int fastIndex) {
+
+            this.fastClass = fastClass;
+            this.fastIndex = fastIndex;
+        }
+
+        public Object invoke(Object target, Object[] args) throws Exception {
+
+            return fastClass.invoke(fastIndex, target, args);
+        }
+    }
+}
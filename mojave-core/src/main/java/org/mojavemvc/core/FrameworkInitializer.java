@@ -15,6 +15,8 @@
  */
 package org.mojavemvc.core;
 
+import java.io.File;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
@@ -23,6 +25,11 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sf.cglib.reflect.FastClass;
 
@@ -35,10 +42,17 @@
 import org.mojavemvc.initialization.InitParams;
 import org.mojavemvc.initialization.Initializer;
 import org.mojavemvc.initialization.ModuleProvider;
+import org.mojavemvc.marshalling.CBOREntityMarshaller;
 import org.mojavemvc.marshalling.EntityMarshaller;
+import org.mojavemvc.marshalling.JacksonCodec;
 import org.mojavemvc.marshalling.JSONEntityMarshaller;
 import org.mojavemvc.marshalling.PlainTextEntityMarshaller;
+import org.mojavemvc.marshalling.SmileEntityMarshaller;
+import org.mojavemvc.marshalling.StreamingJSONEntityMarshaller;
+import org.mojavemvc.marshalling.StreamingXMLEntityMarshaller;
 import org.mojavemvc.marshalling.XMLEntityMarshaller;
+import org.mojavemvc.views.BufferPool;
+import org.mojavemvc.views.StreamView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,7 +72,43 @@ public class FrameworkInitializer {
     private static final String GUICE_MODULE_PROVIDER = "guice-module-provider";
     private static final String ERROR_HANDLER_FACTORY = "error-handler-factory";
     private static final String ENTITY_MARSHALLERS = "entity-marshallers";
+    private static final String STREAMING_MARSHALLERS = "streaming-marshallers";
     private static final String INITIALIZERS = "initializers";
+    private static final String ROUTE_MAP = "route-map";
+    private static final String METHOD_INVOKER_FACTORY = "method-invoker-factory";
+    private static final String MULTIPART_STREAMING = "multipart-streaming";
+    private static final String MULTIPART_MEMORY_THRESHOLD = "multipart-memory-threshold";
+    private static final String MULTIPART_TEMP_DIR = "multipart-temp-dir";
+    private static final String MULTIPART_MAX_PART_SIZE = "multipart-max-part-size";
+    private static final String MULTIPART_MAX_SIZE = "multipart-max-size";
+    private static final String ASYNC_EXECUTOR = "async-executor";
+    private static final String ASYNC_TIMEOUT = "async-timeout";
+    private static final String VIRTUAL_THREADS = "virtual-threads";
+    private static final String EAGER_SINGLETONS = "eager-singletons";
+    private static final String STATEFUL_CONTROLLER_STORE = "stateful-controller-store";
+    private static final String STATEFUL_STORE_MAX_ENTRIES = "stateful-store-max-entries";
+    private static final String STATEFUL_STORE_MAX_IDLE = "stateful-store-max-idle";
+    private static final String STATEFUL_STORE_FILE = "stateful-store-file";
+    private static final String STATEFUL_STORE_FILE_SIZE = "stateful-store-file-size";
+    private static final String AUTO_ETAG = "auto-etag";
+    private static final String RESPONSE_CACHE_MAX_ENTRIES = "response-cache-max-entries";
+    private static final String RESPONSE_CACHE_DISK = "response-cache-disk";
+    private static final String RESPONSE_CACHE_FILE = "response-cache-file";
+    private static final String RESPONSE_CACHE_FILE_SIZE = "response-cache-file-size";
+    private static final String RESPONSE_CACHE_MAX_IDLE = "response-cache-max-idle";
+    private static final String JACKSON_MODULES = "jackson-modules";
+    private static final String JACKSON_ACCELERATOR = "jackson-accelerator";
+    private static final String BUFFER_SIZE = "buffer-size";
+    private static final String BUFFER_POOL_SIZE = "buffer-pool-size";
+    private static final String DIRECT_BUFFERS = "direct-buffers";
+    
+    private static final String SESSION_STORE = "session";
+    private static final String MEMORY_STORE = "memory";
+    private static final String MAPPED_FILE_STORE = "mapped-file";
+    
+    private static final String SERVLET_ASYNC_CONTEXT = "javax.servlet.AsyncContext";
+    private static final String SERVLET_ASYNC_DISPATCHER = "org.mojavemvc.core.ServletAsyncActionDispatcher";
+    private static final String NEW_VIRTUAL_THREAD_EXECUTOR = "newVirtualThreadPerTaskExecutor";
     
     private static final String INTERNAL_INITIALIZER_PACKAGE = "org.mojavemvc.initialization.internal";
     
@@ -79,10 +129,17 @@ public FrameworkInitializer(Config config, Context context,
     public void performInitialization() {
 
         logger.debug("performing initialization...");
+        /* the codec, the buffer pool and the response cache are bound in the Injector */
+        createJacksonCodec();
+        createBufferPool();
+        createResponseCache();
         createGuiceInjector();
         processInitializers();
         createControllerDatabase();
         createErrorHandlerFactory();
+        createMultipartConfig();
+        createAsyncActionDispatcher();
+        createStatefulControllerStore();
     }
     
     private void createGuiceInjector() {
@@ -96,7 +153,10 @@ private void createGuiceInjector() {
             AppProperties appProps = new DefaultAppProperties();
             context.setAttribute(AppProperties.KEY, appProps); 
             GuiceInitializer guiceInitializer = 
-                    new GuiceInitializer(moduleClasses, providedModules, appProps);
+                    new GuiceInitializer(moduleClasses, providedModules, appProps, 
+                            (ResponseCache) context.getAttribute(ResponseCache.KEY), 
+                            (JacksonCodec) context.getAttribute(JacksonCodec.KEY), 
+                            (BufferPool) context.getAttribute(BufferPool.KEY));
             Injector injector = guiceInitializer.initializeInjector();
             context.setAttribute(GuiceInitializer.KEY, injector);
 
@@ -147,6 +207,11 @@ private void processInitializers() {
         Set<Class<? extends Initializer>> initializers = scanInitializerClasses();
         
         DefaultAppPropertyCollector collector = new DefaultAppPropertyCollector();
+        String autoTag = config.getInitParameter(AUTO_ETAG);
+        if (!isEmpty(autoTag) && Boolean.parseBoolean(autoTag.trim())) {
+            logger.debug("setting " + AUTO_ETAG + " to " + autoTag);
+            collector.addProperty(StreamView.AUTO_TAG_PROPERTY, Boolean.TRUE);
+        }
         InitParams params = newInitParams();
         AppResources resources = new ServletAppResources(config.getServletContext(), 
                 (Injector)context.getAttribute(GuiceInitializer.KEY));
@@ -154,6 +219,9 @@ private void processInitializers() {
             
             initialize(initializerClass, collector, resources, params);
         }
+        /* the views render through the pool and codec bound in the Injector */
+        collector.addProperty(BufferPool.PROPERTY, context.getAttribute(BufferPool.KEY));
+        collector.addProperty(JacksonCodec.PROPERTY, context.getAttribute(JacksonCodec.KEY));
         
         /*
          * we take this approach because the Injector needs to exist
@@ -215,9 +283,12 @@ private void createControllerDatabase() {
 
             Set<Class<?>> controllerClasses = scanControllerClasses();
             Map<String, EntityMarshaller> entityMarshallers = scanEntityMarshallers();
+            /* shut down by the framework when it is taken out of service */
+            ExecutorService mailboxExecutor = ControllerMailbox.newWorkerExecutor();
+            context.setAttribute(ControllerMailbox.KEY, mailboxExecutor);
             ControllerDatabase controllerDatabase = 
-                    new MappedControllerDatabase(controllerClasses, new RegexRouteMap(), 
-                            entityMarshallers);
+                    new MappedControllerDatabase(controllerClasses, createRouteMap(), 
+                            entityMarshallers, createMethodInvokerFactory(), mailboxExecutor);
             context.setAttribute(ControllerDatabase.KEY, controllerDatabase);
 
         } catch (Throwable e) {
@@ -225,6 +296,34 @@ private void createControllerDatabase() {
         }
     }
 
+    private RouteMap createRouteMap() throws Exception {
+        
+        String routeMapName = config.getInitParameter(ROUTE_MAP);
+        if (isEmpty(routeMapName)) {
+            logger.debug("no " + ROUTE_MAP + " init-param specified, using default...");
+            return new TrieRouteMap();
+        }
+        
+        logger.debug("setting " + ROUTE_MAP + " to " + routeMapName);
+        
+        Class<?> routeMapClass = Class.forName(routeMapName.trim());
+        return (RouteMap)FastClass.create(routeMapClass).newInstance();
+    }
+
+    private MethodInvokerFactory createMethodInvokerFactory() throws Exception {
+        
+        String factoryName = config.getInitParameter(METHOD_INVOKER_FACTORY);
+        if (isEmpty(factoryName)) {
+            logger.debug("no " + METHOD_INVOKER_FACTORY + " init-param specified, using default...");
+            return new FastClassMethodInvokerFactory();
+        }
+        
+        logger.debug("setting " + METHOD_INVOKER_FACTORY + " to " + factoryName);
+        
+        Class<?> factoryClass = Class.forName(factoryName.trim());
+        return (MethodInvokerFactory)FastClass.create(factoryClass).newInstance();
+    }
+
     private Set<Class<?>> scanControllerClasses() {
 
         List<String> packages = getControllerPackages();
@@ -250,9 +349,19 @@ private Map<String, EntityMarshaller> scanEntityMarshallers() {
         
         /* place the framework marshallers in the map first so that they 
          * can be overridden by user's marshallers */
+        JacksonCodec codec = (JacksonCodec) context.getAttribute(JacksonCodec.KEY);
         addToEntityMarshallerMap(new PlainTextEntityMarshaller(), marshallerMap);
-        addToEntityMarshallerMap(new JSONEntityMarshaller(), marshallerMap);
-        addToEntityMarshallerMap(new XMLEntityMarshaller(), marshallerMap);
+        String streaming = config.getInitParameter(STREAMING_MARSHALLERS);
+        if (!isEmpty(streaming) && Boolean.parseBoolean(streaming.trim())) {
+            logger.debug("setting " + STREAMING_MARSHALLERS + " to " + streaming);
+            addToEntityMarshallerMap(new StreamingJSONEntityMarshaller(codec), marshallerMap);
+            addToEntityMarshallerMap(new StreamingXMLEntityMarshaller(codec), marshallerMap);
+        } else {
+            addToEntityMarshallerMap(new JSONEntityMarshaller(codec), marshallerMap);
+            addToEntityMarshallerMap(new XMLEntityMarshaller(codec), marshallerMap);
+        }
+        addToEntityMarshallerMap(new SmileEntityMarshaller(codec), marshallerMap);
+        addToEntityMarshallerMap(new CBOREntityMarshaller(codec), marshallerMap);
         
         String marshallersNamespaces = config.getInitParameter(ENTITY_MARSHALLERS);
         if (!isEmpty(marshallersNamespaces)) {
@@ -332,10 +441,283 @@ private String getErrorHandlerFactoryName() {
         return errorHandlerFactory;
     }
 
+    private void createMultipartConfig() {
+        
+        logger.debug("creating MultipartConfig...");
+        
+        try {
+            
+            MultipartConfig defaults = new MultipartConfig();
+            
+            String streaming = config.getInitParameter(MULTIPART_STREAMING);
+            String tempDir = config.getInitParameter(MULTIPART_TEMP_DIR);
+            
+            MultipartConfig multipartConfig = new MultipartConfig(
+                    !isEmpty(streaming) && Boolean.parseBoolean(streaming.trim()),
+                    (int) getLongInitParameter(MULTIPART_MEMORY_THRESHOLD, defaults.getMemoryThreshold()),
+                    isEmpty(tempDir) ? defaults.getTempDir() : new File(tempDir.trim()),
+                    getLongInitParameter(MULTIPART_MAX_PART_SIZE, defaults.getMaxPartSize()),
+                    getLongInitParameter(MULTIPART_MAX_SIZE, defaults.getMaxSize()));
+            
+            context.setAttribute(MultipartConfig.KEY, multipartConfig);
+            
+        } catch (Throwable e) {
+            logger.error("error creating MultipartConfig", e);
+        }
+    }
+    
+    private long getLongInitParameter(String name, long defaultValue) {
+        
+        String value = config.getInitParameter(name);
+        if (isEmpty(value)) {
+            return defaultValue;
+        }
+        
+        logger.debug("setting " + name + " to " + value);
+        
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ConfigurationException("the " + name + " init-param must be a number", e);
+        }
+    }
+
+    private void createAsyncActionDispatcher() {
+        
+        try {
+            Class.forName(SERVLET_ASYNC_CONTEXT);
+        } catch (ClassNotFoundException e) {
+            logger.debug("asynchronous requests are not supported by the container; " +
+                    "asynchronous action results will be awaited");
+            if (!isEmpty(config.getInitParameter(VIRTUAL_THREADS))) {
+                logger.warn("the " + VIRTUAL_THREADS + " init-param requires a Servlet 3.0 container; " +
+                        "actions will be invoked on the request thread");
+            }
+            return;
+        }
+        
+        logger.debug("creating AsyncActionDispatcher...");
+        
+        try {
+            
+            Executor executor = createAsyncExecutor();
+            Executor actionExecutor = createVirtualThreadExecutor();
+            if (actionExecutor == null) {
+                actionExecutor = executor;
+            }
+            String virtualThreads = config.getInitParameter(VIRTUAL_THREADS);
+            boolean offloadAll = !isEmpty(virtualThreads) && Boolean.parseBoolean(virtualThreads.trim());
+            long timeout = getLongInitParameter(ASYNC_TIMEOUT, -1);
+            
+            /* the dispatcher requires Servlet 3.0, so it is only loaded by name */
+            Class<?> dispatcherClass = Class.forName(SERVLET_ASYNC_DISPATCHER);
+            AsyncActionDispatcher dispatcher = (AsyncActionDispatcher) dispatcherClass
+                    .getConstructor(Executor.class, Executor.class, boolean.class, long.class)
+                    .newInstance(executor, actionExecutor, offloadAll, timeout);
+            
+            context.setAttribute(AsyncActionDispatcher.KEY, dispatcher);
+            
+        } catch (Throwable e) {
+            logger.error("error creating AsyncActionDispatcher", e);
+        }
+    }
+    
+    private Executor createAsyncExecutor() throws Exception {
+        
+        String executorName = config.getInitParameter(ASYNC_EXECUTOR);
+        if (isEmpty(executorName)) {
+            logger.debug("no " + ASYNC_EXECUTOR + " init-param specified, using default...");
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "mojave-async-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        
+        logger.debug("setting " + ASYNC_EXECUTOR + " to " + executorName);
+        
+        Class<?> executorClass = Class.forName(executorName.trim());
+        return (Executor)FastClass.create(executorClass).newInstance();
+    }
+
+    /*
+     * virtual threads require Java 21, so the executor is only looked up 
+     * by name; returns null if they are not available
+     */
+    private Executor createVirtualThreadExecutor() throws Exception {
+        
+        Method factoryMethod;
+        try {
+            factoryMethod = Executors.class.getMethod(NEW_VIRTUAL_THREAD_EXECUTOR);
+        } catch (NoSuchMethodException e) {
+            logger.debug("virtual threads are not available; offloaded actions will be invoked " +
+                    "on the threads of the " + ASYNC_EXECUTOR);
+            return null;
+        }
+        return (Executor) factoryMethod.invoke(null);
+    }
+
+    private void createStatefulControllerStore() {
+        
+        logger.debug("creating StatefulControllerStore...");
+        
+        try {
+            
+            String storeName = config.getInitParameter(STATEFUL_CONTROLLER_STORE);
+            storeName = isEmpty(storeName) ? SESSION_STORE : storeName.trim();
+            
+            logger.debug("setting " + STATEFUL_CONTROLLER_STORE + " to " + storeName);
+            
+            StatefulControllerStore store;
+            if (storeName.equals(SESSION_STORE)) {
+                
+                store = new HttpSessionControllerStore();
+                
+            } else if (storeName.equals(MEMORY_STORE)) {
+                
+                store = new BoundedControllerStore(
+                        (int) getLongInitParameter(STATEFUL_STORE_MAX_ENTRIES, 
+                                BoundedControllerStore.DEFAULT_MAX_ENTRIES),
+                        getLongInitParameter(STATEFUL_STORE_MAX_IDLE, 
+                                BoundedControllerStore.DEFAULT_MAX_IDLE));
+                
+            } else if (storeName.equals(MAPPED_FILE_STORE)) {
+                
+                String fileName = config.getInitParameter(STATEFUL_STORE_FILE);
+                boolean temporary = isEmpty(fileName);
+                File file = temporary ? File.createTempFile("mojave-controllers", ".dat") : 
+                    new File(fileName.trim());
+                store = new MappedFileControllerStore(file, temporary, 
+                        (int) getLongInitParameter(STATEFUL_STORE_FILE_SIZE, 
+                                MappedFileControllerStore.DEFAULT_CAPACITY),
+                        getLongInitParameter(STATEFUL_STORE_MAX_IDLE, 
+                                BoundedControllerStore.DEFAULT_MAX_IDLE));
+                
+            } else {
+                
+                Class<?> storeClass = Class.forName(storeName);
+                store = (StatefulControllerStore)FastClass.create(storeClass).newInstance();
+            }
+            
+            context.setAttribute(StatefulControllerStore.KEY, store);
+            
+        } catch (Throwable e) {
+            logger.error("error creating StatefulControllerStore", e);
+        }
+    }
+
+    private void createJacksonCodec() {
+        
+        logger.debug("creating JacksonCodec...");
+        
+        JacksonCodec codec = new JacksonCodec();
+        
+        String accelerator = config.getInitParameter(JACKSON_ACCELERATOR);
+        if (!isEmpty(accelerator) && Boolean.parseBoolean(accelerator.trim())) {
+            if (codec.registerAccelerator()) {
+                logger.debug("registered " + JacksonCodec.ACCELERATOR_MODULE);
+            } else {
+                logger.warn(JACKSON_ACCELERATOR + " is set, but " + 
+                        JacksonCodec.ACCELERATOR_MODULE + " is not on the classpath");
+            }
+        }
+        
+        String moduleNames = config.getInitParameter(JACKSON_MODULES);
+        if (!isEmpty(moduleNames)) {
+            for (String moduleName : moduleNames.split(NAMESPACE_SEPARATOR)) {
+                moduleName = moduleName.trim();
+                if (moduleName.length() == 0) {
+                    continue;
+                }
+                try {
+                    Class<?> moduleClass = Class.forName(moduleName);
+                    codec.registerModule((com.fasterxml.jackson.databind.Module) moduleClass.newInstance());
+                    logger.debug("registered Jackson module " + moduleName);
+                } catch (Throwable e) {
+                    logger.error("error registering Jackson module " + moduleName, e);
+                }
+            }
+        }
+        
+        context.setAttribute(JacksonCodec.KEY, codec);
+    }
+    
+    private void createBufferPool() {
+        
+        logger.debug("creating BufferPool...");
+        
+        BufferPool pool;
+        try {
+            
+            int bufferSize = (int) getLongInitParameter(BUFFER_SIZE, BufferPool.DEFAULT_BUFFER_SIZE);
+            int poolSize = (int) getLongInitParameter(BUFFER_POOL_SIZE, BufferPool.DEFAULT_MAX_POOLED);
+            if (bufferSize <= 0) {
+                throw new ConfigurationException("the " + BUFFER_SIZE + " init-param must be positive");
+            }
+            if (poolSize <= 0) {
+                throw new ConfigurationException("the " + BUFFER_POOL_SIZE + " init-param must be positive");
+            }
+            String direct = config.getInitParameter(DIRECT_BUFFERS);
+            
+            pool = new BufferPool(bufferSize, poolSize, 
+                    !isEmpty(direct) && Boolean.parseBoolean(direct.trim()));
+            
+        } catch (Throwable e) {
+            logger.error("error creating BufferPool; using the default buffer sizes", e);
+            pool = new BufferPool();
+        }
+        
+        context.setAttribute(BufferPool.KEY, pool);
+    }
+    
+    private void createResponseCache() {
+        
+        logger.debug("creating ResponseCache...");
+        
+        try {
+            
+            int maxEntries = (int) getLongInitParameter(RESPONSE_CACHE_MAX_ENTRIES, 
+                    ResponseCache.DEFAULT_MAX_ENTRIES);
+            
+            String disk = config.getInitParameter(RESPONSE_CACHE_DISK);
+            ResponseCache cache;
+            if (!isEmpty(disk) && Boolean.parseBoolean(disk.trim())) {
+                
+                String fileName = config.getInitParameter(RESPONSE_CACHE_FILE);
+                boolean temporary = isEmpty(fileName);
+                File file = temporary ? File.createTempFile("mojave-responses", ".dat") : 
+                    new File(fileName.trim());
+                cache = new ResponseCache(maxEntries, file, temporary, 
+                        (int) getLongInitParameter(RESPONSE_CACHE_FILE_SIZE, 
+                                ResponseCache.DEFAULT_CAPACITY),
+                        getLongInitParameter(RESPONSE_CACHE_MAX_IDLE, 
+                                ResponseCache.DEFAULT_MAX_IDLE));
+                
+                logger.debug("using disk tier " + file + " for ResponseCache");
+                
+            } else {
+                
+                cache = new ResponseCache(maxEntries);
+            }
+            
+            context.setAttribute(ResponseCache.KEY, cache);
+            
+        } catch (Throwable e) {
+            logger.error("error creating ResponseCache", e);
+        }
+    }
+
     public void createInitControllers() {
 
         ControllerDatabase controllerDb = (ControllerDatabase) context.getAttribute(ControllerDatabase.KEY);
-        Set<Class<?>> initControllers = controllerDb.getInitControllers();
+        
+        String eagerSingletons = config.getInitParameter(EAGER_SINGLETONS);
+        Set<Class<?>> initControllers = !isEmpty(eagerSingletons) && 
+                Boolean.parseBoolean(eagerSingletons.trim()) ? 
+                controllerDb.getSingletonControllers() : controllerDb.getInitControllers();
 
         if (initControllers != null && !initControllers.isEmpty()) {
 
@@ -347,23 +729,11 @@ public void createInitControllers() {
 
                 for (Class<?> controllerClass : initControllers) {
 
-                    /* create the controller instance */
-                    Object actionController = injectorInstance.getInstance(controllerClass);
-
-                    /* invoke the after construct method if present */
-                    ActionSignature afterConstructSig = controllerDb.getAfterConstructMethodFor(controllerClass);
-                    if (afterConstructSig != null) {
-                        /*
-                         * we've already validated that there are no method
-                         * parameters when creating the controller database
-                         */
-                        FastClass actionFastClass = controllerDb.getFastClass(controllerClass);
-                        actionFastClass.invoke(afterConstructSig.fastIndex(), actionController, new Object[] {});
-                        logger.debug("invoked after construct action for " + controllerClass.getName());
-                    }
-
-                    /* add this singleton controller to the servlet context */
-                    context.setAttribute(controllerClass.getName(), actionController);
+                    /* 
+                     * create the controller instance and invoke the after 
+                     * construct method if present 
+                     */
+                    controllerDb.getSingletonHolder(controllerClass).getController(injectorInstance);
                 }
 
             } catch (Throwable e) {
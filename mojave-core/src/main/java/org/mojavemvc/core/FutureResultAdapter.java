@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Handles actions that return a Future. As a Future cannot notify of its
+ * completion, a thread of the executor waits for it, rather than the thread
+ * of the request.
+ * 
+ * @author Luis Antunes
+ */
+public class FutureResultAdapter implements AsyncResultAdapter {
+
+    public boolean isAsyncResult(Object actionResult) {
+        
+        return actionResult instanceof Future;
+    }
+
+    public void onCompletion(final Object actionResult, Executor executor, 
+            final AsyncResultCallback callback) {
+
+        executor.execute(new Runnable() {
+            public void run() {
+                Object value;
+                try {
+                    value = await(actionResult);
+                } catch (Throwable e) {
+                    callback.failed(e);
+                    return;
+                }
+                callback.completed(value);
+            }
+        });
+    }
+
+    public Object await(Object actionResult) throws Exception {
+        
+        try {
+            return ((Future<?>) actionResult).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+}
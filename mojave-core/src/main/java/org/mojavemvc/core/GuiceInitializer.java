@@ -23,6 +23,8 @@
 import net.sf.cglib.reflect.FastClass;
 
 import org.mojavemvc.initialization.AppProperties;
+import org.mojavemvc.marshalling.JacksonCodec;
+import org.mojavemvc.views.BufferPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,15 +50,40 @@ public class GuiceInitializer {
     private final Set<Class<? extends Module>> moduleClasses;
     private final Set<Module> providedModules;
     private final AppProperties appProperties;
+    private final ResponseCache responseCache;
+    private final JacksonCodec codec;
+    private final BufferPool bufferPool;
 
     public GuiceInitializer(Set<Class<? extends Module>> moduleClasses, 
             Set<Module> providedModules,
             AppProperties appProperties) {
 
+        this(moduleClasses, providedModules, appProperties, null);
+    }
+
+    public GuiceInitializer(Set<Class<? extends Module>> moduleClasses, 
+            Set<Module> providedModules,
+            AppProperties appProperties, 
+            ResponseCache responseCache) {
+
+        this(moduleClasses, providedModules, appProperties, responseCache, null, null);
+    }
+
+    public GuiceInitializer(Set<Class<? extends Module>> moduleClasses, 
+            Set<Module> providedModules,
+            AppProperties appProperties, 
+            ResponseCache responseCache,
+            JacksonCodec codec,
+            BufferPool bufferPool) {
+
         this.moduleClasses = moduleClasses;
         this.providedModules = 
                 providedModules != null ? providedModules : new HashSet<Module>();
         this.appProperties = appProperties;
+        this.responseCache = 
+                responseCache != null ? responseCache : new ResponseCache();
+        this.codec = codec != null ? codec : new JacksonCodec();
+        this.bufferPool = bufferPool != null ? bufferPool : new BufferPool();
     }
 
     public Injector initializeInjector() throws Exception {
@@ -64,7 +91,7 @@ public Injector initializeInjector() throws Exception {
         List<Module> modules = new ArrayList<Module>();
 
         logger.debug("adding " + ServletResourceModule.class.getName() + " ...");
-        modules.add(new ServletResourceModule(appProperties));
+        modules.add(new ServletResourceModule(appProperties, responseCache, codec, bufferPool));
 
         for (Class<? extends Module> moduleClass : moduleClasses) {
 
@@ -15,18 +15,9 @@
  */
 package org.mojavemvc.core;
 
-import java.lang.annotation.Annotation;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import net.sf.cglib.reflect.FastClass;
-
-import org.mojavemvc.aop.RequestContext;
-import org.mojavemvc.views.EmptyView;
 import org.mojavemvc.views.View;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,9 +35,8 @@ public class HttpActionInvoker implements ActionInvoker {
     private final HttpServletResponse response;
     private final ControllerDatabase controllerDb;
     private final Injector injector;
-    private final String controller;
+    private final RoutedRequest routed;
     private final String action;
-    private final Map<String, Object> parameterMap;
 
     public HttpActionInvoker(HttpServletRequest request, HttpServletResponse response, ControllerDatabase controllerDb,
             RoutedRequest routed, Injector injector) {
@@ -55,21 +45,32 @@ public HttpActionInvoker(HttpServletRequest request, HttpServletResponse respons
         this.response = response;
         this.controllerDb = controllerDb;
         this.injector = injector;
-
-        String cntrl = routed.getController();
-        controller = (cntrl == null || cntrl.trim().length() == 0) ? "" : cntrl;
+        this.routed = routed;
 
         String actn = routed.getAction();
         action = (actn == null || actn.trim().length() == 0) ? "" : actn;
-        
-        this.parameterMap = routed.getParameterMap();
     }
 
     public View invokeAction(Object actionController, ActionSignature actionSignature) throws Exception {
 
         Class<?> actionControllerClass = actionController.getClass();
         logInitMessage(actionSignature, actionControllerClass);
-        return invokeActionMethod(actionController, actionSignature, actionControllerClass);
+        return getInvocationPlan(actionSignature, actionControllerClass)
+                .invoke(actionController, routed, request, response, injector);
+    }
+
+    private InvocationPlan getInvocationPlan(ActionSignature actionSignature, 
+            Class<?> actionControllerClass) {
+
+        InvocationPlan plan = controllerDb.getInvocationPlan(actionSignature);
+        if (plan == null) {
+            /*
+             * the signature was not created by the controller database,
+             * so resolve a plan for this invocation only
+             */
+            plan = new InvocationPlan(controllerDb, actionControllerClass, actionSignature, action);
+        }
+        return plan;
     }
 
     private void logInitMessage(ActionSignature actionSignature, Class<?> actionControllerClass) {
@@ -83,169 +84,4 @@ private void logInitMessage(ActionSignature actionSignature, Class<?> actionCont
         message += " for " + actionControllerClass.getName();
         logger.debug(message);
     }
-
-    private View invokeActionMethod(Object actionController, ActionSignature actionSignature, 
-            Class<?> actionControllerClass) throws Exception {
-
-        View view = null;
-
-        Object[] args = actionSignature.getArgs(parameterMap, request.getInputStream());
-        Annotation[] actionAnnotations = actionSignature.getAnnotations();
-
-        List<Object> classInterceptors = createInterceptors(controllerDb.getInterceptorsFor(actionControllerClass));
-
-        List<Object> methodInterceptors = createInterceptorsForAction(actionSignature, actionControllerClass);
-
-        for (Object interceptor : classInterceptors) {
-
-            view = invokeBeforeActionIfRequired(interceptor, actionAnnotations,
-                    controllerDb.getBeforeActionMethodForInterceptor(interceptor.getClass()), args);
-            if (view != null) {
-                return view;
-            }
-        }
-
-        for (Object interceptor : methodInterceptors) {
-
-            view = invokeBeforeActionIfRequired(interceptor, actionAnnotations,
-                    controllerDb.getBeforeActionMethodForInterceptor(interceptor.getClass()), args);
-            if (view != null) {
-                return view;
-            }
-        }
-
-        view = invokeBeforeActionIfRequired(actionController, actionAnnotations,
-                controllerDb.getBeforeActionMethodFor(actionControllerClass), args);
-
-        if (view != null) {
-            return view;
-        }
-
-        FastClass actionFastClass = controllerDb.getFastClass(actionControllerClass);
-        Object entity = actionFastClass.invoke(actionSignature.fastIndex(), actionController, args);
-        View marshalledEntity = actionSignature.marshall(entity);
-        view = marshalledEntity;
-        logger.debug("invoked " + actionSignature.methodName() + " for " + actionControllerClass.getName());
-
-        View afterActionView = invokeAfterActionIfRequired(actionController, actionAnnotations,
-                controllerDb.getAfterActionMethodFor(actionControllerClass), 
-                args, entity, marshalledEntity);
-
-        if (afterActionView != null) {
-            view = afterActionView;
-        }
-
-        for (Object interceptor : methodInterceptors) {
-
-            View interceptorView = invokeAfterActionIfRequired(interceptor, actionAnnotations,
-                    controllerDb.getAfterActionMethodForInterceptor(interceptor.getClass()), 
-                    args, entity, marshalledEntity);
-            if (interceptorView != null) {
-                view = interceptorView;
-                break;
-            }
-        }
-
-        for (Object interceptor : classInterceptors) {
-
-            View interceptorView = invokeAfterActionIfRequired(interceptor, actionAnnotations,
-                    controllerDb.getAfterActionMethodForInterceptor(interceptor.getClass()), 
-                    args, entity, marshalledEntity);
-            if (interceptorView != null) {
-                view = interceptorView;
-                break;
-            }
-        }
-
-        return view;
-    }
-
-    private List<Object> createInterceptorsForAction(ActionSignature actionSignature, 
-            Class<?> actionControllerClass) throws Exception {
-
-        List<Class<?>> interceptorClasses = null;
-        interceptorClasses = actionSignature.getInterceptorClasses(controllerDb, actionControllerClass, action);
-        return createInterceptors(interceptorClasses);
-    }
-
-    private List<Object> createInterceptors(List<Class<?>> interceptorClasses) throws Exception {
-
-        List<Object> interceptors = new ArrayList<Object>();
-        if (interceptorClasses != null) {
-            for (Class<?> interceptorClass : interceptorClasses) {
-
-                /* use the Guice Injector */
-                Object interceptor = injector.getInstance(interceptorClass);
-                interceptors.add(interceptor);
-            }
-        }
-        return interceptors;
-    }
-
-    private View invokeBeforeActionIfRequired(Object instance, Annotation[] actionAnnotations, 
-            ActionSignature interceptorMethod, Object[] actionArgs)
-            throws Exception {
-
-        return invokeBeforeOrAfterActionIfRequired(instance, actionAnnotations, 
-                interceptorMethod, actionArgs, null, null, "before");
-    }
-
-    private View invokeAfterActionIfRequired(Object instance, Annotation[] actionAnnotations, 
-            ActionSignature interceptorMethod, Object[] actionArgs, Object entity, View marshalledEntity)
-            throws Exception {
-
-        return invokeBeforeOrAfterActionIfRequired(instance, actionAnnotations, 
-                interceptorMethod, actionArgs, entity, marshalledEntity, "after");
-    }
-
-    private View invokeBeforeOrAfterActionIfRequired(Object instance, Annotation[] actionAnnotations,
-            ActionSignature interceptorMethod, Object[] actionArgs, Object entity, View marshalledEntity,
-            String which) throws Exception {
-
-        View view = null;
-
-        if (interceptorMethod != null) {
-            /*
-             * we've already validated that there are no method parameters when
-             * creating the controller database
-             */
-
-            FastClass actionFastClass = controllerDb.getFastClass(instance.getClass());
-            Object returnObj = actionFastClass.invoke(interceptorMethod.fastIndex(), instance,
-                    getBeforeOrAfterActionArgs(interceptorMethod.parameterTypes(), actionArgs, 
-                            actionAnnotations, entity, marshalledEntity));
-
-            if (returnObj != null && returnObj instanceof View) {
-                view = (View) returnObj;
-            }
-            logger.debug("invoked " + which + " action for " + instance.getClass().getName());
-
-            /*
-             * if there is a before or after action method, it is possible that
-             * another view may have been dispatched to from that method;
-             * therefore if the response has been committed, we should return an
-             * empty view NOTE: this will not work if the servlet container does
-             * not set the response to being committed after the dispatch
-             */
-            if (response.isCommitted())
-                return new EmptyView();
-        }
-
-        return view;
-    }
-
-    private Object[] getBeforeOrAfterActionArgs(Class<?>[] paramterTypes, Object[] actionArgs, 
-            Annotation[] actionAnnotations, Object entity, View marshalledEntity) {
-
-        Object[] args = new Object[] {};
-
-        if (paramterTypes != null && paramterTypes.length == 1 && paramterTypes[0].equals(RequestContext.class)) {
-
-            args = new Object[1];
-            args[0] = new RequestContext(request, response, actionArgs, 
-                    action, controller, actionAnnotations, entity, marshalledEntity);
-        }
-
-        return args;
-    }
 }
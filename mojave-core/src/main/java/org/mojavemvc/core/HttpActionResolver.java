@@ -15,16 +15,9 @@
  */
 package org.mojavemvc.core;
 
-import java.lang.annotation.Annotation;
-
 import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpSession;
-
-import net.sf.cglib.reflect.FastClass;
 
 import org.mojavemvc.annotations.DefaultController;
-import org.mojavemvc.annotations.SingletonController;
-import org.mojavemvc.annotations.StatefulController;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,71 +77,11 @@ private void resolveControllerClass(final String controller) {
 
     private void createActionController() throws Exception {
 
-        Annotation annot = controllerClass.getAnnotation(StatefulController.class);
-        if (annot != null) {
-
-            /*
-             * a StatefulController
-             */
-            HttpSession sess = request.getSession();
-            Object actionConrollerInSession = sess.getAttribute(controllerClass.getName());
-            if (actionConrollerInSession != null) {
-                /* re-inject any Guice-managed dependencies */
-                injector.injectMembers(actionConrollerInSession);
-                actionController = actionConrollerInSession;
-            } else {
-                createNewActionController();
-                request.getSession().setAttribute(controllerClass.getName(), actionController);
-            }
-
-        } else {
-
-            annot = controllerClass.getAnnotation(SingletonController.class);
-            if (annot != null) {
-
-                /*
-                 * a SingletonController
-                 */
-                Object actionControllerInCtx = context.getAttribute(controllerClass.getName());
-                if (actionControllerInCtx != null) {
-                    /* re-inject any Guice-managed dependencies */
-                    injector.injectMembers(actionControllerInCtx);
-                    actionController = actionControllerInCtx;
-                } else {
-                    createNewActionController();
-                    context.setAttribute(controllerClass.getName(), actionController);
-                }
-
-            } else {
-
-                /*
-                 * must be a StatelessController
-                 */
-                createNewActionController();
-            }
-        }
-    }
-
-    private void createNewActionController() throws Exception {
-
-        /* use the Guice Injector */
-        actionController = injector.getInstance(controllerClass);
-
-        invokeAfterConstructIfRequired();
-    }
-
-    private void invokeAfterConstructIfRequired() throws Exception {
-
-        ActionSignature afterConstructSig = controllerDb.getAfterConstructMethodFor(controllerClass);
-        if (afterConstructSig != null) {
-            /*
-             * we've already validated that there are no method parameters when
-             * creating the controller database
-             */
-            FastClass actionFastClass = controllerDb.getFastClass(controllerClass);
-            actionFastClass.invoke(afterConstructSig.fastIndex(), actionController, new Object[] {});
-            logger.debug("invoked after construct action for " + controllerClass.getName());
+        ControllerLocator locator = controllerDb.getControllerLocator(controllerClass);
+        if (locator == null) {
+            locator = new ControllerLocator(controllerDb, controllerClass);
         }
+        actionController = locator.locate(context, request, injector);
     }
 
     private void resolveActionSignature(final String action) {
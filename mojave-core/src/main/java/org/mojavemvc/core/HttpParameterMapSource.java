@@ -17,7 +17,9 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,14 +32,27 @@
 import org.mojavemvc.forms.UploadedFile;
 
 /**
+ * Provides the parameters of a request. The returned map should be 
+ * treated as read-only. Multipart requests are parsed according to the
+ * given MultipartConfig; any temporary files created while parsing are
+ * deleted when the source is released.
+ * 
  * @author Luis Antunes
  */
 public class HttpParameterMapSource implements ParameterMapSource {
     
     private final HttpServletRequest req;
+    private final MultipartConfig multipartConfig;
+    private List<FileItem> bufferedItems;
+    private StreamingMultipartParameterMap streamingMap;
     
     public HttpParameterMapSource(HttpServletRequest req) {
+        this(req, new MultipartConfig());
+    }
+    
+    public HttpParameterMapSource(HttpServletRequest req, MultipartConfig multipartConfig) {
         this.req = req;
+        this.multipartConfig = multipartConfig;
     }
 
     @SuppressWarnings("unchecked")
@@ -47,20 +62,47 @@ public Map<String, Object> getParameterMap() {
         
         if (isMultipartContent(req)) {
             
-            paramMap = getMapFromMultipartRequest(req);
+            if (multipartConfig.isStreaming()) {
+                paramMap = getStreamingMapFromMultipartRequest(req);
+            } else {
+                paramMap = getMapFromMultipartRequest(req);
+            }
+            
+        } else if (isFormContent(req)) {
+            /*
+             * the container must parse a form body before the
+             * request's InputStream is obtained, so it cannot
+             * be deferred; the container's map is used as is
+             */
+            paramMap = Collections.unmodifiableMap((Map<String, Object>) (Map<?, ?>) req.getParameterMap());
             
         } else {
             /*
-             * the map from the request may be unmodifiable,
-             * so create a new map with the contents of the
-             * request map
+             * a view of the request parameters; parameters are 
+             * looked up only as they are asked for
              */
-            paramMap = new HashMap<String, Object>(req.getParameterMap());
+            paramMap = new RequestParameterMap(req);
         }
         
         return paramMap;
     }
     
+    /**
+     * Deletes any temporary files created while parsing a multipart request. 
+     * This should be called once the request has been processed.
+     */
+    public void release() {
+        
+        if (bufferedItems != null) {
+            for (FileItem item : bufferedItems) {
+                item.delete();
+            }
+        }
+        if (streamingMap != null) {
+            streamingMap.release();
+        }
+    }
+    
     private boolean isMultipartContent(HttpServletRequest req) {
         
         if (!"post".equals(req.getMethod().toLowerCase())) {
@@ -73,13 +115,24 @@ private boolean isMultipartContent(HttpServletRequest req) {
         return contentType.toLowerCase().startsWith("multipart/");
     }
     
+    private boolean isFormContent(HttpServletRequest req) {
+        
+        String contentType = req.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        return contentType.toLowerCase().startsWith("application/x-www-form-urlencoded");
+    }
+    
     @SuppressWarnings("unchecked")
     private Map<String, Object> getMapFromMultipartRequest(HttpServletRequest req) {
         
         Map<String, Object> paramMap = new HashMap<String, Object>();
         try {
-            ServletFileUpload upload = new ServletFileUpload(new DiskFileItemFactory());
+            ServletFileUpload upload = newFileUpload(new DiskFileItemFactory(
+                    multipartConfig.getMemoryThreshold(), multipartConfig.getTempDir()));
             List<FileItem> items = upload.parseRequest(req);
+            bufferedItems = items;
             for (FileItem item : items) {
                 if (item.isFormField()) {
                     processFormField(item, paramMap);
@@ -101,6 +154,26 @@ private Map<String, Object> getMapFromMultipartRequest(HttpServletRequest req) {
         return paramMap;
     }
     
+    private Map<String, Object> getStreamingMapFromMultipartRequest(HttpServletRequest req) {
+        
+        try {
+            streamingMap = new StreamingMultipartParameterMap(req, 
+                    newFileUpload(null).getItemIterator(req), multipartConfig);
+        } catch (Exception e) {
+            throw new RuntimeException("error getting parameters from multipart request: ", e);
+        }
+        return streamingMap;
+    }
+    
+    private ServletFileUpload newFileUpload(DiskFileItemFactory factory) {
+        
+        ServletFileUpload upload = factory == null ? 
+                new ServletFileUpload() : new ServletFileUpload(factory);
+        upload.setFileSizeMax(multipartConfig.getMaxPartSize());
+        upload.setSizeMax(multipartConfig.getMaxSize());
+        return upload;
+    }
+    
     private void processFormField(FileItem item, Map<String, Object> paramMap) {
         
         String name = item.getFieldName();
@@ -108,7 +181,7 @@ private void processFormField(FileItem item, Map<String, Object> paramMap) {
         /* handle multiple items with the same name; add to array */
         String[] valueArray = (String[])paramMap.get(name);
         if (valueArray != null) {
-            List<String> valueList = Arrays.asList(valueArray);
+            List<String> valueList = new ArrayList<String>(Arrays.asList(valueArray));
             valueList.add(value);
             valueArray = valueList.toArray(new String[valueList.size()]);
         } else {
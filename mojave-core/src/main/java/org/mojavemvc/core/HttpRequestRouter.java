@@ -16,12 +16,9 @@
 package org.mojavemvc.core;
 
 import static org.mojavemvc.util.RouteHelper.PATH_ELEMENT_SEPARATOR;
-import static org.mojavemvc.util.RouteHelper.getPathElements;
 
-import java.util.List;
 import java.util.Map;
 
-import org.mojavemvc.core.Route.PathParameterElement;
 import org.mojavemvc.exception.NoMatchingRouteException;
 
 /**
@@ -45,41 +42,27 @@ public RoutedRequest route() {
         
         String controller = null;
         String action = null;
+        Route route = null;
         Map<String, Object> paramMap = paramMapSource.getParameterMap();
         
         if (path != null && path.startsWith(PATH_ELEMENT_SEPARATOR)) {
             
-            Route route = routeMap.getRoute(path);
+            RouteMatch match = routeMap.match(path);
             
-            if (route == null) {
+            if (match == null) {
                 throw new NoMatchingRouteException(
                         "no matching routes were found for " + path);
             }
             
+            route = match.getRoute();
             controller = route.getController();
             action = route.getAction();
-            handleParameters(path, paramMap, route);
-        }
-        
-        return new RoutedRequest(controller, action, paramMap);
-    }
-
-    private void handleParameters(String path, 
-            Map<String, Object> paramMap, Route route) {
-        
-        List<PathParameterElement> paramElements = 
-                route.pathParameterElements();
-        if (!paramElements.isEmpty()) {
-            
-            /*
-             * we matched the path, so we can assume that there
-             * are the required number of tokens in the request
-             * path as there are in the route path
-             */
-            String[] pathTokens = getPathElements(path);
-            for (PathParameterElement elem : paramElements) {
-                paramMap.put(elem.name(), new String[]{pathTokens[elem.index()]});
+            if (!route.pathParameterElements().isEmpty()) {
+                /* overlay the path parameters without copying */
+                paramMap = new PathParameterMap(paramMap, match);
             }
         }
+        
+        return new RoutedRequest(controller, action, paramMap, route);
     }
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A StatefulControllerStore that keeps controller instances in the 
+ * HttpSession, under the name of the controller class. The instances are 
+ * replicated along with the session in a distributed environment.
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class HttpSessionControllerStore implements StatefulControllerStore {
+
+    public Object get(HttpServletRequest req, Class<?> controllerClass) {
+
+        return req.getSession().getAttribute(controllerClass.getName());
+    }
+
+    public void put(HttpServletRequest req, Class<?> controllerClass, Object controller) {
+
+        /* setting the attribute again marks it as changed for replication */
+        req.getSession().setAttribute(controllerClass.getName(), controller);
+    }
+
+    public void destroy() {
+    }
+}
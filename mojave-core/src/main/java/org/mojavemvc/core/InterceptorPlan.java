@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import org.mojavemvc.annotations.SingletonInterceptor;
+
+import com.google.inject.Injector;
+
+/**
+ * An interceptor class, resolved once from the ControllerDatabase: its 
+ * before and after actions with their MethodInvokers, and how to obtain an
+ * instance of it. An interceptor annotated with &#064;SingletonInterceptor is 
+ * created the first time it is needed and then reused; any other interceptor
+ * is created every time.
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class InterceptorPlan {
+
+    private final Class<?> interceptorClass;
+    private final boolean singleton;
+    private final ActionSignature beforeActionSig;
+    private final MethodInvoker beforeActionInvoker;
+    private final ActionSignature afterActionSig;
+    private final MethodInvoker afterActionInvoker;
+    
+    /*
+     * the shared instance of a singleton interceptor, once created
+     */
+    private volatile Object instance;
+
+    public InterceptorPlan(ControllerDatabase controllerDb, Class<?> interceptorClass) {
+
+        this.interceptorClass = interceptorClass;
+        this.singleton = interceptorClass.isAnnotationPresent(SingletonInterceptor.class);
+        this.beforeActionSig = controllerDb.getBeforeActionMethodForInterceptor(interceptorClass);
+        this.beforeActionInvoker = getMethodInvoker(controllerDb, interceptorClass, beforeActionSig);
+        this.afterActionSig = controllerDb.getAfterActionMethodForInterceptor(interceptorClass);
+        this.afterActionInvoker = getMethodInvoker(controllerDb, interceptorClass, afterActionSig);
+    }
+
+    private static MethodInvoker getMethodInvoker(ControllerDatabase controllerDb, 
+            Class<?> clazz, ActionSignature sig) {
+
+        return sig == null ? null : controllerDb.getMethodInvoker(clazz, sig);
+    }
+
+    /**
+     * Get the interceptor instance to use for a request.
+     */
+    public Object getInterceptor(Injector injector) {
+
+        if (!singleton) {
+            /* use the Guice Injector */
+            return injector.getInstance(interceptorClass);
+        }
+        Object interceptor = instance;
+        if (interceptor == null) {
+            synchronized (this) {
+                interceptor = instance;
+                if (interceptor == null) {
+                    interceptor = injector.getInstance(interceptorClass);
+                    instance = interceptor;
+                }
+            }
+        }
+        return interceptor;
+    }
+
+    public Class<?> getInterceptorClass() {
+
+        return interceptorClass;
+    }
+
+    public boolean isSingleton() {
+
+        return singleton;
+    }
+
+    public ActionSignature getBeforeActionSignature() {
+
+        return beforeActionSig;
+    }
+
+    public MethodInvoker getBeforeActionInvoker() {
+
+        return beforeActionInvoker;
+    }
+
+    public ActionSignature getAfterActionSignature() {
+
+        return afterActionSig;
+    }
+
+    public MethodInvoker getAfterActionInvoker() {
+
+        return afterActionInvoker;
+    }
+}
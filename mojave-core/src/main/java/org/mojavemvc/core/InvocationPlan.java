@@ -0,0 +1,623 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mojavemvc.annotations.Cached;
+import org.mojavemvc.annotations.Coalesced;
+import org.mojavemvc.annotations.SparseFieldsets;
+import org.mojavemvc.annotations.VirtualThreads;
+import org.mojavemvc.aop.RequestContext;
+import org.mojavemvc.marshalling.FieldFilter;
+import org.mojavemvc.views.EmptyView;
+import org.mojavemvc.views.EntityTags;
+import org.mojavemvc.views.HTTPHeader;
+import org.mojavemvc.views.Response;
+import org.mojavemvc.views.View;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Injector;
+
+/**
+ * Everything needed to invoke an action, resolved once from the 
+ * ControllerDatabase: how to obtain the controller, the action's signature 
+ * and MethodInvoker, the controller's before and after actions, and the 
+ * class and method interceptors compiled into a single chain. The class 
+ * interceptors come first in the chain, followed by the method interceptors,
+ * each in the order in which they are declared. All the before actions of an
+ * invocation share one RequestContext, and all the after actions share 
+ * another, which also holds the action's return value.
+ * <p>
+ * An instance of this class is immutable and thread-safe, and is meant to
+ * be created when the ControllerDatabase is built and shared by all requests
+ * for the action.
+ * 
+ * @author Luis Antunes
+ */
+public class InvocationPlan {
+
+    private static final Logger logger = LoggerFactory.getLogger("org.mojavemvc");
+
+    private static final InterceptorPlan[] NO_INTERCEPTORS = new InterceptorPlan[0];
+    
+    private static final Object[] EMPTY_ARRAY = new Object[0];
+
+    private final Class<?> controllerClass;
+    private final ControllerLocator controllerLocator;
+    private final ActionSignature actionSignature;
+    private final MethodInvoker actionInvoker;
+    private final ActionSignature beforeActionSig;
+    private final MethodInvoker beforeActionInvoker;
+    private final ActionSignature afterActionSig;
+    private final MethodInvoker afterActionInvoker;
+    private final ActionSignature lastModifiedSig;
+    private final MethodInvoker lastModifiedInvoker;
+    private final ActionSignature entityTagSig;
+    private final MethodInvoker entityTagInvoker;
+    /*
+     * the class interceptors followed by the method interceptors
+     */
+    private final InterceptorPlan[] interceptors;
+    private final int classInterceptorCount;
+    private final boolean virtualThreads;
+    private final ControllerMailbox mailbox;
+    private final RequestCoalescer coalescer;
+    private final CachePolicy cachePolicy;
+    /*
+     * the name of the parameter selecting the properties of the marshalled
+     * return value, or null if the action is not @SparseFieldsets
+     */
+    private final String fieldsParameter;
+
+    /**
+     * @param controllerDb
+     *            the database the plan is resolved from
+     * @param controllerClass
+     *            the controller class
+     * @param actionSignature
+     *            the signature of the action to invoke
+     * @param action
+     *            the action variable, used to find method interceptors
+     */
+    public InvocationPlan(ControllerDatabase controllerDb, Class<?> controllerClass, 
+            ActionSignature actionSignature, String action) {
+
+        this.controllerClass = controllerClass;
+        this.controllerLocator = getControllerLocator(controllerDb, controllerClass);
+        this.actionSignature = actionSignature;
+        this.actionInvoker = controllerDb.getMethodInvoker(controllerClass, actionSignature);
+        this.beforeActionSig = controllerDb.getBeforeActionMethodFor(controllerClass);
+        this.beforeActionInvoker = getMethodInvoker(controllerDb, controllerClass, beforeActionSig);
+        this.afterActionSig = controllerDb.getAfterActionMethodFor(controllerClass);
+        this.afterActionInvoker = getMethodInvoker(controllerDb, controllerClass, afterActionSig);
+        this.lastModifiedSig = 
+                controllerDb.getLastModifiedMethodFor(controllerClass, actionSignature.methodName());
+        this.lastModifiedInvoker = getMethodInvoker(controllerDb, controllerClass, lastModifiedSig);
+        this.entityTagSig = 
+                controllerDb.getEntityTagMethodFor(controllerClass, actionSignature.methodName());
+        this.entityTagInvoker = getMethodInvoker(controllerDb, controllerClass, entityTagSig);
+        List<Class<?>> classInterceptorClasses = controllerDb.getInterceptorsFor(controllerClass);
+        List<Class<?>> methodInterceptorClasses = 
+                actionSignature.getInterceptorClasses(controllerDb, controllerClass, action);
+        this.classInterceptorCount = classInterceptorClasses == null ? 0 : classInterceptorClasses.size();
+        this.interceptors = newInterceptorChain(controllerDb, classInterceptorClasses, methodInterceptorClasses);
+        this.virtualThreads = controllerClass.isAnnotationPresent(VirtualThreads.class);
+        SingletonControllerHolder singletonHolder = controllerDb.getSingletonHolder(controllerClass);
+        this.mailbox = singletonHolder == null ? null : singletonHolder.getMailbox();
+        this.coalescer = newRequestCoalescer(actionSignature);
+        this.fieldsParameter = getFieldsParameter(actionSignature);
+        this.cachePolicy = newCachePolicy(controllerClass, actionSignature, fieldsParameter);
+    }
+
+    private static String getFieldsParameter(ActionSignature actionSignature) {
+
+        Annotation[] annotations = actionSignature.getAnnotations();
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                if (annotation instanceof SparseFieldsets) {
+                    return ((SparseFieldsets) annotation).value();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static RequestCoalescer newRequestCoalescer(ActionSignature actionSignature) {
+
+        Annotation[] annotations = actionSignature.getAnnotations();
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                if (annotation instanceof Coalesced) {
+                    return new RequestCoalescer(((Coalesced) annotation).timeout(), 
+                            actionSignature.isNegotiated());
+                }
+            }
+        }
+        return null;
+    }
+
+    private static CachePolicy newCachePolicy(Class<?> controllerClass, ActionSignature actionSignature, 
+            String fieldsParameter) {
+
+        Annotation[] annotations = actionSignature.getAnnotations();
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                if (annotation instanceof Cached) {
+                    return new CachePolicy(controllerClass, actionSignature.methodName(), 
+                            (Cached) annotation, actionSignature.isNegotiated(), fieldsParameter);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static ControllerLocator getControllerLocator(ControllerDatabase controllerDb, 
+            Class<?> controllerClass) {
+
+        ControllerLocator locator = controllerDb.getControllerLocator(controllerClass);
+        return locator != null ? locator : new ControllerLocator(controllerDb, controllerClass);
+    }
+
+    private static MethodInvoker getMethodInvoker(ControllerDatabase controllerDb, 
+            Class<?> clazz, ActionSignature sig) {
+
+        return sig == null ? null : controllerDb.getMethodInvoker(clazz, sig);
+    }
+
+    private static InterceptorPlan[] newInterceptorChain(ControllerDatabase controllerDb, 
+            List<Class<?>> classInterceptorClasses, List<Class<?>> methodInterceptorClasses) {
+
+        List<Class<?>> interceptorClasses = new ArrayList<Class<?>>();
+        if (classInterceptorClasses != null) {
+            interceptorClasses.addAll(classInterceptorClasses);
+        }
+        if (methodInterceptorClasses != null) {
+            interceptorClasses.addAll(methodInterceptorClasses);
+        }
+        if (interceptorClasses.isEmpty()) {
+            return NO_INTERCEPTORS;
+        }
+        InterceptorPlan[] chain = new InterceptorPlan[interceptorClasses.size()];
+        for (int i = 0; i < chain.length; i++) {
+            Class<?> interceptorClass = interceptorClasses.get(i);
+            chain[i] = controllerDb.getInterceptorPlan(interceptorClass);
+            if (chain[i] == null) {
+                chain[i] = new InterceptorPlan(controllerDb, interceptorClass);
+            }
+        }
+        return chain;
+    }
+
+    public Class<?> getControllerClass() {
+
+        return controllerClass;
+    }
+
+    public ControllerScope getScope() {
+
+        return controllerLocator.getScope();
+    }
+
+    public ActionSignature getActionSignature() {
+
+        return actionSignature;
+    }
+    
+    /**
+     * @return the mailbox through which the plan must be invoked, or null if
+     *         the controller is not an &#064;Actor
+     */
+    public ControllerMailbox getMailbox() {
+        
+        return mailbox;
+    }
+    
+    /**
+     * @return the coalescer of the requests for the action, or null if the 
+     *         action is not &#064;Coalesced
+     */
+    public RequestCoalescer getCoalescer() {
+        
+        return coalescer;
+    }
+    
+    /**
+     * @return how the responses of the action are cached, or null if the
+     *         action is not &#064;Cached
+     */
+    public CachePolicy getCachePolicy() {
+        
+        return cachePolicy;
+    }
+    
+    /**
+     * @return true if the controller is annotated with @VirtualThreads
+     */
+    public boolean runsOnVirtualThreads() {
+        
+        return virtualThreads;
+    }
+
+    /**
+     * @return true if interceptors or a before action of the controller run
+     *         before the action, any of which may answer the request in its
+     *         place
+     */
+    public boolean isGuarded() {
+
+        return interceptors.length > 0 || beforeActionSig != null;
+    }
+
+    /**
+     * Get the controller instance that should handle the request, according
+     * to the controller's scope.
+     */
+    public Object getActionController(Context context, HttpServletRequest request, 
+            Injector injector) throws Exception {
+
+        return controllerLocator.locate(context, request, injector);
+    }
+
+    /**
+     * Invoke the action on the given controller, together with the
+     * interceptors and the controller's before and after actions. If the
+     * action returns an asynchronous result, this waits for it.
+     * 
+     * @return the View resulting from the invocation
+     */
+    public View invoke(Object actionController, RoutedRequest routed, HttpServletRequest request,
+            HttpServletResponse response, Injector injector) throws Exception {
+
+        return invoke(actionController, routed, request, response, injector, null);
+    }
+
+    /**
+     * Invoke the action on the given controller, together with the
+     * interceptors and the controller's before and after actions. If the
+     * action returns an asynchronous result, such as a Callable or a Future,
+     * and an AsyncActionHandler is given, the result is handed to the handler
+     * with an ActionCompletion that performs the rest of the invocation, and
+     * null is returned. Without a handler, this waits for the result.
+     * 
+     * @return the View resulting from the invocation, or null if the 
+     *         invocation is completed asynchronously
+     */
+    public View invoke(Object actionController, RoutedRequest routed, HttpServletRequest request,
+            HttpServletResponse response, Injector injector, AsyncActionHandler asyncHandler) 
+                    throws Exception {
+
+        Invocation inv = new Invocation(routed, request, response);
+
+        View view = null;
+
+        inv.args = actionSignature.getArgs(routed.getParameterMap(), request.getInputStream());
+        inv.actionAnnotations = actionSignature.getAnnotations();
+        if (fieldsParameter != null) {
+            inv.fields = FieldFilter.of(getParameter(routed, fieldsParameter));
+        }
+
+        Object[] interceptorInstances = createInterceptors(injector);
+
+        for (int i = 0; i < interceptors.length; i++) {
+
+            view = invokeBeforeOrAfterActionIfRequired(interceptorInstances[i], 
+                    interceptors[i].getBeforeActionSignature(), interceptors[i].getBeforeActionInvoker(), 
+                    inv, "before");
+            if (view != null) {
+                return view;
+            }
+        }
+
+        view = invokeBeforeOrAfterActionIfRequired(actionController, beforeActionSig, 
+                beforeActionInvoker, inv, "before");
+
+        if (view != null) {
+            return view;
+        }
+
+        view = revalidate(actionController, routed, inv);
+
+        if (view != null) {
+            return view;
+        }
+
+        Object entity = actionInvoker.invoke(actionController, inv.args);
+        logger.debug("invoked " + actionSignature.methodName() + " for " + controllerClass.getName());
+        
+        AsyncResultAdapter asyncAdapter = AsyncResultAdapters.getAdapter(entity);
+        if (asyncAdapter != null) {
+            if (asyncHandler != null) {
+                asyncHandler.handle(entity, asyncAdapter, 
+                        new InvocationCompletion(actionController, interceptorInstances, inv));
+                return null;
+            }
+            entity = asyncAdapter.await(entity);
+        }
+        
+        return complete(actionController, interceptorInstances, inv, entity);
+    }
+    
+    /*
+     * evaluates the conditional headers of a GET or HEAD request against the
+     * @LastModified and @EntityTag methods of the action, if it has any; 
+     * returns a 304 View if the action need not be invoked
+     */
+    private View revalidate(Object actionController, RoutedRequest routed, Invocation inv) 
+            throws Exception {
+
+        if (lastModifiedSig == null && entityTagSig == null) {
+            return null;
+        }
+        String method = inv.request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return null;
+        }
+
+        String tag = null;
+        if (entityTagSig != null) {
+            Object result = entityTagInvoker.invoke(actionController, 
+                    entityTagSig.getArgs(routed.getParameterMap(), inv.request.getInputStream()));
+            if (result != null) {
+                tag = quote(result.toString());
+                inv.response.setHeader(HTTPHeader.ETAG, tag);
+            }
+        }
+
+        long lastModified = -1;
+        if (lastModifiedSig != null) {
+            Object result = lastModifiedInvoker.invoke(actionController, 
+                    lastModifiedSig.getArgs(routed.getParameterMap(), inv.request.getInputStream()));
+            if (result instanceof Date) {
+                lastModified = ((Date) result).getTime();
+            } else if (result instanceof Long) {
+                lastModified = (Long) result;
+            }
+            if (lastModified >= 0) {
+                inv.response.setDateHeader(HTTPHeader.LAST_MODIFIED, lastModified);
+            }
+        }
+
+        boolean notModified;
+        if (inv.request.getHeader(HTTPHeader.IF_NONE_MATCH) != null) {
+            notModified = EntityTags.matches(inv.request, tag);
+        } else {
+            long ifModifiedSince = getIfModifiedSince(inv.request);
+            /* HTTP dates have a resolution of one second */
+            notModified = lastModified >= 0 && ifModifiedSince >= 0 && 
+                    lastModified / 1000 <= ifModifiedSince / 1000;
+        }
+
+        if (notModified) {
+            logger.debug("not invoking " + actionSignature.methodName() + " for " + 
+                    controllerClass.getName() + "; not modified");
+            return new Response.NotModified();
+        }
+        return null;
+    }
+
+    private static long getIfModifiedSince(HttpServletRequest request) {
+
+        try {
+            return request.getDateHeader(HTTPHeader.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            /* a malformed date is ignored */
+            return -1;
+        }
+    }
+
+    private static String getParameter(RoutedRequest routed, String name) {
+
+        Map<String, Object> parameterMap = routed.getParameterMap();
+        Object value = parameterMap == null ? null : parameterMap.get(name);
+        if (value instanceof String[]) {
+            String[] values = (String[]) value;
+            return values.length == 0 ? null : values[0];
+        }
+        return value instanceof String ? (String) value : null;
+    }
+
+    private static String quote(String tag) {
+
+        if (tag.startsWith("\"") || tag.startsWith("W/\"")) {
+            return tag;
+        }
+        return "\"" + tag + "\"";
+    }
+
+    /*
+     * marshalls the action's return value, and invokes the after actions
+     */
+    private View complete(Object actionController, Object[] interceptorInstances, 
+            Invocation inv, Object entity) throws Exception {
+        
+        inv.entity = entity;
+        String accept = null;
+        if (actionSignature.isNegotiated()) {
+            inv.response.addHeader(HTTPHeader.VARY, HTTPHeader.ACCEPT);
+            accept = inv.request.getHeader(HTTPHeader.ACCEPT);
+        }
+        if (accept == null && inv.fields == null) {
+            inv.marshalledEntity = actionSignature.marshall(inv.entity);
+        } else {
+            inv.marshalledEntity = actionSignature.marshall(inv.entity, accept, inv.fields);
+        }
+        inv.requestContext = null;
+        View view = inv.marshalledEntity;
+
+        View afterActionView = invokeBeforeOrAfterActionIfRequired(actionController, afterActionSig, 
+                afterActionInvoker, inv, "after");
+
+        if (afterActionView != null) {
+            view = afterActionView;
+        }
+
+        /* the method interceptors, and then the class interceptors */
+        View interceptorView = invokeAfterActions(interceptorInstances, classInterceptorCount, 
+                interceptors.length, inv);
+        if (interceptorView != null) {
+            view = interceptorView;
+        }
+        interceptorView = invokeAfterActions(interceptorInstances, 0, classInterceptorCount, inv);
+        if (interceptorView != null) {
+            view = interceptorView;
+        }
+
+        return view;
+    }
+
+    /*
+     * returns the View from the first interceptor in the given range of 
+     * the chain that provides one
+     */
+    private View invokeAfterActions(Object[] interceptorInstances, int from, int to, 
+            Invocation inv) throws Exception {
+
+        for (int i = from; i < to; i++) {
+
+            View interceptorView = invokeBeforeOrAfterActionIfRequired(interceptorInstances[i], 
+                    interceptors[i].getAfterActionSignature(), interceptors[i].getAfterActionInvoker(), 
+                    inv, "after");
+            if (interceptorView != null) {
+                return interceptorView;
+            }
+        }
+        return null;
+    }
+
+    private Object[] createInterceptors(Injector injector) {
+
+        if (interceptors.length == 0) {
+            return EMPTY_ARRAY;
+        }
+        Object[] instances = new Object[interceptors.length];
+        for (int i = 0; i < interceptors.length; i++) {
+            instances[i] = interceptors[i].getInterceptor(injector);
+        }
+        return instances;
+    }
+
+    private View invokeBeforeOrAfterActionIfRequired(Object instance, ActionSignature interceptorMethod, 
+            MethodInvoker invoker, Invocation inv, String which) throws Exception {
+
+        View view = null;
+
+        if (interceptorMethod != null) {
+            /*
+             * we've already validated that there are no method parameters when
+             * creating the controller database
+             */
+            Object returnObj = invoker.invoke(instance, 
+                    getBeforeOrAfterActionArgs(interceptorMethod.parameterTypes(), inv));
+
+            if (returnObj != null && returnObj instanceof View) {
+                view = (View) returnObj;
+            }
+            logger.debug("invoked " + which + " action for " + instance.getClass().getName());
+
+            /*
+             * if there is a before or after action method, it is possible that
+             * another view may have been dispatched to from that method;
+             * therefore if the response has been committed, we should return an
+             * empty view NOTE: this will not work if the servlet container does
+             * not set the response to being committed after the dispatch
+             */
+            if (inv.response.isCommitted())
+                return new EmptyView();
+        }
+
+        return view;
+    }
+
+    private Object[] getBeforeOrAfterActionArgs(Class<?>[] paramterTypes, Invocation inv) {
+
+        if (paramterTypes != null && paramterTypes.length == 1 && paramterTypes[0].equals(RequestContext.class)) {
+
+            if (inv.requestContext == null) {
+                inv.requestContext = new RequestContext(inv.request, inv.response, inv.args, 
+                        inv.action, inv.controller, inv.actionAnnotations, inv.entity, inv.marshalledEntity);
+            }
+            return new Object[] { inv.requestContext };
+        }
+
+        return EMPTY_ARRAY;
+    }
+
+    private class InvocationCompletion implements ActionCompletion {
+        
+        private final Object actionController;
+        private final Object[] interceptorInstances;
+        private final Invocation inv;
+        
+        private InvocationCompletion(Object actionController, Object[] interceptorInstances, 
+                Invocation inv) {
+            
+            this.actionController = actionController;
+            this.interceptorInstances = interceptorInstances;
+            this.inv = inv;
+        }
+        
+        public View complete(Object value) throws Exception {
+            
+            return InvocationPlan.this.complete(actionController, interceptorInstances, inv, value);
+        }
+    }
+
+    /*
+     * the state of a single invocation of the plan
+     */
+    private static class Invocation {
+
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final String controller;
+        private final String action;
+        private Object[] args;
+        private Annotation[] actionAnnotations;
+        private Object entity;
+        private View marshalledEntity;
+        /*
+         * null if the action is not @SparseFieldsets, or the request selects
+         * no fields
+         */
+        private FieldFilter fields;
+        /*
+         * shared by the before actions, and then by the after actions
+         */
+        private RequestContext requestContext;
+
+        private Invocation(RoutedRequest routed, HttpServletRequest request, 
+                HttpServletResponse response) {
+
+            this.request = request;
+            this.response = response;
+            this.controller = emptyIfNull(routed.getController());
+            this.action = emptyIfNull(routed.getAction());
+        }
+
+        private static String emptyIfNull(String s) {
+            return (s == null || s.trim().length() == 0) ? "" : s;
+        }
+    }
+}
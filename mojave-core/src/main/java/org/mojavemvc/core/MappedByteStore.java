@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps byte arrays by key in a memory-mapped file. Values are appended to 
+ * the file. When the file is full, the current values are compacted to the 
+ * start of the file, and values that have not been used for longer than the
+ * maximum idle time are discarded.
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+class MappedByteStore {
+
+    private static final Logger logger = LoggerFactory.getLogger("org.mojavemvc");
+
+    private final File file;
+    private final boolean deleteOnDestroy;
+    private final long maxIdle;
+    private final RandomAccessFile raf;
+    private final MappedByteBuffer buffer;
+    private final Map<String, Slot> slots = new HashMap<String, Slot>();
+    private int writePosition;
+
+    /**
+     * @param file
+     *            the file to map; any existing content is discarded
+     * @param deleteOnDestroy
+     *            whether the file is deleted when the store is destroyed
+     * @param capacity
+     *            the size of the file in bytes
+     * @param maxIdle
+     *            the time in milliseconds after which an unused value may
+     *            be discarded, or -1 for no limit
+     */
+    MappedByteStore(File file, boolean deleteOnDestroy, int capacity, long maxIdle) 
+            throws IOException {
+
+        this.file = file;
+        this.deleteOnDestroy = deleteOnDestroy;
+        this.maxIdle = maxIdle;
+        this.raf = new RandomAccessFile(file, "rw");
+        this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    File getFile() {
+
+        return file;
+    }
+
+    /**
+     * @return the value, or null if there is none for the key
+     */
+    synchronized byte[] get(String key) {
+
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            return null;
+        }
+        slot.lastAccess = System.currentTimeMillis();
+        return read(slot);
+    }
+
+    /**
+     * @return false if the value does not fit in the file, even after 
+     *         compaction
+     */
+    synchronized boolean put(String key, byte[] bytes) {
+
+        /* the previous value becomes garbage that compaction discards */
+        slots.remove(key);
+        if (writePosition + bytes.length > buffer.capacity()) {
+            compact();
+            if (writePosition + bytes.length > buffer.capacity()) {
+                return false;
+            }
+        }
+        Slot slot = new Slot(writePosition, bytes.length, System.currentTimeMillis());
+        write(slot.offset, bytes);
+        writePosition += bytes.length;
+        slots.put(key, slot);
+        return true;
+    }
+
+    synchronized void remove(String key) {
+
+        slots.remove(key);
+    }
+
+    /**
+     * Remove the values whose keys start with the given prefix.
+     */
+    synchronized void removeAll(String prefix) {
+
+        Iterator<String> it = slots.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    synchronized int size() {
+
+        return slots.size();
+    }
+
+    synchronized void destroy() {
+
+        slots.clear();
+        try {
+            raf.close();
+        } catch (IOException e) {
+            logger.error("error closing " + file, e);
+        }
+        if (deleteOnDestroy && !file.delete()) {
+            /* a mapped file may not be deletable until it is unmapped */
+            file.deleteOnExit();
+        }
+    }
+
+    /*
+     * must be called while holding the lock on this store
+     */
+    private void compact() {
+
+        long now = System.currentTimeMillis();
+        List<Slot> live = new ArrayList<Slot>();
+        List<byte[]> contents = new ArrayList<byte[]>();
+        Iterator<Slot> it = slots.values().iterator();
+        while (it.hasNext()) {
+            Slot slot = it.next();
+            if (maxIdle >= 0 && now - slot.lastAccess > maxIdle) {
+                it.remove();
+            } else {
+                live.add(slot);
+                contents.add(read(slot));
+            }
+        }
+        
+        writePosition = 0;
+        for (int i = 0; i < live.size(); i++) {
+            Slot slot = live.get(i);
+            slot.offset = writePosition;
+            write(slot.offset, contents.get(i));
+            writePosition += slot.length;
+        }
+        logger.debug("compacted " + file + "; " + live.size() + " values remain");
+    }
+
+    private byte[] read(Slot slot) {
+
+        byte[] bytes = new byte[slot.length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(slot.offset);
+        view.get(bytes);
+        return bytes;
+    }
+
+    private void write(int offset, byte[] bytes) {
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.put(bytes);
+    }
+
+    static byte[] serialize(Object value) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        try {
+            out.writeObject(value);
+        } finally {
+            out.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] bytes, ClassLoader classLoader) 
+            throws IOException, ClassNotFoundException {
+
+        ObjectInputStream in = new ClassLoaderObjectInputStream(
+                new ByteArrayInputStream(bytes), classLoader);
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static class Slot {
+
+        private int offset;
+        private final int length;
+        private long lastAccess;
+
+        private Slot(int offset, int length, long lastAccess) {
+            this.offset = offset;
+            this.length = length;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /*
+     * resolves classes with the given loader, which may not be the loader 
+     * of this class
+     */
+    private static class ClassLoaderObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader classLoader;
+
+        private ClassLoaderObjectInputStream(InputStream in, ClassLoader classLoader) 
+                throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) 
+                throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, classLoader);
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
@@ -17,19 +17,28 @@
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import net.sf.cglib.reflect.FastClass;
 
 import org.mojavemvc.annotations.Action;
+import org.mojavemvc.annotations.Actor;
+import org.mojavemvc.annotations.Cached;
+import org.mojavemvc.annotations.Coalesced;
 import org.mojavemvc.annotations.AfterAction;
 import org.mojavemvc.annotations.AfterConstruct;
 import org.mojavemvc.annotations.BeforeAction;
@@ -37,17 +46,21 @@
 import org.mojavemvc.annotations.DefaultAction;
 import org.mojavemvc.annotations.DefaultController;
 import org.mojavemvc.annotations.Entity;
+import org.mojavemvc.annotations.EntityTag;
 import org.mojavemvc.annotations.Expects;
 import org.mojavemvc.annotations.GETAction;
 import org.mojavemvc.annotations.HEADAction;
 import org.mojavemvc.annotations.Init;
 import org.mojavemvc.annotations.InterceptedBy;
+import org.mojavemvc.annotations.LastModified;
 import org.mojavemvc.annotations.OPTIONSAction;
 import org.mojavemvc.annotations.POSTAction;
 import org.mojavemvc.annotations.PUTAction;
 import org.mojavemvc.annotations.ParamPath;
+import org.mojavemvc.annotations.Pooled;
 import org.mojavemvc.annotations.Returns;
 import org.mojavemvc.annotations.SingletonController;
+import org.mojavemvc.annotations.SparseFieldsets;
 import org.mojavemvc.annotations.StatefulController;
 import org.mojavemvc.annotations.StatelessController;
 import org.mojavemvc.annotations.TRACEAction;
@@ -55,6 +68,9 @@
 import org.mojavemvc.exception.ConfigurationException;
 import org.mojavemvc.marshalling.DefaultEntityMarshaller;
 import org.mojavemvc.marshalling.EntityMarshaller;
+import org.mojavemvc.marshalling.IncrementalEntityMarshaller;
+import org.mojavemvc.marshalling.JSONEntityMarshaller;
+import org.mojavemvc.marshalling.JacksonEntityMarshaller;
 import org.mojavemvc.util.ParamPathHelper;
 import org.mojavemvc.views.View;
 import org.slf4j.Logger;
@@ -99,6 +115,18 @@ public class MappedControllerDatabase implements ControllerDatabase {
      */
     private final Map<Class<?>, ActionSignature> controllerClassToAfterActionMap = new HashMap<Class<?>, ActionSignature>();
 
+    /*
+     * maps of the controller classes to a map of the names of the action 
+     * methods to the @LastModified and @EntityTag methods that apply to them; 
+     * a method that applies to all the actions of a controller is mapped to 
+     * the empty string eg. org.mojavemvc.tests.ReportController -> 
+     * ["report" -> ActionSignature["reportModified"]]
+     */
+    private final Map<Class<?>, Map<String, ActionSignature>> controllerClassToLastModifiedMap = 
+            new HashMap<Class<?>, Map<String, ActionSignature>>();
+    private final Map<Class<?>, Map<String, ActionSignature>> controllerClassToEntityTagMap = 
+            new HashMap<Class<?>, Map<String, ActionSignature>>();
+
     /*
      * a map of the controller classes to their @DefaultAction methods eg.
      * org.mojavemvc.tests.IndexController -> ActionSignature[ "someAction", []
@@ -188,6 +216,69 @@ public class MappedControllerDatabase implements ControllerDatabase {
      */
     private final Map<String, EntityMarshaller> entityMarshallerMap;
     
+    /*
+     * creates the invokers for the methods of each signature
+     */
+    private final MethodInvokerFactory methodInvokerFactory;
+    
+    /*
+     * the executor on which the mailboxes of actor controllers schedule 
+     * their workers
+     */
+    private final Executor mailboxExecutor;
+    
+    /*
+     * a map of each signature to the invoker for its method
+     */
+    private final Map<ActionSignature, MethodInvoker> signatureToInvokerMap = 
+            new IdentityHashMap<ActionSignature, MethodInvoker>();
+    
+    /*
+     * the routes added to the route map, in the order in which they 
+     * were added
+     */
+    private final Set<Route> routes = new LinkedHashSet<Route>();
+    
+    /*
+     * a map of the interceptor classes to their plans, through which the 
+     * instance of a singleton interceptor is shared
+     */
+    private final Map<Class<?>, InterceptorPlan> interceptorClassToPlanMap = 
+            new HashMap<Class<?>, InterceptorPlan>();
+    
+    /*
+     * a map of the singleton controller classes to the holders of their
+     * single instances
+     */
+    private final Map<Class<?>, SingletonControllerHolder> singletonClassToHolderMap = 
+            new HashMap<Class<?>, SingletonControllerHolder>();
+    
+    /*
+     * a map of the controller classes to their locators, through which 
+     * controller instances are obtained and re-injected
+     */
+    private final Map<Class<?>, ControllerLocator> controllerClassToLocatorMap = 
+            new HashMap<Class<?>, ControllerLocator>();
+    
+    /*
+     * a map of the action, default action and HTTP method action signatures
+     * to their invocation plans
+     */
+    private final Map<ActionSignature, InvocationPlan> signatureToPlanMap = 
+            new IdentityHashMap<ActionSignature, InvocationPlan>();
+    
+    /*
+     * a map of each route to the invocation plans for the route, indexed by
+     * HttpMethod ordinal
+     */
+    private final Map<Route, InvocationPlan[]> routeToPlansMap = new HashMap<Route, InvocationPlan[]>();
+    
+    /*
+     * the invocation plans for requests with no path, indexed by HttpMethod 
+     * ordinal
+     */
+    private InvocationPlan[] defaultControllerPlans;
+    
     /**
      * Construct a controller database based on the given Set of controller
      * Classes.
@@ -197,8 +288,40 @@ public class MappedControllerDatabase implements ControllerDatabase {
     public MappedControllerDatabase(Set<Class<?>> controllerClasses, RouteMap routeMap, 
             Map<String, EntityMarshaller> entityMarshallerMap) {
 
+        this(controllerClasses, routeMap, entityMarshallerMap, new FastClassMethodInvokerFactory());
+    }
+
+    /**
+     * Construct a controller database based on the given Set of controller
+     * Classes, using the given factory to create the method invokers. The
+     * mailboxes of actor controllers schedule their workers on an executor
+     * created for this database, which is never shut down, though it holds
+     * no thread while it is idle.
+     * 
+     * @param controllerClasses
+     */
+    public MappedControllerDatabase(Set<Class<?>> controllerClasses, RouteMap routeMap, 
+            Map<String, EntityMarshaller> entityMarshallerMap, MethodInvokerFactory methodInvokerFactory) {
+
+        this(controllerClasses, routeMap, entityMarshallerMap, methodInvokerFactory, 
+                ControllerMailbox.newWorkerExecutor());
+    }
+
+    /**
+     * Construct a controller database based on the given Set of controller
+     * Classes, using the given factory to create the method invokers, and 
+     * the given executor to run the mailboxes of actor controllers.
+     * 
+     * @param controllerClasses
+     */
+    public MappedControllerDatabase(Set<Class<?>> controllerClasses, RouteMap routeMap, 
+            Map<String, EntityMarshaller> entityMarshallerMap, MethodInvokerFactory methodInvokerFactory, 
+            Executor mailboxExecutor) {
+
         this.routeMap = routeMap;
         this.entityMarshallerMap = entityMarshallerMap;
+        this.methodInvokerFactory = methodInvokerFactory;
+        this.mailboxExecutor = mailboxExecutor;
         init(controllerClasses);
     }
 
@@ -256,6 +379,51 @@ public ActionSignature getBeforeActionMethodFor(Class<?> controllerClass) {
         return controllerClassToBeforeActionMap.get(controllerClass);
     }
 
+    /**
+     * Get the ActionSignature annotated with @LastModified that applies to 
+     * the given action method of the given controller class. 
+     * ActionSignature is thread-safe.
+     * 
+     * @param controllerClass
+     *            the controller class
+     * @param actionMethodName
+     *            the name of the action method
+     * @return the ActionSignature, or null if there is no ActionSignature
+     *         annotated with @LastModified for the action
+     */
+    public ActionSignature getLastModifiedMethodFor(Class<?> controllerClass, String actionMethodName) {
+
+        return getRevalidationMethodFor(controllerClassToLastModifiedMap, controllerClass, actionMethodName);
+    }
+
+    /**
+     * Get the ActionSignature annotated with @EntityTag that applies to the 
+     * given action method of the given controller class. ActionSignature is
+     * thread-safe.
+     * 
+     * @param controllerClass
+     *            the controller class
+     * @param actionMethodName
+     *            the name of the action method
+     * @return the ActionSignature, or null if there is no ActionSignature
+     *         annotated with @EntityTag for the action
+     */
+    public ActionSignature getEntityTagMethodFor(Class<?> controllerClass, String actionMethodName) {
+
+        return getRevalidationMethodFor(controllerClassToEntityTagMap, controllerClass, actionMethodName);
+    }
+
+    private ActionSignature getRevalidationMethodFor(Map<Class<?>, Map<String, ActionSignature>> map, 
+            Class<?> controllerClass, String actionMethodName) {
+
+        Map<String, ActionSignature> methods = map.get(controllerClass);
+        if (methods == null) {
+            return null;
+        }
+        ActionSignature sig = methods.get(actionMethodName);
+        return sig != null ? sig : methods.get("");
+    }
+
     /**
      * Get the ActionSignature annotated with @AfterAction for the given
      * controller class. ActionSignature is thread-safe.
@@ -308,6 +476,42 @@ public Set<Class<?>> getInitControllers() {
         return Collections.unmodifiableSet(initControllers);
     }
 
+    /**
+     * Get an unmodifiable set of all the singleton controller classes.
+     * 
+     * @return the singleton controller classes
+     */
+    public Set<Class<?>> getSingletonControllers() {
+
+        return Collections.unmodifiableSet(singletonClassToHolderMap.keySet());
+    }
+
+    /**
+     * Get the SingletonControllerHolder for the given singleton controller 
+     * class.
+     * 
+     * @param controllerClass
+     *            the controller class
+     * @return the SingletonControllerHolder, or null if the class is not a 
+     *         singleton controller
+     */
+    public SingletonControllerHolder getSingletonHolder(Class<?> controllerClass) {
+
+        return singletonClassToHolderMap.get(controllerClass);
+    }
+
+    /**
+     * Get the ControllerLocator for the given controller class.
+     * 
+     * @param controllerClass
+     *            the controller class
+     * @return the ControllerLocator, or null if the class is not a controller
+     */
+    public ControllerLocator getControllerLocator(Class<?> controllerClass) {
+
+        return controllerClassToLocatorMap.get(controllerClass);
+    }
+
     /**
      * Get an unmodifiable list of Classes that represent interceptors for the
      * given class, in the order in which they are declared in the @InterceptedBy
@@ -350,6 +554,18 @@ public ActionSignature getBeforeActionMethodForInterceptor(Class<?> interceptorC
         return interceptorClassToBeforeActionMap.get(interceptorClass);
     }
 
+    /**
+     * Get the InterceptorPlan for the given interceptor class.
+     * 
+     * @param interceptorClass
+     *            the interceptor class
+     * @return the InterceptorPlan, or null if the class is not an interceptor
+     */
+    public InterceptorPlan getInterceptorPlan(Class<?> interceptorClass) {
+
+        return interceptorClassToPlanMap.get(interceptorClass);
+    }
+
     /**
      * Get the default controller for the application, if specified.
      * 
@@ -453,6 +669,27 @@ public ActionSignature getHttpMethodActionSignature(Class<?> controllerClass, Ht
         return null;
     }
 
+    public MethodInvoker getMethodInvoker(Class<?> clazz, ActionSignature signature) {
+
+        MethodInvoker invoker = signatureToInvokerMap.get(signature);
+        if (invoker == null) {
+            invoker = new FastClassMethodInvokerFactory.FastClassMethodInvoker(
+                    getFastClass(clazz), signature.fastIndex());
+        }
+        return invoker;
+    }
+
+    public InvocationPlan getInvocationPlan(ActionSignature actionSignature) {
+
+        return signatureToPlanMap.get(actionSignature);
+    }
+
+    public InvocationPlan getInvocationPlan(Route route, HttpMethod httpMethod) {
+
+        InvocationPlan[] plans = route == null ? defaultControllerPlans : routeToPlansMap.get(route);
+        return plans == null ? null : plans[httpMethod.ordinal()];
+    }
+
     /*--------------------------private methods----------------------------------------*/
 
     private void init(Set<Class<?>> controllerClasses) {
@@ -467,6 +704,98 @@ private void init(Set<Class<?>> controllerClasses) {
 
             addControllerClass(controllerVariable, controllerClass);
         }
+        
+        createInvocationPlans();
+    }
+    
+    private void createInvocationPlans() {
+        
+        Set<Class<?>> interceptorClasses = new HashSet<Class<?>>(interceptorClassToBeforeActionMap.keySet());
+        interceptorClasses.addAll(interceptorClassToAfterActionMap.keySet());
+        for (Class<?> interceptorClass : interceptorClasses) {
+            interceptorClassToPlanMap.put(interceptorClass, new InterceptorPlan(this, interceptorClass));
+        }
+        
+        for (Class<?> controllerClass : controllerClassesMap.values()) {
+            if (ControllerScope.of(controllerClass) == ControllerScope.SINGLETON) {
+                singletonClassToHolderMap.put(controllerClass, 
+                        new SingletonControllerHolder(this, controllerClass, mailboxExecutor));
+            }
+        }
+        for (Class<?> controllerClass : controllerClassesMap.values()) {
+            controllerClassToLocatorMap.put(controllerClass, new ControllerLocator(this, controllerClass));
+        }
+        
+        for (Map.Entry<Class<?>, Map<String, ActionSignature>> entry : controllerClassToActionMap.entrySet()) {
+            for (Map.Entry<String, ActionSignature> actionEntry : entry.getValue().entrySet()) {
+                addInvocationPlan(entry.getKey(), actionEntry.getValue(), actionEntry.getKey());
+            }
+        }
+        for (Map.Entry<Class<?>, Map<HttpMethod, ActionSignature>> entry : controllerClassToHttpMethodMap.entrySet()) {
+            for (ActionSignature sig : entry.getValue().values()) {
+                addInvocationPlan(entry.getKey(), sig, "");
+            }
+        }
+        for (Map.Entry<Class<?>, ActionSignature> entry : controllerClassToDefaultActionMap.entrySet()) {
+            addInvocationPlan(entry.getKey(), entry.getValue(), "");
+        }
+        
+        for (Route route : routes) {
+            Class<?> controllerClass = route.getController() == null ? 
+                    defaultControllerClass : controllerClassesMap.get(route.getController());
+            routeToPlansMap.put(route, getInvocationPlans(controllerClass, route.getAction()));
+        }
+        if (defaultControllerClass != null) {
+            defaultControllerPlans = getInvocationPlans(defaultControllerClass, null);
+        }
+    }
+    
+    private void addInvocationPlan(Class<?> controllerClass, ActionSignature sig, String action) {
+        
+        InvocationPlan plan = new InvocationPlan(this, controllerClass, sig, action);
+        validateSharedResponsePlan(plan);
+        signatureToPlanMap.put(sig, plan);
+    }
+    
+    /*
+     * a shared response is sent without running the interceptors and the 
+     * before action for the request it is sent to, so that they could not 
+     * refuse a request that they would otherwise refuse
+     */
+    private void validateSharedResponsePlan(InvocationPlan plan) {
+        
+        if ((plan.getCachePolicy() == null && plan.getCoalescer() == null) || !plan.isGuarded()) {
+            return;
+        }
+        Class<?> annotationClass = plan.getCachePolicy() != null ? Cached.class : Coalesced.class;
+        throw new ConfigurationException("action " + plan.getActionSignature().methodName() + " of " 
+                + plan.getControllerClass().getName() + " cannot be annotated with @" 
+                + annotationClass.getSimpleName() + " as it has interceptors or a @" 
+                + BeforeAction.class.getSimpleName() + " method");
+    }
+    
+    /*
+     * resolves the plans in the same way as a request is resolved: an action,
+     * if one is given, otherwise the HTTP method action and then the 
+     * default action
+     */
+    private InvocationPlan[] getInvocationPlans(Class<?> controllerClass, String action) {
+        
+        HttpMethod[] httpMethods = HttpMethod.values();
+        InvocationPlan[] plans = new InvocationPlan[httpMethods.length];
+        for (HttpMethod httpMethod : httpMethods) {
+            ActionSignature sig;
+            if (action != null) {
+                sig = getActionMethodSignature(controllerClass, action);
+            } else {
+                sig = getHttpMethodActionSignature(controllerClass, httpMethod);
+                if (sig == null) {
+                    sig = getDefaultActionMethodFor(controllerClass);
+                }
+            }
+            plans[httpMethod.ordinal()] = sig == null ? null : signatureToPlanMap.get(sig);
+        }
+        return plans;
     }
 
     private Annotation getControllerAnnotation(Class<?> controllerClass) {
@@ -531,6 +860,8 @@ private void addControllerClass(String controllerVariable, Class<?> controllerCl
         }
         controllerClassesMap.put(controllerVariable, controllerClass);
         checkForInitController(controllerClass);
+        checkForActorController(controllerClass);
+        checkForPooledController(controllerClass);
         boolean isDefaultController = checkForDefaultController(controllerClass);
         setActionMethodIndicesFor(controllerClass, controllerVariable, isDefaultController);
         setInterceptorsFor(controllerClass);
@@ -550,6 +881,30 @@ private void checkForInitController(Class<?> controllerClass) {
         }
     }
 
+    private void checkForPooledController(Class<?> controllerClass) {
+
+        Pooled pooled = controllerClass.getAnnotation(Pooled.class);
+        if (pooled != null) {
+            if (ControllerScope.of(controllerClass) != ControllerScope.STATELESS) {
+                throw new ConfigurationException("only a @" + StatelessController.class.getSimpleName()
+                        + " can be annotated with @" + Pooled.class.getSimpleName());
+            }
+            if (pooled.value() < 1) {
+                throw new ConfigurationException("the @" + Pooled.class.getSimpleName() + " size of " 
+                        + controllerClass.getName() + " must be at least 1");
+            }
+        }
+    }
+
+    private void checkForActorController(Class<?> controllerClass) {
+
+        if (controllerClass.isAnnotationPresent(Actor.class) && 
+                !controllerClass.isAnnotationPresent(SingletonController.class)) {
+            throw new ConfigurationException("only a @" + SingletonController.class.getSimpleName()
+                    + " can be annotated with @" + Actor.class.getSimpleName());
+        }
+    }
+
     /*
      * return true if controller class is a default controller, false otherwise
      */
@@ -608,6 +963,20 @@ private void setActionMethodIndicesFor(Class<?> controllerClass, String controll
                 continue;
             }
 
+            LastModified lastModified = methods[i].getAnnotation(LastModified.class);
+            EntityTag entityTag = methods[i].getAnnotation(EntityTag.class);
+            if (lastModified != null || entityTag != null) {
+                if (lastModified != null) {
+                    addRevalidationSignature(controllerClassToLastModifiedMap, LastModified.class, 
+                            lastModified.value(), controllerClass, methods[i], fastClass);
+                }
+                if (entityTag != null) {
+                    addRevalidationSignature(controllerClassToEntityTagMap, EntityTag.class, 
+                            entityTag.value(), controllerClass, methods[i], fastClass);
+                }
+                continue;
+            }
+
             ann = methods[i].getAnnotation(BeforeAction.class);
             if (ann != null) {
                 addBeforeOrAfterActionSignature(controllerClassToBeforeActionMap, BeforeAction.class, controllerClass,
@@ -649,6 +1018,11 @@ private void setActionMethodIndicesFor(Class<?> controllerClass, String controll
                     + " does not contain any actions or after-construct methods");
         }
 
+        validateRevalidatedActionsExist(controllerClassToLastModifiedMap, LastModified.class, 
+                controllerClass, actionMap, httpMethodActionMap);
+        validateRevalidatedActionsExist(controllerClassToEntityTagMap, EntityTag.class, 
+                controllerClass, actionMap, httpMethodActionMap);
+
         controllerClassToActionMap.put(controllerClass, actionMap);
         controllerClassToActionInterceptorsMap.put(controllerClass, actionInterceptorsMap);
         controllerClassToHttpMethodMap.put(controllerClass, httpMethodActionMap);
@@ -745,6 +1119,7 @@ private void addHttpMethodActionSignature(HttpMethod httpMethod, Method actionMe
             String controllerVariable, boolean isDefaultController) {
 
         validateActionReturnType(actionMethod, fastClass.getJavaClass().getName());
+        validateSharedResponseAction(actionMethod, fastClass.getJavaClass());
 
         ActionSignature existingActionSignature = httpMethodActionMap.get(httpMethod);
         if (existingActionSignature != null) {
@@ -765,6 +1140,7 @@ private void addHttpMethodActionSignature(HttpMethod httpMethod, Method actionMe
                 actionMethod.getParameterTypes(), actionMethod.getParameterAnnotations(), 
                 actionMethod.getDeclaredAnnotations(), paramMarshaller, viewMarshaller);
         httpMethodActionMap.put(httpMethod, sig);
+        addMethodInvoker(sig, fastClass, actionMethod);
         
         addRoute(actionMethod, fastClass.getJavaClass().getName(), controllerVariable, 
                 null, isDefaultController);
@@ -775,6 +1151,7 @@ private void addActionSignature(String action, Method method,
             String controllerVariable, boolean isDefaultController) {
 
         validateActionReturnType(method, fastClass.getJavaClass().getName());
+        validateSharedResponseAction(method, fastClass.getJavaClass());
         
         EntityMarshaller paramMarshaller = getParamEntityMarshaller(method, fastClass.getJavaClass().getName());
         EntityMarshaller viewMarshaller = getViewEntityMarshaller(method, fastClass.getJavaClass().getName());
@@ -785,6 +1162,7 @@ private void addActionSignature(String action, Method method,
                 method.getParameterAnnotations(), method.getDeclaredAnnotations(), 
                 paramMarshaller, viewMarshaller);
         actionMap.put(action, sig);
+        addMethodInvoker(sig, fastClass, method);
         
         addRoute(method, fastClass.getJavaClass().getName(), controllerVariable, action, isDefaultController);
     }
@@ -794,10 +1172,12 @@ private EntityMarshaller getParamEntityMarshaller(Method method, String classNam
         EntityMarshaller paramMarshaller = new DefaultEntityMarshaller();
         Annotation[][] paramAnnotations = method.getParameterAnnotations();
         List<Entity> entityAnnotations = new ArrayList<Entity>();
-        for (Annotation[] annotationsForParam : paramAnnotations) {
-            for (Annotation annotation : annotationsForParam) {
+        int entityParamIndex = -1;
+        for (int i = 0; i < paramAnnotations.length; i++) {
+            for (Annotation annotation : paramAnnotations[i]) {
                 if (annotation instanceof Entity) {
                     entityAnnotations.add((Entity)annotation);
+                    entityParamIndex = i;
                 }
             }
         }
@@ -817,7 +1197,8 @@ private EntityMarshaller getParamEntityMarshaller(Method method, String classNam
             String contentType = expectsAnn.value();
             EntityMarshaller marshaller = entityMarshallerMap.get(contentType);
             if (marshaller != null) {
-                paramMarshaller = marshaller;
+                paramMarshaller = getSequenceEntityMarshaller(marshaller, method, 
+                        entityParamIndex, className);
             } else {
                 logger.error("could not find parameter entity marshaller for content type " 
                         + contentType + " for action " + method.getName() + " in controller "
@@ -827,29 +1208,157 @@ private EntityMarshaller getParamEntityMarshaller(Method method, String classNam
         return paramMarshaller;
     }
     
+    /*
+     * an @Entity parameter declared as an Iterator<T> or Iterable<T> is 
+     * unmarshalled one element at a time, if the marshaller supports it
+     */
+    private EntityMarshaller getSequenceEntityMarshaller(EntityMarshaller marshaller, 
+            Method method, int entityParamIndex, String className) {
+        
+        Class<?> paramType = method.getParameterTypes()[entityParamIndex];
+        if (!SequenceEntityMarshaller.isSequenceType(paramType)) {
+            prewarm(marshaller, paramType);
+            return marshaller;
+        }
+        
+        if (!(marshaller instanceof IncrementalEntityMarshaller)) {
+            throw new ConfigurationException("action " + method.getName() + " in controller "
+                    + className + " has an " + Entity.class.getName() + " parameter of type " 
+                    + paramType.getName() + ", but the marshaller for its content type does not implement " 
+                    + IncrementalEntityMarshaller.class.getName());
+        }
+        
+        Class<?> elementType = Object.class;
+        Type genericType = method.getGenericParameterTypes()[entityParamIndex];
+        if (genericType instanceof ParameterizedType) {
+            Type typeArg = ((ParameterizedType)genericType).getActualTypeArguments()[0];
+            if (typeArg instanceof Class) {
+                elementType = (Class<?>)typeArg;
+            } else if (typeArg instanceof ParameterizedType) {
+                elementType = (Class<?>)((ParameterizedType)typeArg).getRawType();
+            }
+        }
+        
+        prewarm(marshaller, elementType);
+        return new SequenceEntityMarshaller((IncrementalEntityMarshaller)marshaller, elementType);
+    }
+    
+    /*
+     * the readers and writers of the built-in Jackson marshallers are created
+     * before the first request that uses them
+     */
+    private void prewarm(EntityMarshaller marshaller, Class<?> type) {
+        
+        if (marshaller instanceof JacksonEntityMarshaller) {
+            ((JacksonEntityMarshaller) marshaller).prewarm(type);
+        }
+    }
+    
     private EntityMarshaller getViewEntityMarshaller(Method method, String className) {
         
         EntityMarshaller viewMarshaller = new DefaultEntityMarshaller();
         
         Returns returnsAnnotation = method.getAnnotation(Returns.class);
         if (returnsAnnotation != null) {
-            String contentType = returnsAnnotation.value();
-            EntityMarshaller marshaller = entityMarshallerMap.get(contentType);
-            if (marshaller != null) {
-                viewMarshaller = marshaller;
-            } else {
-                logger.error("could not find view entity marshaller for content type " 
-                        + contentType + " for action " + method.getName() + " in controller "
-                        + className);
+            Class<?> returnType = method.getReturnType();
+            if (AsyncResultAdapters.isAsyncResultType(returnType)) {
+                returnType = getAsyncResultValueType(method);
+            }
+            List<String> contentTypes = new ArrayList<String>();
+            List<EntityMarshaller> marshallers = new ArrayList<EntityMarshaller>();
+            for (String contentType : returnsAnnotation.value()) {
+                EntityMarshaller marshaller = entityMarshallerMap.get(contentType);
+                if (marshaller != null) {
+                    contentTypes.add(contentType);
+                    marshallers.add(marshaller);
+                    prewarm(marshaller, returnType);
+                } else {
+                    logger.error("could not find view entity marshaller for content type " 
+                            + contentType + " for action " + method.getName() + " in controller "
+                            + className);
+                }
+            }
+            validateSparseFieldsets(method, className, marshallers);
+            if (marshallers.size() == 1) {
+                viewMarshaller = marshallers.get(0);
+            } else if (marshallers.size() > 1) {
+                /* the content type is chosen per request from its Accept header */
+                viewMarshaller = new NegotiatedEntityMarshaller(
+                        contentTypes.toArray(new String[contentTypes.size()]), 
+                        marshallers.toArray(new EntityMarshaller[marshallers.size()]));
             }
+        } else {
+            validateSparseFieldsets(method, className, Collections.<EntityMarshaller>emptyList());
         }
         
         return viewMarshaller;
     }
+    
+    /*
+     * the fields of a @SparseFieldsets action are only applied to a return 
+     * value marshalled as JSON
+     */
+    private void validateSparseFieldsets(Method method, String className, 
+            List<EntityMarshaller> marshallers) {
+        
+        if (method.getAnnotation(SparseFieldsets.class) == null) {
+            return;
+        }
+        for (EntityMarshaller marshaller : marshallers) {
+            if (marshaller instanceof JSONEntityMarshaller) {
+                return;
+            }
+        }
+        throw new ConfigurationException("action " + method.getName() + " in controller " 
+                + className + " is annotated with @" + SparseFieldsets.class.getSimpleName() 
+                + ", but its return value is not marshalled as JSON");
+    }
+
+    /*
+     * the responses of @Coalesced and @Cached actions are shared by the
+     * requests of different clients
+     */
+    private void validateSharedResponseAction(Method actionMethod, Class<?> controllerClass) {
+
+        Coalesced coalesced = actionMethod.getAnnotation(Coalesced.class);
+        if (coalesced != null) {
+            validateSharedResponseScope(actionMethod, controllerClass, Coalesced.class);
+            if (coalesced.timeout() < 1) {
+                throw new ConfigurationException("the @" + Coalesced.class.getSimpleName() 
+                        + " timeout of action " + actionMethod.getName() + " of " 
+                        + controllerClass.getName() + " must be at least 1");
+            }
+        }
+        
+        Cached cached = actionMethod.getAnnotation(Cached.class);
+        if (cached != null) {
+            validateSharedResponseScope(actionMethod, controllerClass, Cached.class);
+            if (cached.ttl() < 1) {
+                throw new ConfigurationException("the @" + Cached.class.getSimpleName() 
+                        + " ttl of action " + actionMethod.getName() + " of " 
+                        + controllerClass.getName() + " must be at least 1");
+            }
+        }
+    }
+
+    private void validateSharedResponseScope(Method actionMethod, Class<?> controllerClass, 
+            Class<? extends Annotation> annotationClass) {
+
+        if (ControllerScope.of(controllerClass) == ControllerScope.STATEFUL) {
+            throw new ConfigurationException("action " + actionMethod.getName() + " of " 
+                    + controllerClass.getName() + " cannot be annotated with @" 
+                    + annotationClass.getSimpleName() + " in a @" 
+                    + StatefulController.class.getSimpleName());
+        }
+    }
 
     private void validateActionReturnType(Method actionMethod, String className) {
 
         Class<?> returnType = actionMethod.getReturnType();
+        if (AsyncResultAdapters.isAsyncResultType(returnType)) {
+            /* the value the action completes with is validated instead */
+            returnType = getAsyncResultValueType(actionMethod);
+        }
         if (returnType.equals(Void.TYPE)) {
 
             throw new ConfigurationException("action " + actionMethod.getName() + " in controller "
@@ -872,6 +1381,24 @@ private void validateActionReturnType(Method actionMethod, String className) {
         }
     }
     
+    private Class<?> getAsyncResultValueType(Method actionMethod) {
+        
+        Type genericType = actionMethod.getGenericReturnType();
+        if (genericType instanceof ParameterizedType) {
+            Type[] typeArgs = ((ParameterizedType) genericType).getActualTypeArguments();
+            if (typeArgs.length == 1) {
+                Type valueType = typeArgs[0];
+                if (valueType instanceof ParameterizedType) {
+                    valueType = ((ParameterizedType) valueType).getRawType();
+                }
+                if (valueType instanceof Class) {
+                    return (Class<?>) valueType;
+                }
+            }
+        }
+        return Object.class;
+    }
+    
     private void addRoute(Method method, String controllerClassName, 
             String controllerVariable, String actionVariable, boolean isDefaultController) {
         
@@ -880,10 +1407,12 @@ private void addRoute(Method method, String controllerClassName,
         Route route = new Route(controllerVariable, actionVariable, paramPath);
         logger.debug("adding route " + route);
         routeMap.add(route);
+        routes.add(route);
         if (isDefaultController) {
             route = new Route(null, actionVariable, paramPath);
             logger.debug("adding route " + route);
             routeMap.add(route);
+            routes.add(route);
         }
     }
 
@@ -1046,6 +1575,82 @@ private void addBeforeOrAfterActionSignature(Map<Class<?>, ActionSignature> map,
                 new Annotation[][] {}, method.getDeclaredAnnotations());
 
         map.put(clazz, sig);
+        addMethodInvoker(sig, fastClass, method);
+    }
+
+    /*
+     * @LastModified and @EntityTag methods have their parameters bound like 
+     * those of an action, but their return value is not marshalled
+     */
+    private void addRevalidationSignature(Map<Class<?>, Map<String, ActionSignature>> map, 
+            Class<?> annotationClass, String[] actionMethodNames, Class<?> controllerClass, 
+            Method method, FastClass fastClass) {
+
+        validateRevalidationReturnType(annotationClass, controllerClass, method);
+
+        int fastIndex = fastClass.getIndex(method.getName(), method.getParameterTypes());
+
+        ActionSignature sig = new BaseActionSignature(fastIndex, method.getName(), method.getParameterTypes(),
+                method.getParameterAnnotations(), method.getDeclaredAnnotations());
+
+        Map<String, ActionSignature> methods = map.get(controllerClass);
+        if (methods == null) {
+            methods = new HashMap<String, ActionSignature>();
+            map.put(controllerClass, methods);
+        }
+        if (actionMethodNames.length == 0) {
+            actionMethodNames = new String[] { "" };
+        }
+        for (String actionMethodName : actionMethodNames) {
+            if (methods.put(actionMethodName, sig) != null) {
+                throw new ConfigurationException("there can be only one @" + annotationClass.getSimpleName()
+                        + " method for " + (actionMethodName.length() == 0 ? "all actions" : 
+                            "action " + actionMethodName) + " in " + controllerClass.getName());
+            }
+        }
+        addMethodInvoker(sig, fastClass, method);
+    }
+
+    private void validateRevalidationReturnType(Class<?> annotationClass, Class<?> controllerClass, 
+            Method method) {
+
+        Class<?> returnType = method.getReturnType();
+        boolean valid = annotationClass.equals(LastModified.class) ? 
+                returnType.equals(long.class) || returnType.equals(Long.class) || 
+                Date.class.isAssignableFrom(returnType) : 
+                returnType.equals(String.class);
+        if (!valid) {
+            throw new ConfigurationException("a @" + annotationClass.getSimpleName() + " method must return "
+                    + (annotationClass.equals(LastModified.class) ? "a long or a Date" : "a String") 
+                    + " in " + controllerClass.getName());
+        }
+    }
+
+    private void validateRevalidatedActionsExist(Map<Class<?>, Map<String, ActionSignature>> map, 
+            Class<?> annotationClass, Class<?> controllerClass, Map<String, ActionSignature> actionMap,
+            Map<HttpMethod, ActionSignature> httpMethodActionMap) {
+
+        Map<String, ActionSignature> methods = map.get(controllerClass);
+        if (methods == null) {
+            return;
+        }
+        Set<String> actionMethodNames = new HashSet<String>();
+        for (ActionSignature sig : actionMap.values()) {
+            actionMethodNames.add(sig.methodName());
+        }
+        for (ActionSignature sig : httpMethodActionMap.values()) {
+            actionMethodNames.add(sig.methodName());
+        }
+        ActionSignature defaultSig = controllerClassToDefaultActionMap.get(controllerClass);
+        if (defaultSig != null) {
+            actionMethodNames.add(defaultSig.methodName());
+        }
+        for (String actionMethodName : methods.keySet()) {
+            if (actionMethodName.length() > 0 && !actionMethodNames.contains(actionMethodName)) {
+                throw new ConfigurationException("the @" + annotationClass.getSimpleName() 
+                        + " action " + actionMethodName + " does not exist in " + controllerClass.getName());
+            }
+        }
     }
 
     private void validateMethodAcceptsOnlyInterceptorArgs(Class<?> annotationClass, 
@@ -1073,6 +1678,7 @@ private void addAfterContructSignature(Map<Class<?>, ActionSignature> map, Class
                 new Annotation[][] {}, method.getDeclaredAnnotations());
 
         map.put(controllerClass, sig);
+        addMethodInvoker(sig, fastClass, method);
     }
 
     private void validateMethodDoesNotAcceptArguments(Class<?> annotationClass, 
@@ -1100,6 +1706,7 @@ private void addDefaultActionSignature(Map<Class<?>, ActionSignature> map, Class
 
         validateActionOccursOnlyOnce(map, annotationClass, controllerClass);
         validateActionReturnType(method, controllerClass.getName());
+        validateSharedResponseAction(method, controllerClass);
         
         EntityMarshaller paramMarshaller = getParamEntityMarshaller(method, controllerClass.getName());
         EntityMarshaller viewMarshaller = getViewEntityMarshaller(method, controllerClass.getName());
@@ -1111,7 +1718,13 @@ private void addDefaultActionSignature(Map<Class<?>, ActionSignature> map, Class
                 paramMarshaller, viewMarshaller);
 
         map.put(controllerClass, sig);
+        addMethodInvoker(sig, fastClass, method);
         
         addRoute(method, controllerClass.getName(), controllerVariable, null, isDefaultController);
     }
+    
+    private void addMethodInvoker(ActionSignature sig, FastClass fastClass, Method method) {
+        
+        signatureToInvokerMap.put(sig, methodInvokerFactory.createInvoker(fastClass, method));
+    }
 }
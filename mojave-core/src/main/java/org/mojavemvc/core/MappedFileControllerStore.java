@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A StatefulControllerStore that keeps serialized controller instances in a 
+ * memory-mapped file, as a local stand-in for an external store. Each request
+ * gets its own deserialized copy of the instance, which is written back when
+ * the request is complete, so controllers kept in this store must be 
+ * Serializable.
+ * <p>
+ * Serialized instances are appended to the file. When the file is full, the
+ * current instances are compacted to the start of the file, and instances 
+ * that have not been used for longer than the maximum idle time are 
+ * discarded.
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class MappedFileControllerStore implements StatefulControllerStore {
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024 * 1024;
+
+    private final MappedByteStore bytes;
+
+    /**
+     * Creates a store backed by a temporary file of the default capacity, 
+     * which is deleted when the store is destroyed.
+     */
+    public MappedFileControllerStore() throws IOException {
+
+        this(File.createTempFile("mojave-controllers", ".dat"), true, 
+                DEFAULT_CAPACITY, BoundedControllerStore.DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * @param file
+     *            the file to map; any existing content is discarded
+     * @param deleteOnDestroy
+     *            whether the file is deleted when the store is destroyed
+     * @param capacity
+     *            the size of the file in bytes
+     * @param maxIdle
+     *            the time in milliseconds after which an unused instance may
+     *            be discarded, or -1 for no limit
+     */
+    public MappedFileControllerStore(File file, boolean deleteOnDestroy, 
+            int capacity, long maxIdle) throws IOException {
+
+        this.bytes = new MappedByteStore(file, deleteOnDestroy, capacity, maxIdle);
+    }
+
+    public Object get(HttpServletRequest req, Class<?> controllerClass) {
+
+        byte[] serialized = bytes.get(newKey(req, controllerClass));
+        if (serialized == null) {
+            return null;
+        }
+        
+        try {
+            return MappedByteStore.deserialize(serialized, controllerClass.getClassLoader());
+        } catch (Exception e) {
+            throw new RuntimeException("could not read stateful controller " + 
+                    controllerClass.getName() + " from " + bytes.getFile(), e);
+        }
+    }
+
+    public void put(HttpServletRequest req, Class<?> controllerClass, Object controller) {
+
+        if (!(controller instanceof Serializable)) {
+            throw new IllegalArgumentException("stateful controller " + controllerClass.getName() + 
+                    " must be " + Serializable.class.getName() + " to be kept in " + 
+                    getClass().getSimpleName());
+        }
+        byte[] serialized;
+        try {
+            serialized = MappedByteStore.serialize(controller);
+        } catch (IOException e) {
+            throw new RuntimeException("could not write stateful controller " + 
+                    controllerClass.getName() + " to " + bytes.getFile(), e);
+        }
+        
+        if (!bytes.put(newKey(req, controllerClass), serialized)) {
+            throw new IllegalStateException(getClass().getSimpleName() + " is full; " + 
+                    "could not store stateful controller " + controllerClass.getName());
+        }
+    }
+
+    /**
+     * @return the number of instances currently held
+     */
+    public int size() {
+
+        return bytes.size();
+    }
+
+    public void destroy() {
+
+        bytes.destroy();
+    }
+
+    private static String newKey(HttpServletRequest req, Class<?> controllerClass) {
+
+        return req.getSession().getId() + "|" + controllerClass.getName();
+    }
+}
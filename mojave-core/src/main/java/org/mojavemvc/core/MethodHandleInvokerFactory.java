@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import net.sf.cglib.reflect.FastClass;
+
+import org.mojavemvc.exception.ConfigurationException;
+
+/**
+ * A MethodInvokerFactory that invokes methods through 
+ * java.lang.invoke.MethodHandles, adapted once to take the target and an 
+ * argument array, so that each call is a single invokeExact. Each handle is
+ * held in a static final field of its own copy of the 
+ * {@link ConstantHandleInvoker}, where the JIT treats it as a constant, so 
+ * that the invoked method can be inlined into the caller. Each copy has its
+ * own small class loader. It requires Java 7 or later, is compiled 
+ * separately at that source level, and is only loaded when set with the 
+ * method-invoker-factory init-param.
+ * 
+ * @author Luis Antunes
+ */
+public class MethodHandleInvokerFactory implements MethodInvokerFactory {
+
+    private static final MethodType INVOKER_TYPE = 
+            MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final byte[] invokerBytes = readInvokerClass();
+
+    public MethodInvoker createInvoker(FastClass fastClass, Method method) {
+
+        try {
+
+            if (!method.isAccessible()) {
+                method.setAccessible(true);
+            }
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            handle = handle.asType(handle.type().generic())
+                    .asSpreader(Object[].class, method.getParameterTypes().length)
+                    .asType(INVOKER_TYPE);
+            return new ConstantHandleInvoker.HandleLoader(
+                    MethodHandleInvokerFactory.class.getClassLoader(), invokerBytes, handle)
+                    .newInvoker();
+
+        } catch (IllegalAccessException e) {
+            throw new ConfigurationException("could not access method " + method.getName() + 
+                    " in " + method.getDeclaringClass().getName(), e);
+        } catch (Exception e) {
+            throw new ConfigurationException("could not create invoker for method " + 
+                    method.getName() + " in " + method.getDeclaringClass().getName(), e);
+        }
+    }
+
+    private static byte[] readInvokerClass() {
+
+        String resource = ConstantHandleInvoker.class.getSimpleName() + ".class";
+        InputStream in = ConstantHandleInvoker.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new ConfigurationException("could not find " + resource);
+        }
+        try {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new ConfigurationException("could not read " + resource, e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+/**
+ * Invokes a single controller or interceptor method. Implementations are
+ * created once, when the ControllerDatabase is built, and are thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public interface MethodInvoker {
+
+    /**
+     * Invoke the method on the given target.
+     * 
+     * @param target
+     *            the object on which to invoke the method
+     * @param args
+     *            the method arguments
+     * @return the value returned by the method, or null for a void method
+     * @throws Exception
+     *             an InvocationTargetException wraps anything thrown by the 
+     *             method itself
+     */
+    Object invoke(Object target, Object[] args) throws Exception;
+}
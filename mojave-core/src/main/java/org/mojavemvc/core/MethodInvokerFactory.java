@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.lang.reflect.Method;
+
+import net.sf.cglib.reflect.FastClass;
+
+/**
+ * Creates the MethodInvokers used to call actions, before and after actions,
+ * and after-construct methods. The factory used by the application can be 
+ * set with the method-invoker-factory init-param.
+ * 
+ * @author Luis Antunes
+ */
+public interface MethodInvokerFactory {
+
+    /**
+     * @param fastClass
+     *            the FastClass of the controller or interceptor class the
+     *            method is invoked on
+     * @param method
+     *            the method to invoke
+     * @return an invoker for the method
+     */
+    MethodInvoker createInvoker(FastClass fastClass, Method method);
+}
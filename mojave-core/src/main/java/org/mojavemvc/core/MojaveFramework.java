@@ -16,6 +16,8 @@
 package org.mojavemvc.core;
 
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletConfig;
@@ -43,11 +45,33 @@ public class MojaveFramework {
      * NOTE: In distributed environments like Google App Engine, one
      * should not use the ServletContext to store global information.
      * This applies here, to the Context. Singleton controllers are 
-     * stored in the context, so their use must be re-considered
-     * when deploying to a distributed environment.
+     * held by the ControllerDatabase, which is stored in the context,
+     * so their use must be re-considered when deploying to a 
+     * distributed environment.
      */
     private Context ctx;
     
+    /*
+     * the framework objects needed by every request, looked up from the 
+     * Context once initialization is complete
+     */
+    private ControllerDatabase controllerDb;
+    private ErrorHandlerFactory errorHandlerFactory;
+    private Injector injector;
+    private AppProperties properties;
+    private MultipartConfig multipartConfig;
+    
+    /*
+     * null if the container does not support asynchronous requests
+     */
+    private AsyncActionDispatcher asyncDispatcher;
+    
+    private StatefulControllerStore statefulControllerStore;
+    
+    private ResponseCache responseCache;
+    
+    private ExecutorService mailboxExecutor;
+    
     public void init(FilterConfig config) {
         
         init(new FilterBasedConfig(config));
@@ -70,38 +94,125 @@ private void init(Config config) {
         initializer.performInitialization();
 
         initializer.createInitControllers();
+        
+        controllerDb = (ControllerDatabase) ctx.getAttribute(ControllerDatabase.KEY);
+        errorHandlerFactory = (ErrorHandlerFactory) ctx.getAttribute(ErrorHandlerFactory.KEY);
+        injector = (Injector) ctx.getAttribute(GuiceInitializer.KEY);
+        properties = (AppProperties) ctx.getAttribute(AppProperties.KEY);
+        multipartConfig = (MultipartConfig) ctx.getAttribute(MultipartConfig.KEY);
+        if (multipartConfig == null) {
+            multipartConfig = new MultipartConfig();
+        }
+        asyncDispatcher = (AsyncActionDispatcher) ctx.getAttribute(AsyncActionDispatcher.KEY);
+        statefulControllerStore = (StatefulControllerStore) ctx.getAttribute(StatefulControllerStore.KEY);
+        responseCache = (ResponseCache) ctx.getAttribute(ResponseCache.KEY);
+        mailboxExecutor = (ExecutorService) ctx.getAttribute(ControllerMailbox.KEY);
+    }
+    
+    /**
+     * Releases the resources held by the framework. Called when the 
+     * framework is taken out of service.
+     */
+    public void destroy() {
+        
+        if (asyncDispatcher != null) {
+            asyncDispatcher.shutdown();
+        }
+        if (statefulControllerStore != null) {
+            statefulControllerStore.destroy();
+        }
+        if (responseCache != null) {
+            responseCache.destroy();
+        }
+        if (mailboxExecutor != null) {
+            mailboxExecutor.shutdown();
+        }
     }
     
     public void handleRequest(HttpServletRequest req, HttpServletResponse res, HttpMethod httpMethod, String path)
             throws ServletException, IOException {
         
-        ControllerDatabase controllerDb = (ControllerDatabase) ctx.getAttribute(ControllerDatabase.KEY);
-
-        ErrorHandlerFactory errorHandlerFactory = (ErrorHandlerFactory) ctx.getAttribute(ErrorHandlerFactory.KEY);
         ErrorHandler errorHandler = errorHandlerFactory.createErrorHandler();
 
-        Injector injector = (Injector) ctx.getAttribute(GuiceInitializer.KEY);
-        AppProperties properties = (AppProperties) ctx.getAttribute(AppProperties.KEY);
-
         ServletResourceModule.set(req, res);
+        
+        HttpParameterMapSource paramMapSource = new HttpParameterMapSource(req, multipartConfig);
+        
+        AsyncRequest asyncRequest = null;
 
         View view;
         try {
             
             RequestRouter router = new HttpRequestRouter(path, 
-                    new HttpParameterMapSource(req), controllerDb.getRouteMap());
+                    paramMapSource, controllerDb.getRouteMap());
             
             RoutedRequest routed = router.route();
             
-            ActionResolver resolver = new HttpActionResolver(ctx, req, httpMethod, controllerDb, injector);
-    
-            ActionInvoker invoker = new HttpActionInvoker(req, res, controllerDb, routed, injector);
-    
-            RequestProcessor requestProcessor = new RequestProcessor(resolver, invoker, errorHandler);
+            InvocationPlan plan = controllerDb.getInvocationPlan(routed.getRoute(), httpMethod);
             
-            view = requestProcessor.process(routed.getController(), routed.getAction(), properties);
-    
-            logger.debug("processed request for " + requestProcessor.getControllerClassName() + "; rendering...");
+            if (plan != null) {
+                
+                if (asyncDispatcher != null && asyncDispatcher.isAsyncSupported(req)) {
+                    asyncRequest = new AsyncRequest(req, res, errorHandler, paramMapSource);
+                }
+                
+                if (httpMethod == HttpMethod.GET && 
+                        (plan.getCachePolicy() != null || plan.getCoalescer() != null) && 
+                        renderShared(plan, routed, req, res, errorHandler)) {
+                    
+                    logger.debug("processed shared response for " + plan.getControllerClass().getName());
+                    return;
+                }
+                
+                if (plan.getMailbox() != null) {
+                    
+                    if (asyncRequest != null) {
+                        asyncRequest.post(plan, routed);
+                        logger.debug("posted action of " + plan.getControllerClass().getName() + 
+                                " to its mailbox...");
+                        return;
+                    }
+                    /* the request thread waits for the mailbox */
+                    view = plan.getMailbox().call(newInvocation(plan, routed, req, res, errorHandler));
+                    
+                } else {
+                
+                    if (asyncRequest != null && 
+                            (plan.runsOnVirtualThreads() || asyncDispatcher.offloadsAllActions())) {
+                        
+                        asyncRequest.offload(plan, routed);
+                        logger.debug("invoking action of " + plan.getControllerClass().getName() + 
+                                " on the action executor...");
+                        return;
+                    }
+                    
+                    view = process(plan, routed, req, res, errorHandler, asyncRequest);
+                    
+                    if (asyncRequest != null && asyncRequest.started) {
+                        logger.debug("completing request for " + plan.getControllerClass().getName() + 
+                                " asynchronously...");
+                        return;
+                    }
+                }
+                
+                logger.debug("processed request for " + plan.getControllerClass().getName() + "; rendering...");
+                
+            } else {
+                
+                /*
+                 * the request does not resolve to an action; let the resolver
+                 * report why
+                 */
+                ActionResolver resolver = new HttpActionResolver(ctx, req, httpMethod, controllerDb, injector);
+        
+                ActionInvoker invoker = new HttpActionInvoker(req, res, controllerDb, routed, injector);
+        
+                RequestProcessor requestProcessor = new RequestProcessor(resolver, invoker, errorHandler);
+                
+                view = requestProcessor.process(routed.getController(), routed.getAction(), properties);
+        
+                logger.debug("processed request for " + requestProcessor.getControllerClassName() + "; rendering...");
+            }
 
             view.render(req, res, properties);
 
@@ -119,7 +230,339 @@ public void handleRequest(HttpServletRequest req, HttpServletResponse res, HttpM
             
         } finally {
             
+            if (asyncRequest == null || !asyncRequest.started) {
+                release(req, paramMapSource);
+            }
             ServletResourceModule.unset();
         }
     }
+    
+    /*
+     * releases what the request holds once it is complete: the lease on a 
+     * stateful controller, which puts the controller back in its store, a
+     * pooled stateless controller, and the parameter map source
+     */
+    private static void release(HttpServletRequest req, HttpParameterMapSource paramMapSource) {
+        
+        detach(req, paramMapSource).run();
+    }
+    
+    /*
+     * detaches what the request holds from the request, while the request 
+     * can still be used, putting a stateful controller back in its store;
+     * the returned Runnable releases it, once the action of an abandoned 
+     * request, which may still be using it, has finished
+     */
+    private static Runnable detach(HttpServletRequest req, 
+            final HttpParameterMapSource paramMapSource) {
+        
+        Runnable turn = null;
+        try {
+            turn = StatefulControllerLease.detach(req);
+        } catch (Throwable e) {
+            logger.error("error storing stateful controller: ", e);
+        }
+        final Runnable lease = turn;
+        final Runnable pooled = StatelessControllerPool.detach(req);
+        
+        return new Runnable() {
+            public void run() {
+                try {
+                    if (lease != null) {
+                        lease.run();
+                    }
+                } finally {
+                    if (pooled != null) {
+                        pooled.run();
+                    }
+                    paramMapSource.release();
+                }
+            }
+        };
+    }
+    
+    /*
+     * sends the request a cached response, or the response of an identical
+     * request in flight, or renders its response so that it can be shared; 
+     * returns false if the request must be processed separately
+     */
+    private boolean renderShared(final InvocationPlan plan, final RoutedRequest routed, 
+            final HttpServletRequest req, final HttpServletResponse res, 
+            final ErrorHandler errorHandler) throws Exception {
+        
+        final CachePolicy cachePolicy = plan.getCachePolicy();
+        final String cacheKey = cachePolicy == null || responseCache == null ? 
+                null : cachePolicy.newKey(routed, req);
+        if (cacheKey != null) {
+            ResponseSnapshot cached = responseCache.get(cacheKey);
+            if (cached != null) {
+                cached.sendTo(req, res);
+                return true;
+            }
+        }
+        
+        /* 
+         * the shared response must not be a 304 for this request only; the 
+         * conditional headers of each request are evaluated against it 
+         * when it is sent
+         */
+        final HttpServletRequest unconditional = new UnconditionalRequest(req);
+        
+        RequestCoalescer.ResponseRenderer renderer = new RequestCoalescer.ResponseRenderer() {
+            
+            public void render(HttpServletResponse buffered) throws Exception {
+                
+                /* the request-scoped providers see the buffered response */
+                ServletResourceModule.unset();
+                ServletResourceModule.set(unconditional, buffered);
+                try {
+                    SharedErrorHandler sharedErrorHandler = new SharedErrorHandler(errorHandler);
+                    View view;
+                    if (plan.getMailbox() != null) {
+                        view = plan.getMailbox().call(
+                                newInvocation(plan, routed, unconditional, buffered, sharedErrorHandler));
+                    } else {
+                        view = process(plan, routed, unconditional, buffered, sharedErrorHandler, null);
+                    }
+                    if (view != null) {
+                        view.render(unconditional, buffered, properties);
+                    }
+                    if (cacheKey != null && !sharedErrorHandler.handled) {
+                        ResponseSnapshot snapshot = ((BufferedResponse) buffered).snapshot();
+                        if (snapshot.isCacheable()) {
+                            responseCache.put(cacheKey, snapshot, cachePolicy.getTtl());
+                        }
+                    }
+                } finally {
+                    ServletResourceModule.unset();
+                    ServletResourceModule.set(req, res);
+                }
+            }
+        };
+        
+        if (plan.getCoalescer() != null) {
+            return plan.getCoalescer().coalesce(routed, req, res, renderer);
+        }
+        BufferedResponse buffered = new BufferedResponse(res);
+        renderer.render(buffered);
+        buffered.commit(req);
+        return true;
+    }
+    
+    private View process(InvocationPlan plan, RoutedRequest routed, HttpServletRequest req, 
+            HttpServletResponse res, ErrorHandler errorHandler, AsyncActionHandler asyncHandler) {
+        
+        View view;
+        
+        try {
+            
+            Object actionController = plan.getActionController(ctx, req, injector);
+            
+            view = plan.invoke(actionController, routed, req, res, injector, asyncHandler);
+            
+        } catch (Throwable e) {
+
+            logger.error("error invoking action controller: ", e);
+            view = errorHandler.handleError(e, properties);
+        }
+        
+        return view;
+    }
+    
+    /*
+     * invokes the whole action, interceptors included, on the thread that
+     * calls the returned Callable; an asynchronous result returned by the 
+     * action is awaited on that thread
+     */
+    private Callable<View> newInvocation(final InvocationPlan plan, final RoutedRequest routed, 
+            final HttpServletRequest req, final HttpServletResponse res, final ErrorHandler errorHandler) {
+        
+        return new Callable<View>() {
+            
+            public View call() {
+                
+                /* the request-scoped providers are bound to the invoking thread */
+                ServletResourceModule.set(req, res);
+                try {
+                    return process(plan, routed, req, res, errorHandler, null);
+                } finally {
+                    ServletResourceModule.unset();
+                }
+            }
+        };
+    }
+    
+    /*
+     * records whether the response was rendered by the ErrorHandler, in 
+     * which case it is not cached
+     */
+    private static class SharedErrorHandler implements ErrorHandler {
+        
+        private final ErrorHandler errorHandler;
+        private volatile boolean handled;
+        
+        private SharedErrorHandler(ErrorHandler errorHandler) {
+            
+            this.errorHandler = errorHandler;
+        }
+        
+        public View handleError(Throwable e, AppProperties properties) {
+            
+            handled = true;
+            return errorHandler.handleError(e, properties);
+        }
+    }
+    
+    /*
+     * completes a request whose action returned an asynchronous result, or
+     * whose action is offloaded, on a thread of the AsyncActionDispatcher
+     */
+    private class AsyncRequest implements AsyncActionHandler {
+        
+        private final HttpServletRequest req;
+        private final HttpServletResponse res;
+        private final ErrorHandler errorHandler;
+        private final HttpParameterMapSource paramMapSource;
+        private boolean started;
+        
+        /*
+         * what an abandoned request holds, released when it is settled
+         */
+        private volatile Runnable detached;
+        
+        private AsyncRequest(HttpServletRequest req, HttpServletResponse res, 
+                ErrorHandler errorHandler, HttpParameterMapSource paramMapSource) {
+            
+            this.req = req;
+            this.res = res;
+            this.errorHandler = errorHandler;
+            this.paramMapSource = paramMapSource;
+        }
+
+        public void handle(Object actionResult, AsyncResultAdapter adapter, 
+                final ActionCompletion completion) {
+            
+            asyncDispatcher.dispatch(req, res, actionResult, adapter, new RequestCallback() {
+                
+                public void completed(Object value) {
+                    
+                    ServletResourceModule.set(req, res);
+                    try {
+                        View view;
+                        try {
+                            view = completion.complete(value);
+                        } catch (Throwable e) {
+                            logger.error("error invoking action controller: ", e);
+                            view = errorHandler.handleError(e, properties);
+                        }
+                        render(view);
+                    } finally {
+                        release(req, paramMapSource);
+                        ServletResourceModule.unset();
+                    }
+                }
+            });
+            started = true;
+        }
+        
+        /*
+         * invokes the whole action, interceptors included, on a thread of 
+         * the dispatcher's action executor; an asynchronous result returned 
+         * by the action is awaited on that thread
+         */
+        private void offload(InvocationPlan plan, RoutedRequest routed) {
+            
+            asyncDispatcher.offload(req, res, 
+                    newInvocation(plan, routed, req, res, errorHandler), newRenderCallback());
+            started = true;
+        }
+        
+        /*
+         * invokes the whole action, interceptors included, on the mailbox of
+         * an actor controller; the response is rendered on a thread of the 
+         * AsyncActionDispatcher, outside of the mailbox
+         */
+        private void post(InvocationPlan plan, RoutedRequest routed) {
+            
+            asyncDispatcher.dispatch(req, res, newInvocation(plan, routed, req, res, errorHandler), 
+                    plan.getMailbox().newAdapter(), newRenderCallback());
+            started = true;
+        }
+        
+        private AsyncRequestCallback newRenderCallback() {
+            
+            return new RequestCallback() {
+                
+                public void completed(Object value) {
+                    
+                    ServletResourceModule.set(req, res);
+                    try {
+                        render((View) value);
+                    } finally {
+                        release(req, paramMapSource);
+                        ServletResourceModule.unset();
+                    }
+                }
+            };
+        }
+        
+        /*
+         * the action of an abandoned request may still be running, so the 
+         * controller it uses, and the request's turn on a stateful 
+         * controller, are kept until it has finished
+         */
+        private void fail(Throwable error, boolean abandoned) {
+            
+            ServletResourceModule.set(req, res);
+            try {
+                logger.error("error invoking action controller: ", error);
+                render(errorHandler.handleError(error, properties));
+            } finally {
+                if (abandoned) {
+                    detached = detach(req, paramMapSource);
+                } else {
+                    release(req, paramMapSource);
+                }
+                ServletResourceModule.unset();
+            }
+        }
+        
+        private abstract class RequestCallback implements AsyncRequestCallback {
+            
+            public void failed(Throwable error) {
+                
+                fail(error, false);
+            }
+            
+            public void abandoned(Throwable error) {
+                
+                fail(error, true);
+            }
+            
+            public void settled() {
+                
+                detached.run();
+            }
+        }
+        
+        private void render(View view) {
+            
+            try {
+                
+                view.render(req, res, properties);
+                
+            } catch (Throwable e) {
+                
+                logger.error("error processing request: ", e);
+                try {
+                    View errorView = errorHandler.handleError(e, properties);
+                    if (errorView != null) {
+                        errorView.render(req, res, properties);
+                    }
+                } catch (Throwable renderError) {
+                    logger.error("error rendering error view: ", renderError);
+                }
+            }
+        }
+    }
 }
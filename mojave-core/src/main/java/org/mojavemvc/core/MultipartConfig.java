@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.io.File;
+
+import org.apache.commons.fileupload.disk.DiskFileItemFactory;
+
+/**
+ * The settings used when parsing multipart requests.
+ * <p>
+ * In buffered mode, the default, every part of a request is read before the
+ * action is invoked, and parts larger than the memory threshold are written
+ * to a temporary file. In streaming mode, parts are read from the request 
+ * only as the action's parameters ask for them, and an uploaded file is
+ * handed to the action as a live stream. A part is written to memory, or to
+ * a temporary file beyond the memory threshold, only if the request must be
+ * read past it before the action has finished reading it.
+ * <p>
+ * An instance of this class is immutable and thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class MultipartConfig {
+
+    public static final String KEY = MultipartConfig.class.getName();
+    
+    private final boolean streaming;
+    private final int memoryThreshold;
+    private final File tempDir;
+    private final long maxPartSize;
+    private final long maxSize;
+    
+    /**
+     * Creates the default, buffered configuration, with no size limits.
+     */
+    public MultipartConfig() {
+        
+        this(false, DiskFileItemFactory.DEFAULT_SIZE_THRESHOLD, null, -1, -1);
+    }
+    
+    /**
+     * @param streaming
+     *            whether parts are streamed to the action rather than read
+     *            before it is invoked
+     * @param memoryThreshold
+     *            the size in bytes beyond which a part is written to a 
+     *            temporary file rather than kept in memory
+     * @param tempDir
+     *            the directory for temporary files, or null to use the 
+     *            system's default temporary directory
+     * @param maxPartSize
+     *            the maximum size in bytes of a single part, or -1 for no
+     *            limit
+     * @param maxSize
+     *            the maximum size in bytes of a request, or -1 for no limit
+     */
+    public MultipartConfig(boolean streaming, int memoryThreshold, File tempDir, 
+            long maxPartSize, long maxSize) {
+        
+        this.streaming = streaming;
+        this.memoryThreshold = memoryThreshold;
+        this.tempDir = tempDir;
+        this.maxPartSize = maxPartSize;
+        this.maxSize = maxSize;
+    }
+    
+    public boolean isStreaming() {
+        return streaming;
+    }
+    
+    public int getMemoryThreshold() {
+        return memoryThreshold;
+    }
+    
+    /**
+     * @return the directory for temporary files, or null if the system's
+     *         default temporary directory is used
+     */
+    public File getTempDir() {
+        return tempDir;
+    }
+    
+    /**
+     * @return the maximum size in bytes of a single part, or -1 if there is
+     *         no limit
+     */
+    public long getMaxPartSize() {
+        return maxPartSize;
+    }
+    
+    /**
+     * @return the maximum size in bytes of a request, or -1 if there is no 
+     *         limit
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+}
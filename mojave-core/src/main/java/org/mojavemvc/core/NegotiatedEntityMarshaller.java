@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.mojavemvc.marshalling.EntityMarshaller;
+import org.mojavemvc.views.Response;
+import org.mojavemvc.views.View;
+
+/**
+ * Marshalls the return value of an &#064;Action method that can be returned
+ * as several content types, choosing the content type per request from its 
+ * Accept header. The content types are given in order of preference, which
+ * breaks ties between media ranges of equal quality; the first is chosen 
+ * when the request has no Accept header. 
+ * <p>
+ * The result of the negotiation is cached per Accept header value, as the 
+ * same few values are sent by most clients. 
+ * 
+ * @author Luis Antunes
+ */
+class NegotiatedEntityMarshaller implements EntityMarshaller {
+
+    /*
+     * the Accept header is chosen by the client, so the cache is bounded; 
+     * values beyond the bound are negotiated on every request
+     */
+    static final int MAX_CACHED_ACCEPTS = 256;
+
+    private static final int NOT_ACCEPTABLE = -1;
+
+    private final String[] contentTypes;
+    private final EntityMarshaller[] marshallers;
+    private final ConcurrentMap<String, Integer> negotiated = 
+            new ConcurrentHashMap<String, Integer>();
+
+    NegotiatedEntityMarshaller(String[] contentTypes, EntityMarshaller[] marshallers) {
+
+        this.contentTypes = new String[contentTypes.length];
+        for (int i = 0; i < contentTypes.length; i++) {
+            this.contentTypes[i] = contentTypes[i].trim().toLowerCase();
+        }
+        this.marshallers = marshallers;
+    }
+
+    @Override
+    public View marshall(Object entity) {
+
+        return marshallers[0].marshall(entity);
+    }
+
+    /**
+     * Marshall the entity with the marshaller of the content type that best
+     * matches the given Accept header.
+     * 
+     * @param entity
+     *            the return value of the action
+     * @param accept
+     *            the Accept header of the request, or null
+     * @return the View, or a 406 Not Acceptable response if none of the 
+     *         content types are acceptable
+     */
+    public View marshall(Object entity, String accept) {
+
+        EntityMarshaller marshaller = marshallerFor(accept);
+        if (marshaller == null) {
+            return new Response.NotAcceptable();
+        }
+        return marshaller.marshall(entity);
+    }
+
+    /**
+     * @param accept
+     *            the Accept header of the request, or null
+     * @return the marshaller of the content type that best matches the 
+     *         given Accept header, or null if none are acceptable
+     */
+    EntityMarshaller marshallerFor(String accept) {
+
+        int index = negotiate(accept);
+        return index == NOT_ACCEPTABLE ? null : marshallers[index];
+    }
+
+    @Override
+    public <T> T unmarshall(InputStream in, Class<T> type) {
+
+        return marshallers[0].unmarshall(in, type);
+    }
+
+    @Override
+    public String[] contentTypesHandled() {
+
+        return contentTypes.clone();
+    }
+
+    /**
+     * @return the index of the chosen content type, or -1 if none is 
+     *         acceptable
+     */
+    int negotiate(String accept) {
+
+        if (accept == null || accept.trim().length() == 0) {
+            return 0;
+        }
+        Integer index = negotiated.get(accept);
+        if (index == null) {
+            index = select(accept);
+            if (negotiated.size() < MAX_CACHED_ACCEPTS) {
+                negotiated.putIfAbsent(accept, index);
+            }
+        }
+        return index;
+    }
+
+    int getCachedAccepts() {
+
+        return negotiated.size();
+    }
+
+    private int select(String accept) {
+
+        List<MediaRange> ranges = MediaRange.parse(accept);
+        int best = NOT_ACCEPTABLE;
+        float bestQuality = 0;
+        for (int i = 0; i < contentTypes.length; i++) {
+            float quality = quality(ranges, contentTypes[i]);
+            if (quality > bestQuality) {
+                best = i;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * the quality of a content type is that of the most specific media 
+     * range matching it
+     */
+    private static float quality(List<MediaRange> ranges, String contentType) {
+
+        int slash = contentType.indexOf('/');
+        String type = slash < 0 ? contentType : contentType.substring(0, slash);
+        String subtype = slash < 0 ? "*" : contentType.substring(slash + 1);
+
+        int specificity = -1;
+        float quality = 0;
+        for (MediaRange range : ranges) {
+            int rangeSpecificity = range.match(type, subtype);
+            if (rangeSpecificity > specificity) {
+                specificity = rangeSpecificity;
+                quality = range.quality;
+            }
+        }
+        return quality;
+    }
+
+    private static class MediaRange {
+
+        private final String type;
+        private final String subtype;
+        private final float quality;
+
+        private MediaRange(String type, String subtype, float quality) {
+            this.type = type;
+            this.subtype = subtype;
+            this.quality = quality;
+        }
+
+        /*
+         * returns 2 for an exact match, 1 for type/*, 0 for * / *, and -1 
+         * if the range does not match
+         */
+        private int match(String contentType, String contentSubtype) {
+            if (type.equals("*")) {
+                return 0;
+            }
+            if (!type.equals(contentType)) {
+                return -1;
+            }
+            if (subtype.equals("*")) {
+                return 1;
+            }
+            return subtype.equals(contentSubtype) ? 2 : -1;
+        }
+
+        private static List<MediaRange> parse(String accept) {
+
+            List<MediaRange> ranges = new ArrayList<MediaRange>();
+            for (String element : accept.split(",")) {
+                String[] parts = element.split(";");
+                String mediaType = parts[0].trim().toLowerCase();
+                int slash = mediaType.indexOf('/');
+                if (slash < 1 || slash == mediaType.length() - 1) {
+                    continue;
+                }
+                float quality = 1;
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim();
+                    if (param.startsWith("q=") || param.startsWith("Q=")) {
+                        try {
+                            quality = Float.parseFloat(param.substring(2).trim());
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+                ranges.add(new MediaRange(mediaType.substring(0, slash), 
+                        mediaType.substring(slash + 1), quality));
+            }
+            return ranges;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.mojavemvc.core.Route.PathParameterElement;
+
+/**
+ * A read-only view of the parameters of a request that overlays the path 
+ * parameters bound by a RouteMatch on the other parameters of the request.
+ * A path parameter takes precedence over a request parameter with the same
+ * name, and its value is given as a single-element String array.
+ * <p>
+ * Neither the path parameters nor the request parameters are copied for a 
+ * lookup; a combined map is built only if the view is iterated. An instance
+ * of this class is meant to be used by a single request, and is not
+ * thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class PathParameterMap extends AbstractMap<String, Object> {
+
+    private final Map<String, Object> requestParams;
+    private final RouteMatch match;
+    private Map<String, Object> combined;
+
+    public PathParameterMap(Map<String, Object> requestParams, RouteMatch match) {
+        this.requestParams = requestParams;
+        this.match = match;
+    }
+
+    @Override
+    public Object get(Object key) {
+        
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String pathValue = match.getParamValue((String) key);
+        if (pathValue != null) {
+            return new String[] { pathValue };
+        }
+        return requestParams.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        
+        return get(key) != null;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        
+        if (combined == null) {
+            Map<String, Object> map = new LinkedHashMap<String, Object>(requestParams);
+            List<PathParameterElement> paramElements = match.getRoute().pathParameterElements();
+            for (int i = 0; i < paramElements.size(); i++) {
+                map.put(paramElements.get(i).name(), new String[] { match.getParamValue(i) });
+            }
+            combined = Collections.unmodifiableMap(map);
+        }
+        return combined.entrySet();
+    }
+}
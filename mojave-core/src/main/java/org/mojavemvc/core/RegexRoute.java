@@ -17,6 +17,7 @@
 
 import static org.mojavemvc.util.RouteHelper.*;
 
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -32,36 +33,37 @@ public class RegexRoute {
      * safe for such use.
      */
     private final Pattern pattern;
+    private final int[] paramGroups;
     
     public RegexRoute(Route route) {
         this.route = route;
-        this.pattern = compilePattern();
+        String[] elements = getRouteElements(route.toString());
+        this.pattern = compilePattern(elements);
+        this.paramGroups = getParamGroupIndices(elements, 0);
     }
     
-    private Pattern compilePattern() {
-        String paramPath = escapeNonCustomRegex(route.toString().substring(1));
-        String[] tokens = paramPath.split(PATH_ELEMENT_SEPARATOR);
-        StringBuilder routeRegex = new StringBuilder("^").append(PATH_ELEMENT_SEPARATOR);
-        for (int i = 0; i < tokens.length; i++) {
-            if (i > 0) routeRegex.append(PATH_ELEMENT_SEPARATOR);
-            String currentToken = tokens[i];
-            if (currentToken.startsWith(PARAM_PREFIX)) {
-                currentToken = currentToken.substring(1);
-                int customRegexIdx = currentToken.indexOf(CUSTOM_REGEX_START);
-                if (customRegexIdx == -1) {
-                    routeRegex.append("([^").append(PATH_ELEMENT_SEPARATOR).append("]+)");
-                } else {
-                    String customRegex = currentToken.substring(customRegexIdx + 1, 
-                            currentToken.indexOf(CUSTOM_REGEX_END));
-                    routeRegex.append("(").append(customRegex).append(")");
-                }
-                
-            } else {
-                routeRegex.append(currentToken);
-            }
+    private Pattern compilePattern(String[] elements) {
+        return Pattern.compile("^" + PATH_ELEMENT_SEPARATOR + toRegex(elements, 0) + "$");
+    }
+    
+    /**
+     * Matches the given path against this route.
+     * 
+     * @param path
+     *            the request path
+     * @return the match, with the path parameter values bound, or null if 
+     *         the path does not match
+     */
+    public RouteMatch match(String path) {
+        Matcher m = pattern.matcher(path);
+        if (!m.matches()) {
+            return null;
+        }
+        String[] values = new String[paramGroups.length];
+        for (int i = 0; i < paramGroups.length; i++) {
+            values[i] = m.group(paramGroups[i]);
         }
-        routeRegex.append("$");
-        return Pattern.compile(routeRegex.toString());
+        return new RouteMatch(route, values);
     }
     
     public Pattern pattern() {
@@ -17,7 +17,6 @@
 
 import java.util.HashSet;
 import java.util.Set;
-import java.util.regex.Matcher;
 
 /**
  * @author Luis Antunes
@@ -32,10 +31,16 @@ public void add(Route route) {
     
     public Route getRoute(String path) {
         
+        RouteMatch match = match(path);
+        return match == null ? null : match.getRoute();
+    }
+    
+    public RouteMatch match(String path) {
+        
         for (RegexRoute route : routes) {
-            Matcher m = route.pattern().matcher(path);
-            if (m.find()) {
-                return route.getRoute();
+            RouteMatch match = route.match(path);
+            if (match != null) {
+                return match;
             }
         }
         
@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mojavemvc.views.HTTPHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces concurrent requests for a &#064;Coalesced action that have the 
+ * same bound parameters. The first request renders its response into a 
+ * BufferedResponse; the requests that arrive while it is in flight wait for 
+ * it, for at most the timeout, and are sent the same response. A request 
+ * whose wait times out, or whose flight fails, must be processed by its 
+ * caller.
+ * <p>
+ * An instance of this class is held by the InvocationPlan of the action, so 
+ * that requests for different actions are never coalesced. If the content 
+ * type of the action's response is negotiated, only requests with the same 
+ * Accept header are coalesced.
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class RequestCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger("org.mojavemvc");
+
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+    private final long timeout;
+    private final boolean negotiated;
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @param timeout
+     *            the number of milliseconds a request waits for the flight 
+     *            in progress
+     */
+    public RequestCoalescer(long timeout) {
+
+        this(timeout, false);
+    }
+
+    /**
+     * @param timeout
+     *            the number of milliseconds a request waits for the flight 
+     *            in progress
+     * @param negotiated
+     *            whether the Accept header of a request identifies its 
+     *            flight, along with its bound parameters
+     */
+    public RequestCoalescer(long timeout, boolean negotiated) {
+
+        this.timeout = timeout;
+        this.negotiated = negotiated;
+    }
+
+    public long getTimeout() {
+
+        return timeout;
+    }
+
+    /**
+     * @return the number of requests that were sent the response of another
+     *         request
+     */
+    public long getCoalesced() {
+
+        return coalesced.get();
+    }
+
+    /**
+     * Render the response of a request, or send it the response of the 
+     * request in flight with the same bound parameters.
+     * 
+     * @param routed
+     *            the routed request, whose parameter map identifies the 
+     *            flight
+     * @param response
+     *            the response of the request
+     * @param renderer
+     *            renders the response if the request is the first of its 
+     *            flight
+     * @return true if the response was sent, false if the request must be 
+     *         processed by the caller
+     */
+    public boolean coalesce(RoutedRequest routed, HttpServletResponse response, 
+            ResponseRenderer renderer) throws Exception {
+
+        return coalesce(routed, null, response, renderer);
+    }
+
+    /**
+     * Render the response of a request, or send it the response of the 
+     * request in flight with the same bound parameters, and the same Accept
+     * header if the content type of the response is negotiated.
+     * 
+     * @param routed
+     *            the routed request, whose parameter map identifies the 
+     *            flight
+     * @param request
+     *            the request, or null if its headers do not identify the 
+     *            flight
+     * @param response
+     *            the response of the request
+     * @param renderer
+     *            renders the response if the request is the first of its 
+     *            flight
+     * @return true if the response was sent, false if the request must be 
+     *         processed by the caller
+     */
+    public boolean coalesce(RoutedRequest routed, HttpServletRequest request, 
+            HttpServletResponse response, ResponseRenderer renderer) throws Exception {
+
+        String key = newKey(routed.getParameterMap());
+        if (negotiated && request != null) {
+            StringBuilder withAccept = new StringBuilder(key).append('|');
+            appendKeyElement(withAccept, HTTPHeader.ACCEPT, request.getHeader(HTTPHeader.ACCEPT));
+            key = withAccept.toString();
+        }
+        Flight flight = new Flight();
+        Flight inFlight = flights.putIfAbsent(key, flight);
+        
+        if (inFlight == null) {
+            
+            BufferedResponse buffered = new BufferedResponse(response);
+            try {
+                renderer.render(buffered);
+                flight.land(buffered.snapshot());
+            } finally {
+                /* waiting requests are released even if rendering fails */
+                flights.remove(key, flight);
+                flight.done.countDown();
+            }
+            buffered.commit(request);
+            return true;
+        }
+        
+        ResponseSnapshot snapshot = inFlight.await(timeout);
+        if (snapshot == null) {
+            logger.debug("coalesced request not completed in time; processing it separately...");
+            return false;
+        }
+        if (request != null) {
+            snapshot.sendTo(request, response);
+        } else {
+            snapshot.sendTo(response);
+        }
+        coalesced.incrementAndGet();
+        return true;
+    }
+
+    /*
+     * the parameters are ordered by name, so that the key does not depend 
+     * on the order of the parameters in the request
+     */
+    static String newKey(Map<String, Object> parameterMap) {
+
+        if (parameterMap == null || parameterMap.isEmpty()) {
+            return "";
+        }
+        Map<String, Object> sorted = new TreeMap<String, Object>(parameterMap);
+        StringBuilder key = new StringBuilder();
+        for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+            appendKeyElement(key, entry.getKey(), entry.getValue());
+        }
+        return key.toString();
+    }
+
+    /*
+     * appends name=value to a key, with the name and each value prefixed 
+     * by its length, and arrays by their number of elements, so that 
+     * names and values chosen by the client cannot be mistaken for other
+     * elements of the key whatever characters they contain
+     */
+    static void appendKeyElement(StringBuilder key, String name, Object value) {
+
+        appendKeyString(key, name);
+        key.append('=');
+        if (value instanceof Object[]) {
+            Object[] values = (Object[]) value;
+            key.append('[').append(values.length).append(']');
+            for (Object element : values) {
+                appendKeyString(key, element == null ? null : element.toString());
+            }
+        } else {
+            appendKeyString(key, value == null ? null : value.toString());
+        }
+    }
+
+    private static void appendKeyString(StringBuilder key, String s) {
+
+        if (s == null) {
+            key.append('-');
+        } else {
+            key.append(s.length()).append(':').append(s);
+        }
+    }
+
+    /**
+     * Renders the response of the first request of a flight.
+     */
+    public interface ResponseRenderer {
+
+        void render(HttpServletResponse response) throws Exception;
+    }
+
+    private static class Flight {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile ResponseSnapshot landed;
+
+        private void land(ResponseSnapshot snapshot) {
+
+            landed = snapshot;
+        }
+
+        /*
+         * returns null if the flight failed, or did not complete in time
+         */
+        private ResponseSnapshot await(long timeout) throws InterruptedException {
+
+            if (!done.await(timeout, TimeUnit.MILLISECONDS)) {
+                return null;
+            }
+            return landed;
+        }
+    }
+}
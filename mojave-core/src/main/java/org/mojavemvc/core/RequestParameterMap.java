@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A read-only view of the parameters of a request, as String arrays. A
+ * lookup asks the request for the values of a single parameter, so no map
+ * of all the parameters is built unless the view is iterated.
+ * 
+ * @author Luis Antunes
+ */
+public class RequestParameterMap extends AbstractMap<String, Object> {
+
+    private final HttpServletRequest req;
+
+    public RequestParameterMap(HttpServletRequest req) {
+        this.req = req;
+    }
+
+    @Override
+    public Object get(Object key) {
+        
+        if (!(key instanceof String)) {
+            return null;
+        }
+        return req.getParameterValues((String) key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        
+        return get(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<Map.Entry<String, Object>> entrySet() {
+        
+        return Collections.unmodifiableMap((Map<String, Object>) (Map<?, ?>) req.getParameterMap()).entrySet();
+    }
+}
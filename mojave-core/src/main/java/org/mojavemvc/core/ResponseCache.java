@@ -0,0 +1,387 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the responses of &#064;Cached actions. Responses are kept in a 
+ * bounded, least-recently-used, in-memory tier. When a disk tier is given, 
+ * the responses evicted from memory are moved to a memory-mapped file, and 
+ * are moved back to memory when they are requested again. 
+ * <p>
+ * The cache is bound in the Guice Injector, so that application code can 
+ * have it injected to invalidate the responses of an action when the data 
+ * they are rendered from changes:
+ * 
+ * <pre>
+ * &#064;Inject
+ * private ResponseCache responseCache;
+ * ...
+ * responseCache.invalidate(ProductController.class, "list");
+ * </pre>
+ * 
+ * The cache counts how many requests were served from it (hits) and how
+ * many were not (misses).
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class ResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger("org.mojavemvc");
+
+    public static final String KEY = ResponseCache.class.getName();
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024 * 1024;
+
+    /**
+     * The default time in milliseconds after which a response on disk that 
+     * was not requested may be discarded, to make room for others.
+     */
+    public static final long DEFAULT_MAX_IDLE = 10 * 60 * 1000L;
+
+    private final MemoryTier memory;
+    /*
+     * null if there is no disk tier
+     */
+    private final MappedByteStore disk;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a cache with only an in-memory tier of the default size.
+     */
+    public ResponseCache() {
+
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a cache with only an in-memory tier.
+     * 
+     * @param maxEntries
+     *            the maximum number of responses kept in memory
+     */
+    public ResponseCache(int maxEntries) {
+
+        this.memory = new MemoryTier(maxEntries);
+        this.disk = null;
+    }
+
+    /**
+     * Creates a cache with an in-memory tier and a disk tier.
+     * 
+     * @param maxEntries
+     *            the maximum number of responses kept in memory
+     * @param file
+     *            the file to map for the disk tier; any existing content is 
+     *            discarded
+     * @param deleteOnDestroy
+     *            whether the file is deleted when the cache is destroyed
+     * @param capacity
+     *            the size of the file in bytes
+     */
+    public ResponseCache(int maxEntries, File file, boolean deleteOnDestroy, int capacity) 
+            throws IOException {
+
+        this(maxEntries, file, deleteOnDestroy, capacity, DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * Creates a cache with an in-memory tier and a disk tier.
+     * 
+     * @param maxEntries
+     *            the maximum number of responses kept in memory
+     * @param file
+     *            the file to map for the disk tier; any existing content is 
+     *            discarded
+     * @param deleteOnDestroy
+     *            whether the file is deleted when the cache is destroyed
+     * @param capacity
+     *            the size of the file in bytes
+     * @param maxIdle
+     *            the time in milliseconds after which a response on disk 
+     *            that was not requested may be discarded, or -1 for no limit
+     */
+    public ResponseCache(int maxEntries, File file, boolean deleteOnDestroy, int capacity, 
+            long maxIdle) throws IOException {
+
+        this.memory = new MemoryTier(maxEntries);
+        this.disk = new MappedByteStore(file, deleteOnDestroy, capacity, maxIdle);
+    }
+
+    /**
+     * Get the cached response for the given key.
+     * 
+     * @return the response, or null if there is none, or it has expired
+     */
+    public ResponseSnapshot get(String key) {
+
+        long now = System.currentTimeMillis();
+        CachedResponse entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+            if (entry != null && entry.isExpired(now)) {
+                memory.remove(key);
+                entry = null;
+            }
+        }
+        
+        if (entry == null && disk != null) {
+            entry = readFromDisk(key);
+            if (entry != null && entry.isExpired(now)) {
+                disk.remove(key);
+                entry = null;
+            }
+            if (entry != null) {
+                disk.remove(key);
+                putInMemory(key, entry);
+            }
+        }
+        
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.snapshot;
+    }
+
+    /**
+     * Cache a response.
+     * 
+     * @param key
+     *            the key of the response
+     * @param snapshot
+     *            the response
+     * @param ttl
+     *            the number of milliseconds the response is cached for
+     */
+    public void put(String key, ResponseSnapshot snapshot, long ttl) {
+
+        putInMemory(key, new CachedResponse(snapshot, System.currentTimeMillis() + ttl));
+    }
+
+    /**
+     * Remove the cached responses of all the actions of the given 
+     * controller.
+     */
+    public void invalidate(Class<?> controllerClass) {
+
+        removeAll(controllerClass.getName() + "#");
+    }
+
+    /**
+     * Remove the cached responses of the given action.
+     * 
+     * @param controllerClass
+     *            the controller class
+     * @param actionMethodName
+     *            the name of the action method
+     */
+    public void invalidate(Class<?> controllerClass, String actionMethodName) {
+
+        removeAll(newKeyPrefix(controllerClass, actionMethodName));
+    }
+
+    /**
+     * Remove all the cached responses.
+     */
+    public void invalidateAll() {
+
+        removeAll("");
+    }
+
+    /**
+     * @return the number of requests served from the cache
+     */
+    public long getHits() {
+
+        return hits.get();
+    }
+
+    /**
+     * @return the number of requests not served from the cache
+     */
+    public long getMisses() {
+
+        return misses.get();
+    }
+
+    /**
+     * @return the fraction of requests served from the cache, or 0 if 
+     *         there were none
+     */
+    public double getHitRatio() {
+
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return the number of responses in memory
+     */
+    public int getMemorySize() {
+
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    /**
+     * @return the number of responses on disk
+     */
+    public int getDiskSize() {
+
+        return disk == null ? 0 : disk.size();
+    }
+
+    /**
+     * Release the resources held by the cache. Called when the framework is
+     * taken out of service.
+     */
+    public void destroy() {
+
+        synchronized (memory) {
+            memory.clear();
+        }
+        if (disk != null) {
+            disk.destroy();
+        }
+    }
+
+    static String newKeyPrefix(Class<?> controllerClass, String actionMethodName) {
+
+        return controllerClass.getName() + "#" + actionMethodName + "?";
+    }
+
+    private void removeAll(String prefix) {
+
+        synchronized (memory) {
+            Iterator<String> it = memory.keySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().startsWith(prefix)) {
+                    it.remove();
+                }
+            }
+        }
+        if (disk != null) {
+            disk.removeAll(prefix);
+        }
+    }
+
+    private void putInMemory(String key, CachedResponse entry) {
+
+        String evictedKey;
+        CachedResponse evicted;
+        synchronized (memory) {
+            memory.put(key, entry);
+            evictedKey = memory.evictedKey;
+            evicted = memory.evicted;
+            memory.evictedKey = null;
+            memory.evicted = null;
+        }
+        
+        /* the evicted response is written to disk outside of the lock */
+        if (evicted != null && disk != null && !evicted.isExpired(System.currentTimeMillis())) {
+            writeToDisk(evictedKey, evicted);
+        }
+    }
+
+    private CachedResponse readFromDisk(String key) {
+
+        byte[] bytes = disk.get(key);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return (CachedResponse) MappedByteStore.deserialize(bytes, getClass().getClassLoader());
+        } catch (Exception e) {
+            logger.error("could not read cached response from " + disk.getFile(), e);
+            disk.remove(key);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, CachedResponse entry) {
+
+        try {
+            if (!disk.put(key, MappedByteStore.serialize(entry))) {
+                logger.debug("disk tier is full; discarding cached response " + key);
+            }
+        } catch (IOException e) {
+            logger.error("could not write cached response to " + disk.getFile(), e);
+        }
+    }
+
+    private static class CachedResponse implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ResponseSnapshot snapshot;
+        private final long expires;
+
+        private CachedResponse(ResponseSnapshot snapshot, long expires) {
+            this.snapshot = snapshot;
+            this.expires = expires;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expires;
+        }
+    }
+
+    /*
+     * must be used while holding its own lock
+     */
+    private static class MemoryTier extends LinkedHashMap<String, CachedResponse> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxEntries;
+        private String evictedKey;
+        private CachedResponse evicted;
+
+        private MemoryTier(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+            if (size() > maxEntries) {
+                evictedKey = eldest.getKey();
+                evicted = eldest.getValue();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mojavemvc.views.EntityTags;
+import org.mojavemvc.views.HTTPHeader;
+
+/**
+ * The status, headers and rendered body of a response, recorded by a 
+ * BufferedResponse, which can be sent again to other responses. Cookies are
+ * not part of a snapshot.
+ * <p>
+ * An instance of this class is immutable and thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class ResponseSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Operation> operations;
+    private final byte[] body;
+    private final int status;
+    private final boolean sent;
+    private final boolean withCookies;
+
+    /**
+     * Creates a snapshot of a complete response with the given status, 
+     * content type and body, which can be put in a ResponseCache to warm it.
+     * 
+     * @param status
+     *            the status code
+     * @param contentType
+     *            the content type, or null to leave it unset
+     * @param body
+     *            the body
+     */
+    public ResponseSnapshot(int status, String contentType, byte[] body) {
+
+        this(newOperations(status, contentType), body, status, false, false);
+    }
+
+    ResponseSnapshot(List<Operation> operations, byte[] body, int status, 
+            boolean sent, boolean withCookies) {
+
+        this.operations = new ArrayList<Operation>(operations);
+        this.body = body;
+        this.status = status;
+        this.sent = sent;
+        this.withCookies = withCookies;
+    }
+
+    private static List<Operation> newOperations(int status, String contentType) {
+
+        List<Operation> operations = new ArrayList<Operation>();
+        operations.add(new Operation(OperationType.SET_STATUS, null, null, status, null));
+        if (contentType != null) {
+            operations.add(new Operation(OperationType.SET_CONTENT_TYPE, null, contentType, 0, null));
+        }
+        return operations;
+    }
+
+    /**
+     * @return the status code of the response
+     */
+    public int getStatus() {
+
+        return status;
+    }
+
+    /**
+     * @return the last value set for the given header, or null if it was 
+     *         not set
+     */
+    public String getHeader(String name) {
+
+        String value = null;
+        for (Operation operation : operations) {
+            if ((operation.type == OperationType.SET_HEADER || 
+                    operation.type == OperationType.ADD_HEADER) && 
+                    operation.name.equalsIgnoreCase(name)) {
+                value = operation.value;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return the last value set for the given date header, or -1 if it was
+     *         not set
+     */
+    public long getDateHeader(String name) {
+
+        long value = -1;
+        for (Operation operation : operations) {
+            if ((operation.type == OperationType.SET_DATE_HEADER || 
+                    operation.type == OperationType.ADD_DATE_HEADER) && 
+                    operation.name.equalsIgnoreCase(name)) {
+                value = operation.number;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Evaluate the conditional headers of a GET or HEAD request against the
+     * ETag and Last-Modified headers of this response. The If-None-Match 
+     * header takes precedence over the If-Modified-Since header.
+     * 
+     * @return true if the request should be answered with 304 Not Modified
+     */
+    public boolean isNotModified(HttpServletRequest request) {
+
+        if (status != HttpServletResponse.SC_OK || sent) {
+            return false;
+        }
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return false;
+        }
+        if (request.getHeader(HTTPHeader.IF_NONE_MATCH) != null) {
+            return EntityTags.matches(request, getHeader(HTTPHeader.ETAG));
+        }
+        long lastModified = getDateHeader(HTTPHeader.LAST_MODIFIED);
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader(HTTPHeader.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            /* a malformed date is ignored */
+            return false;
+        }
+        /* HTTP dates have a resolution of one second */
+        return lastModified >= 0 && ifModifiedSince >= 0 && 
+                lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * @return the number of bytes in the body
+     */
+    public int getBodyLength() {
+
+        return body.length;
+    }
+
+    /**
+     * @return true if the response is a complete 200 response that did not 
+     *         set any cookies, so that it may be sent to any request
+     */
+    public boolean isCacheable() {
+
+        return status == HttpServletResponse.SC_OK && !sent && !withCookies;
+    }
+
+    /**
+     * Send the recorded response to the given request: 304 Not Modified 
+     * with the recorded headers if its conditional headers match the 
+     * response, and the recorded status, headers and body otherwise.
+     */
+    public void sendTo(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        if (isNotModified(request)) {
+            for (Operation operation : operations) {
+                operation.apply(response);
+            }
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        } else {
+            sendTo(response);
+        }
+    }
+
+    /**
+     * Send the recorded status, headers and body to the given response.
+     */
+    public void sendTo(HttpServletResponse response) throws IOException {
+
+        for (Operation operation : operations) {
+            operation.apply(response);
+        }
+        if (!sent && body.length > 0) {
+            ServletOutputStream out = response.getOutputStream();
+            out.write(body);
+            out.flush();
+        }
+    }
+
+    enum OperationType {
+        SEND_ERROR, SEND_REDIRECT, SET_STATUS, SET_HEADER, ADD_HEADER, SET_DATE_HEADER, 
+        ADD_DATE_HEADER, SET_INT_HEADER, ADD_INT_HEADER, SET_CONTENT_TYPE, 
+        SET_CHARACTER_ENCODING, SET_CONTENT_LENGTH, SET_LOCALE
+    }
+
+    /*
+     * a change made to a response, which can be made again to another one
+     */
+    static class Operation implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final OperationType type;
+        private final String name;
+        private final String value;
+        private final long number;
+        private final Locale locale;
+
+        Operation(OperationType type, String name, String value, long number, Locale locale) {
+            this.type = type;
+            this.name = name;
+            this.value = value;
+            this.number = number;
+            this.locale = locale;
+        }
+
+        @SuppressWarnings("deprecation")
+        private void apply(HttpServletResponse response) throws IOException {
+
+            switch (type) {
+            case SEND_ERROR:
+                if (value == null) {
+                    response.sendError((int) number);
+                } else {
+                    response.sendError((int) number, value);
+                }
+                break;
+            case SEND_REDIRECT:
+                response.sendRedirect(value);
+                break;
+            case SET_STATUS:
+                if (value == null) {
+                    response.setStatus((int) number);
+                } else {
+                    response.setStatus((int) number, value);
+                }
+                break;
+            case SET_HEADER:
+                response.setHeader(name, value);
+                break;
+            case ADD_HEADER:
+                response.addHeader(name, value);
+                break;
+            case SET_DATE_HEADER:
+                response.setDateHeader(name, number);
+                break;
+            case ADD_DATE_HEADER:
+                response.addDateHeader(name, number);
+                break;
+            case SET_INT_HEADER:
+                response.setIntHeader(name, (int) number);
+                break;
+            case ADD_INT_HEADER:
+                response.addIntHeader(name, (int) number);
+                break;
+            case SET_CONTENT_TYPE:
+                response.setContentType(value);
+                break;
+            case SET_CHARACTER_ENCODING:
+                response.setCharacterEncoding(value);
+                break;
+            case SET_CONTENT_LENGTH:
+                response.setContentLength((int) number);
+                break;
+            case SET_LOCALE:
+                response.setLocale(locale);
+                break;
+            }
+        }
+    }
+}
@@ -23,4 +23,14 @@ public interface RouteMap {
     void add(Route route);
     
     Route getRoute(String path);
+    
+    /**
+     * Find the route that matches the given path, binding the values of 
+     * the route's path parameters from the path in the same pass.
+     * 
+     * @param path
+     *            the request path, beginning with a separator
+     * @return the match, or null if no route matches the path
+     */
+    RouteMatch match(String path);
 }
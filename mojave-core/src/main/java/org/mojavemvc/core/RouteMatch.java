@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.List;
+
+import org.mojavemvc.core.Route.PathParameterElement;
+
+/**
+ * The result of matching a request path against a {@link RouteMap}: the 
+ * matched Route, together with the values bound to its path parameters.
+ * 
+ * @author Luis Antunes
+ */
+public class RouteMatch {
+
+    private static final String[] NO_VALUES = new String[0];
+    
+    private final Route route;
+    private final String[] paramValues;
+    
+    /**
+     * @param route
+     *            the matched route
+     * @param paramValues
+     *            the path parameter values, in the same order as the route's
+     *            {@link Route#pathParameterElements()}
+     */
+    public RouteMatch(Route route, String[] paramValues) {
+        this.route = route;
+        this.paramValues = paramValues == null ? NO_VALUES : paramValues;
+    }
+    
+    public Route getRoute() {
+        return route;
+    }
+    
+    /**
+     * Get the value bound to the path parameter at the given position in 
+     * the route's {@link Route#pathParameterElements()}.
+     * 
+     * @param index
+     *            the position of the path parameter
+     * @return the value bound to the path parameter
+     */
+    public String getParamValue(int index) {
+        return paramValues[index];
+    }
+    
+    /**
+     * Get the value bound to the path parameter with the given name.
+     * 
+     * @param name
+     *            the name of the path parameter
+     * @return the value, or null if the route has no such path parameter
+     */
+    public String getParamValue(String name) {
+        List<PathParameterElement> elements = route.pathParameterElements();
+        for (int i = 0; i < elements.size(); i++) {
+            if (elements.get(i).name().equals(name)) {
+                return paramValues[i];
+            }
+        }
+        return null;
+    }
+}
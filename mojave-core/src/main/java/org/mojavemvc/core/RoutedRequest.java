@@ -25,11 +25,18 @@ public class RoutedRequest {
     private final String controller;
     private final String action;
     private final Map<String, Object> parameterMap;
+    private final Route route;
 
     public RoutedRequest(String controller, String action, Map<String, Object> parameterMap) {
+        this(controller, action, parameterMap, null);
+    }
+    
+    public RoutedRequest(String controller, String action, Map<String, Object> parameterMap, 
+            Route route) {
         this.controller = controller;
         this.action = action;
         this.parameterMap = parameterMap;
+        this.route = route;
     }
 
     public String getController() {
@@ -43,4 +50,13 @@ public String getAction() {
     public Map<String, Object> getParameterMap() {
         return parameterMap;
     }
+    
+    /**
+     * Get the Route that matched the request path.
+     * 
+     * @return the matched route, or null if the request had no path
+     */
+    public Route getRoute() {
+        return route;
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.io.InputStream;
+import java.util.Iterator;
+
+import org.mojavemvc.marshalling.IncrementalEntityMarshaller;
+import org.mojavemvc.views.View;
+
+/**
+ * Adapts an {@link IncrementalEntityMarshaller} for an &#064;Entity 
+ * parameter declared as an Iterator or an Iterable, so that the parameter 
+ * is bound to a lazily read sequence of elements rather than to a fully 
+ * unmarshalled entity.
+ * 
+ * @author Luis Antunes
+ */
+class SequenceEntityMarshaller implements IncrementalEntityMarshaller {
+
+    private final IncrementalEntityMarshaller marshaller;
+    private final Class<?> elementType;
+
+    SequenceEntityMarshaller(IncrementalEntityMarshaller marshaller, Class<?> elementType) {
+
+        this.marshaller = marshaller;
+        this.elementType = elementType;
+    }
+
+    static boolean isSequenceType(Class<?> type) {
+
+        return type == Iterator.class || type == Iterable.class;
+    }
+
+    @Override
+    public View marshall(Object entity) {
+
+        return marshaller.marshall(entity);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T unmarshall(InputStream in, Class<T> type) {
+
+        if (!isSequenceType(type)) {
+            return marshaller.unmarshall(in, type);
+        }
+        Iterator<?> elements = marshaller.unmarshallElements(in, elementType);
+        return type == Iterator.class ? (T) elements : (T) new OneShotIterable(elements);
+    }
+
+    @Override
+    public <T> Iterator<T> unmarshallElements(InputStream in, Class<T> elementType) {
+
+        return marshaller.unmarshallElements(in, elementType);
+    }
+
+    @Override
+    public String[] contentTypesHandled() {
+
+        return marshaller.contentTypesHandled();
+    }
+
+    /*
+     * the request body can only be read once, so the Iterable can only be 
+     * iterated once
+     */
+    private static class OneShotIterable implements Iterable<Object> {
+
+        private Iterator<?> elements;
+
+        private OneShotIterable(Iterator<?> elements) {
+            this.elements = elements;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public synchronized Iterator<Object> iterator() {
+            if (elements == null) {
+                throw new IllegalStateException("the entity sequence can only be iterated once");
+            }
+            Iterator<Object> it = (Iterator<Object>) elements;
+            elements = null;
+            return it;
+        }
+    }
+}
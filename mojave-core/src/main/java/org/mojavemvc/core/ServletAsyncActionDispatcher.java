@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * An AsyncActionDispatcher that uses the Servlet 3.0 AsyncContext. Only the 
+ * first of the result's completion, a timeout or an error is reported to 
+ * the callback. When a timeout or an error comes first, the request is 
+ * abandoned: a result that is a Future is cancelled, and the thread of an 
+ * offloaded action is interrupted, and the callback is settled once the 
+ * result has completed.
+ * <p>
+ * NOTE: this class requires a Servlet 3.0 container, and is only loaded by 
+ * name when one is available. The FrontController or RequestFilter must be
+ * declared with async-supported set to true for requests to be completed 
+ * asynchronously.
+ * 
+ * @author Luis Antunes
+ */
+public class ServletAsyncActionDispatcher implements AsyncActionDispatcher {
+
+    private static final AsyncResultAdapter ACTION_ADAPTER = new CallableResultAdapter();
+
+    private final Executor executor;
+    private final Executor actionExecutor;
+    private final boolean offloadAll;
+    private final long timeout;
+
+    /**
+     * @param executor
+     *            the executor on which results are completed
+     * @param timeout
+     *            the time in milliseconds after which a request times out, or
+     *            -1 for the container's default
+     */
+    public ServletAsyncActionDispatcher(Executor executor, long timeout) {
+        
+        this(executor, executor, false, timeout);
+    }
+
+    /**
+     * @param executor
+     *            the executor on which results are completed
+     * @param actionExecutor
+     *            the executor on which offloaded actions are invoked
+     * @param offloadAll
+     *            whether the actions of all controllers are to be offloaded
+     * @param timeout
+     *            the time in milliseconds after which a request times out, or
+     *            -1 for the container's default
+     */
+    public ServletAsyncActionDispatcher(Executor executor, Executor actionExecutor, 
+            boolean offloadAll, long timeout) {
+        
+        this.executor = executor;
+        this.actionExecutor = actionExecutor;
+        this.offloadAll = offloadAll;
+        this.timeout = timeout;
+    }
+
+    public boolean isAsyncSupported(HttpServletRequest req) {
+        
+        return req.isAsyncSupported();
+    }
+
+    public void dispatch(HttpServletRequest req, HttpServletResponse res, Object actionResult, 
+            AsyncResultAdapter adapter, AsyncRequestCallback callback) {
+        
+        dispatch(req, res, actionResult, adapter, executor, callback);
+    }
+
+    public boolean offloadsAllActions() {
+        
+        return offloadAll;
+    }
+
+    public void offload(HttpServletRequest req, HttpServletResponse res, Callable<?> action, 
+            AsyncRequestCallback callback) {
+        
+        dispatch(req, res, new OffloadedAction(action), ACTION_ADAPTER, actionExecutor, callback);
+    }
+
+    private void dispatch(HttpServletRequest req, HttpServletResponse res, Object actionResult, 
+            AsyncResultAdapter adapter, Executor executor, AsyncRequestCallback callback) {
+
+        AsyncContext asyncContext = req.startAsync(req, res);
+        if (timeout >= 0) {
+            asyncContext.setTimeout(timeout);
+        }
+        
+        Dispatch dispatch = new Dispatch(asyncContext, actionResult, callback);
+        asyncContext.addListener(dispatch);
+        adapter.onCompletion(actionResult, executor, dispatch);
+    }
+    
+    /*
+     * cancels the result of an abandoned request: a Future is cancelled, 
+     * and the thread of an offloaded action is interrupted; other results, 
+     * such as the Callable of an actor controller, are left to complete
+     */
+    private static void cancel(Object actionResult) {
+        
+        if (actionResult instanceof Future) {
+            ((Future<?>) actionResult).cancel(true);
+        } else if (actionResult instanceof OffloadedAction) {
+            ((OffloadedAction) actionResult).cancel();
+        }
+    }
+
+    public void shutdown() {
+        
+        shutdown(executor);
+        if (actionExecutor != executor) {
+            shutdown(actionExecutor);
+        }
+    }
+    
+    private static void shutdown(Executor executor) {
+        
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+    
+    /*
+     * reports the first of the result's completion, a timeout or an error 
+     * to the callback; if the request is abandoned, the callback is settled
+     * by the last of the result's completion and the return of the 
+     * callback's abandoned method
+     */
+    private static class Dispatch implements AsyncListener, AsyncResultCallback {
+        
+        private final AsyncContext asyncContext;
+        private final Object actionResult;
+        private final AsyncRequestCallback callback;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private final AtomicInteger unsettled = new AtomicInteger(2);
+        
+        private Dispatch(AsyncContext asyncContext, Object actionResult, 
+                AsyncRequestCallback callback) {
+            
+            this.asyncContext = asyncContext;
+            this.actionResult = actionResult;
+            this.callback = callback;
+        }
+        
+        public void completed(Object value) {
+            
+            if (done.compareAndSet(false, true)) {
+                try {
+                    callback.completed(value);
+                } finally {
+                    asyncContext.complete();
+                }
+            } else {
+                settle();
+            }
+        }
+        
+        public void failed(Throwable error) {
+            
+            if (done.compareAndSet(false, true)) {
+                try {
+                    callback.failed(error);
+                } finally {
+                    asyncContext.complete();
+                }
+            } else {
+                settle();
+            }
+        }
+        
+        public void onTimeout(AsyncEvent event) throws IOException {
+            
+            abandon(new TimeoutException("the asynchronous action result " + 
+                    "did not complete in time"));
+        }
+        
+        public void onError(AsyncEvent event) throws IOException {
+            
+            abandon(event.getThrowable());
+        }
+        
+        public void onStartAsync(AsyncEvent event) throws IOException {}
+        
+        public void onComplete(AsyncEvent event) throws IOException {}
+        
+        private void abandon(Throwable error) {
+            
+            if (done.compareAndSet(false, true)) {
+                try {
+                    callback.abandoned(error);
+                } finally {
+                    try {
+                        asyncContext.complete();
+                    } finally {
+                        cancel(actionResult);
+                        settle();
+                    }
+                }
+            }
+        }
+        
+        private void settle() {
+            
+            if (unsettled.decrementAndGet() == 0) {
+                callback.settled();
+            }
+        }
+    }
+    
+    /*
+     * an action invoked on the action executor, whose thread can be 
+     * interrupted while it runs the action; an action cancelled before it 
+     * starts is not invoked
+     */
+    private static class OffloadedAction implements Callable<Object> {
+        
+        private final Callable<?> action;
+        private Thread runner;
+        private boolean cancelled;
+        
+        private OffloadedAction(Callable<?> action) {
+            
+            this.action = action;
+        }
+        
+        public Object call() throws Exception {
+            
+            synchronized (this) {
+                if (cancelled) {
+                    throw new CancellationException("the action was cancelled");
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                return action.call();
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    if (cancelled) {
+                        /* the interrupt must not outlive the action */
+                        Thread.interrupted();
+                    }
+                }
+            }
+        }
+        
+        private synchronized void cancel() {
+            
+            cancelled = true;
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+}
@@ -20,6 +20,8 @@
 import javax.servlet.http.HttpSession;
 
 import org.mojavemvc.initialization.AppProperties;
+import org.mojavemvc.marshalling.JacksonCodec;
+import org.mojavemvc.views.BufferPool;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
@@ -42,9 +44,38 @@ public class ServletResourceModule extends AbstractModule {
      */
     private final AppProperties appProperties;
     
+    /*
+     * shared by all requests, and thread-safe
+     */
+    private final ResponseCache responseCache;
+    
+    /*
+     * shared by all requests, and thread-safe
+     */
+    private final JacksonCodec codec;
+    
+    /*
+     * shared by all requests, and thread-safe
+     */
+    private final BufferPool bufferPool;
+    
     public ServletResourceModule(AppProperties appProperties) {
         
+        this(appProperties, new ResponseCache());
+    }
+    
+    public ServletResourceModule(AppProperties appProperties, ResponseCache responseCache) {
+        
+        this(appProperties, responseCache, new JacksonCodec(), new BufferPool());
+    }
+    
+    public ServletResourceModule(AppProperties appProperties, ResponseCache responseCache, 
+            JacksonCodec codec, BufferPool bufferPool) {
+        
         this.appProperties = appProperties;
+        this.responseCache = responseCache;
+        this.codec = codec;
+        this.bufferPool = bufferPool;
     }
     
     @Override
@@ -57,6 +88,24 @@ AppProperties providesAppProperties() {
         return appProperties;
     }
 
+    @Provides
+    ResponseCache providesResponseCache() {
+        
+        return responseCache;
+    }
+
+    @Provides
+    JacksonCodec providesJacksonCodec() {
+        
+        return codec;
+    }
+
+    @Provides
+    BufferPool providesBufferPool() {
+        
+        return bufferPool;
+    }
+
     @Provides
     HttpServletRequest provideRequest() {
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Serializes the requests of each session that target the same stateful 
+ * controller: a request waits, in arrival order, until the requests ahead 
+ * of it release the controller. Requests of different sessions do not wait
+ * for each other. A permit may be released by a thread other than the one 
+ * that acquired it, as happens when a request completes asynchronously.
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+class SessionRequestQueue {
+
+    private final ConcurrentMap<String, Turn> turns = new ConcurrentHashMap<String, Turn>();
+
+    /**
+     * Wait for the turn of a request of the given session.
+     * 
+     * @param sessionId
+     *            the id of the session
+     * @return the turn, to be released once the request is complete
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting
+     */
+    Turn acquire(String sessionId) throws InterruptedException {
+
+        Turn turn;
+        while (true) {
+            turn = turns.get(sessionId);
+            if (turn == null) {
+                turn = new Turn(sessionId);
+                Turn existing = turns.putIfAbsent(sessionId, turn);
+                if (existing != null) {
+                    turn = existing;
+                }
+            }
+            if (turn.join()) {
+                break;
+            }
+            /* the turn was discarded by its last user; get a new one */
+        }
+        
+        try {
+            turn.permit.acquire();
+        } catch (InterruptedException e) {
+            turn.leave();
+            throw e;
+        }
+        return turn;
+    }
+
+    /**
+     * @return the number of sessions with requests in progress or waiting
+     */
+    int size() {
+
+        return turns.size();
+    }
+
+    class Turn {
+
+        private final String sessionId;
+        /* fair, so that waiting requests proceed in arrival order */
+        private final Semaphore permit = new Semaphore(1, true);
+        private int users;
+        private boolean discarded;
+
+        private Turn(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        private synchronized boolean join() {
+            if (discarded) {
+                return false;
+            }
+            users++;
+            return true;
+        }
+
+        private synchronized void leave() {
+            if (--users == 0) {
+                discarded = true;
+                turns.remove(sessionId, this);
+            }
+        }
+
+        /**
+         * Let the next request of the session proceed.
+         */
+        void release() {
+            permit.release();
+            leave();
+        }
+    }
+}
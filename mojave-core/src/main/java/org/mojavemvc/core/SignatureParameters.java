@@ -19,7 +19,6 @@
 import java.sql.Date;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.mojavemvc.forms.UploadedFile;
@@ -76,37 +75,33 @@ static Parameter getParameterFromType(Class<?> paramType) {
      */
     static abstract class Parameter {
 
-        public void populateArgs(List<Object> args, Object paramValue) {
+        public Object getValue(Object paramValue) {
             if (paramValue instanceof String[]) {
-                populateArgsFromStringArray((String[]) paramValue, args);
+                return fromStringArray((String[]) paramValue);
             } else {
-                populateArgsFromObject(paramValue, args);
+                return fromObject(paramValue);
             }
         }
         
-        protected abstract void populateArgsFromStringArray(String[] paramValues, List<Object> args);
+        protected abstract Object fromStringArray(String[] paramValues);
         
-        protected void populateArgsFromObject(Object paramValue, List<Object> args) {
-            args.add(paramValue == null ? null : paramValue);
+        protected Object fromObject(Object paramValue) {
+            return paramValue;
         }
     }
     
     static abstract class ArrayParameter extends Parameter {
         
-        protected void populateArgsFromStringArray(String[] paramValues, List<Object> args) {
-            if (paramValues != null) {
-                Object vals = convertParamValues(paramValues);
-                args.add(vals);
-            } else {
-                args.add(null);
-            }
+        protected Object fromStringArray(String[] paramValues) {
+            return paramValues == null ? null : convertParamValues(paramValues);
         }
         
         protected abstract Object convertParamValues(String[] paramValues);
     }
     
     /*
-     * NOTE: a new instance must be created for each request
+     * an instance of this class is immutable, and is created for each 
+     * parameter of an unknown type
      */
     static class UnknownParameter extends Parameter {
         
@@ -116,14 +111,14 @@ public UnknownParameter(Class<?> paramType) {
             this.paramType = paramType;
         }
         
-        protected void populateArgsFromStringArray(String[] paramValues, List<Object> args) {
+        protected Object fromStringArray(String[] paramValues) {
             throw new UnsupportedOperationException("unsupported parameter type: " + paramType.getName());
         }
     }
     
     static class StringParameter extends Parameter {
-        protected void populateArgsFromStringArray(String[] paramValues, List<Object> args) {
-            args.add(paramValues == null ? null : paramValues[0]);
+        protected Object fromStringArray(String[] paramValues) {
+            return paramValues == null ? null : paramValues[0];
         }
     }
     
@@ -136,12 +131,12 @@ protected Object convertParamValues(String[] paramValues) {
     
     static class IntegerParameter extends Parameter {
         
-        protected void populateArgsFromStringArray(String[] paramValues, List<Object> args) {
-            args.add(paramValues == null ? 0 : Integer.parseInt(paramValues[0]));
+        protected Object fromStringArray(String[] paramValues) {
+            return paramValues == null ? 0 : Integer.parseInt(paramValues[0]);
         }
         
-        protected void populateArgsFromObject(Object paramValue, List<Object> args) {
-            args.add(paramValue == null ? 0 : paramValue);
+        protected Object fromObject(Object paramValue) {
+            return paramValue == null ? 0 : paramValue;
         }
     }
     
@@ -165,12 +160,12 @@ protected Object convertParamValues(String[] paramValues) {
     
     static class LongParameter extends Parameter {
         
-        protected void populateArgsFromStringArray(String[] paramValues, List<Object> args) {
-            args.add(paramValues == null ? 0 : Long.parseLong(paramValues[0]));
+        protected Object fromStringArray(String[] paramValues) {
+            return paramValues == null ? 0L : Long.parseLong(paramValues[0]);
         }
         
-        protected void populateArgsFromObject(Object paramValue, List<Object> args) {
-            args.add(paramValue == null ? 0 : paramValue);
+        protected Object fromObject(Object paramValue) {
+            return paramValue == null ? 0L : paramValue;
         }
     }
     
@@ -194,12 +189,12 @@ protected Object convertParamValues(String[] paramValues) {
     
     static class DoubleParameter extends Parameter {
         
-        protected void populateArgsFromStringArray(String[] paramValues, List<Object> args) {
-            args.add(paramValues == null ? 0 : Double.parseDouble(paramValues[0]));
+        protected Object fromStringArray(String[] paramValues) {
+            return paramValues == null ? 0d : Double.parseDouble(paramValues[0]);
         }
         
-        protected void populateArgsFromObject(Object paramValue, List<Object> args) {
-            args.add(paramValue == null ? 0 : paramValue);
+        protected Object fromObject(Object paramValue) {
+            return paramValue == null ? 0d : paramValue;
         }
     }
     
@@ -222,8 +217,8 @@ protected Object convertParamValues(String[] paramValues) {
     }
     
     static class DateParameter extends Parameter {
-        protected void populateArgsFromStringArray(String[] paramValues, List<Object> args) {
-            args.add(paramValues == null ? null : Date.valueOf(paramValues[0]));
+        protected Object fromStringArray(String[] paramValues) {
+            return paramValues == null ? null : Date.valueOf(paramValues[0]);
         }
     }
     
@@ -238,12 +233,12 @@ protected Object convertParamValues(String[] paramValues) {
     
     static class BooleanParameter extends Parameter {
         
-        protected void populateArgsFromStringArray(String[] paramValues, List<Object> args) {
-            args.add(paramValues == null ? false : getBooleanValue(paramValues[0]));
+        protected Object fromStringArray(String[] paramValues) {
+            return paramValues == null ? false : getBooleanValue(paramValues[0]);
         }
         
-        protected void populateArgsFromObject(Object paramValue, List<Object> args) {
-            args.add(paramValue == null ? false : paramValue);
+        protected Object fromObject(Object paramValue) {
+            return paramValue == null ? false : paramValue;
         }
     }
     
@@ -267,19 +262,19 @@ protected Object convertParamValues(String[] paramValues) {
     
     static class UploadedFileParameter extends Parameter {
         @Override
-        protected void populateArgsFromStringArray(String[] paramValues, List<Object> args) {
+        protected Object fromStringArray(String[] paramValues) {
             throw new UnsupportedOperationException("unsupported operation for an uploaded file parameter");
         }
     }
     
     static class BigDecimalParameter extends Parameter {
         
-        protected void populateArgsFromStringArray(String[] paramValues, List<Object> args) {
-            args.add(paramValues == null ? BigDecimal.ZERO : new BigDecimal(paramValues[0]));
+        protected Object fromStringArray(String[] paramValues) {
+            return paramValues == null ? BigDecimal.ZERO : new BigDecimal(paramValues[0]);
         }
         
-        protected void populateArgsFromObject(Object paramValue, List<Object> args) {
-            args.add(paramValue == null ? BigDecimal.ZERO : paramValue);
+        protected Object fromObject(Object paramValue) {
+            return paramValue == null ? BigDecimal.ZERO : paramValue;
         }
     }
     
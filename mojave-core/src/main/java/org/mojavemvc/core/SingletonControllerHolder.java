@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.concurrent.Executor;
+
+import org.mojavemvc.annotations.Actor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Injector;
+
+/**
+ * Holds the single instance of a singleton controller. The instance is 
+ * created, and its &#064;AfterConstruct action invoked, exactly once: the 
+ * first thread to need it creates it while any others wait, and once it 
+ * exists it is read without locking. If creating the instance fails, the 
+ * next request to need it tries again.
+ * <p>
+ * A holder is created for each singleton controller class when the 
+ * ControllerDatabase is built. An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class SingletonControllerHolder {
+
+    private static final Logger logger = LoggerFactory.getLogger("org.mojavemvc");
+
+    private final Class<?> controllerClass;
+    private final MethodInvoker afterConstructInvoker;
+    private final ControllerMailbox mailbox;
+
+    private volatile Object instance;
+
+    /**
+     * @param controllerDb
+     *            the controller database
+     * @param controllerClass
+     *            the singleton controller class
+     * @param mailboxExecutor
+     *            the executor on which the mailbox of an &#064;Actor 
+     *            controller schedules its worker
+     */
+    public SingletonControllerHolder(ControllerDatabase controllerDb, Class<?> controllerClass, 
+            Executor mailboxExecutor) {
+
+        this.controllerClass = controllerClass;
+        ActionSignature afterConstructSig = controllerDb.getAfterConstructMethodFor(controllerClass);
+        this.afterConstructInvoker = afterConstructSig == null ? null : 
+                controllerDb.getMethodInvoker(controllerClass, afterConstructSig);
+        this.mailbox = controllerClass.isAnnotationPresent(Actor.class) ?
+                new ControllerMailbox(mailboxExecutor) : null;
+    }
+
+    /**
+     * Get the instance of the controller, creating it if it does not exist 
+     * yet.
+     * 
+     * @param injector
+     *            the injector used to create the instance
+     * @return the single instance of the controller
+     * @throws Exception
+     *             if the instance does not exist and could not be created
+     */
+    public Object getController(Injector injector) throws Exception {
+
+        Object controller = instance;
+        if (controller == null) {
+            synchronized (this) {
+                controller = instance;
+                if (controller == null) {
+                    controller = newController(injector);
+                    instance = controller;
+                }
+            }
+        }
+        return controller;
+    }
+
+    /**
+     * @return the instance of the controller, or null if it has not been
+     *         created yet
+     */
+    public Object getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * @return the mailbox through which the controller is invoked, or null if
+     *         the controller is not annotated with &#064;Actor
+     */
+    public ControllerMailbox getMailbox() {
+
+        return mailbox;
+    }
+
+    public Class<?> getControllerClass() {
+
+        return controllerClass;
+    }
+
+    private Object newController(Injector injector) throws Exception {
+
+        /* use the Guice Injector */
+        Object controller = injector.getInstance(controllerClass);
+
+        if (afterConstructInvoker != null) {
+            /*
+             * we've already validated that there are no method parameters when
+             * creating the controller database
+             */
+            afterConstructInvoker.invoke(controller, new Object[] {});
+            logger.debug("invoked after construct action for " + controllerClass.getName());
+        }
+        return controller;
+    }
+}
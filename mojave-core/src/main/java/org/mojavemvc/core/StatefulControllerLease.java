@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The hold of a request on the instance of a stateful controller. While the 
+ * lease is held, other requests of the same session that target the same 
+ * controller wait. The lease is kept as an attribute of the request, and is
+ * released once the request is complete, when the instance is put back in 
+ * the StatefulControllerStore.
+ * 
+ * @author Luis Antunes
+ */
+public class StatefulControllerLease {
+
+    public static final String KEY = StatefulControllerLease.class.getName();
+
+    private final StatefulControllerStore store;
+    private final Class<?> controllerClass;
+    private final SessionRequestQueue.Turn turn;
+    private Object controller;
+
+    StatefulControllerLease(StatefulControllerStore store, Class<?> controllerClass, 
+            SessionRequestQueue.Turn turn) {
+
+        this.store = store;
+        this.controllerClass = controllerClass;
+        this.turn = turn;
+    }
+
+    void setController(Object controller) {
+
+        this.controller = controller;
+    }
+
+    Object getController() {
+
+        return controller;
+    }
+
+    Class<?> getControllerClass() {
+
+        return controllerClass;
+    }
+
+    /**
+     * Release the lease held by the given request, if any, putting the 
+     * controller instance back in the store.
+     * 
+     * @param req
+     *            the request
+     */
+    public static void release(HttpServletRequest req) {
+
+        Runnable turn = detach(req);
+        if (turn != null) {
+            turn.run();
+        }
+    }
+
+    /**
+     * Detach the lease held by the given request, if any, from the request,
+     * putting the controller instance back in the store while the request 
+     * can still be used, but keeping the request's turn. Other requests of
+     * the same session that target the same controller wait until the 
+     * returned Runnable is run. This is used when a request is completed 
+     * before its action has finished, so that the instance is not used by 
+     * two requests at once; a store that keeps copies of the instance, 
+     * such as the MappedFileControllerStore, keeps its state as of the 
+     * time the lease is detached.
+     * 
+     * @param req
+     *            the request
+     * @return the Runnable that releases the request's turn, or null if 
+     *         the request holds no lease
+     */
+    public static Runnable detach(HttpServletRequest req) {
+
+        final StatefulControllerLease lease = (StatefulControllerLease) req.getAttribute(KEY);
+        if (lease == null) {
+            return null;
+        }
+        req.removeAttribute(KEY);
+        boolean stored = false;
+        try {
+            if (lease.controller != null) {
+                lease.store.put(req, lease.controllerClass, lease.controller);
+            }
+            stored = true;
+        } finally {
+            if (!stored) {
+                lease.turn.release();
+            }
+        }
+        return new Runnable() {
+            public void run() {
+                lease.turn.release();
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Keeps the instances of stateful controllers between the requests of a 
+ * session. The default store keeps them in the HttpSession.
+ * <p>
+ * An instance obtained with get is used by one request at a time, and is
+ * passed to put once the request is complete, so that a store that keeps 
+ * a copy of the instance can write back any changes made to it.
+ * <p>
+ * Implementations must be thread-safe, and must have a public no-argument 
+ * constructor if they are to be specified with the stateful-controller-store 
+ * init-param.
+ * 
+ * @author Luis Antunes
+ */
+public interface StatefulControllerStore {
+
+    public static final String KEY = StatefulControllerStore.class.getName();
+
+    /**
+     * Get the instance of the given controller class for the session of the 
+     * given request.
+     * 
+     * @param req
+     *            the request
+     * @param controllerClass
+     *            the stateful controller class
+     * @return the instance, or null if the session has none
+     */
+    Object get(HttpServletRequest req, Class<?> controllerClass);
+
+    /**
+     * Store the instance of the given controller class for the session of 
+     * the given request.
+     * 
+     * @param req
+     *            the request
+     * @param controllerClass
+     *            the stateful controller class
+     * @param controller
+     *            the instance
+     */
+    void put(HttpServletRequest req, Class<?> controllerClass, Object controller);
+
+    /**
+     * Release the resources held by the store. Called when the framework is
+     * taken out of service.
+     */
+    void destroy();
+}
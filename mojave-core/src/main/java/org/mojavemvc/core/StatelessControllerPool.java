@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A bounded pool of the idle instances of a &#064;Pooled stateless 
+ * controller. Taking an instance from the pool and returning it never 
+ * blocks: when the pool is empty, the caller creates a new instance, and an
+ * instance returned to a full pool is discarded. The pool counts how many
+ * requests were served by a pooled instance (hits) and how many needed a 
+ * new one (misses).
+ * <p>
+ * The instance taken by a request is kept as an attribute of the request,
+ * and is returned to the pool once the request is complete.
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class StatelessControllerPool {
+
+    public static final String KEY = StatelessControllerPool.class.getName();
+
+    private final int maxSize;
+    private final BlockingQueue<Object> idle;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxSize
+     *            the maximum number of idle instances kept
+     */
+    public StatelessControllerPool(int maxSize) {
+
+        this.maxSize = maxSize;
+        this.idle = new ArrayBlockingQueue<Object>(maxSize);
+    }
+
+    /**
+     * Take an idle instance from the pool.
+     * 
+     * @return the instance, or null if the pool is empty
+     */
+    public Object take() {
+
+        Object controller = idle.poll();
+        if (controller != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return controller;
+    }
+
+    /**
+     * Return an instance to the pool, unless the pool is full.
+     * 
+     * @param controller
+     *            the instance
+     * @return true if the instance was kept
+     */
+    public boolean offer(Object controller) {
+
+        return idle.offer(controller);
+    }
+
+    /**
+     * Hold the given instance for the duration of the request.
+     * 
+     * @param req
+     *            the request
+     * @param controller
+     *            the instance taken by the request
+     */
+    void hold(HttpServletRequest req, Object controller) {
+
+        req.setAttribute(KEY, new Held(this, controller));
+    }
+
+    /**
+     * Return the instance held by the given request, if any, to its pool.
+     * 
+     * @param req
+     *            the request
+     */
+    public static void release(HttpServletRequest req) {
+
+        Runnable held = detach(req);
+        if (held != null) {
+            held.run();
+        }
+    }
+
+    /**
+     * Detach the instance held by the given request, if any, from the 
+     * request, without returning it to its pool. This is used when a 
+     * request is completed before its action has finished, so that the 
+     * instance is not taken by another request while it is still in use.
+     * 
+     * @param req
+     *            the request
+     * @return the Runnable that returns the instance to its pool, or null
+     *         if the request holds no instance
+     */
+    public static Runnable detach(HttpServletRequest req) {
+
+        final Held held = (Held) req.getAttribute(KEY);
+        if (held == null) {
+            return null;
+        }
+        req.removeAttribute(KEY);
+        return new Runnable() {
+            public void run() {
+                held.pool.offer(held.controller);
+            }
+        };
+    }
+
+    public int getMaxSize() {
+
+        return maxSize;
+    }
+
+    /**
+     * @return the number of instances currently idle in the pool
+     */
+    public int getIdleCount() {
+
+        return idle.size();
+    }
+
+    /**
+     * @return the number of times an idle instance was taken from the pool
+     */
+    public long getHits() {
+
+        return hits.get();
+    }
+
+    /**
+     * @return the number of times the pool was empty
+     */
+    public long getMisses() {
+
+        return misses.get();
+    }
+
+    private static class Held {
+
+        private final StatelessControllerPool pool;
+        private final Object controller;
+
+        private Held(StatelessControllerPool pool, Object controller) {
+            this.pool = pool;
+            this.controller = controller;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.mojavemvc.forms.UploadedFile;
+
+/**
+ * An UploadedFile read directly from the body of a multipart request. 
+ * Until the request must be read past the part, the file's InputStream reads
+ * from the request itself. If that happens before the stream has been read 
+ * to the end, the rest of the part is written to memory, or to a temporary 
+ * file beyond the memory threshold, and the stream continues from there. 
+ * No byte of the part is written more than once.
+ * <p>
+ * An instance of this class is meant to be used by a single request, and
+ * is not thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+class StreamedUploadedFile extends UploadedFile {
+
+    private final MultipartConfig config;
+    private final PartInputStream partInputStream;
+    private InputStream source;
+    private long bytesRead;
+    private boolean live = true;
+    private boolean inMemory;
+    private long size = -1;
+    private File tempFile;
+
+    StreamedUploadedFile(String fileName, InputStream liveStream, 
+            String contentType, MultipartConfig config) {
+
+        super(fileName, null, contentType, false, -1);
+        this.config = config;
+        this.source = liveStream;
+        this.partInputStream = new PartInputStream();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return partInputStream;
+    }
+
+    /**
+     * Returns whether the rest of the file has been kept in memory. While the
+     * file is still being read from the request, this returns false.
+     */
+    @Override
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    /**
+     * The size of the file in bytes, or -1 while the file is still being 
+     * read from the request.
+     */
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    /*
+     * called before the request is read past this part
+     */
+    void detach() throws IOException {
+
+        if (!live) {
+            return;
+        }
+        live = false;
+        
+        if (partInputStream.closed) {
+            return;
+        }
+
+        byte[] buf = new byte[8192];
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        OutputStream out = memory;
+        long spooled = 0;
+        try {
+            int n;
+            while ((n = source.read(buf)) != -1) {
+                if (tempFile == null && spooled + n > config.getMemoryThreshold()) {
+                    tempFile = File.createTempFile("mojave-upload", ".tmp", config.getTempDir());
+                    out = new FileOutputStream(tempFile);
+                    memory.writeTo(out);
+                    memory = null;
+                }
+                out.write(buf, 0, n);
+                spooled += n;
+            }
+        } finally {
+            if (tempFile != null) {
+                out.close();
+            }
+        }
+
+        size = bytesRead + spooled;
+        if (tempFile == null) {
+            inMemory = true;
+            source = new ByteArrayInputStream(memory.toByteArray());
+        } else {
+            source = new FileInputStream(tempFile);
+        }
+    }
+
+    /*
+     * called when the request has been processed
+     */
+    void release() {
+
+        if (!live) {
+            try {
+                source.close();
+            } catch (IOException e) {
+                /* ignore */
+            }
+        }
+        if (tempFile != null) {
+            tempFile.delete();
+            tempFile = null;
+        }
+    }
+
+    /*
+     * reads from the request while the part is live, and then from 
+     * wherever the rest of the part was written
+     */
+    private class PartInputStream extends InputStream {
+
+        private boolean closed;
+
+        @Override
+        public int read() throws IOException {
+            int b = source.read();
+            if (b != -1 && live) {
+                bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = source.read(b, off, len);
+            if (n > 0 && live) {
+                bytesRead += n;
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return source.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.util.Streams;
+
+/**
+ * A read-only view of the parameters of a multipart request that reads the
+ * parts of the request only as they are asked for. A form field's value is
+ * a String array, and a file's value is an UploadedFile whose InputStream 
+ * reads from the request for as long as possible.
+ * <p>
+ * A lookup reads parts until the requested one is found. After a form field,
+ * it keeps reading any form fields that follow, and stops at the next file, 
+ * which is left unread. Therefore, a form field that is repeated after a 
+ * file may be missing values that come after the file if it is looked up 
+ * before that file is. Iterating the view reads the entire request.
+ * <p>
+ * As with the buffered map, parameters that are not part of the request 
+ * body, such as from a query string, take precedence over the parts.
+ * <p>
+ * An instance of this class is meant to be used by a single request, and
+ * is not thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+class StreamingMultipartParameterMap extends AbstractMap<String, Object> {
+
+    /* the default encoding of form fields, as for the buffered map */
+    private static final String DEFAULT_CHARSET = "ISO-8859-1";
+    
+    private final HttpServletRequest req;
+    private final FileItemIterator items;
+    private final MultipartConfig config;
+    private final Map<String, Object> parts = new LinkedHashMap<String, Object>();
+    private final List<StreamedUploadedFile> files = new ArrayList<StreamedUploadedFile>();
+    private StreamedUploadedFile current;
+    private boolean exhausted;
+    private Map<String, Object> combined;
+
+    StreamingMultipartParameterMap(HttpServletRequest req, FileItemIterator items, 
+            MultipartConfig config) {
+
+        this.req = req;
+        this.items = items;
+        this.config = config;
+    }
+
+    @Override
+    public Object get(Object key) {
+
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String name = (String) key;
+        
+        Object val = req.getParameterValues(name);
+        if (val != null) {
+            return val;
+        }
+        
+        val = parts.get(name);
+        while (val == null && !exhausted) {
+            readNextPart();
+            val = parts.get(name);
+        }
+        
+        if (val instanceof String[]) {
+            /* collect any values that follow, up to the next file */
+            while (!exhausted && current == null) {
+                readNextPart();
+            }
+            val = parts.get(name);
+        }
+        return val;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+
+        return get(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<Map.Entry<String, Object>> entrySet() {
+
+        if (combined == null) {
+            while (!exhausted) {
+                readNextPart();
+            }
+            Map<String, Object> map = new LinkedHashMap<String, Object>(parts);
+            map.putAll(req.getParameterMap());
+            combined = Collections.unmodifiableMap(map);
+        }
+        return combined.entrySet();
+    }
+
+    /*
+     * deletes any temporary files created for the uploaded files
+     */
+    void release() {
+
+        for (StreamedUploadedFile file : files) {
+            file.release();
+        }
+    }
+
+    private void readNextPart() {
+
+        try {
+            
+            if (current != null) {
+                current.detach();
+                current = null;
+            }
+            
+            if (!items.hasNext()) {
+                exhausted = true;
+                return;
+            }
+            
+            FileItemStream item = items.next();
+            if (item.isFormField()) {
+                addFormField(item.getFieldName(), 
+                        Streams.asString(item.openStream(), getCharset()));
+            } else {
+                current = new StreamedUploadedFile(item.getName(), item.openStream(), 
+                        item.getContentType(), config);
+                files.add(current);
+                parts.put(item.getFieldName(), current);
+            }
+            
+        } catch (Exception e) {
+            throw new RuntimeException("error getting parameters from multipart request: ", e);
+        }
+    }
+
+    private void addFormField(String name, String value) {
+
+        /* handle multiple items with the same name; add to array */
+        Object existing = parts.get(name);
+        String[] valueArray;
+        if (existing instanceof String[]) {
+            String[] existingArray = (String[]) existing;
+            valueArray = new String[existingArray.length + 1];
+            System.arraycopy(existingArray, 0, valueArray, 0, existingArray.length);
+            valueArray[existingArray.length] = value;
+        } else {
+            valueArray = new String[] { value };
+        }
+        parts.put(name, valueArray);
+    }
+
+    private String getCharset() {
+
+        String charset = req.getCharacterEncoding();
+        return charset == null ? DEFAULT_CHARSET : charset;
+    }
+}
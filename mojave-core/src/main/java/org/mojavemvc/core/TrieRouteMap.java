@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import static org.mojavemvc.util.RouteHelper.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A RouteMap that organizes routes in a tree keyed by path segment, so that
+ * the cost of a lookup depends on the depth of the path rather than on the
+ * number of routes in the application.
+ * <p>
+ * At each segment, a static child is tried first, then a parameter child, and
+ * finally any routes whose remaining elements begin with a custom regex
+ * parameter. Those routes are matched against the rest of the path with a
+ * regular expression, since a custom regex may span more than one segment. If
+ * a branch does not lead to a route, the lookup backtracks and tries the next
+ * alternative. When two routes are equivalent, the first one added is kept.
+ * Path parameter values are bound as the segments are consumed, so a match 
+ * requires a single pass over the path.
+ * <p>
+ * Routes must all be added before the map is used for lookups; lookups on
+ * a fully built map are thread-safe.
+ *
+ * @author Luis Antunes
+ */
+public class TrieRouteMap implements RouteMap {
+
+    private final Node root = new Node();
+    private int maxParams;
+
+    public void add(Route route) {
+
+        String[] elements = getRouteElements(route.toString());
+        maxParams = Math.max(maxParams, route.pathParameterElements().size());
+        Node node = root;
+        for (int i = 0; i < elements.length; i++) {
+            String element = elements[i];
+            if (element.startsWith(PARAM_PREFIX)) {
+                if (getCustomRegex(element) != null) {
+                    node.addTail(new TailRoute(route, elements, i));
+                    return;
+                }
+                node = node.paramChild();
+            } else {
+                node = node.staticChild(element);
+            }
+        }
+        if (node.route == null) {
+            node.route = route;
+        }
+    }
+
+    public Route getRoute(String path) {
+
+        RouteMatch match = match(path);
+        return match == null ? null : match.getRoute();
+    }
+
+    public RouteMatch match(String path) {
+
+        if (path == null || !path.startsWith(PATH_ELEMENT_SEPARATOR)) {
+            return null;
+        }
+        String[] values = new String[maxParams];
+        /* the root path has no segments */
+        int start = path.length() == 1 ? -1 : 1;
+        Route route = find(root, path, start, values, 0);
+        if (route == null) {
+            return null;
+        }
+        int paramCount = route.pathParameterElements().size();
+        if (paramCount < values.length) {
+            values = Arrays.copyOf(values, paramCount);
+        }
+        return new RouteMatch(route, values);
+    }
+
+    /*
+     * start is the index of the first character of the current segment,
+     * or -1 if all segments of the path have been consumed; paramIdx is 
+     * the position in values of the next path parameter to bind
+     */
+    private Route find(Node node, String path, int start, 
+            String[] values, int paramIdx) {
+
+        if (start == -1) {
+            return node.route;
+        }
+
+        int end = path.indexOf(PATH_ELEMENT_SEPARATOR.charAt(0), start);
+        int next = end == -1 ? -1 : end + 1;
+        if (end == -1) {
+            end = path.length();
+        }
+
+        if (node.staticChildren != null) {
+            Node child = node.staticChildren.get(path.substring(start, end));
+            if (child != null) {
+                Route route = find(child, path, next, values, paramIdx);
+                if (route != null) return route;
+            }
+        }
+
+        if (node.paramChild != null && end > start) {
+            values[paramIdx] = path.substring(start, end);
+            Route route = find(node.paramChild, path, next, values, paramIdx + 1);
+            if (route != null) return route;
+        }
+
+        if (node.tails != null) {
+            for (TailRoute tail : node.tails) {
+                if (tail.bind(path, start, values, paramIdx)) {
+                    return tail.route;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static class Node {
+
+        private Route route;
+        private Map<String, Node> staticChildren;
+        private Node paramChild;
+        private List<TailRoute> tails;
+
+        private Node staticChild(String element) {
+            if (staticChildren == null) {
+                staticChildren = new HashMap<String, Node>();
+            }
+            Node child = staticChildren.get(element);
+            if (child == null) {
+                child = new Node();
+                staticChildren.put(element, child);
+            }
+            return child;
+        }
+
+        private Node paramChild() {
+            if (paramChild == null) {
+                paramChild = new Node();
+            }
+            return paramChild;
+        }
+
+        private void addTail(TailRoute tail) {
+            if (tails == null) {
+                tails = new ArrayList<TailRoute>();
+            }
+            if (!tails.contains(tail)) {
+                tails.add(tail);
+            }
+        }
+    }
+
+    private static class TailRoute {
+
+        private final Route route;
+        /*
+         * Pattern is immutable and safe for use by multiple
+         * concurrent threads
+         */
+        private final Pattern pattern;
+        private final int[] paramGroups;
+
+        private TailRoute(Route route, String[] elements, int from) {
+            this.route = route;
+            this.pattern = Pattern.compile(toRegex(elements, from));
+            this.paramGroups = getParamGroupIndices(elements, from);
+        }
+
+        private boolean bind(String path, int start, String[] values, int paramIdx) {
+            Matcher m = pattern.matcher(path).region(start, path.length());
+            if (!m.matches()) {
+                return false;
+            }
+            for (int i = 0; i < paramGroups.length; i++) {
+                values[paramIdx + i] = m.group(paramGroups[i]);
+            }
+            return true;
+        }
+
+        public int hashCode() {
+            return pattern.pattern().hashCode();
+        }
+
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof TailRoute)) return false;
+            return pattern.pattern().equals(((TailRoute) o).pattern.pattern());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.mojavemvc.views.HTTPHeader;
+
+/**
+ * A request without the conditional headers that can turn a response into 
+ * 304 Not Modified. A response shared by several requests is rendered with
+ * it, so that the shared response is always complete, and the conditional
+ * headers of each request are evaluated against the shared response.
+ * 
+ * @author Luis Antunes
+ */
+class UnconditionalRequest extends HttpServletRequestWrapper {
+
+    private static final String[] CONDITIONAL_HEADERS = { 
+        HTTPHeader.IF_NONE_MATCH, HTTPHeader.IF_MODIFIED_SINCE };
+
+    UnconditionalRequest(HttpServletRequest request) {
+
+        super(request);
+    }
+
+    @Override
+    public String getHeader(String name) {
+
+        return isConditional(name) ? null : super.getHeader(name);
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+
+        return isConditional(name) ? -1 : super.getDateHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+
+        if (isConditional(name)) {
+            return Collections.enumeration(Collections.<String>emptyList());
+        }
+        return super.getHeaders(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+
+        List<String> names = new ArrayList<String>();
+        Enumeration<String> en = super.getHeaderNames();
+        while (en != null && en.hasMoreElements()) {
+            String name = en.nextElement();
+            if (!isConditional(name)) {
+                names.add(name);
+            }
+        }
+        return Collections.enumeration(names);
+    }
+
+    private static boolean isConditional(String name) {
+
+        for (String header : CONDITIONAL_HEADERS) {
+            if (header.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
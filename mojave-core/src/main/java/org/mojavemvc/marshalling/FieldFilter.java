@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.marshalling;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+
+/**
+ * A sparse fieldset: the properties of a marshalled entity that a client
+ * asked for, with the <code>fields</code> request parameter of an action
+ * annotated with &#064;SparseFieldsets. The expression
+ * is a comma-separated list of property paths, where nested properties are
+ * separated by dots; <code>fields=id,author.name</code> selects the
+ * <code>id</code> property of the entity, and the <code>name</code> property
+ * of its <code>author</code>, leaving out all other properties. A property
+ * that is selected without any nested properties is written in full. The
+ * elements of arrays and collections are filtered like the property that
+ * holds them.
+ * <p>
+ * The properties are left out as the entity is serialized, so they are
+ * neither accessed nor written. Filters are parsed once per distinct
+ * expression, through {@link #of(String)}.
+ * <p>
+ * An instance of this class is immutable and thread-safe.
+ *
+ * @author Luis Antunes
+ */
+public final class FieldFilter extends SimpleBeanPropertyFilter {
+
+    /**
+     * The default name of the request parameter holding the fields 
+     * expression.
+     */
+    public static final String PARAMETER = "fields";
+
+    /**
+     * The id of the filter, which the {@link JacksonCodec} assigns to every
+     * bean it serializes with a FieldFilter.
+     */
+    static final String FILTER_ID = "org.mojavemvc.fields";
+
+    /*
+     * the expression is chosen by the client, so the cache is bounded;
+     * expressions beyond the bound are parsed on every request
+     */
+    static final int MAX_CACHED_EXPRESSIONS = 256;
+
+    private static final ConcurrentMap<String, FieldFilter> parsed =
+            new ConcurrentHashMap<String, FieldFilter>();
+
+    private final String expression;
+    private final Node root;
+    private final FilterProvider filterProvider;
+
+    private FieldFilter(String expression, Node root) {
+
+        this.expression = expression;
+        this.root = root;
+        this.filterProvider = new SimpleFilterProvider().addFilter(FILTER_ID, this);
+    }
+
+    /**
+     * Get the filter of the given expression.
+     *
+     * @param expression
+     *            the value of the fields parameter, or null
+     * @return the filter, or null if the expression does not name any
+     *         properties
+     */
+    public static FieldFilter of(String expression) {
+
+        if (expression == null) {
+            return null;
+        }
+        FieldFilter filter = parsed.get(expression);
+        if (filter == null) {
+            filter = parse(expression);
+            if (filter != null && parsed.size() < MAX_CACHED_EXPRESSIONS) {
+                FieldFilter existing = parsed.putIfAbsent(expression, filter);
+                if (existing != null) {
+                    filter = existing;
+                }
+            }
+        }
+        return filter;
+    }
+
+    static int getCachedExpressions() {
+
+        return parsed.size();
+    }
+
+    private static FieldFilter parse(String expression) {
+
+        Node root = new Node();
+        boolean empty = true;
+        for (String path : expression.split(",")) {
+            Node node = root;
+            boolean named = false;
+            for (String name : path.split("\\.")) {
+                name = name.trim();
+                if (name.length() == 0) {
+                    continue;
+                }
+                node = node.child(name);
+                named = true;
+            }
+            if (named) {
+                node.all = true;
+                empty = false;
+            }
+        }
+        return empty ? null : new FieldFilter(expression, root);
+    }
+
+    /**
+     * @return the expression the filter was parsed from
+     */
+    public String getExpression() {
+
+        return expression;
+    }
+
+    FilterProvider getFilterProvider() {
+
+        return filterProvider;
+    }
+
+    @Override
+    public void serializeAsField(Object pojo, JsonGenerator jgen, SerializerProvider provider,
+            PropertyWriter writer) throws Exception {
+
+        if (includes(jgen.getOutputContext(), writer.getName())) {
+            writer.serializeAsField(pojo, jgen, provider);
+        } else if (!jgen.canOmitFields()) {
+            writer.serializeAsOmittedField(pojo, jgen, provider);
+        }
+    }
+
+    @Override
+    protected boolean include(BeanPropertyWriter writer) {
+
+        return true;
+    }
+
+    @Override
+    protected boolean include(PropertyWriter writer) {
+
+        return true;
+    }
+
+    /*
+     * the context is that of the object whose property is being written
+     */
+    private boolean includes(JsonStreamContext context, String name) {
+
+        Node node = nodeOf(context);
+        return node != null && (node.all || node.children.containsKey(name));
+    }
+
+    /*
+     * walks up the enclosing objects, through any arrays, to find the node
+     * of the object written in the given context; the field name of an
+     * enclosing object is that of the value being written in it
+     */
+    private Node nodeOf(JsonStreamContext context) {
+
+        JsonStreamContext parent = context.getParent();
+        while (parent != null && parent.inArray()) {
+            parent = parent.getParent();
+        }
+        if (parent == null || parent.inRoot()) {
+            return root;
+        }
+        Node node = nodeOf(parent);
+        if (node == null || node.all) {
+            return node;
+        }
+        return node.children.get(parent.getCurrentName());
+    }
+
+    @Override
+    public String toString() {
+
+        return expression;
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<String, Node>();
+        private boolean all;
+
+        private Node child(String name) {
+
+            Node child = children.get(name);
+            if (child == null) {
+                child = new Node();
+                children.put(name, child);
+            }
+            return child;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.marshalling;
+
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * An entity marshaller that can unmarshall a request body holding a 
+ * sequence of entities one element at a time. The framework uses it when an 
+ * &#064;Entity parameter is declared as an Iterator&lt;T&gt; or an 
+ * Iterable&lt;T&gt;, so that the whole sequence never has to be held 
+ * in memory.
+ * 
+ * @author Luis Antunes
+ */
+public interface IncrementalEntityMarshaller extends EntityMarshaller {
+
+    /**
+     * Returns an Iterator that reads the elements of the request body as 
+     * it is advanced. The Iterator is only valid for the duration of the 
+     * &#064;Action method invocation, as it reads from the request body.
+     * 
+     * @param in the request body InputStream
+     * @param elementType the type of the elements of the sequence
+     * @return an Iterator over the unmarshalled elements
+     */
+    <T> Iterator<T> unmarshallElements(InputStream in, Class<T> elementType);
+}
@@ -16,38 +16,65 @@
 package org.mojavemvc.marshalling;
 
 import java.io.InputStream;
+import java.util.Iterator;
 
+import org.mojavemvc.marshalling.JacksonCodec.Format;
 import org.mojavemvc.views.JSON;
 import org.mojavemvc.views.View;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /**
+ * Marshalls entities to {@link JSON} views, and unmarshalls JSON request 
+ * bodies. A body holding a JSON array can also be unmarshalled one element
+ * at a time. The return value of an action can be marshalled with a
+ * {@link FieldFilter}, which the framework takes from the fields parameter
+ * of the request for &#064;SparseFieldsets actions, so that only the 
+ * properties a client asks for are written.
+ * 
  * @author Luis Antunes
  */
-public class JSONEntityMarshaller implements EntityMarshaller {
-    
-    /*
-     * ObjectMapper is thread-safe
-     */
-    private static final ObjectMapper mapper = new ObjectMapper();
+public class JSONEntityMarshaller extends JacksonEntityMarshaller 
+        implements IncrementalEntityMarshaller {
+
+    public JSONEntityMarshaller() {
+        this(JacksonCodec.getDefault());
+    }
     
-    private final EntityResolver entityResolver = new EntityResolver();
+    public JSONEntityMarshaller(JacksonCodec codec) {
+        super(codec, Format.JSON);
+    }
 
     @Override
-    public View marshall(Object entity) {
-        entity = entityResolver.resolve(entity);
-        return new JSON(entity);
+    protected View newView(Object entity) {
+        return newView(entity, null);
     }
-
+    
+    /**
+     * Creates the View of a resolved entity, which writes only the 
+     * properties selected by the given filter.
+     * 
+     * @param entity the entity, after it has been resolved
+     * @param fields the filter, or null to write all properties
+     * @return a View
+     */
+    protected View newView(Object entity, FieldFilter fields) {
+        return new JSON(entity, codec, fields);
+    }
+    
+    /**
+     * Marshall the entity, writing only the properties selected by the 
+     * given filter.
+     * 
+     * @param entity the entity
+     * @param fields the filter, or null to write all properties
+     * @return a View
+     */
+    public View marshall(Object entity, FieldFilter fields) {
+        return newView(resolve(entity), fields);
+    }
+    
     @Override
-    public <T> T unmarshall(InputStream in, Class<T> type) {
-
-        try {
-            return mapper.readValue(in, type);
-        } catch (Exception e) {
-            throw new RuntimeException("could not construct JSON View", e);
-        }
+    public <T> Iterator<T> unmarshallElements(InputStream in, Class<T> elementType) {
+        return unmarshallArrayElements(in, elementType);
     }
 
     @Override
@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.marshalling;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.mojavemvc.initialization.AppProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+
+/**
+ * The Jackson ObjectMappers used by the built-in Jackson views and entity 
+ * marshallers, one per format, along with the ObjectReaders and 
+ * ObjectWriters created from them, which are kept per type so that they 
+ * are not looked up and configured on every request.
+ * <p>
+ * The framework creates one codec during initialization, configured with 
+ * the jackson-modules and jackson-accelerator init-params, which it gives 
+ * to the built-in marshallers and binds in the Guice Injector. It can be 
+ * injected wherever the Injector is available, passed to the views, and 
+ * tuned in an Initializer, through {@link #registerModule(Module)} and 
+ * {@link #getMapper(Format)}. Jackson caches the serializers and 
+ * deserializers it creates, so modules can only be registered before the 
+ * codec is first used. The readers and writers for the types of 
+ * &#064;Entity parameters and of &#064;Returns actions are created, and 
+ * their serializers and deserializers resolved, when the controllers are 
+ * mapped, after the Initializers run.
+ * <p>
+ * Entities written with a {@link FieldFilter} are serialized by a copy of 
+ * the format's mapper, created when the first one is written, in which 
+ * every bean is filtered. The writers of the original mappers are left 
+ * unfiltered, so that requests without a filter do not pay for it.
+ * <p>
+ * The built-in views created without a codec use the codec of the 
+ * application, which they get from the {@link #PROPERTY} app property when 
+ * they are rendered. Views rendered without it, and marshallers created 
+ * without a codec, use the default codec, which is not configured with any
+ * modules, and cannot be.
+ * <p>
+ * An instance of this class is thread-safe.
+ * 
+ * @author Luis Antunes
+ */
+public class JacksonCodec {
+
+    private static final Logger logger = LoggerFactory.getLogger("org.mojavemvc");
+
+    public static final String KEY = JacksonCodec.class.getName();
+
+    /**
+     * The name of the app property holding the codec of the application.
+     */
+    public static final String PROPERTY = "mojavemvc.jackson-codec";
+
+    /**
+     * The class name of the Afterburner module, which replaces reflective 
+     * bean access with generated bytecode.
+     */
+    public static final String ACCELERATOR_MODULE = 
+            "com.fasterxml.jackson.module.afterburner.AfterburnerModule";
+
+    public enum Format {
+        JSON, XML, SMILE, CBOR
+    }
+
+    private static final JacksonCodec defaultCodec = newDefault();
+
+    /*
+     * the maps are filled in the constructor and only read afterwards
+     */
+    private final Map<Format, ObjectMapper> mappers = 
+            new EnumMap<Format, ObjectMapper>(Format.class);
+    private final Map<Format, ConcurrentMap<Class<?>, ObjectReader>> readers = 
+            new EnumMap<Format, ConcurrentMap<Class<?>, ObjectReader>>(Format.class);
+    private final Map<Format, ConcurrentMap<Class<?>, ObjectWriter>> writers = 
+            new EnumMap<Format, ConcurrentMap<Class<?>, ObjectWriter>>(Format.class);
+    
+    private final Map<Format, ObjectMapper> filteringMappers = 
+            new EnumMap<Format, ObjectMapper>(Format.class);
+    private final Map<Format, ConcurrentMap<Class<?>, ObjectWriter>> filteringWriters = 
+            new EnumMap<Format, ConcurrentMap<Class<?>, ObjectWriter>>(Format.class);
+    
+    private volatile boolean used;
+
+    public JacksonCodec() {
+
+        mappers.put(Format.JSON, new ObjectMapper());
+        mappers.put(Format.XML, new XmlMapper());
+        mappers.put(Format.SMILE, new ObjectMapper(new SmileFactory()));
+        mappers.put(Format.CBOR, new ObjectMapper(new CBORFactory()));
+        for (Format format : Format.values()) {
+            readers.put(format, new ConcurrentHashMap<Class<?>, ObjectReader>());
+            writers.put(format, new ConcurrentHashMap<Class<?>, ObjectWriter>());
+            filteringWriters.put(format, new ConcurrentHashMap<Class<?>, ObjectWriter>());
+        }
+    }
+
+    /*
+     * marked as used, so that no modules can be registered with it
+     */
+    private static JacksonCodec newDefault() {
+
+        JacksonCodec codec = new JacksonCodec();
+        codec.used = true;
+        return codec;
+    }
+
+    /**
+     * @return the codec used by the built-in views and marshallers when none
+     *         is given to them; it is not the codec of the application, 
+     *         which is bound in the Injector
+     */
+    public static JacksonCodec getDefault() {
+
+        return defaultCodec;
+    }
+
+    /**
+     * Get the codec a view renders through.
+     * 
+     * @param properties
+     *            the app properties, which may be null
+     * @return the codec of the application, or the default codec if the app
+     *         properties do not hold one
+     */
+    public static JacksonCodec of(AppProperties properties) {
+
+        Object codec = properties != null ? properties.getProperty(PROPERTY) : null;
+        return codec instanceof JacksonCodec ? (JacksonCodec) codec : defaultCodec;
+    }
+
+    /**
+     * Gets the ObjectMapper of the given format. A mapper should only be 
+     * configured during initialization, before it is used.
+     * 
+     * @param format the format
+     * @return the mapper
+     */
+    public ObjectMapper getMapper(Format format) {
+
+        return mappers.get(format);
+    }
+
+    /**
+     * Register the module with the mappers of all formats.
+     * 
+     * @param module the Jackson module
+     * @throws IllegalStateException if the codec has already been used
+     */
+    public void registerModule(Module module) {
+
+        if (used) {
+            throw new IllegalStateException("module " + module.getModuleName() 
+                    + " must be registered before the codec is used");
+        }
+        for (ObjectMapper mapper : mappers.values()) {
+            mapper.registerModule(module);
+        }
+    }
+
+    /**
+     * Register the Afterburner module, if it is on the classpath.
+     * 
+     * @return true if the module was registered
+     */
+    public boolean registerAccelerator() {
+
+        Class<?> moduleClass;
+        try {
+            moduleClass = Class.forName(ACCELERATOR_MODULE, true, JacksonCodec.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+        try {
+            registerModule((Module) moduleClass.newInstance());
+        } catch (Exception e) {
+            throw new RuntimeException("could not register " + ACCELERATOR_MODULE, e);
+        }
+        return true;
+    }
+
+    /*
+     * read before written, so that the hot path does not keep writing to a
+     * shared volatile field
+     */
+    private void markUsed() {
+
+        if (!used) {
+            used = true;
+        }
+    }
+
+    public ObjectReader readerFor(Format format, Class<?> type) {
+
+        markUsed();
+        ConcurrentMap<Class<?>, ObjectReader> formatReaders = readers.get(format);
+        ObjectReader reader = formatReaders.get(type);
+        if (reader == null) {
+            reader = mappers.get(format).reader(type);
+            ObjectReader existing = formatReaders.putIfAbsent(type, reader);
+            if (existing != null) {
+                reader = existing;
+            }
+        }
+        return reader;
+    }
+
+    public ObjectWriter writerFor(Format format, Class<?> type) {
+
+        markUsed();
+        ConcurrentMap<Class<?>, ObjectWriter> formatWriters = writers.get(format);
+        ObjectWriter writer = formatWriters.get(type);
+        if (writer == null) {
+            writer = mappers.get(format).writerWithType(type);
+            ObjectWriter existing = formatWriters.putIfAbsent(type, writer);
+            if (existing != null) {
+                writer = existing;
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Gets the writer for the runtime type of the given value.
+     */
+    public ObjectWriter writerForValue(Format format, Object value) {
+
+        return writerFor(format, value == null ? Object.class : value.getClass());
+    }
+
+    /**
+     * Gets the writer for the runtime type of the given value, which writes
+     * only the properties selected by the given filter.
+     * 
+     * @param format the format
+     * @param value the value to be written
+     * @param fields the filter, or null to write all properties
+     * @return the writer
+     */
+    public ObjectWriter writerForValue(Format format, Object value, FieldFilter fields) {
+
+        if (fields == null) {
+            return writerForValue(format, value);
+        }
+        markUsed();
+        Class<?> type = value == null ? Object.class : value.getClass();
+        ConcurrentMap<Class<?>, ObjectWriter> formatWriters = filteringWriters.get(format);
+        ObjectWriter writer = formatWriters.get(type);
+        if (writer == null) {
+            writer = getFilteringMapper(format).writerWithType(type);
+            ObjectWriter existing = formatWriters.putIfAbsent(type, writer);
+            if (existing != null) {
+                writer = existing;
+            }
+        }
+        return writer.with(fields.getFilterProvider());
+    }
+
+    private ObjectMapper getFilteringMapper(Format format) {
+
+        synchronized (filteringMappers) {
+            ObjectMapper mapper = filteringMappers.get(format);
+            if (mapper == null) {
+                ObjectMapper original = mappers.get(format);
+                mapper = original.copy();
+                mapper.setAnnotationIntrospector(AnnotationIntrospector.pair(
+                        new FieldFilterIntrospector(), 
+                        original.getSerializationConfig().getAnnotationIntrospector()));
+                filteringMappers.put(format, mapper);
+            }
+            return mapper;
+        }
+    }
+
+    /**
+     * Create the reader and the writer of the given type, and resolve its
+     * serializer and deserializer, so that the first request that uses them
+     * does not pay for their construction.
+     * 
+     * @param format the format
+     * @param type the type of an entity
+     */
+    public void prewarm(Format format, Class<?> type) {
+
+        if (type == null || type == Void.TYPE || type.isPrimitive()) {
+            return;
+        }
+        ObjectMapper mapper = mappers.get(format);
+        try {
+            readerFor(format, type);
+            writerFor(format, type);
+            mapper.canSerialize(type);
+            if (!type.isInterface()) {
+                mapper.canDeserialize(mapper.constructType(type));
+            }
+        } catch (Exception e) {
+            logger.debug("could not prewarm " + format + " codec for " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Create a generator of the given format, which encodes text as UTF-8
+     * and leaves the target stream open when it is closed.
+     */
+    public JsonGenerator newGenerator(Format format, OutputStream out) throws IOException {
+
+        markUsed();
+        JsonGenerator generator = mappers.get(format).getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    public JsonParser newParser(Format format, InputStream in) throws IOException {
+
+        markUsed();
+        return mappers.get(format).getFactory().createParser(in);
+    }
+
+    /*
+     * assigns the FieldFilter's id to every bean, taking precedence over 
+     * any @JsonFilter annotation
+     */
+    @SuppressWarnings("serial")
+    private static class FieldFilterIntrospector extends NopAnnotationIntrospector {
+
+        @Override
+        public Object findFilterId(Annotated a) {
+            return a instanceof AnnotatedClass ? FieldFilter.FILTER_ID : null;
+        }
+    }
+}
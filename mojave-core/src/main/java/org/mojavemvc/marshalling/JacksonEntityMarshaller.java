@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.marshalling;
+
+import java.io.InputStream;
+import java.util.Iterator;
+
+import org.mojavemvc.marshalling.JacksonCodec.Format;
+import org.mojavemvc.views.View;
+
+/**
+ * The base class of the built-in entity marshallers that use Jackson. Its 
+ * readers and writers come from a {@link JacksonCodec}; the framework 
+ * gives the built-in marshallers the codec of the application, and the 
+ * default codec is used when none is given.
+ * 
+ * @author Luis Antunes
+ */
+public abstract class JacksonEntityMarshaller implements EntityMarshaller {
+
+    protected final JacksonCodec codec;
+    private final Format format;
+    private final EntityResolver entityResolver = new EntityResolver();
+
+    protected JacksonEntityMarshaller(JacksonCodec codec, Format format) {
+
+        this.codec = codec;
+        this.format = format;
+    }
+
+    /**
+     * Creates the View of a resolved entity.
+     * 
+     * @param entity the entity, after it has been resolved
+     * @return a View
+     */
+    protected abstract View newView(Object entity);
+
+    public Format getFormat() {
+
+        return format;
+    }
+
+    /**
+     * Prepare the reader and writer of the given type in the codec. The
+     * framework calls this method for the types of the &#064;Entity 
+     * parameters and &#064;Returns actions this marshaller is used for.
+     * 
+     * @param type the entity type
+     */
+    public void prewarm(Class<?> type) {
+
+        codec.prewarm(format, type);
+    }
+
+    @Override
+    public View marshall(Object entity) {
+        return newView(resolve(entity));
+    }
+    
+    protected Object resolve(Object entity) {
+        return entityResolver.resolve(entity);
+    }
+
+    @Override
+    public <T> T unmarshall(InputStream in, Class<T> type) {
+
+        try {
+            return codec.readerFor(format, type).<T>readValue(in);
+        } catch (Exception e) {
+            throw new RuntimeException("could not unmarshall " + format + " entity", e);
+        }
+    }
+
+    /**
+     * Reads the elements of an array in the request body one at a time, for 
+     * subclasses that are {@link IncrementalEntityMarshaller}s.
+     */
+    protected <T> Iterator<T> unmarshallArrayElements(InputStream in, Class<T> elementType) {
+
+        try {
+            return new JsonElementIterator<T>(codec.newParser(format, in), 
+                    codec.readerFor(format, elementType));
+        } catch (Exception e) {
+            throw new RuntimeException("could not unmarshall " + format + " array", e);
+        }
+    }
+}
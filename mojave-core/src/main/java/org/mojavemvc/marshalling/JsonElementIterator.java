@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.marshalling;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Reads the elements of an array from a Jackson parser one at a time, in any
+ * of the formats Jackson parses, such as JSON, Smile or CBOR. The parser
+ * is positioned on the next element's first token between calls, and is 
+ * closed once the end of the array is reached. A body that ends before the
+ * array is closed is an error, rather than the end of the elements.
+ * 
+ * @author Luis Antunes
+ */
+class JsonElementIterator<T> implements Iterator<T> {
+
+    private final JsonParser parser;
+    private final ObjectReader reader;
+    private JsonToken next;
+
+    JsonElementIterator(JsonParser parser, ObjectReader reader) throws IOException {
+
+        this.parser = parser;
+        this.reader = reader;
+        
+        JsonToken first = parser.nextToken();
+        if (first == null) {
+            /* an empty body is an empty sequence */
+            parser.close();
+        } else if (first != JsonToken.START_ARRAY) {
+            parser.close();
+            throw new IOException("expected an array but found " + first);
+        } else {
+            advance();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        try {
+            T element = reader.<T>readValue(parser);
+            advance();
+            return element;
+        } catch (IOException e) {
+            throw new RuntimeException("could not unmarshall array element", e);
+        }
+    }
+
+    @Override
+    public void remove() {
+
+        throw new UnsupportedOperationException();
+    }
+
+    private void advance() throws IOException {
+
+        next = parser.nextToken();
+        if (next == JsonToken.END_ARRAY) {
+            next = null;
+            parser.close();
+        } else if (next == null) {
+            /* a truncated body must not pass for a complete array */
+            parser.close();
+            throw new IOException("the array ended without its close marker");
+        }
+    }
+}
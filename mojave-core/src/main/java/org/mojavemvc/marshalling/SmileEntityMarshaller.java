@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.marshalling;
+
+import java.io.InputStream;
+import java.util.Iterator;
+
+import org.mojavemvc.marshalling.JacksonCodec.Format;
+import org.mojavemvc.views.Smile;
+import org.mojavemvc.views.View;
+
+/**
+ * Marshalls entities to {@link Smile} views, and unmarshalls request bodies 
+ * in the binary Smile format. A body holding an array can also be 
+ * unmarshalled one element at a time.
+ * 
+ * @author Luis Antunes
+ */
+public class SmileEntityMarshaller extends JacksonEntityMarshaller 
+        implements IncrementalEntityMarshaller {
+
+    public SmileEntityMarshaller() {
+        this(JacksonCodec.getDefault());
+    }
+    
+    public SmileEntityMarshaller(JacksonCodec codec) {
+        super(codec, Format.SMILE);
+    }
+
+    @Override
+    protected View newView(Object entity) {
+        return new Smile(entity, codec);
+    }
+    
+    @Override
+    public <T> Iterator<T> unmarshallElements(InputStream in, Class<T> elementType) {
+        return unmarshallArrayElements(in, elementType);
+    }
+
+    @Override
+    public String[] contentTypesHandled() {
+        return new String[]{"application/x-jackson-smile"};
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.marshalling;
+
+import org.mojavemvc.views.StreamingJSON;
+import org.mojavemvc.views.View;
+
+/**
+ * Marshalls entities to {@link StreamingJSON} views, which serialize the 
+ * entity directly to the response as it is rendered. Unmarshalling is
+ * the same as that of {@link JSONEntityMarshaller}.
+ * 
+ * @author Luis Antunes
+ */
+public class StreamingJSONEntityMarshaller extends JSONEntityMarshaller {
+
+    public StreamingJSONEntityMarshaller() {
+        this(JacksonCodec.getDefault());
+    }
+    
+    public StreamingJSONEntityMarshaller(JacksonCodec codec) {
+        super(codec);
+    }
+
+    @Override
+    protected View newView(Object entity, FieldFilter fields) {
+        return new StreamingJSON(entity, codec, fields);
+    }
+}
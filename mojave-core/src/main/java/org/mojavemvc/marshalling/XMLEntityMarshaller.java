@@ -15,38 +15,26 @@
  */
 package org.mojavemvc.marshalling;
 
-import java.io.InputStream;
-
+import org.mojavemvc.marshalling.JacksonCodec.Format;
 import org.mojavemvc.views.View;
 import org.mojavemvc.views.XML;
 
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
-
 /**
  * @author Luis Antunes
  */
-public class XMLEntityMarshaller implements EntityMarshaller {
+public class XMLEntityMarshaller extends JacksonEntityMarshaller {
 
-    /*
-     * XmlMapper is thread-safe
-     */
-    private static final XmlMapper mapper = new XmlMapper();
-    
-    private final EntityResolver entityResolver = new EntityResolver();
+    public XMLEntityMarshaller() {
+        this(JacksonCodec.getDefault());
+    }
     
-    @Override
-    public View marshall(Object entity) {
-        entity = entityResolver.resolve(entity);
-        return new XML(entity);
+    public XMLEntityMarshaller(JacksonCodec codec) {
+        super(codec, Format.XML);
     }
-
+    
     @Override
-    public <T> T unmarshall(InputStream in, Class<T> type) {
-        try {
-            return mapper.readValue(in, type);
-        } catch (Exception e) {
-            throw new RuntimeException("could not construct XML View", e);
-        }
+    protected View newView(Object entity) {
+        return new XML(entity, codec);
     }
 
     @Override
@@ -17,8 +17,10 @@
 
 import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -52,6 +54,114 @@ public static String[] getPathElements(String path) {
         return path.substring(1).split(PATH_ELEMENT_SEPARATOR);
     }
     
+    /**
+     * Splits a route string, such as "/cntrl/actn/:id&lt;[0-9]+&gt;", into its
+     * elements. Unlike {@link #getPathElements(String)}, a separator that 
+     * appears inside a custom regex does not start a new element. The root 
+     * route "/" has no elements.
+     * 
+     * @param route
+     *            the route string, beginning with a separator
+     * @return the route elements
+     */
+    public static String[] getRouteElements(String route) {
+        if (route == null) throw new IllegalArgumentException("route cannot be null");
+        route = route.trim();
+        if (route.length() == 0) throw new IllegalArgumentException("route cannot be empty");
+        
+        List<String> elements = new ArrayList<String>();
+        if (route.length() > 1) {
+            boolean inCustomRegion = false;
+            int start = 1;
+            for (int i = 1; i < route.length(); i++) {
+                char ch = route.charAt(i);
+                if (ch == CUSTOM_REGEX_START) {
+                    inCustomRegion = true;
+                } else if (ch == CUSTOM_REGEX_END) {
+                    inCustomRegion = false;
+                } else if (ch == PATH_ELEMENT_SEPARATOR.charAt(0) && !inCustomRegion) {
+                    elements.add(route.substring(start, i));
+                    start = i + 1;
+                }
+            }
+            elements.add(route.substring(start));
+        }
+        return elements.toArray(new String[elements.size()]);
+    }
+    
+    /**
+     * Builds the regular expression for the given route elements, starting 
+     * at the given index. Each parameter element becomes a capturing group, 
+     * and the remaining elements are escaped. The expression is not anchored.
+     * 
+     * @param elements
+     *            the route elements, as returned by {@link #getRouteElements(String)}
+     * @param from
+     *            the index of the first element to include
+     * @return the regular expression
+     */
+    public static String toRegex(String[] elements, int from) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = from; i < elements.length; i++) {
+            if (i > from) regex.append(PATH_ELEMENT_SEPARATOR);
+            String element = elements[i];
+            if (element.startsWith(PARAM_PREFIX)) {
+                String customRegex = getCustomRegex(element);
+                if (customRegex == null) {
+                    regex.append("([^").append(PATH_ELEMENT_SEPARATOR).append("]+)");
+                } else {
+                    regex.append("(").append(customRegex).append(")");
+                }
+            } else {
+                regex.append(escapeNonCustomRegex(element));
+            }
+        }
+        return regex.toString();
+    }
+    
+    /**
+     * Returns, for each parameter element from the given index onwards, the 
+     * index of its capturing group in the expression built by 
+     * {@link #toRegex(String[], int)}. Groups declared inside a custom regex
+     * are taken into account.
+     * 
+     * @param elements
+     *            the route elements, as returned by {@link #getRouteElements(String)}
+     * @param from
+     *            the index of the first element to include
+     * @return the group indices, in the order of the parameter elements
+     */
+    public static int[] getParamGroupIndices(String[] elements, int from) {
+        List<Integer> indices = new ArrayList<Integer>();
+        int group = 1;
+        for (int i = from; i < elements.length; i++) {
+            String element = elements[i];
+            if (element.startsWith(PARAM_PREFIX)) {
+                indices.add(group);
+                group++;
+                String customRegex = getCustomRegex(element);
+                if (customRegex != null) {
+                    group += Pattern.compile(customRegex).matcher("").groupCount();
+                }
+            }
+        }
+        int[] groups = new int[indices.size()];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = indices.get(i);
+        }
+        return groups;
+    }
+    
+    /**
+     * Returns the custom regex of a parameter element, such as "[0-9]+" for 
+     * ":id&lt;[0-9]+&gt;", or null if the element has none.
+     */
+    public static String getCustomRegex(String element) {
+        int start = element.indexOf(CUSTOM_REGEX_START);
+        if (start == -1) return null;
+        return element.substring(start + 1, element.lastIndexOf(CUSTOM_REGEX_END));
+    }
+    
     public static String escapeNonCustomRegex(String path) {
         /*
          * TODO replace with a regular expression
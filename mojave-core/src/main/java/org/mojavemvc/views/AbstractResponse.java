@@ -80,6 +80,12 @@ public T withContentLocation(String contentLocation) {
         return self();
     }
     
+    @Override
+    public T withAutoTag() {
+        super.withAutoTag();
+        return self();
+    }
+    
     public T withTag(String tag) {
         headers.put(HTTPHeader.ETAG, tag);
         return self();
@@ -123,10 +129,16 @@ public String getHeaderValue(String headerName) {
     /**
      * @return the HTTP status code
      */
+    @Override
     public int getStatus() {
         return status;
     }
     
+    @Override
+    protected String getTag() {
+        return headers.get(HTTPHeader.ETAG);
+    }
+    
     @Override
     public String getContentType() {
         return contentType;
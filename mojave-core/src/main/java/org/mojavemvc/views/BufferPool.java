@@ -0,0 +1,437 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.views;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mojavemvc.initialization.AppProperties;
+
+/**
+ * A pool of the fixed-size buffers the built-in views write their responses
+ * through, which can also be used by custom View implementations. A buffer
+ * is acquired, used while a response is written, and released back to the
+ * pool, so that rendering a view does not allocate a new buffer.
+ * <p>
+ * Released buffers go to a bounded queue shared by all threads. When the
+ * queue is full, a thread that acquired from the pool keeps the buffer it
+ * releases, and takes it back on its next acquisition without any 
+ * synchronization. Buffers are not kept by virtual threads, nor by threads 
+ * that acquired none, such as those of an executor that completes 
+ * asynchronous requests, so that a thread that is about to end takes no 
+ * buffer with it while the queue has room. A buffer is only allocated when 
+ * both are empty, and a buffer released when both are full is left to the 
+ * garbage collector.
+ * <p>
+ * The pool also holds ByteBuffers of the same size, for views that write to
+ * channels. They are direct ByteBuffers if the pool is created with
+ * <code>direct</code> set, which spares a copy when they are written to a
+ * channel, and heap ByteBuffers otherwise.
+ * <p>
+ * The framework creates one pool per application during initialization, 
+ * configured with the buffer-size, buffer-pool-size and direct-buffers 
+ * init-params. It is bound in the Guice Injector, and given to views 
+ * through the {@link #PROPERTY} app property; views rendered without it 
+ * use the default pool. The number of acquisitions and allocations of the
+ * pool show how many buffers it has spared.
+ * <p>
+ * An instance of this class is thread-safe.
+ *
+ * @author Luis Antunes
+ */
+public class BufferPool {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 8;
+
+    public static final int DEFAULT_MAX_POOLED = 64;
+
+    public static final String KEY = BufferPool.class.getName();
+
+    /**
+     * The name of the app property holding the pool of the application.
+     */
+    public static final String PROPERTY = "mojavemvc.buffer-pool";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final BufferPool defaultPool = new BufferPool();
+
+    /* Thread.isVirtual, on the JDKs that have virtual threads */
+    private static final Method IS_VIRTUAL = getIsVirtual();
+
+    private final int bufferSize;
+    private final boolean direct;
+
+    /*
+     * a plain ThreadLocal, rather than a subclass, so that a thread 
+     * outliving the webapp does not hold on to its class loader
+     */
+    private final ThreadLocal<LocalBuffers> localBuffers = new ThreadLocal<LocalBuffers>();
+    private final BlockingQueue<byte[]> buffers;
+    private final BlockingQueue<ByteBuffer> byteBuffers;
+
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    public BufferPool() {
+
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED, false);
+    }
+
+    /**
+     * @param bufferSize
+     *            the size of the pooled buffers
+     * @param maxPooled
+     *            the number of buffers kept in the shared queue, in
+     *            addition to the one each thread may keep when it is full
+     * @param direct
+     *            whether the pooled ByteBuffers are direct
+     */
+    public BufferPool(int bufferSize, int maxPooled, boolean direct) {
+
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        if (maxPooled <= 0) {
+            throw new IllegalArgumentException("maxPooled must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.buffers = new ArrayBlockingQueue<byte[]>(maxPooled);
+        this.byteBuffers = new ArrayBlockingQueue<ByteBuffer>(maxPooled);
+    }
+
+    /**
+     * Get the pool a view renders through.
+     * 
+     * @param properties
+     *            the app properties, which may be null
+     * @return the pool of the application, or the default pool if the app
+     *         properties do not hold one
+     */
+    public static BufferPool of(AppProperties properties) {
+
+        Object pool = properties != null ? properties.getProperty(PROPERTY) : null;
+        return pool instanceof BufferPool ? (BufferPool) pool : defaultPool;
+    }
+
+    public int getBufferSize() {
+
+        return bufferSize;
+    }
+
+    public boolean isDirect() {
+
+        return direct;
+    }
+
+    /**
+     * Acquire a buffer of the pool's buffer size. It must be released once
+     * it is no longer used, and not used after it is released.
+     *
+     * @return a buffer, whose contents are undefined
+     */
+    public byte[] acquire() {
+
+        acquisitions.incrementAndGet();
+        LocalBuffers local = getLocalBuffers();
+        byte[] buffer = local.buffer;
+        if (buffer != null) {
+            local.buffer = null;
+            return buffer;
+        }
+        buffer = buffers.poll();
+        if (buffer == null) {
+            buffer = allocate(bufferSize);
+        }
+        return buffer;
+    }
+
+    /**
+     * Acquire a buffer of at least the given size. Buffers larger than the
+     * pool's buffer size are allocated, and are not kept when released.
+     *
+     * @param minSize
+     *            the minimum size of the buffer
+     * @return a buffer, whose contents are undefined
+     */
+    public byte[] acquire(int minSize) {
+
+        if (minSize <= bufferSize) {
+            return acquire();
+        }
+        acquisitions.incrementAndGet();
+        return allocate(minSize);
+    }
+
+    private LocalBuffers getLocalBuffers() {
+
+        LocalBuffers local = localBuffers.get();
+        if (local == null) {
+            local = new LocalBuffers(isVirtual(Thread.currentThread()));
+            localBuffers.set(local);
+        }
+        return local;
+    }
+
+    private static Method getIsVirtual() {
+
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) {
+
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private byte[] allocate(int size) {
+
+        allocations.incrementAndGet();
+        allocatedBytes.addAndGet(size);
+        return new byte[size];
+    }
+
+    /**
+     * Return a buffer acquired from this pool.
+     *
+     * @param buffer
+     *            the buffer, which may be null
+     */
+    public void release(byte[] buffer) {
+
+        if (buffer == null || buffer.length != bufferSize) {
+            return;
+        }
+        if (buffers.offer(buffer)) {
+            return;
+        }
+        LocalBuffers local = localBuffers.get();
+        if (local != null && !local.virtual && local.buffer == null) {
+            local.buffer = buffer;
+        }
+    }
+
+    /**
+     * Acquire a ByteBuffer of the pool's buffer size, which is direct if
+     * the pool is. It must be released once it is no longer used, and not
+     * used after it is released.
+     *
+     * @return a cleared ByteBuffer
+     */
+    public ByteBuffer acquireByteBuffer() {
+
+        acquisitions.incrementAndGet();
+        LocalBuffers local = getLocalBuffers();
+        ByteBuffer buffer = local.byteBuffer;
+        if (buffer != null) {
+            local.byteBuffer = null;
+            return buffer;
+        }
+        buffer = byteBuffers.poll();
+        if (buffer == null) {
+            allocations.incrementAndGet();
+            allocatedBytes.addAndGet(bufferSize);
+            buffer = direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        }
+        return buffer;
+    }
+
+    /**
+     * Return a ByteBuffer acquired from this pool.
+     *
+     * @param buffer
+     *            the ByteBuffer, which may be null
+     */
+    public void release(ByteBuffer buffer) {
+
+        if (buffer == null || buffer.capacity() != bufferSize || buffer.isDirect() != direct) {
+            return;
+        }
+        buffer.clear();
+        if (byteBuffers.offer(buffer)) {
+            return;
+        }
+        LocalBuffers local = localBuffers.get();
+        if (local != null && !local.virtual && local.byteBuffer == null) {
+            local.byteBuffer = buffer;
+        }
+    }
+
+    /**
+     * Copy the contents of the InputStream to the OutputStream through a
+     * pooled buffer. Neither stream is closed.
+     *
+     * @param in
+     *            the InputStream
+     * @param out
+     *            the OutputStream
+     * @return the number of bytes copied
+     */
+    public long copy(InputStream in, OutputStream out) throws IOException {
+
+        return copy(in, out, bufferSize);
+    }
+
+    /**
+     * Copy the contents of the InputStream to the OutputStream, reading at
+     * most the given number of bytes at a time. Neither stream is closed.
+     */
+    public long copy(InputStream in, OutputStream out, int readSize) throws IOException {
+
+        byte[] buffer = acquire(readSize);
+        try {
+            long count = 0;
+            int n;
+            while (-1 != (n = in.read(buffer, 0, readSize))) {
+                out.write(buffer, 0, n);
+                count += n;
+            }
+            return count;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * Encode the text as UTF-8 through a pooled buffer, and write it to the
+     * OutputStream, without creating the encoded form of the whole text.
+     * Malformed surrogates are replaced, as they are by String.getBytes.
+     *
+     * @param text
+     *            the text
+     * @param out
+     *            the OutputStream, which is not closed
+     */
+    public void writeUTF8(CharSequence text, OutputStream out) throws IOException {
+
+        CharsetEncoder encoder = UTF8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.wrap(text);
+        byte[] buffer = acquire();
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer);
+            while (encoder.encode(chars, bytes, true).isOverflow()) {
+                out.write(buffer, 0, bytes.position());
+                bytes.clear();
+            }
+            while (encoder.flush(bytes).isOverflow()) {
+                out.write(buffer, 0, bytes.position());
+                bytes.clear();
+            }
+            out.write(buffer, 0, bytes.position());
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * Get the length of the text encoded as UTF-8, with malformed
+     * surrogates replaced as they are by {@link #writeUTF8}.
+     */
+    public static int utf8Length(CharSequence text) {
+
+        int length = 0;
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return the number of buffers and ByteBuffers acquired from the pool
+     */
+    public long getAcquisitions() {
+
+        return acquisitions.get();
+    }
+
+    /**
+     * @return the number of acquisitions that allocated a new buffer
+     */
+    public long getAllocations() {
+
+        return allocations.get();
+    }
+
+    /**
+     * @return the number of bytes allocated for new buffers
+     */
+    public long getAllocatedBytes() {
+
+        return allocatedBytes.get();
+    }
+
+    /**
+     * @return the fraction of acquisitions that reused a pooled buffer, or
+     *         0 if there were none
+     */
+    public double getReuseRatio() {
+
+        long total = acquisitions.get();
+        return total == 0 ? 0 : (double) (total - allocations.get()) / total;
+    }
+
+    /*
+     * the buffers kept by a thread, used only by that thread
+     */
+    private static class LocalBuffers {
+
+        private final boolean virtual;
+        private byte[] buffer;
+        private ByteBuffer byteBuffer;
+
+        private LocalBuffers(boolean virtual) {
+            this.virtual = virtual;
+        }
+    }
+}
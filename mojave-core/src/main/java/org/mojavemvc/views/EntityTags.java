@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.views;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Creates entity tags from payloads, and evaluates the If-None-Match header
+ * of a request against them. Tags are created with the 64-bit FNV-1a hash of
+ * the payload, which is fast, but not cryptographic; it is meant to detect
+ * changes to a representation, not to resist tampering.
+ * 
+ * @author Luis Antunes
+ */
+public final class EntityTags {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private EntityTags() {
+    }
+
+    /**
+     * Create a strong entity tag for the given payload.
+     * 
+     * @param payload
+     *            the payload
+     * @return the quoted entity tag
+     */
+    public static String newTag(byte[] payload) {
+
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < payload.length; i++) {
+            hash ^= payload[i] & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return "\"" + Long.toHexString(hash) + "-" + Integer.toHexString(payload.length) + "\"";
+    }
+
+    /**
+     * Determine whether the If-None-Match header of the request matches the
+     * given tag, in which case the request should be answered with 304 Not
+     * Modified. Tags are compared with the weak comparison function.
+     * 
+     * @param request
+     *            the request
+     * @param tag
+     *            the quoted entity tag of the current representation, or null
+     * @return true if the request has an If-None-Match header that matches
+     */
+    public static boolean matches(HttpServletRequest request, String tag) {
+
+        if (tag == null) {
+            return false;
+        }
+        String ifNoneMatch = request.getHeader(HTTPHeader.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = opaque(tag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || opaque(candidate).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -20,11 +20,15 @@
  */
 public interface HTTPHeader {
 
+    public static final String ACCEPT = "Accept";
     public static final String CONTENT_LANGUAGE = "Content-Language";
     public static final String CONTENT_LOCATION = "Content-Location";
     public static final String CONTENT_ENCODING = "Content-Encoding";
     public static final String ETAG = "ETag";
     public static final String EXPIRES = "Expires";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String IF_NONE_MATCH = "If-None-Match";
     public static final String LAST_MODIFIED = "Last-Modified";
     public static final String LOCATION = "Location";
+    public static final String VARY = "Vary";
 }
@@ -29,8 +29,8 @@
  * An instance of this class obtains the servlet's OutputStream, and copies 
  * the contents of the supplied InputStream to that stream. It sets the content type and 
  * content length (if available) before writing the content to the stream. It copies the
- * contents using a buffer. This class is suitable for returning larger entities, such
- * as files.
+ * contents using a buffer of the application's {@link BufferPool}. This class is suitable for 
+ * returning larger entities, such as files.
  * 
  * @author Luis Antunes
  */
@@ -40,7 +40,7 @@ public class InputStreamView implements View {
     private final String contentType;
     
     private int contentLength = -1;
-    private int bufferSize = 1024 * 4;
+    private int bufferSize = -1;
     
     public InputStreamView(InputStream in, String contentType) {
         if (in == null) {
@@ -61,7 +61,8 @@ public void setContentLength(int contentLength) {
     
     /**
      * Set the buffer size to use a different buffer size
-     * from the default (1024 * 4).
+     * from that of the application's BufferPool. Buffers larger 
+     * than the pool's are not pooled.
      * 
      * @param bufferSize
      */
@@ -82,10 +83,11 @@ public void render(HttpServletRequest request, HttpServletResponse response,
         }
         
         OutputStream out = response.getOutputStream();
-        byte[] buffer = new byte[bufferSize];
-        int n = 0;
-        while (-1 != (n = in.read(buffer))) {
-            out.write(buffer, 0, n);
+        BufferPool pool = BufferPool.of(properties);
+        if (bufferSize == -1) {
+            pool.copy(in, out);
+        } else {
+            pool.copy(in, out, bufferSize);
         }
     }
 }
@@ -15,20 +15,38 @@
  */
 package org.mojavemvc.views;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mojavemvc.initialization.AppProperties;
+import org.mojavemvc.marshalling.FieldFilter;
+import org.mojavemvc.marshalling.JacksonCodec;
+import org.mojavemvc.marshalling.JacksonCodec.Format;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
+ * A view of a JSON payload, given as text or serialized from an entity. An
+ * entity given with a codec is serialized when the view is constructed. An
+ * entity given without one is serialized with the codec of the application
+ * when the view is rendered, and with the default codec when its payload is
+ * obtained otherwise.
+ * 
  * @author Luis Antunes
  */
 public class JSON extends StreamView {
 
-    /*
-     * ObjectMapper is thread-safe
-     */
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Charset UTF8 = Charset.forName("UTF-8");
     
     private String payload;
+    
+    /* the entity to serialize when rendered, if given without a codec */
+    private Object pojo;
+    private FieldFilter fields;
 
     public JSON(String payload) {
 
@@ -37,12 +55,53 @@ public JSON(String payload) {
     
     public JSON(Object pojo) {
         
+        this(pojo, null, null);
+    }
+    
+    public JSON(Object pojo, JacksonCodec codec) {
+        
+        this(pojo, codec, null);
+    }
+    
+    /**
+     * @param pojo the entity
+     * @param codec the codec, or null to use the codec of the application
+     * @param fields the properties of the entity to write, or null to write
+     *        all of them
+     */
+    public JSON(Object pojo, JacksonCodec codec, FieldFilter fields) {
+        
+        if (codec == null) {
+            this.pojo = pojo;
+            this.fields = fields;
+        } else {
+            payload = serialize(pojo, codec, fields);
+        }
+    }
+    
+    private static String serialize(Object pojo, JacksonCodec codec, FieldFilter fields) {
+        
         try {
-            payload = mapper.writeValueAsString(pojo);
+            return codec.writerForValue(Format.JSON, pojo, fields).writeValueAsString(pojo);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("could not construct JSON View", e);
         }
     }
+    
+    private String serialized(JacksonCodec codec) {
+        
+        return payload != null ? payload : serialize(pojo, codec, fields);
+    }
+
+    @Override
+    public void render(HttpServletRequest request, HttpServletResponse response, 
+            AppProperties properties) throws ServletException, IOException {
+
+        if (payload == null) {
+            payload = serialize(pojo, JacksonCodec.of(properties), fields);
+        }
+        super.render(request, response, properties);
+    }
 
     @Override
     public String getContentType() {
@@ -53,11 +112,17 @@ public String getContentType() {
     @Override
     public byte[] getPayload() {
 
-        return payload.getBytes();
+        return serialized(JacksonCodec.getDefault()).getBytes(UTF8);
+    }
+    
+    @Override
+    protected CharSequence getText() {
+
+        return serialized(JacksonCodec.getDefault());
     }
     
     @Override
     public String toString() {
-        return payload;
+        return serialized(JacksonCodec.getDefault());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.views;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mojavemvc.initialization.AppProperties;
+import org.mojavemvc.marshalling.FieldFilter;
+import org.mojavemvc.marshalling.JacksonCodec;
+import org.mojavemvc.marshalling.JacksonCodec.Format;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * A view that serializes an entity with Jackson only when it is rendered, 
+ * writing it through a generator straight to the servlet's OutputStream. The
+ * serialized form never exists on the heap as a String or a byte array, 
+ * which makes this view suitable for large entities.
+ * <p>
+ * The payload is buffered only when it has to be known before the body is
+ * written: when a Content-Length header is requested with 
+ * {@link #withContentLength()}, or when an automatic entity tag is to be 
+ * created from the payload. Textual payloads are always encoded as UTF-8.
+ * <p>
+ * A view created without a codec serializes its entity with the codec of 
+ * the application when it is rendered, and with the default codec when its
+ * payload is obtained otherwise.
+ * 
+ * @author Luis Antunes
+ */
+public abstract class JacksonStreamView extends StreamView {
+
+    protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final Object entity;
+    
+    /* resolved from the app properties when rendered, if not given */
+    private JacksonCodec codec;
+    private final FieldFilter fields;
+    private boolean contentLength;
+
+    protected JacksonStreamView(Object entity, JacksonCodec codec) {
+
+        this(entity, codec, null);
+    }
+
+    /**
+     * @param entity the entity
+     * @param codec the codec, or null to use the codec of the application
+     * @param fields the properties of the entity to write, or null to write
+     *        all of them
+     */
+    protected JacksonStreamView(Object entity, JacksonCodec codec, FieldFilter fields) {
+
+        this.entity = entity;
+        this.codec = codec;
+        this.fields = fields;
+    }
+
+    /**
+     * @return the format the entity is serialized in
+     */
+    protected abstract Format getFormat();
+
+    /**
+     * Buffer the payload when the view is rendered, so that a Content-Length
+     * header can be set.
+     * 
+     * @return this view
+     */
+    public JacksonStreamView withContentLength() {
+
+        contentLength = true;
+        return this;
+    }
+
+    /**
+     * @return the entity to be serialized
+     */
+    public Object getEntity() {
+
+        return entity;
+    }
+
+    @Override
+    protected byte[] getPayload() {
+
+        JacksonCodec codec = this.codec != null ? this.codec : JacksonCodec.getDefault();
+        try {
+            return codec.writerForValue(getFormat(), entity, fields).writeValueAsBytes(entity);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("could not serialize entity", e);
+        }
+    }
+
+    @Override
+    public void render(HttpServletRequest request, HttpServletResponse response, 
+            AppProperties properties) throws ServletException, IOException {
+
+        if (codec == null) {
+            codec = JacksonCodec.of(properties);
+        }
+        if (contentLength || (getTag() == null && isAutoTag(properties))) {
+            super.render(request, response, properties);
+            return;
+        }
+
+        String contentType = getContentType();
+        if (contentType != null && contentType.trim().length() != 0) {
+            response.setContentType(contentType);
+        }
+        
+        if (EntityTags.matches(request, getTag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        Format format = getFormat();
+        JsonGenerator generator = codec.newGenerator(format, response.getOutputStream());
+        try {
+            codec.writerForValue(format, entity, fields).writeValue(generator, entity);
+        } finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * @return the serialized entity, decoded as UTF-8; this is only 
+     *         meaningful for textual formats
+     */
+    @Override
+    public String toString() {
+
+        return new String(getPayload(), UTF8);
+    }
+}
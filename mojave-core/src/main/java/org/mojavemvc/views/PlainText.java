@@ -15,11 +15,19 @@
  */
 package org.mojavemvc.views;
 
+import java.nio.charset.Charset;
+
 /**
  * @author Luis Antunes
  */
 public class PlainText extends StreamView {
 
+    /*
+     * the payload is encoded with the platform's default charset
+     */
+    private static final boolean DEFAULT_CHARSET_IS_UTF8 = 
+            Charset.defaultCharset().name().equals("UTF-8");
+    
     private String payload;
 
     public PlainText(String payload) {
@@ -43,6 +51,12 @@ public byte[] getPayload() {
         return payload.getBytes();
     }
     
+    @Override
+    protected CharSequence getText() {
+
+        return DEFAULT_CHARSET_IS_UTF8 ? payload : null;
+    }
+    
     @Override
     public String toString() {
         return payload;
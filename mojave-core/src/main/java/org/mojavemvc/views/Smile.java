@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.views;
+
+import org.mojavemvc.marshalling.JacksonCodec;
+import org.mojavemvc.marshalling.JacksonCodec.Format;
+
+/**
+ * A view that serializes its entity in the binary Smile format as it is 
+ * written to the response. See {@link JacksonStreamView}.
+ * 
+ * @author Luis Antunes
+ */
+public class Smile extends JacksonStreamView {
+
+    public Smile(Object entity) {
+
+        super(entity, null);
+    }
+
+    public Smile(Object entity, JacksonCodec codec) {
+
+        super(entity, codec);
+    }
+
+    @Override
+    protected Format getFormat() {
+
+        return Format.SMILE;
+    }
+
+    @Override
+    public String getContentType() {
+
+        return "application/x-jackson-smile";
+    }
+}
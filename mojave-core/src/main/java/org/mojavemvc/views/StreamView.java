@@ -29,11 +29,66 @@
  * payload to that stream. It sets the content type and content length before
  * writing the content to the stream. This class does not use a buffer when 
  * writing to the OutputStream. This class is suitable for smaller entities.
+ * <p>
+ * A view whose payload is text encoded as UTF-8 can return it from 
+ * {@link #getText()}, in which case the text is encoded through a buffer of 
+ * the application's {@link BufferPool} as it is written, rather than encoded in 
+ * full by {@link #getPayload()} on every render.
+ * <p>
+ * Automatic entity tags are opt-in, either for a single view, through
+ * {@link #withAutoTag()}, or for all views, through the 
+ * {@link #AUTO_TAG_PROPERTY} app property, which is set with the auto-etag
+ * init-param. A view with an automatic entity tag sets an ETag header 
+ * created from the hash of its payload. When an entity tag is set, and the 
+ * If-None-Match header of the request matches it, the view responds with 
+ * 304 Not Modified and no body.
  * 
  * @author Luis Antunes
  */
 public abstract class StreamView implements View {
 
+    /**
+     * The name of the app property that enables automatic entity tags for 
+     * all stream views, when set to Boolean.TRUE.
+     */
+    public static final String AUTO_TAG_PROPERTY = "mojavemvc.auto-etag";
+
+    private boolean autoTag;
+
+    /**
+     * Set an ETag header created from the hash of the payload when the view
+     * is rendered, and respond with 304 Not Modified when the request's 
+     * If-None-Match header matches it.
+     * 
+     * @return this view
+     */
+    public StreamView withAutoTag() {
+
+        autoTag = true;
+        return this;
+    }
+
+    /**
+     * Gets the entity tag the view was given explicitly.
+     * 
+     * @return the quoted entity tag, or null if the view has none
+     */
+    protected String getTag() {
+
+        return null;
+    }
+
+    /**
+     * Gets the status code of the response. Entity tags are only handled 
+     * for 200 responses.
+     * 
+     * @return the status code
+     */
+    protected int getStatus() {
+
+        return HttpServletResponse.SC_OK;
+    }
+
     /**
      * Gets the content type of the response to be streamed back to the
      * requestor.
@@ -49,6 +104,19 @@ public abstract class StreamView implements View {
      */
     protected abstract byte[] getPayload();
 
+    /**
+     * Gets the content of the response as text to be encoded as UTF-8. The
+     * payload is still used when an automatic entity tag is to be created
+     * from it.
+     * 
+     * @return the text, or null if the content is only available as the
+     *         payload
+     */
+    protected CharSequence getText() {
+
+        return null;
+    }
+
     @Override
     public void render(HttpServletRequest request, HttpServletResponse response, 
             AppProperties properties) throws ServletException, IOException {
@@ -58,11 +126,53 @@ public void render(HttpServletRequest request, HttpServletResponse response,
             response.setContentType(contentType);
         }
         
+        boolean ok = getStatus() == HttpServletResponse.SC_OK;
+        if (!ok || getTag() != null || !isAutoTag(properties)) {
+            CharSequence text = getText();
+            if (text != null) {
+                if (ok && EntityTags.matches(request, getTag())) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+                response.setContentLength(BufferPool.utf8Length(text));
+                BufferPool.of(properties).writeUTF8(text, response.getOutputStream());
+                return;
+            }
+        }
+        
         byte[] buf = getPayload();
+        
+        if (buf != null && ok) {
+            
+            String tag = getTag();
+            if (tag == null && isAutoTag(properties)) {
+                tag = EntityTags.newTag(buf);
+                response.setHeader(HTTPHeader.ETAG, tag);
+            }
+            if (EntityTags.matches(request, tag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+        
         if (buf != null) {
             response.setContentLength(buf.length);
             ServletOutputStream servletOut = response.getOutputStream();
             servletOut.write(buf);
         }
     }
+
+    /**
+     * Determine whether an entity tag should be created from the hash of 
+     * the payload, either because this view asked for one, or because the
+     * {@link #AUTO_TAG_PROPERTY} app property is set.
+     * 
+     * @param properties the app properties, which may be null
+     * @return true if the view should have an automatic entity tag
+     */
+    protected boolean isAutoTag(AppProperties properties) {
+
+        return autoTag || (properties != null && 
+                Boolean.TRUE.equals(properties.getProperty(AUTO_TAG_PROPERTY)));
+    }
 }
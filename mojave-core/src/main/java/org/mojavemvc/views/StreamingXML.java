@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.views;
+
+import org.mojavemvc.marshalling.JacksonCodec;
+import org.mojavemvc.marshalling.JacksonCodec.Format;
+
+/**
+ * An XML view that serializes its entity as it is written to the response, 
+ * rather than when it is constructed. See {@link JacksonStreamView}.
+ * 
+ * @author Luis Antunes
+ */
+public class StreamingXML extends JacksonStreamView {
+
+    public StreamingXML(Object entity) {
+
+        super(entity, null);
+    }
+
+    public StreamingXML(Object entity, JacksonCodec codec) {
+
+        super(entity, codec);
+    }
+
+    @Override
+    protected Format getFormat() {
+
+        return Format.XML;
+    }
+
+    @Override
+    public String getContentType() {
+
+        return "application/xml";
+    }
+}
@@ -15,20 +15,36 @@
  */
 package org.mojavemvc.views;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mojavemvc.initialization.AppProperties;
+import org.mojavemvc.marshalling.JacksonCodec;
+import org.mojavemvc.marshalling.JacksonCodec.Format;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
 /**
+ * A view of an XML payload, given as text or serialized from an entity. An
+ * entity given with a codec is serialized when the view is constructed. An
+ * entity given without one is serialized with the codec of the application
+ * when the view is rendered, and with the default codec when its payload is
+ * obtained otherwise.
+ * 
  * @author Luis Antunes
  */
 public class XML extends StreamView {
 
-    /*
-     * XmlMapper is thread-safe
-     */
-    private static final XmlMapper mapper = new XmlMapper();
+    private static final Charset UTF8 = Charset.forName("UTF-8");
     
     private String payload;
+    
+    /* the entity to serialize when rendered, if given without a codec */
+    private Object pojo;
 
     public XML(String payload) {
 
@@ -37,12 +53,45 @@ public XML(String payload) {
     
     public XML(Object pojo) {
         
+        this(pojo, null);
+    }
+    
+    /**
+     * @param pojo the entity
+     * @param codec the codec, or null to use the codec of the application
+     */
+    public XML(Object pojo, JacksonCodec codec) {
+        
+        if (codec == null) {
+            this.pojo = pojo;
+        } else {
+            payload = serialize(pojo, codec);
+        }
+    }
+    
+    private static String serialize(Object pojo, JacksonCodec codec) {
+        
         try {
-            payload = mapper.writeValueAsString(pojo);
+            return codec.writerForValue(Format.XML, pojo).writeValueAsString(pojo);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("could not construct XML View", e);
         }
-    }   
+    }
+    
+    private String serialized(JacksonCodec codec) {
+        
+        return payload != null ? payload : serialize(pojo, codec);
+    }
+
+    @Override
+    public void render(HttpServletRequest request, HttpServletResponse response, 
+            AppProperties properties) throws ServletException, IOException {
+
+        if (payload == null) {
+            payload = serialize(pojo, JacksonCodec.of(properties));
+        }
+        super.render(request, response, properties);
+    }
 
     @Override
     public String getContentType() {
@@ -53,11 +102,17 @@ public String getContentType() {
     @Override
     public byte[] getPayload() {
 
-        return payload.getBytes();
+        return serialized(JacksonCodec.getDefault()).getBytes(UTF8);
+    }
+    
+    @Override
+    protected CharSequence getText() {
+
+        return serialized(JacksonCodec.getDefault());
     }
     
     @Override
     public String toString() {
-        return payload;
+        return serialized(JacksonCodec.getDefault());
     }
 }
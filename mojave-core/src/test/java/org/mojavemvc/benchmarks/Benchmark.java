@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.benchmarks;
+
+/**
+ * A minimal harness for the benchmarks in this package, which are run from
+ * their main methods rather than by the test suite. Each operation is 
+ * warmed up, so that the JIT has compiled it, and then timed over several 
+ * rounds, of which the fastest is reported. The results of the operations 
+ * are accumulated, so that the JIT cannot eliminate them.
+ * 
+ * @author Luis Antunes
+ */
+public abstract class Benchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 5;
+
+    private static volatile long sink;
+
+    /**
+     * Run the operation the given number of times.
+     * 
+     * @param count
+     *            the number of times to run the operation
+     * @return a value derived from the results of the operation
+     */
+    protected abstract long run(int count) throws Exception;
+
+    /**
+     * Time the operation.
+     * 
+     * @param name
+     *            the name of the operation, as reported
+     * @param count
+     *            the number of times the operation is run in each round
+     * @return the time of the fastest round, in nanoseconds per operation
+     */
+    public double measure(String name, int count) throws Exception {
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += run(count);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += run(count);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double perOp = (double) best / count;
+        System.out.println(String.format("%-40s %10.2f ns/op", name, perOp));
+        return perOp;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.benchmarks;
+
+import java.lang.reflect.Method;
+
+import net.sf.cglib.reflect.FastClass;
+
+import org.mojavemvc.core.FastClassMethodInvokerFactory;
+import org.mojavemvc.core.MethodHandleInvokerFactory;
+import org.mojavemvc.core.MethodInvoker;
+
+/**
+ * Compares the cost of invoking an action through each MethodInvokerFactory
+ * with a direct call and with reflection. Run with:
+ * 
+ * <pre>
+ * java -cp &lt;test classpath&gt; org.mojavemvc.benchmarks.MethodInvokerBenchmark
+ * </pre>
+ * 
+ * @author Luis Antunes
+ */
+public class MethodInvokerBenchmark {
+
+    private static final int COUNT = 10000000;
+
+    public static void main(String[] args) throws Exception {
+
+        final Controller controller = new Controller();
+        final Method method = Controller.class.getMethod("action", String.class, int.class);
+        FastClass fastClass = FastClass.create(Controller.class);
+        final Object[] actionArgs = new Object[] { "id", 1 };
+
+        new Benchmark() {
+            protected long run(int count) {
+                long total = 0;
+                for (int i = 0; i < count; i++) {
+                    total += controller.action("id", i);
+                }
+                return total;
+            }
+        }.measure("direct call", COUNT);
+
+        new Benchmark() {
+            protected long run(int count) throws Exception {
+                long total = 0;
+                for (int i = 0; i < count; i++) {
+                    total += (Integer) method.invoke(controller, actionArgs);
+                }
+                return total;
+            }
+        }.measure("reflection", COUNT);
+
+        /* 
+         * each invoker is called from its own call site, so that the profile
+         * of one does not affect the code the JIT compiles for another 
+         */
+        final MethodInvoker fastClassInvoker = 
+                new FastClassMethodInvokerFactory().createInvoker(fastClass, method);
+        new Benchmark() {
+            protected long run(int count) throws Exception {
+                long total = 0;
+                for (int i = 0; i < count; i++) {
+                    total += (Integer) fastClassInvoker.invoke(controller, actionArgs);
+                }
+                return total;
+            }
+        }.measure("FastClassMethodInvokerFactory", COUNT);
+
+        final MethodInvoker handleInvoker = 
+                new MethodHandleInvokerFactory().createInvoker(fastClass, method);
+        new Benchmark() {
+            protected long run(int count) throws Exception {
+                long total = 0;
+                for (int i = 0; i < count; i++) {
+                    total += (Integer) handleInvoker.invoke(controller, actionArgs);
+                }
+                return total;
+            }
+        }.measure("MethodHandleInvokerFactory", COUNT);
+    }
+
+    public static class Controller {
+
+        private int calls;
+
+        public int action(String id, int n) {
+            calls++;
+            return id.length() + n + calls;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mojavemvc.annotations.Reinject;
+import org.mojavemvc.core.ControllerReinjector;
+import org.mojavemvc.core.DefaultAppProperties;
+import org.mojavemvc.core.ServletResourceModule;
+
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+
+/**
+ * Compares the cost of preparing a singleton or stateful controller with 
+ * many &#064;Inject fields for a request under each &#064;Reinject policy,
+ * with that of calling Injector.injectMembers on it, which is what was done
+ * for every request before the policies, and with that of creating a new 
+ * instance. Run with:
+ * 
+ * <pre>
+ * java -cp &lt;test classpath&gt; org.mojavemvc.benchmarks.ReinjectionBenchmark
+ * </pre>
+ * 
+ * @author Luis Antunes
+ */
+public class ReinjectionBenchmark {
+
+    private static final int COUNT = 1000000;
+
+    public static void main(String[] args) throws Exception {
+
+        final Injector injector = Guice.createInjector(
+                new ServletResourceModule(new DefaultAppProperties()));
+        InvocationHandler nullHandler = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return null;
+            }
+        };
+        ServletResourceModule.set(
+                (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), 
+                        new Class<?>[] { HttpServletRequest.class }, nullHandler), 
+                (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(), 
+                        new Class<?>[] { HttpServletResponse.class }, nullHandler));
+
+        final Controller controller = injector.getInstance(Controller.class);
+        new Benchmark() {
+            protected long run(int count) {
+                for (int i = 0; i < count; i++) {
+                    injector.injectMembers(controller);
+                }
+                return controller.request == null ? 0 : 1;
+            }
+        }.measure("Injector.injectMembers", COUNT);
+
+        new Benchmark() {
+            protected long run(int count) {
+                long total = 0;
+                for (int i = 0; i < count; i++) {
+                    total += injector.getInstance(Controller.class).hashCode();
+                }
+                return total;
+            }
+        }.measure("new instance", COUNT);
+
+        measure("@Reinject(ALWAYS)", injector, injector.getInstance(Controller.class));
+        measure("@Reinject(REQUEST_SCOPED)", injector, 
+                injector.getInstance(RequestScopedController.class));
+        measure("@Reinject(NEVER)", injector, injector.getInstance(NeverController.class));
+
+        ServletResourceModule.unset();
+    }
+
+    private static void measure(String name, final Injector injector, final Controller controller) 
+            throws Exception {
+
+        final ControllerReinjector reinjector = new ControllerReinjector(controller.getClass());
+        new Benchmark() {
+            protected long run(int count) throws Exception {
+                for (int i = 0; i < count; i++) {
+                    reinjector.reinject(controller, injector);
+                }
+                return controller.request == null ? 0 : 1;
+            }
+        }.measure(name, COUNT);
+    }
+
+    @Singleton
+    public static class ServiceA {}
+
+    @Singleton
+    public static class ServiceB {}
+
+    @Singleton
+    public static class ServiceC {}
+
+    @Singleton
+    public static class ServiceD {}
+
+    /*
+     * sixteen services, and the request
+     */
+    public static class Controller {
+
+        @Inject ServiceA a1;
+        @Inject ServiceA a2;
+        @Inject ServiceA a3;
+        @Inject ServiceA a4;
+        @Inject ServiceB b1;
+        @Inject ServiceB b2;
+        @Inject ServiceB b3;
+        @Inject ServiceB b4;
+        @Inject ServiceC c1;
+        @Inject ServiceC c2;
+        @Inject ServiceC c3;
+        @Inject ServiceC c4;
+        @Inject ServiceD d1;
+        @Inject ServiceD d2;
+        @Inject ServiceD d3;
+        @Inject ServiceD d4;
+        @Inject HttpServletRequest request;
+    }
+
+    @Reinject(Reinject.Policy.REQUEST_SCOPED)
+    public static class RequestScopedController extends Controller {}
+
+    @Reinject(Reinject.Policy.NEVER)
+    public static class NeverController extends Controller {}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.mojavemvc.core.AsyncRequestCallback;
+import org.mojavemvc.core.ServletAsyncActionDispatcher;
+
+/**
+ * Compares the throughput of blocking actions invoked on the threads of a 
+ * container's bounded request thread pool with that of the same actions 
+ * offloaded by the ServletAsyncActionDispatcher to virtual threads, as 
+ * they are for &#064;VirtualThreads controllers. Each action blocks for a
+ * fixed time, as it would on a JDBC or remote call. The container is 
+ * modelled with a fixed thread pool and requests that complete their 
+ * AsyncContext in place. Virtual threads require Java 21; on earlier 
+ * versions the offloaded actions run on a cached thread pool, as they do
+ * in the framework. Run with:
+ * 
+ * <pre>
+ * java -cp &lt;test classpath, with the Servlet 3.0 API first&gt; org.mojavemvc.benchmarks.VirtualThreadBenchmark
+ * </pre>
+ * 
+ * @author Luis Antunes
+ */
+public class VirtualThreadBenchmark {
+
+    private static final int REQUESTS = 5000;
+    private static final int CONTAINER_THREADS = 200;
+    private static final long BLOCK_MILLIS = 20;
+
+    private static volatile CountDownLatch completed;
+
+    public static void main(String[] args) throws Exception {
+
+        final ExecutorService container = Executors.newFixedThreadPool(CONTAINER_THREADS);
+        final Callable<Object> action = new Callable<Object>() {
+            public Object call() throws Exception {
+                Thread.sleep(BLOCK_MILLIS);
+                return "done";
+            }
+        };
+
+        double platform = new Benchmark() {
+            protected long run(int count) throws Exception {
+                completed = new CountDownLatch(count);
+                for (int i = 0; i < count; i++) {
+                    container.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                action.call();
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            } finally {
+                                completed.countDown();
+                            }
+                        }
+                    });
+                }
+                completed.await();
+                return count;
+            }
+        }.measure("request threads (" + CONTAINER_THREADS + ")", REQUESTS);
+
+        Executor actionExecutor = newVirtualThreadExecutor();
+        String offloadedName = "offloaded to virtual threads";
+        if (actionExecutor == null) {
+            System.out.println("virtual threads are not available before Java 21");
+            actionExecutor = Executors.newCachedThreadPool();
+            offloadedName = "offloaded to a cached thread pool";
+        }
+        final ServletAsyncActionDispatcher dispatcher = new ServletAsyncActionDispatcher(
+                Executors.newCachedThreadPool(), actionExecutor, true, -1);
+        final HttpServletRequest req = newRequest();
+        final HttpServletResponse res = (HttpServletResponse) Proxy.newProxyInstance(
+                HttpServletResponse.class.getClassLoader(), 
+                new Class<?>[] { HttpServletResponse.class }, new NullHandler());
+        final AsyncRequestCallback callback = new AsyncRequestCallback() {
+            public void completed(Object value) {}
+            public void failed(Throwable error) {}
+            public void abandoned(Throwable error) {}
+            public void settled() {}
+        };
+
+        double offloaded = new Benchmark() {
+            protected long run(int count) throws Exception {
+                completed = new CountDownLatch(count);
+                for (int i = 0; i < count; i++) {
+                    container.execute(new Runnable() {
+                        public void run() {
+                            dispatcher.offload(req, res, action, callback);
+                        }
+                    });
+                }
+                completed.await();
+                return count;
+            }
+        }.measure(offloadedName, REQUESTS);
+
+        System.out.println(String.format("%-40s %10.0f requests/s", 
+                "request threads", 1e9 / platform));
+        System.out.println(String.format("%-40s %10.0f requests/s", 
+                "offloaded", 1e9 / offloaded));
+
+        container.shutdown();
+        dispatcher.shutdown();
+    }
+
+    /*
+     * looked up by name, as the framework does; returns null if virtual 
+     * threads are not available
+     */
+    private static Executor newVirtualThreadExecutor() throws Exception {
+
+        try {
+            Method factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) factoryMethod.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /*
+     * a request whose AsyncContext counts down the completed requests
+     */
+    private static HttpServletRequest newRequest() {
+
+        final AsyncContext asyncContext = (AsyncContext) Proxy.newProxyInstance(
+                AsyncContext.class.getClassLoader(), new Class<?>[] { AsyncContext.class }, 
+                new NullHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("complete")) {
+                            completed.countDown();
+                        }
+                        return super.invoke(proxy, method, args);
+                    }
+                });
+        return (HttpServletRequest) Proxy.newProxyInstance(
+                HttpServletRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class }, 
+                new NullHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("startAsync")) {
+                            return asyncContext;
+                        }
+                        if (method.getName().equals("isAsyncSupported")) {
+                            return Boolean.TRUE;
+                        }
+                        return super.invoke(proxy, method, args);
+                    }
+                });
+    }
+
+    private static class NullHandler implements InvocationHandler {
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+
+            return null;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 
 import static junit.framework.Assert.*;
 
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
@@ -101,6 +102,15 @@ public static void afterTests() throws Exception {
         }
     }
     
+    /**
+     * Open a connection for a request that the DSL does not cover, such as 
+     * one with conditional headers, or one made concurrently with others.
+     */
+    protected HttpURLConnection openConnection(String path) throws Exception {
+        
+        return (HttpURLConnection) new URL(host + port + ctx + servlet + path).openConnection();
+    }
+    
     /*-------DSL----------*/
     
     protected RequestedPage makeRequestFor(String path) throws Exception {
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import net.sf.cglib.reflect.FastClass;
+
+import org.junit.Test;
+import org.mojavemvc.core.MethodInvoker;
+import org.mojavemvc.core.MethodInvokerFactory;
+
+/**
+ * 
+ * @author Luis Antunes
+ */
+public abstract class MethodInvokerFactoryContractTest {
+
+    protected abstract MethodInvokerFactory newFactory();
+    
+    @Test
+    public void invokesMethodWithArgs() throws Exception {
+        MethodInvoker invoker = newInvoker("concat", String.class, int.class);
+        assertEquals("abc1", invoker.invoke(new Target(), new Object[]{"abc", 1}));
+    }
+    
+    @Test
+    public void invokesMethodWithNoArgs() throws Exception {
+        MethodInvoker invoker = newInvoker("name");
+        assertEquals("target", invoker.invoke(new Target(), new Object[]{}));
+    }
+    
+    @Test
+    public void invokesVoidMethod() throws Exception {
+        MethodInvoker invoker = newInvoker("increment");
+        Target target = new Target();
+        assertNull(invoker.invoke(target, new Object[]{}));
+        assertEquals(1, target.count);
+    }
+    
+    @Test
+    public void returnsBoxedPrimitive() throws Exception {
+        MethodInvoker invoker = newInvoker("add", int.class, int.class);
+        assertEquals(Integer.valueOf(5), invoker.invoke(new Target(), new Object[]{2, 3}));
+    }
+    
+    @Test
+    public void wrapsExceptionThrownByMethod() throws Exception {
+        MethodInvoker invoker = newInvoker("fail");
+        try {
+            invoker.invoke(new Target(), new Object[]{});
+            fail("should have thrown exception");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+    
+    private MethodInvoker newInvoker(String name, Class<?>... paramTypes) throws Exception {
+        Method method = Target.class.getMethod(name, paramTypes);
+        return newFactory().createInvoker(FastClass.create(Target.class), method);
+    }
+    
+    public static class Target {
+        
+        private int count;
+        
+        public String concat(String s, int i) {
+            return s + i;
+        }
+        
+        public String name() {
+            return "target";
+        }
+        
+        public void increment() {
+            count++;
+        }
+        
+        public int add(int a, int b) {
+            return a + b;
+        }
+        
+        public String fail() {
+            throw new IllegalStateException();
+        }
+    }
+}
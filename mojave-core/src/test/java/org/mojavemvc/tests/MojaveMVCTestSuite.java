@@ -35,13 +35,29 @@
     TestParamPathHelper.class,
     TestRouteHelper.class,
     TestRegexRouteMap.class,
+    TestTrieRouteMap.class,
+    TestFastClassMethodInvokerFactory.class,
+    TestMethodHandleInvokerFactory.class,
     TestRegexRoute.class,
     TestRoute.class,
     TestHttpParameterMapSource.class,
+    TestAsyncResultAdapters.class,
+    TestControllerReinjector.class,
+    TestStatefulControllerStores.class,
+    TestControllerMailbox.class,
+    TestActionOffload.class,
+    TestStatelessControllerPool.class,
+    TestRequestCoalescer.class,
+    TestResponseCache.class,
     TestJSON.class,
     TestXML.class,
     TestPlainText.class,
+    TestEntityTags.class,
+    TestStreamingViews.class,
+    TestJacksonCodec.class,
     TestEntityMarshallers.class,
+    TestFieldFilter.class,
+    TestBufferPool.class,
     TestFrontController.class,
     TestMultiClient.class
 })
@@ -21,6 +21,7 @@
 import org.junit.Test;
 import org.mojavemvc.core.Route;
 import org.mojavemvc.core.RouteMap;
+import org.mojavemvc.core.RouteMatch;
 
 /**
  * 
@@ -133,4 +134,50 @@ public void getRoute_CustomRegexNumeric() {
         rm.add(r2);
         assertEquals(r1, rm.getRoute("/cntrl/actn/123"));
     }
+    
+    @Test
+    public void match_NoParams() {
+        Route r1 = new Route("cntrl", "actn", null);
+        rm.add(r1);
+        RouteMatch match = rm.match("/cntrl/actn");
+        assertNotNull(match);
+        assertEquals(r1, match.getRoute());
+    }
+    
+    @Test
+    public void match_NotFound() {
+        rm.add(new Route("cntrl", "actn", ":id"));
+        assertNull(rm.match("/cntrl/other/123"));
+    }
+    
+    @Test
+    public void match_BindsParams() {
+        Route r1 = new Route("cntrl", "actn", "clients/:id/:name");
+        rm.add(r1);
+        RouteMatch match = rm.match("/cntrl/actn/clients/123/bob");
+        assertEquals(r1, match.getRoute());
+        assertEquals("123", match.getParamValue(0));
+        assertEquals("bob", match.getParamValue(1));
+        assertEquals("bob", match.getParamValue("name"));
+    }
+    
+    @Test
+    public void match_BindsCustomRegexParams() {
+        Route r1 = new Route("cntrl", null, ":id<([0-9])+>/:name<[a-z]+>");
+        rm.add(r1);
+        RouteMatch match = rm.match("/cntrl/123/bob");
+        assertEquals(r1, match.getRoute());
+        assertEquals("123", match.getParamValue("id"));
+        assertEquals("bob", match.getParamValue("name"));
+    }
+    
+    @Test
+    public void match_BindsCustomRegexWithSeparator() {
+        Route r1 = new Route("files", null, ":path<.+/.+>/:id");
+        rm.add(r1);
+        RouteMatch match = rm.match("/files/docs/readme.txt/5");
+        assertEquals(r1, match.getRoute());
+        assertEquals("docs/readme.txt", match.getParamValue("path"));
+        assertEquals("5", match.getParamValue("id"));
+    }
 }
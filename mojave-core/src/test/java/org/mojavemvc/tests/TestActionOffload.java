@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.mojavemvc.core.AsyncActionDispatcher;
+import org.mojavemvc.core.AsyncRequestCallback;
+import org.mojavemvc.core.AsyncResultAdapter;
+import org.mojavemvc.core.HttpMethod;
+import org.mojavemvc.core.MojaveFramework;
+import org.mojavemvc.tests.offload.OffloadedController;
+
+/**
+ * Runs offloaded actions through the framework with a dispatcher that
+ * invokes them on threads of its own executor, as the Servlet 3.0 
+ * dispatcher does, since the Servlet 3.0 API is not on the test classpath.
+ * 
+ * @author Luis Antunes
+ */
+public class TestActionOffload {
+
+    private static final String OFFLOAD_PACKAGE = "org.mojavemvc.tests.offload";
+    
+    private MojaveFramework framework;
+    private StubDispatcher dispatcher;
+    
+    @Before
+    public void beforeEachTest() throws Exception {
+        
+        OffloadedController.invocations.clear();
+        OffloadedController.instances.clear();
+        
+        framework = new MojaveFramework();
+        framework.init(newConfig());
+        
+        /* the framework finds no AsyncContext class, so it has no dispatcher */
+        dispatcher = new StubDispatcher();
+        Field field = MojaveFramework.class.getDeclaredField("asyncDispatcher");
+        field.setAccessible(true);
+        field.set(framework, dispatcher);
+    }
+    
+    @After
+    public void afterEachTest() {
+        
+        framework.destroy();
+    }
+    
+    @Test
+    public void offloadedActionRunsOffTheRequestThread() throws Exception {
+        
+        HttpSession session = newSession("s1");
+        handle("/offloaded/run", session);
+        
+        String thread = Thread.currentThread().getName();
+        List<String> invocations = new ArrayList<String>(OffloadedController.invocations);
+        assertEquals(Arrays.asList("before:", "action:", "after:", "render:"), steps(invocations));
+        for (String invocation : invocations) {
+            assertTrue(invocation, invocation.contains(":offload-"));
+            assertFalse(invocation, invocation.endsWith(":" + thread));
+        }
+        
+        /* the pooled instance was returned to its pool of one */
+        handle("/offloaded/run", session);
+        assertEquals(2, OffloadedController.instances.size());
+        assertSame(OffloadedController.instances.get(0), OffloadedController.instances.get(1));
+    }
+    
+    @Test
+    public void offloadedStatefulActionReleasesItsLease() throws Exception {
+        
+        HttpSession session = newSession("s1");
+        handle("/stateful-offloaded/run", session);
+        
+        /* the second request of the session would wait for the turn of the first */
+        handle("/stateful-offloaded/run", session);
+        assertEquals(2, OffloadedController.instances.size());
+        assertSame(OffloadedController.instances.get(0), OffloadedController.instances.get(1));
+        for (String invocation : OffloadedController.invocations) {
+            assertTrue(invocation, invocation.startsWith("stateful-action:offload-") || 
+                    invocation.startsWith("render:offload-"));
+        }
+    }
+    
+    /*
+     * handles the request on this thread, and waits for the dispatcher to 
+     * complete it
+     */
+    private void handle(String path, HttpSession session) throws Exception {
+        
+        CountDownLatch completed = new CountDownLatch(1);
+        dispatcher.completed = completed;
+        framework.handleRequest(newRequest(session), mock(HttpServletResponse.class), 
+                HttpMethod.GET, path);
+        assertTrue("the request did not complete", completed.await(5, TimeUnit.SECONDS));
+    }
+    
+    private static List<String> steps(List<String> invocations) {
+        
+        List<String> steps = new ArrayList<String>();
+        for (String invocation : invocations) {
+            steps.add(invocation.substring(0, invocation.indexOf(':') + 1));
+        }
+        return steps;
+    }
+    
+    private static ServletConfig newConfig() {
+        
+        final Map<String, String> params = new HashMap<String, String>();
+        params.put("controller-classes", OFFLOAD_PACKAGE);
+        params.put("guice-modules", OFFLOAD_PACKAGE);
+        params.put("entity-marshallers", OFFLOAD_PACKAGE);
+        params.put("initializers", OFFLOAD_PACKAGE);
+        
+        ServletConfig config = mock(ServletConfig.class);
+        when(config.getServletContext()).thenReturn(mock(ServletContext.class));
+        when(config.getInitParameter(anyString())).thenAnswer(new Answer<String>() {
+            public String answer(InvocationOnMock invocation) {
+                return params.get(invocation.getArguments()[0]);
+            }
+        });
+        when(config.getInitParameterNames()).thenReturn(Collections.enumeration(params.keySet()));
+        return config;
+    }
+    
+    private static HttpSession newSession(String id) {
+        
+        HttpSession session = mock(HttpSession.class);
+        when(session.getId()).thenReturn(id);
+        final Map<String, Object> attributes = Collections.synchronizedMap(new HashMap<String, Object>());
+        when(session.getAttribute(anyString())).thenAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                return attributes.get(invocation.getArguments()[0]);
+            }
+        });
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                Object[] args = invocation.getArguments();
+                attributes.put((String) args[0], args[1]);
+                return null;
+            }
+        }).when(session).setAttribute(anyString(), any());
+        return session;
+    }
+    
+    private static HttpServletRequest newRequest(HttpSession session) {
+        
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getSession()).thenReturn(session);
+        when(req.getMethod()).thenReturn("GET");
+        when(req.getParameterMap()).thenReturn(new HashMap<String, String[]>());
+        
+        /* request attributes */
+        final Map<String, Object> attributes = Collections.synchronizedMap(new HashMap<String, Object>());
+        when(req.getAttribute(anyString())).thenAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                return attributes.get(invocation.getArguments()[0]);
+            }
+        });
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                Object[] args = invocation.getArguments();
+                attributes.put((String) args[0], args[1]);
+                return null;
+            }
+        }).when(req).setAttribute(anyString(), any());
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                attributes.remove(invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(req).removeAttribute(anyString());
+        
+        return req;
+    }
+    
+    /*
+     * invokes offloaded actions on its own threads, and counts down the 
+     * latch once the callback has rendered the response
+     */
+    private static class StubDispatcher implements AsyncActionDispatcher {
+        
+        private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private int count;
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "offload-" + ++count);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        
+        private volatile CountDownLatch completed;
+        
+        public boolean isAsyncSupported(HttpServletRequest req) {
+            return true;
+        }
+        
+        public boolean offloadsAllActions() {
+            return false;
+        }
+        
+        public void offload(HttpServletRequest req, HttpServletResponse res, 
+                final Callable<?> action, final AsyncRequestCallback callback) {
+            
+            final CountDownLatch latch = completed;
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        Object value;
+                        try {
+                            value = action.call();
+                        } catch (Throwable e) {
+                            callback.failed(e);
+                            return;
+                        }
+                        callback.completed(value);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+        
+        public void dispatch(HttpServletRequest req, HttpServletResponse res, Object actionResult, 
+                AsyncResultAdapter adapter, AsyncRequestCallback callback) {
+            
+            throw new UnsupportedOperationException();
+        }
+        
+        public void shutdown() {
+            executor.shutdown();
+        }
+    }
+}
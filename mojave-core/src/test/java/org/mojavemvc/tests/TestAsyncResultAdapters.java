@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.junit.Test;
+import org.mojavemvc.core.AsyncResultAdapter;
+import org.mojavemvc.core.AsyncResultAdapters;
+import org.mojavemvc.core.AsyncResultCallback;
+import org.mojavemvc.core.CallableResultAdapter;
+import org.mojavemvc.core.FutureResultAdapter;
+
+/**
+ * @author Luis Antunes
+ */
+public class TestAsyncResultAdapters {
+
+    private static final Executor DIRECT = new Executor() {
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Test
+    public void noAdapterForSynchronousResults() {
+        
+        assertNull(AsyncResultAdapters.getAdapter(null));
+        assertNull(AsyncResultAdapters.getAdapter("entity"));
+    }
+    
+    @Test
+    public void callableCompletes() throws Exception {
+        
+        Callable<String> callable = new Callable<String>() {
+            public String call() {
+                return "done";
+            }
+        };
+        
+        AsyncResultAdapter adapter = AsyncResultAdapters.getAdapter(callable);
+        assertTrue(adapter instanceof CallableResultAdapter);
+        
+        RecordingCallback callback = new RecordingCallback();
+        adapter.onCompletion(callable, DIRECT, callback);
+        assertEquals("done", callback.value);
+        assertNull(callback.error);
+        assertEquals("done", adapter.await(callable));
+    }
+    
+    @Test
+    public void callableFails() throws Exception {
+        
+        final IllegalStateException error = new IllegalStateException();
+        Callable<String> callable = new Callable<String>() {
+            public String call() {
+                throw error;
+            }
+        };
+        
+        RecordingCallback callback = new RecordingCallback();
+        AsyncResultAdapters.getAdapter(callable).onCompletion(callable, DIRECT, callback);
+        assertSame(error, callback.error);
+    }
+    
+    @Test
+    public void futureCompletes() throws Exception {
+        
+        FutureTask<String> future = new FutureTask<String>(new Callable<String>() {
+            public String call() {
+                return "done";
+            }
+        });
+        future.run();
+        
+        AsyncResultAdapter adapter = AsyncResultAdapters.getAdapter(future);
+        assertTrue(adapter instanceof FutureResultAdapter);
+        
+        RecordingCallback callback = new RecordingCallback();
+        adapter.onCompletion(future, DIRECT, callback);
+        assertEquals("done", callback.value);
+        assertEquals("done", adapter.await(future));
+    }
+    
+    @Test
+    public void futureFailureIsUnwrapped() throws Exception {
+        
+        final IllegalStateException error = new IllegalStateException();
+        FutureTask<String> future = new FutureTask<String>(new Callable<String>() {
+            public String call() {
+                throw error;
+            }
+        });
+        future.run();
+        
+        RecordingCallback callback = new RecordingCallback();
+        AsyncResultAdapters.getAdapter(future).onCompletion(future, DIRECT, callback);
+        assertSame(error, callback.error);
+    }
+    
+    @Test
+    public void completionStageCompletesWhenValueIsAvailable() throws Exception {
+        
+        CompletableFuture<String> stage = new CompletableFuture<String>();
+        
+        AsyncResultAdapter adapter = AsyncResultAdapters.getAdapter(stage);
+        assertFalse(adapter instanceof FutureResultAdapter);
+        
+        RecordingCallback callback = new RecordingCallback();
+        adapter.onCompletion(stage, DIRECT, callback);
+        assertNull(callback.value);
+        
+        stage.complete("done");
+        assertEquals("done", callback.value);
+        assertEquals("done", adapter.await(stage));
+    }
+    
+    @Test
+    public void completionStageFailureIsUnwrapped() throws Exception {
+        
+        IllegalStateException error = new IllegalStateException();
+        CompletableFuture<String> stage = new CompletableFuture<String>();
+        stage.completeExceptionally(error);
+        
+        RecordingCallback callback = new RecordingCallback();
+        AsyncResultAdapters.getAdapter(stage).onCompletion(stage, DIRECT, callback);
+        assertSame(error, callback.error);
+    }
+    
+    private static class RecordingCallback implements AsyncResultCallback {
+        
+        private Object value;
+        private Throwable error;
+        
+        public void completed(Object value) {
+            this.value = value;
+        }
+        
+        public void failed(Throwable error) {
+            this.error = error;
+        }
+    }
+}
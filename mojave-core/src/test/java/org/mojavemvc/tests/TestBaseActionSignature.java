@@ -84,6 +84,33 @@ public void getArgsWithStringArrayParameters() {
         assertEquals(in, args[5]);
     }
 
+    @Test
+    public void getArgsWithMissingParameters() {
+
+        ActionSignature sig = new BaseActionSignature(1, "testAction", new Class[] { String.class, int.class,
+                Double.class, long.class, boolean.class }, 
+                new Annotation[][] { { createParam("p1") }, { createParam("p2") },
+                { createParam("p3") }, { createParam("p4") }, { createParam("p5") } }, 
+                new Annotation[]{});
+        
+        Object[] args = sig.getArgs(new HashMap<String, String[]>(), null);
+        assertEquals(5, args.length);
+        assertNull(args[0]);
+        assertEquals(0, args[1]);
+        assertEquals(0d, args[2]);
+        assertEquals(0L, args[3]);
+        assertEquals(false, args[4]);
+    }
+    
+    @Test(expected = RuntimeException.class)
+    public void getArgsWithUnannotatedParameter() {
+
+        ActionSignature sig = new BaseActionSignature(1, "testAction", new Class[] { String.class, String.class }, 
+                new Annotation[][] { { createParam("p1") }, {} }, new Annotation[]{});
+        
+        sig.getArgs(new HashMap<String, String[]>(), null);
+    }
+
     @Test
     public void getArgsWithObjectParameters() {
 
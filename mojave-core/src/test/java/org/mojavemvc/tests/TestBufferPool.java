@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.mojavemvc.initialization.AppProperties;
+import org.mojavemvc.views.BufferPool;
+import org.mojavemvc.views.InputStreamView;
+import org.mojavemvc.views.JSON;
+
+/**
+ * @author Luis Antunes
+ */
+public class TestBufferPool {
+
+    @Test
+    public void releasedBufferIsReused() {
+
+        BufferPool pool = new BufferPool(16, 2, false);
+        byte[] first = pool.acquire();
+        assertEquals(16, first.length);
+        pool.release(first);
+        assertSame(first, pool.acquire());
+
+        assertEquals(2, pool.getAcquisitions());
+        assertEquals(1, pool.getAllocations());
+        assertEquals(16, pool.getAllocatedBytes());
+        assertEquals(0.5, pool.getReuseRatio(), 0.0001);
+    }
+
+    @Test
+    public void buffersBeyondSharedQueueAreKeptByThread() throws Exception {
+
+        final BufferPool pool = new BufferPool(16, 1, false);
+        byte[] a = pool.acquire();
+        byte[] b = pool.acquire();
+        pool.release(a);
+        pool.release(b);
+
+        /* another thread takes the buffer released to the shared queue */
+        final byte[][] acquired = new byte[1][];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                acquired[0] = pool.acquire();
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertSame(a, acquired[0]);
+        assertSame(b, pool.acquire());
+        assertEquals(2, pool.getAllocations());
+    }
+
+    @Test
+    public void buffersOfShortLivedThreadsAreReused() throws Exception {
+
+        final BufferPool pool = new BufferPool(16, 2, false);
+        for (int i = 0; i < 10; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    pool.release(pool.acquire());
+                    pool.release(pool.acquireByteBuffer());
+                }
+            };
+            thread.start();
+            thread.join();
+        }
+
+        assertEquals(20, pool.getAcquisitions());
+        assertEquals(2, pool.getAllocations());
+    }
+
+    @Test
+    public void bufferReleasedOnAnotherThreadIsShared() throws Exception {
+
+        final BufferPool pool = new BufferPool(16, 2, false);
+        final byte[] buffer = pool.acquire();
+
+        /* released on a thread that acquired none, as by an async executor */
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                pool.release(buffer);
+            }
+        };
+        thread.start();
+        thread.join();
+
+        final byte[][] acquired = new byte[1][];
+        thread = new Thread() {
+            @Override
+            public void run() {
+                acquired[0] = pool.acquire();
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertSame(buffer, acquired[0]);
+        assertEquals(1, pool.getAllocations());
+    }
+
+    @Test
+    public void largerBuffersAreNotPooled() {
+
+        BufferPool pool = new BufferPool(16, 2, false);
+        byte[] large = pool.acquire(32);
+        assertEquals(32, large.length);
+        pool.release(large);
+        assertEquals(16, pool.acquire(8).length);
+        assertEquals(2, pool.getAllocations());
+        assertEquals(48, pool.getAllocatedBytes());
+    }
+
+    @Test
+    public void byteBuffersAreDirectIfPoolIs() {
+
+        BufferPool pool = new BufferPool(16, 2, true);
+        ByteBuffer buffer = pool.acquireByteBuffer();
+        assertTrue(buffer.isDirect());
+        assertEquals(16, buffer.capacity());
+        buffer.put((byte) 1);
+        pool.release(buffer);
+
+        ByteBuffer reused = pool.acquireByteBuffer();
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+
+        assertFalse(new BufferPool(16, 2, false).acquireByteBuffer().isDirect());
+    }
+
+    @Test
+    public void streamIsCopied() throws Exception {
+
+        BufferPool pool = new BufferPool(16, 2, false);
+        byte[] content = new byte[100];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(100, pool.copy(new ByteArrayInputStream(content), out));
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+
+        out.reset();
+        pool.copy(new ByteArrayInputStream(content), out);
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+        assertEquals(1, pool.getAllocations());
+    }
+
+    @Test
+    public void textIsEncodedAsUTF8() throws Exception {
+
+        BufferPool pool = new BufferPool(16, 2, false);
+        String text = "caf\u00e9 \u20ac \ud83d\ude00 and some more text than fits in one buffer \ud800";
+        byte[] expected = text.getBytes("UTF-8");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        pool.writeUTF8(text, out);
+        assertTrue(Arrays.equals(expected, out.toByteArray()));
+        assertEquals(expected.length, BufferPool.utf8Length(text));
+    }
+
+    @Test
+    public void viewsRenderThroughApplicationPool() throws Exception {
+
+        BufferPool pool = new BufferPool();
+        AppProperties properties = mock(AppProperties.class);
+        when(properties.getProperty(BufferPool.PROPERTY)).thenReturn(pool);
+        assertSame(pool, BufferPool.of(properties));
+        assertNotSame(pool, BufferPool.of(null));
+        assertSame(BufferPool.of(null), BufferPool.of(mock(AppProperties.class)));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = newResponse(body);
+        new JSON("{\"val\":\"\u00e9\"}").render(mock(HttpServletRequest.class), res, properties);
+        assertEquals("{\"val\":\"\u00e9\"}", body.toString("UTF-8"));
+        verify(res).setContentLength(12);
+        assertEquals(1, pool.getAcquisitions());
+
+        byte[] content = new byte[BufferPool.DEFAULT_BUFFER_SIZE * 3];
+        for (int i = 0; i < 3; i++) {
+            body.reset();
+            new InputStreamView(new ByteArrayInputStream(content), "application/octet-stream")
+                .render(mock(HttpServletRequest.class), newResponse(body), properties);
+            assertEquals(content.length, body.size());
+        }
+        assertEquals(4, pool.getAcquisitions());
+        assertEquals(1, pool.getAllocations());
+    }
+
+    private static HttpServletResponse newResponse(final ByteArrayOutputStream body) throws Exception {
+
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        when(res.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        return res;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mojavemvc.core.AsyncResultAdapter;
+import org.mojavemvc.core.AsyncResultCallback;
+import org.mojavemvc.core.ControllerMailbox;
+
+/**
+ * @author Luis Antunes
+ */
+public class TestControllerMailbox {
+
+    private ExecutorService workers;
+    
+    @Before
+    public void beforeEachTest() {
+        
+        workers = ControllerMailbox.newWorkerExecutor();
+    }
+    
+    @After
+    public void afterEachTest() {
+        
+        workers.shutdown();
+    }
+
+    @Test
+    public void tasksRunOneAtATime() throws Exception {
+        
+        final ControllerMailbox mailbox = new ControllerMailbox(workers);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final int[] count = new int[1];
+        
+        int threadCount = 8;
+        final int tasksPerThread = 500;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService posters = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> results = new ArrayList<Future<?>>();
+        for (int i = 0; i < threadCount; i++) {
+            results.add(posters.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    start.await();
+                    for (int j = 0; j < tasksPerThread; j++) {
+                        mailbox.call(new Callable<Object>() {
+                            public Object call() {
+                                if (running.incrementAndGet() > 1) {
+                                    overlaps.incrementAndGet();
+                                }
+                                /* not thread-safe on purpose */
+                                count[0]++;
+                                running.decrementAndGet();
+                                return null;
+                            }
+                        });
+                    }
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+        posters.shutdown();
+        
+        assertEquals(0, overlaps.get());
+        assertEquals(threadCount * tasksPerThread, mailbox.call(new Callable<Integer>() {
+            public Integer call() {
+                return count[0];
+            }
+        }).intValue());
+    }
+    
+    @Test
+    public void tasksRunInPostedOrder() throws Exception {
+        
+        ControllerMailbox mailbox = new ControllerMailbox(workers);
+        final List<Integer> order = new ArrayList<Integer>();
+        for (int i = 0; i < 100; i++) {
+            final int n = i;
+            mailbox.execute(new Runnable() {
+                public void run() {
+                    order.add(n);
+                }
+            });
+        }
+        List<Integer> result = mailbox.call(new Callable<List<Integer>>() {
+            public List<Integer> call() {
+                return new ArrayList<Integer>(order);
+            }
+        });
+        
+        assertEquals(100, result.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, result.get(i).intValue());
+        }
+    }
+    
+    @Test
+    public void callRethrowsTheTaskException() throws Exception {
+        
+        ControllerMailbox mailbox = new ControllerMailbox(workers);
+        final IllegalStateException error = new IllegalStateException();
+        try {
+            mailbox.call(new Callable<Object>() {
+                public Object call() {
+                    throw error;
+                }
+            });
+            fail("should have thrown exception");
+        } catch (IllegalStateException e) {
+            assertSame(error, e);
+        }
+        
+        /* the mailbox keeps working */
+        assertEquals("ok", mailbox.call(new Callable<String>() {
+            public String call() {
+                return "ok";
+            }
+        }));
+    }
+    
+    @Test
+    public void adapterReportsOnTheGivenExecutor() throws Exception {
+        
+        ControllerMailbox mailbox = new ControllerMailbox(workers);
+        AsyncResultAdapter adapter = mailbox.newAdapter();
+        
+        final List<Runnable> reported = new ArrayList<Runnable>();
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+                synchronized (reported) {
+                    reported.add(command);
+                }
+            }
+        };
+        final Object[] value = new Object[1];
+        adapter.onCompletion(new Callable<String>() {
+            public String call() {
+                return "done";
+            }
+        }, executor, new AsyncResultCallback() {
+            public void completed(Object v) {
+                value[0] = v;
+            }
+            public void failed(Throwable error) {
+            }
+        });
+        
+        /* wait for the mailbox to run the callable */
+        mailbox.call(new Callable<Object>() {
+            public Object call() {
+                return null;
+            }
+        });
+        
+        synchronized (reported) {
+            assertEquals(1, reported.size());
+            assertNull(value[0]);
+            reported.get(0).run();
+        }
+        assertEquals("done", value[0]);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mojavemvc.annotations.Reinject;
+import org.mojavemvc.core.ControllerReinjector;
+import org.mojavemvc.core.DefaultAppProperties;
+import org.mojavemvc.core.ServletResourceModule;
+
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+/**
+ * @author Luis Antunes
+ */
+public class TestControllerReinjector {
+
+    private final Injector injector = Guice.createInjector(
+            new ServletResourceModule(new DefaultAppProperties()));
+    
+    @After
+    public void tearDown() {
+        
+        ServletResourceModule.unset();
+    }
+    
+    @Test
+    public void alwaysIsTheDefault() throws Exception {
+        
+        ControllerReinjector reinjector = new ControllerReinjector(UnannotatedController.class);
+        assertEquals(Reinject.Policy.ALWAYS, reinjector.getPolicy());
+        
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        ServletResourceModule.set(req, mock(HttpServletResponse.class));
+        UnannotatedController controller = new UnannotatedController();
+        reinjector.reinject(controller, injector);
+        
+        assertSame(req, controller.request);
+        assertNotNull(controller.dependency);
+    }
+    
+    @Test
+    public void neverReinjects() throws Exception {
+        
+        ControllerReinjector reinjector = new ControllerReinjector(NeverController.class);
+        
+        ServletResourceModule.set(mock(HttpServletRequest.class), mock(HttpServletResponse.class));
+        NeverController controller = new NeverController();
+        reinjector.reinject(controller, injector);
+        
+        assertNull(controller.request);
+        assertNull(controller.dependency);
+    }
+    
+    @Test
+    public void requestScopedReinjectsOnlyRequestDependencies() throws Exception {
+        
+        ControllerReinjector reinjector = new ControllerReinjector(RequestScopedController.class);
+        
+        RequestScopedController controller = new RequestScopedController();
+        
+        HttpServletRequest req1 = mock(HttpServletRequest.class);
+        HttpServletResponse res1 = mock(HttpServletResponse.class);
+        ServletResourceModule.set(req1, res1);
+        reinjector.reinject(controller, injector);
+        assertSame(req1, controller.request);
+        assertSame(res1, controller.response);
+        assertNull(controller.dependency);
+        ServletResourceModule.unset();
+        
+        HttpServletRequest req2 = mock(HttpServletRequest.class);
+        HttpServletResponse res2 = mock(HttpServletResponse.class);
+        ServletResourceModule.set(req2, res2);
+        reinjector.reinject(controller, injector);
+        assertSame(req2, controller.request);
+        assertSame(res2, controller.response);
+        assertNull(controller.dependency);
+    }
+    
+    public static class Dependency {
+    }
+    
+    public static class UnannotatedController {
+        
+        @Inject
+        private HttpServletRequest request;
+        
+        @Inject
+        private Dependency dependency;
+    }
+    
+    @Reinject(Reinject.Policy.NEVER)
+    public static class NeverController {
+        
+        @Inject
+        private HttpServletRequest request;
+        
+        @Inject
+        private Dependency dependency;
+    }
+    
+    @Reinject(Reinject.Policy.REQUEST_SCOPED)
+    public static class RequestScopedController {
+        
+        @Inject
+        private HttpServletRequest request;
+        
+        private HttpServletResponse response;
+        
+        @Inject
+        private Dependency dependency;
+        
+        @Inject
+        public void setResponse(HttpServletResponse response) {
+            this.response = response;
+        }
+    }
+}
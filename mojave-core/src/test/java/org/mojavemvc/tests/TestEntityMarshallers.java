@@ -16,22 +16,38 @@
 package org.mojavemvc.tests;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Set;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.junit.Test;
 import org.mojavemvc.annotations.Marshall;
+import org.mojavemvc.marshalling.CBOREntityMarshaller;
 import org.mojavemvc.marshalling.DefaultEntityMarshaller;
 import org.mojavemvc.marshalling.JSONEntityMarshaller;
 import org.mojavemvc.marshalling.Marshallable;
 import org.mojavemvc.marshalling.PlainTextEntityMarshaller;
+import org.mojavemvc.marshalling.SmileEntityMarshaller;
+import org.mojavemvc.marshalling.StreamingJSONEntityMarshaller;
+import org.mojavemvc.marshalling.StreamingXMLEntityMarshaller;
 import org.mojavemvc.marshalling.XMLEntityMarshaller;
+import org.mojavemvc.views.CBOR;
 import org.mojavemvc.views.EmptyView;
 import org.mojavemvc.views.JSON;
 import org.mojavemvc.views.PlainText;
+import org.mojavemvc.views.Smile;
+import org.mojavemvc.views.StreamingJSON;
+import org.mojavemvc.views.StreamingXML;
+import org.mojavemvc.views.StreamView;
 import org.mojavemvc.views.View;
 import org.mojavemvc.views.XML;
 
@@ -93,6 +109,74 @@ public void jsonEntityMarshallerUnmarshalls() {
         assertEquals("test", entity.getVal());
     }
     
+    @Test
+    public void jsonEntityMarshallerUnmarshallsElements() {
+        
+        JSONEntityMarshaller m = new JSONEntityMarshaller();
+        String json = "[{\"val\":\"a\"}, {\"val\":\"b\"}, null]";
+        ByteArrayInputStream in = new ByteArrayInputStream(json.getBytes());
+        Iterator<SimplePojo> it = m.unmarshallElements(in, SimplePojo.class);
+        assertTrue(it.hasNext());
+        assertEquals("a", it.next().getVal());
+        assertEquals("b", it.next().getVal());
+        assertTrue(it.hasNext());
+        assertNull(it.next());
+        assertFalse(it.hasNext());
+    }
+    
+    @Test
+    public void jsonEntityMarshallerUnmarshallsEmptyBodyAsNoElements() {
+        
+        JSONEntityMarshaller m = new JSONEntityMarshaller();
+        Iterator<SimplePojo> it = m.unmarshallElements(
+                new ByteArrayInputStream(new byte[0]), SimplePojo.class);
+        assertFalse(it.hasNext());
+        it = m.unmarshallElements(new ByteArrayInputStream("[]".getBytes()), SimplePojo.class);
+        assertFalse(it.hasNext());
+    }
+    
+    @Test(expected = RuntimeException.class)
+    public void jsonEntityMarshallerRejectsElementsOfNonArray() {
+        
+        JSONEntityMarshaller m = new JSONEntityMarshaller();
+        String json = "{\"val\":\"test\"}";
+        m.unmarshallElements(new ByteArrayInputStream(json.getBytes()), SimplePojo.class);
+    }
+    
+    @Test
+    public void jsonEntityMarshallerRejectsTruncatedArray() {
+        
+        JSONEntityMarshaller m = new JSONEntityMarshaller();
+        String json = "[{\"val\":\"a\"}, {\"val\":\"b\"}";
+        Iterator<SimplePojo> it = m.unmarshallElements(
+                new ByteArrayInputStream(json.getBytes()), SimplePojo.class);
+        assertEquals("a", it.next().getVal());
+        try {
+            it.next();
+            fail("a truncated array should not end the elements");
+        } catch (RuntimeException e) {
+            /* expected */
+        }
+    }
+    
+    @Test(expected = RuntimeException.class)
+    public void cborEntityMarshallerRejectsTruncatedArray() throws Exception {
+        
+        CBOREntityMarshaller cbor = new CBOREntityMarshaller();
+        byte[] body = render((StreamView) cbor.marshall(
+                Arrays.asList(new SimplePojo("a"), new SimplePojo("b"))));
+        /* 
+         * without the break marker, the CBOR parser reports the end of the 
+         * input rather than an error
+         */
+        byte[] truncated = Arrays.copyOf(body, body.length - 1);
+        Iterator<SimplePojo> it = cbor.unmarshallElements(
+                new ByteArrayInputStream(truncated), SimplePojo.class);
+        while (it.hasNext()) {
+            it.next();
+        }
+    }
+    
     @Test
     public void xmlEntityMarshallerSupportsXMLContentType() {
         
@@ -125,6 +209,74 @@ public void xmlEntityMarshallerUnmarshalls() {
         assertEquals("test", entity.getVal());
     }
     
+    @Test
+    public void streamingJSONEntityMarshallerReturnsStreamingView() {
+        
+        StreamingJSONEntityMarshaller m = new StreamingJSONEntityMarshaller();
+        assertEquals("application/json", m.contentTypesHandled()[0]);
+        SimplePojo entity = new SimplePojo("test");
+        View v = m.marshall(new MarshallablePojo<SimplePojo>(entity));
+        assertTrue(v instanceof StreamingJSON);
+        assertEquals(new JSON(entity).toString(), v.toString());
+    }
+    
+    @Test
+    public void streamingXMLEntityMarshallerReturnsStreamingView() {
+        
+        StreamingXMLEntityMarshaller m = new StreamingXMLEntityMarshaller();
+        assertEquals(2, m.contentTypesHandled().length);
+        SimplePojo entity = new SimplePojo("test");
+        View v = m.marshall(entity);
+        assertTrue(v instanceof StreamingXML);
+        assertEquals(new XML(entity).toString(), v.toString());
+    }
+    
+    @Test
+    public void smileEntityMarshallerRoundTrips() throws Exception {
+        
+        SmileEntityMarshaller m = new SmileEntityMarshaller();
+        assertEquals("application/x-jackson-smile", m.contentTypesHandled()[0]);
+        View v = m.marshall(new SimplePojo("test"));
+        assertTrue(v instanceof Smile);
+        
+        byte[] body = render((StreamView) v);
+        SimplePojo entity = m.unmarshall(new ByteArrayInputStream(body), SimplePojo.class);
+        assertEquals("test", entity.getVal());
+    }
+    
+    @Test
+    public void cborEntityMarshallerRoundTrips() throws Exception {
+        
+        CBOREntityMarshaller m = new CBOREntityMarshaller();
+        assertEquals("application/cbor", m.contentTypesHandled()[0]);
+        View v = m.marshall(new SimplePojo("test"));
+        assertTrue(v instanceof CBOR);
+        
+        byte[] body = render((StreamView) v);
+        SimplePojo entity = m.unmarshall(new ByteArrayInputStream(body), SimplePojo.class);
+        assertEquals("test", entity.getVal());
+    }
+    
+    @Test
+    public void binaryEntityMarshallersUnmarshallElements() throws Exception {
+        
+        SimplePojo[] pojos = { new SimplePojo("a"), new SimplePojo("b") };
+        
+        SmileEntityMarshaller smile = new SmileEntityMarshaller();
+        byte[] body = render((StreamView) smile.marshall(pojos));
+        Iterator<SimplePojo> it = smile.unmarshallElements(new ByteArrayInputStream(body), SimplePojo.class);
+        assertEquals("a", it.next().getVal());
+        assertEquals("b", it.next().getVal());
+        assertFalse(it.hasNext());
+        
+        CBOREntityMarshaller cbor = new CBOREntityMarshaller();
+        body = render((StreamView) cbor.marshall(pojos));
+        it = cbor.unmarshallElements(new ByteArrayInputStream(body), SimplePojo.class);
+        assertEquals("a", it.next().getVal());
+        assertEquals("b", it.next().getVal());
+        assertFalse(it.hasNext());
+    }
+    
     @Test
     public void plainTextEntityMarshallerSupportsPlainTextContentType() {
         
@@ -240,6 +392,20 @@ public void xmlEntityMarshallerHandlesMarshallAnnotation() {
         assertEquals(new XML(entity).toString(), ((XML)v).toString());
     }
     
+    private static byte[] render(StreamView view) throws Exception {
+        
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        when(res.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        view.render(mock(HttpServletRequest.class), res, null);
+        return body.toByteArray();
+    }
+    
     /*------------------------------------*/
     
     public static class SimplePojo {
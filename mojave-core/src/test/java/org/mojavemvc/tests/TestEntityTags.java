@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.mojavemvc.initialization.AppProperties;
+import org.mojavemvc.views.EntityTags;
+import org.mojavemvc.views.HTTPHeader;
+import org.mojavemvc.views.JSON;
+import org.mojavemvc.views.PlainText;
+import org.mojavemvc.views.Response;
+import org.mojavemvc.views.StreamView;
+
+/**
+ * @author Luis Antunes
+ */
+public class TestEntityTags {
+
+    @Test
+    public void tagDependsOnPayload() {
+        
+        String tag = EntityTags.newTag("hello".getBytes());
+        assertTrue(tag.startsWith("\"") && tag.endsWith("\""));
+        assertEquals(tag, EntityTags.newTag("hello".getBytes()));
+        assertFalse(tag.equals(EntityTags.newTag("hellp".getBytes())));
+    }
+    
+    @Test
+    public void ifNoneMatchIsEvaluated() {
+        
+        assertFalse(EntityTags.matches(newRequest(null), "\"a\""));
+        assertFalse(EntityTags.matches(newRequest("\"a\""), null));
+        assertTrue(EntityTags.matches(newRequest("\"a\""), "\"a\""));
+        assertTrue(EntityTags.matches(newRequest("\"b\", W/\"a\""), "\"a\""));
+        assertTrue(EntityTags.matches(newRequest("*"), "\"a\""));
+        assertFalse(EntityTags.matches(newRequest("\"b\""), "\"a\""));
+    }
+    
+    @Test
+    public void viewWithoutAutoTagHasNoTag() throws Exception {
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = newResponse(body);
+        new PlainText("hello").render(newRequest("*"), res, newProperties(false));
+        
+        verify(res, never()).setHeader(eq(HTTPHeader.ETAG), anyString());
+        assertEquals("hello", body.toString());
+    }
+    
+    @Test
+    public void autoTagIsSet() throws Exception {
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = newResponse(body);
+        new JSON("{}").withAutoTag().render(newRequest(null), res, newProperties(false));
+        
+        verify(res).setHeader(HTTPHeader.ETAG, EntityTags.newTag("{}".getBytes()));
+        verify(res, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals("{}", body.toString());
+    }
+    
+    @Test
+    public void autoTagIsEnabledByAppProperty() throws Exception {
+        
+        HttpServletResponse res = newResponse(new ByteArrayOutputStream());
+        new PlainText("hello").render(newRequest(null), res, newProperties(true));
+        
+        verify(res).setHeader(HTTPHeader.ETAG, EntityTags.newTag("hello".getBytes()));
+    }
+    
+    @Test
+    public void matchingRequestIsNotModified() throws Exception {
+        
+        String tag = EntityTags.newTag("hello".getBytes());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = newResponse(body);
+        new PlainText("hello").withAutoTag().render(newRequest(tag), res, newProperties(false));
+        
+        verify(res).setHeader(HTTPHeader.ETAG, tag);
+        verify(res).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(res, never()).setContentLength(anyInt());
+        assertEquals(0, body.size());
+    }
+    
+    @Test
+    public void explicitTagIsEvaluated() throws Exception {
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = newResponse(body);
+        StreamView view = new Response.OK().withTag("\"v1\"").withContent("hello");
+        view.render(newRequest("\"v1\""), res, newProperties(true));
+        
+        verify(res).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(0, body.size());
+    }
+    
+    @Test
+    public void tagIsIgnoredForOtherStatuses() throws Exception {
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = newResponse(body);
+        new Response.NotFound().withContent("missing").withAutoTag()
+            .render(newRequest("*"), res, newProperties(false));
+        
+        verify(res, never()).setHeader(eq(HTTPHeader.ETAG), anyString());
+        verify(res, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals("missing", body.toString());
+    }
+    
+    private static HttpServletRequest newRequest(String ifNoneMatch) {
+        
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getHeader(HTTPHeader.IF_NONE_MATCH)).thenReturn(ifNoneMatch);
+        return req;
+    }
+    
+    private static HttpServletResponse newResponse(final ByteArrayOutputStream body) throws Exception {
+        
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        when(res.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        return res;
+    }
+    
+    private static AppProperties newProperties(boolean autoTag) {
+        
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        if (autoTag) {
+            properties.put(StreamView.AUTO_TAG_PROPERTY, Boolean.TRUE);
+        }
+        return new AppProperties() {
+            public Object getProperty(String name) {
+                return properties.get(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.mojavemvc.marshalling.FieldFilter;
+import org.mojavemvc.marshalling.JSONEntityMarshaller;
+import org.mojavemvc.marshalling.JacksonCodec;
+import org.mojavemvc.marshalling.StreamingJSONEntityMarshaller;
+import org.mojavemvc.views.JSON;
+import org.mojavemvc.views.StreamView;
+import org.mojavemvc.views.StreamingJSON;
+import org.mojavemvc.views.View;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * @author Luis Antunes
+ */
+public class TestFieldFilter {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void filterIsParsedOncePerExpression() {
+
+        FieldFilter filter = FieldFilter.of("id,customer.name");
+        assertNotNull(filter);
+        assertEquals("id,customer.name", filter.getExpression());
+        assertSame(filter, FieldFilter.of("id,customer.name"));
+
+        assertNull(FieldFilter.of(null));
+        assertNull(FieldFilter.of(""));
+        assertNull(FieldFilter.of(" , . "));
+    }
+
+    @Test
+    public void selectedPropertiesAreWritten() throws Exception {
+
+        JSON view = new JSON(newOrder(), new JacksonCodec(),
+                FieldFilter.of("id, customer.name,items.sku"));
+
+        assertJson("{'id':1,'customer':{'name':'Ann'},'items':[{'sku':'a'},{'sku':'b'}]}",
+                view.toString());
+    }
+
+    @Test
+    public void propertyWithoutNestedPropertiesIsWrittenInFull() throws Exception {
+
+        JSON view = new JSON(newOrder(), new JacksonCodec(),
+                FieldFilter.of("customer,customer.name"));
+
+        assertJson("{'customer':{'name':'Ann','email':'ann@example.com'}}", view.toString());
+    }
+
+    @Test
+    public void unknownPropertiesAreIgnored() throws Exception {
+
+        JSON view = new JSON(newOrder(), new JacksonCodec(), FieldFilter.of("id,total.amount"));
+
+        assertJson("{'id':1}", view.toString());
+    }
+
+    @Test
+    public void unfilteredWritersAreUnaffected() throws Exception {
+
+        JacksonCodec codec = new JacksonCodec();
+        Order order = newOrder();
+        new JSON(order, codec, FieldFilter.of("id"));
+
+        assertJson(mapper.writeValueAsString(order), new JSON(order, codec).toString());
+        assertJson(mapper.writeValueAsString(order), new JSON(order, codec, null).toString());
+    }
+
+    @Test
+    public void jsonEntityMarshallerFiltersEntity() throws Exception {
+
+        JSONEntityMarshaller m = new JSONEntityMarshaller();
+        View v = m.marshall(newOrder(), FieldFilter.of("id"));
+        assertTrue(v instanceof JSON);
+        assertJson("{'id':1}", v.toString());
+    }
+
+    @Test
+    public void streamingJsonEntityMarshallerFiltersEntity() throws Exception {
+
+        StreamingJSONEntityMarshaller m = new StreamingJSONEntityMarshaller();
+        View v = m.marshall(newOrder(), FieldFilter.of("items.qty"));
+        assertTrue(v instanceof StreamingJSON);
+        assertJson("{'items':[{'qty':2},{'qty':3}]}", render((StreamView) v));
+    }
+
+    private static void assertJson(String expected, String actual) throws Exception {
+
+        JsonNode expectedTree = mapper.readTree(expected.replace('\'', '"'));
+        assertEquals(expectedTree, mapper.readTree(actual));
+    }
+
+    private static String render(StreamView view) throws Exception {
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        when(res.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        view.render(mock(HttpServletRequest.class), res, null);
+        return body.toString("UTF-8");
+    }
+
+    private static Order newOrder() {
+
+        return new Order(1, new Customer("Ann", "ann@example.com"),
+                Arrays.asList(new Item("a", 2), new Item("b", 3)));
+    }
+
+    /*------------------------------------*/
+
+    public static class Order {
+
+        private final int id;
+        private final Customer customer;
+        private final List<Item> items;
+
+        public Order(int id, Customer customer, List<Item> items) {
+            this.id = id;
+            this.customer = customer;
+            this.items = items;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+    }
+
+    public static class Customer {
+
+        private final String name;
+        private final String email;
+
+        public Customer(String name, String email) {
+            this.name = name;
+            this.email = email;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+    }
+
+    public static class Item {
+
+        private final String sku;
+        private final int qty;
+
+        public Item(String sku, int qty) {
+            this.sku = sku;
+            this.qty = qty;
+        }
+
+        public String getSku() {
+            return sku;
+        }
+
+        public int getQty() {
+            return qty;
+        }
+    }
+}
@@ -17,10 +17,20 @@
 
 import static junit.framework.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
+import org.mojavemvc.tests.controllers.CoalescedRevalidatedController;
 import org.mojavemvc.tests.controllers.StartupController;
 import org.mojavemvc.tests.initializers.SomeInitializer;
 import org.mojavemvc.tests.initializers.SomeOtherInitializer;
@@ -1761,6 +1771,30 @@ public void marshallingReturnsJSON() throws Exception {
             .withContent("{\"val\":\"marshalledJSON\"}");
     }
     
+    @Test
+    public void marshallingReturnsSparseJSON() throws Exception {
+        
+        assertThatRequestFor("/marshalling/returns/json/sparse?fields=other")
+            .producesResponse()
+            .withContentType("application/json")
+            .withContent("{}");
+        
+        assertThatRequestFor("/marshalling/returns/json/sparse?fields=val")
+            .producesResponse()
+            .withContentType("application/json")
+            .withContent("{\"val\":\"marshalledJSON\"}");
+    }
+    
+    @Test
+    public void marshallingReturnsJSONWithoutSparseFieldsets() throws Exception {
+        
+        /* the action binds its own fields parameter */
+        assertThatRequestFor("/marshalling/returns/json/fields?fields=other")
+            .producesResponse()
+            .withContentType("application/json")
+            .withContent("{\"val\":\"other\"}");
+    }
+    
     @Test
     public void marshallingReturnsXML() throws Exception {
         
@@ -1830,6 +1864,61 @@ public void marshallingReturnsEmbeddedXML() throws Exception {
             .withContent("<SimplePojo><val>marshalledXML</val></SimplePojo>");
     }
     
+    @Test
+    public void coalescedConditionalRequestDoesNotShareNotModified() throws Exception {
+        
+        CoalescedRevalidatedController.reportCount.set(0);
+        CoalescedRevalidatedController.entered = new CountDownLatch(1);
+        CoalescedRevalidatedController.proceed = new CountDownLatch(1);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final HttpURLConnection leader = openConnection("/coalesced-revalidated/report?id=1");
+            leader.setIfModifiedSince(CoalescedRevalidatedController.MODIFIED + 1000);
+            Future<Integer> leaderStatus = executor.submit(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    return leader.getResponseCode();
+                }
+            });
+            assertTrue(CoalescedRevalidatedController.entered.await(5, TimeUnit.SECONDS));
+            
+            final HttpURLConnection follower = openConnection("/coalesced-revalidated/report?id=1");
+            Future<Integer> followerStatus = executor.submit(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    return follower.getResponseCode();
+                }
+            });
+            Thread.sleep(200);
+            CoalescedRevalidatedController.proceed.countDown();
+            
+            assertEquals(304, leaderStatus.get(5, TimeUnit.SECONDS).intValue());
+            assertEquals(200, followerStatus.get(5, TimeUnit.SECONDS).intValue());
+            assertTrue(readBody(follower).contains("report 1"));
+            assertEquals(CoalescedRevalidatedController.MODIFIED, follower.getLastModified());
+            assertEquals(1, CoalescedRevalidatedController.reportCount.get());
+            
+        } finally {
+            CoalescedRevalidatedController.proceed.countDown();
+            executor.shutdownNow();
+        }
+    }
+    
+    private static String readBody(HttpURLConnection connection) throws Exception {
+        
+        InputStream in = connection.getInputStream();
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                body.write(buffer, 0, n);
+            }
+            return body.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+    
     @Test
     public void initializerIsInvoked() {
         
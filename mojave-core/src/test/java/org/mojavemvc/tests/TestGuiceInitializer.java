@@ -28,9 +28,11 @@
 import org.junit.Test;
 import org.mojavemvc.core.GuiceInitializer;
 import org.mojavemvc.initialization.AppProperties;
+import org.mojavemvc.marshalling.JacksonCodec;
 import org.mojavemvc.tests.controllers.IInjectableController;
 import org.mojavemvc.tests.modules.SomeModule;
 import org.mojavemvc.tests.services.SomeService;
+import org.mojavemvc.views.BufferPool;
 
 import com.google.inject.Binding;
 import com.google.inject.Injector;
@@ -54,6 +56,22 @@ public void injectorHasBasicBindings() throws Exception {
         assertBindingExistsFor(HttpServletResponse.class, bindings);
         assertBindingExistsFor(HttpSession.class, bindings);
         assertBindingExistsFor(AppProperties.class, bindings);
+        assertBindingExistsFor(JacksonCodec.class, bindings);
+        assertSame(injector.getInstance(JacksonCodec.class), injector.getInstance(JacksonCodec.class));
+        assertBindingExistsFor(BufferPool.class, bindings);
+        assertSame(injector.getInstance(BufferPool.class), injector.getInstance(BufferPool.class));
+    }
+
+    @Test
+    public void injectorBindsGivenCodecAndBufferPool() throws Exception {
+
+        JacksonCodec codec = new JacksonCodec();
+        BufferPool pool = new BufferPool();
+        Injector injector = new GuiceInitializer(new HashSet<Class<? extends Module>>(), 
+                new HashSet<Module>(), newAppProperties(), null, codec, pool).initializeInjector();
+
+        assertSame(codec, injector.getInstance(JacksonCodec.class));
+        assertSame(pool, injector.getInstance(BufferPool.class));
     }
 
     @Test
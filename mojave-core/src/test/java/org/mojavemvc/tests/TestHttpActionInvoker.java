@@ -26,6 +26,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -38,16 +39,21 @@
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.mojavemvc.core.ActionCompletion;
 import org.mojavemvc.core.ActionInvoker;
 import org.mojavemvc.core.ActionSignature;
+import org.mojavemvc.core.AsyncActionHandler;
+import org.mojavemvc.core.AsyncResultAdapter;
 import org.mojavemvc.core.ControllerDatabase;
 import org.mojavemvc.core.HttpActionInvoker;
+import org.mojavemvc.core.InvocationPlan;
 import org.mojavemvc.core.MappedControllerDatabase;
 import org.mojavemvc.core.RegexRouteMap;
 import org.mojavemvc.core.RoutedRequest;
 import org.mojavemvc.core.ServletResourceModule;
 import org.mojavemvc.initialization.AppProperties;
 import org.mojavemvc.marshalling.EntityMarshaller;
+import org.mojavemvc.tests.controllers.RevalidatedController;
 import org.mojavemvc.tests.controllers.SomeStatelessController;
 import org.mojavemvc.tests.interceptors.Interceptor1;
 import org.mojavemvc.tests.interceptors.Interceptor1b;
@@ -64,6 +70,7 @@
 import org.mojavemvc.tests.othercontrollers.InterceptedController8;
 import org.mojavemvc.tests.othercontrollers.InterceptedController9;
 import org.mojavemvc.tests.views.HTMLPage;
+import org.mojavemvc.views.Response;
 import org.mojavemvc.views.View;
 
 import com.google.inject.Guice;
@@ -132,6 +139,148 @@ public void testInvokeAction() throws Exception {
         assertEquals(1, setup.controller.afterInvokeCount);
     }
     
+    @Test
+    public void testInvokeActionReturningCallable() throws Exception {
+
+        String methodName = "doSomethingLater";
+
+        SetUp<SomeStatelessController> setup = 
+                setUp(SomeStatelessController.class, methodName, "do-something-later");
+        ActionInvoker invoker = new HttpActionInvoker(req, res, setup.db, routed, injector);
+
+        HTMLPage view = (HTMLPage) invoker.invokeAction(setup.controller, setup.signature);
+
+        assertNotNull(view);
+        assertEquals("later", view.getH2Content());
+        assertEquals(1, setup.controller.beforeInvokeCount);
+        assertEquals(1, setup.controller.afterInvokeCount);
+    }
+    
+    @Test
+    public void testInvokeActionAsynchronously() throws Exception {
+
+        String methodName = "doSomethingLater";
+
+        SetUp<SomeStatelessController> setup = 
+                setUp(SomeStatelessController.class, methodName, "do-something-later");
+        InvocationPlan plan = new InvocationPlan(setup.db, SomeStatelessController.class, 
+                setup.signature, "do-something-later");
+        
+        final Object[] handled = new Object[3];
+        View view = plan.invoke(setup.controller, routed, req, res, injector, new AsyncActionHandler() {
+            public void handle(Object actionResult, AsyncResultAdapter adapter, ActionCompletion completion) {
+                handled[0] = actionResult;
+                handled[1] = adapter;
+                handled[2] = completion;
+            }
+        });
+        
+        assertNull(view);
+        assertTrue(handled[0] instanceof Callable);
+        assertEquals(1, setup.controller.beforeInvokeCount);
+        assertEquals(0, setup.controller.afterInvokeCount);
+        
+        Object value = ((AsyncResultAdapter) handled[1]).await(handled[0]);
+        view = ((ActionCompletion) handled[2]).complete(value);
+        
+        assertEquals("later", ((HTMLPage) view).getH2Content());
+        assertEquals(1, setup.controller.afterInvokeCount);
+    }
+    
+    @Test
+    public void testLastModifiedSkipsAction() throws Exception {
+
+        RevalidatedController controller = new RevalidatedController();
+        ControllerDatabase db = newRevalidatedControllerDatabase();
+        when(req.getMethod()).thenReturn("GET");
+        when(req.getDateHeader("If-Modified-Since")).thenReturn(RevalidatedController.MODIFIED + 500);
+        parametersMap.put("id", new String[] { "1" });
+        
+        View view = invokeRevalidated(db, controller, "report");
+        
+        assertTrue(view instanceof Response.NotModified);
+        assertEquals(0, controller.reportCount);
+        verify(res).setDateHeader("Last-Modified", RevalidatedController.MODIFIED);
+    }
+    
+    @Test
+    public void testLastModifiedInvokesModifiedAction() throws Exception {
+
+        RevalidatedController controller = new RevalidatedController();
+        ControllerDatabase db = newRevalidatedControllerDatabase();
+        when(req.getMethod()).thenReturn("GET");
+        when(req.getDateHeader("If-Modified-Since")).thenReturn(RevalidatedController.MODIFIED - 1000);
+        parametersMap.put("id", new String[] { "1" });
+        
+        HTMLPage view = (HTMLPage) invokeRevalidated(db, controller, "report");
+        
+        assertEquals("report 1", view.getH2Content());
+        assertEquals(1, controller.reportCount);
+    }
+    
+    @Test
+    public void testLastModifiedReturningNullInvokesAction() throws Exception {
+
+        RevalidatedController controller = new RevalidatedController();
+        ControllerDatabase db = newRevalidatedControllerDatabase();
+        when(req.getMethod()).thenReturn("GET");
+        when(req.getDateHeader("If-Modified-Since")).thenReturn(RevalidatedController.MODIFIED);
+        parametersMap.put("id", new String[] { "missing" });
+        
+        invokeRevalidated(db, controller, "report");
+        
+        assertEquals(1, controller.reportCount);
+        verify(res, never()).setDateHeader(eq("Last-Modified"), anyLong());
+    }
+    
+    @Test
+    public void testEntityTagSkipsAction() throws Exception {
+
+        RevalidatedController controller = new RevalidatedController();
+        ControllerDatabase db = newRevalidatedControllerDatabase();
+        when(req.getMethod()).thenReturn("GET");
+        when(req.getHeader("If-None-Match")).thenReturn("\"v2\"");
+        
+        parametersMap.put("id", new String[] { "2" });
+        View view = invokeRevalidated(db, controller, "page");
+        assertTrue(view instanceof Response.NotModified);
+        assertEquals(0, controller.pageCount);
+        verify(res).setHeader("ETag", "\"v2\"");
+        
+        parametersMap.put("id", new String[] { "3" });
+        invokeRevalidated(db, controller, "page");
+        assertEquals(1, controller.pageCount);
+    }
+    
+    @Test
+    public void testRevalidationIsOnlyForSafeMethods() throws Exception {
+
+        RevalidatedController controller = new RevalidatedController();
+        ControllerDatabase db = newRevalidatedControllerDatabase();
+        when(req.getMethod()).thenReturn("POST");
+        when(req.getHeader("If-None-Match")).thenReturn("*");
+        parametersMap.put("id", new String[] { "2" });
+        
+        invokeRevalidated(db, controller, "page");
+        
+        assertEquals(1, controller.pageCount);
+    }
+    
+    private ControllerDatabase newRevalidatedControllerDatabase() {
+        
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(RevalidatedController.class);
+        return newControllerDatabase(controllerClasses);
+    }
+    
+    private View invokeRevalidated(ControllerDatabase db, RevalidatedController controller, 
+            String action) throws Exception {
+        
+        ActionSignature sig = db.getActionMethodSignature(RevalidatedController.class, action);
+        ActionInvoker invoker = new HttpActionInvoker(req, res, db, routed, injector);
+        return invoker.invokeAction(controller, sig);
+    }
+    
     @Test
     public void testInvokeDefaultAction() throws Exception {
 
@@ -15,18 +15,31 @@
  */
 package org.mojavemvc.tests;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mojavemvc.core.HttpParameterMapSource;
+import org.mojavemvc.core.MultipartConfig;
+import org.mojavemvc.forms.UploadedFile;
 
 /**
  * @author Luis Antunes
@@ -45,25 +58,170 @@ public void beforeEachTest() {
     @Test
     public void parameterMapExtractedFromRegularRequest() {
         
-        HashMap<String, Object> paramMap = new HashMap<String, Object>();
-        paramMap.put("name", new String[]{"John"});
+        String[] values = new String[]{"John"};
+        HashMap<String, String[]> paramMap = new HashMap<String, String[]>();
+        paramMap.put("name", values);
         when(req.getParameterMap()).thenReturn(paramMap);
+        when(req.getParameterValues("name")).thenReturn(values);
         
         Map<String, Object> extracted = newParamMapSource().getParameterMap();
         
         assertEquals(paramMap, extracted);
     }
     
-    /*
-     * TODO
-     * - set up an HttpServletRequest multipart request
-     * to test with, and implement tests for extracting
-     * a parameter map from multipart requests
-     */
+    @Test
+    public void parameterLookedUpWithoutBuildingMap() {
+        
+        when(req.getParameterValues("name")).thenReturn(new String[]{"John"});
+        
+        Map<String, Object> extracted = newParamMapSource().getParameterMap();
+        
+        assertArrayEquals(new String[]{"John"}, (String[])extracted.get("name"));
+        assertNull(extracted.get("age"));
+        verify(req, never()).getParameterMap();
+    }
+    
+    @Test
+    public void repeatedFieldsExtractedFromMultipartRequest() throws Exception {
+        
+        givenMultipartBody(
+                field("name", "John"), 
+                field("name", "Jane"));
+        
+        Map<String, Object> extracted = newParamMapSource().getParameterMap();
+        
+        assertArrayEquals(new String[]{"John", "Jane"}, (String[])extracted.get("name"));
+    }
+    
+    @Test
+    public void fileStreamedFromMultipartRequest() throws Exception {
+        
+        givenMultipartBody(
+                field("desc", "a file"), 
+                file("upload", "test.txt", "hello world"));
+        
+        HttpParameterMapSource source = newStreamingParamMapSource(1024, null);
+        Map<String, Object> extracted = source.getParameterMap();
+        
+        assertArrayEquals(new String[]{"a file"}, (String[])extracted.get("desc"));
+        UploadedFile file = (UploadedFile)extracted.get("upload");
+        assertEquals("test.txt", file.getFileName());
+        assertEquals("text/plain", file.getContentType());
+        /* still being read from the request */
+        assertEquals(-1, file.getSize());
+        assertEquals("hello world", read(file.getInputStream()));
+        source.release();
+    }
+    
+    @Test
+    public void fileKeptInMemoryWhenReadPast() throws Exception {
+        
+        givenMultipartBody(
+                file("upload", "test.txt", "hello world"),
+                field("desc", "a file"));
+        
+        HttpParameterMapSource source = newStreamingParamMapSource(1024, null);
+        Map<String, Object> extracted = source.getParameterMap();
+        
+        UploadedFile file = (UploadedFile)extracted.get("upload");
+        assertArrayEquals(new String[]{"a file"}, (String[])extracted.get("desc"));
+        assertTrue(file.isInMemory());
+        assertEquals(11, file.getSize());
+        assertEquals("hello world", read(file.getInputStream()));
+        source.release();
+    }
+    
+    @Test
+    public void fileWrittenToTempDirWhenReadPast() throws Exception {
+        
+        File tempDir = createTempDir();
+        givenMultipartBody(
+                file("upload", "test.txt", "hello world"),
+                field("desc", "a file"));
+        
+        HttpParameterMapSource source = newStreamingParamMapSource(4, tempDir);
+        Map<String, Object> extracted = source.getParameterMap();
+        
+        UploadedFile file = (UploadedFile)extracted.get("upload");
+        InputStream in = file.getInputStream();
+        assertEquals('h', in.read());
+        assertNull(extracted.get("unknown"));
+        assertFalse(file.isInMemory());
+        assertEquals(11, file.getSize());
+        assertEquals(1, tempDir.list().length);
+        assertEquals("ello world", read(in));
+        
+        source.release();
+        assertEquals(0, tempDir.list().length);
+        tempDir.delete();
+    }
+    
+    @Test(expected = RuntimeException.class)
+    public void requestLargerThanMaxSizeRejected() throws Exception {
+        
+        givenMultipartBody(file("upload", "test.txt", "hello world"));
+        
+        new HttpParameterMapSource(req, new MultipartConfig(true, 1024, null, -1, 10))
+            .getParameterMap().get("upload");
+    }
     
     /*----------------------*/
     
     private HttpParameterMapSource newParamMapSource() {
         return new HttpParameterMapSource(req);
     }
+    
+    private HttpParameterMapSource newStreamingParamMapSource(int memoryThreshold, File tempDir) {
+        return new HttpParameterMapSource(req, 
+                new MultipartConfig(true, memoryThreshold, tempDir, -1, -1));
+    }
+    
+    private static final String BOUNDARY = "----mojave-test-boundary";
+    
+    private void givenMultipartBody(String... parts) throws Exception {
+        
+        StringBuilder body = new StringBuilder();
+        for (String part : parts) {
+            body.append("--").append(BOUNDARY).append("\r\n").append(part).append("\r\n");
+        }
+        body.append("--").append(BOUNDARY).append("--\r\n");
+        
+        final InputStream in = new ByteArrayInputStream(body.toString().getBytes("ISO-8859-1"));
+        when(req.getMethod()).thenReturn("POST");
+        when(req.getContentType()).thenReturn("multipart/form-data; boundary=" + BOUNDARY);
+        when(req.getContentLength()).thenReturn(body.length());
+        when(req.getInputStream()).thenReturn(new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                return in.read();
+            }
+        });
+    }
+    
+    private String field(String name, String value) {
+        return "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value;
+    }
+    
+    private String file(String name, String fileName, String content) {
+        return "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + fileName + "\"\r\n" 
+                + "Content-Type: text/plain\r\n\r\n" + content;
+    }
+    
+    private String read(InputStream in) throws IOException {
+        
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            sb.append((char)b);
+        }
+        return sb.toString();
+    }
+    
+    private File createTempDir() throws IOException {
+        
+        File tempDir = File.createTempFile("mojave-test", "");
+        tempDir.delete();
+        tempDir.mkdir();
+        return tempDir;
+    }
 }
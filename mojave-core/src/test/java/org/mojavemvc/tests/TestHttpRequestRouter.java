@@ -17,6 +17,7 @@
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -33,6 +34,7 @@
 import org.mojavemvc.core.ParameterMapSource;
 import org.mojavemvc.core.Route;
 import org.mojavemvc.core.RouteMap;
+import org.mojavemvc.core.RouteMatch;
 import org.mojavemvc.core.RoutedRequest;
 import org.mojavemvc.exception.NoMatchingRouteException;
 
@@ -78,8 +80,8 @@ public void handlesEmptyPath() {
     public void handlesRootPath() {
         
         String pathInfo = "/";
-        when(routeMap.getRoute(pathInfo))
-            .thenReturn(new Route(null, null, null));
+        when(routeMap.match(pathInfo))
+            .thenReturn(new RouteMatch(new Route(null, null, null), null));
         
         RoutedRequest routed = newRouter(pathInfo).route();
         
@@ -92,8 +94,8 @@ public void handlesRootPath() {
     public void handlesControllerOnly() {
         
         String pathInfo = "/cntrl";
-        when(routeMap.getRoute(pathInfo))
-            .thenReturn(new Route("cntrl", null, null));
+        when(routeMap.match(pathInfo))
+            .thenReturn(new RouteMatch(new Route("cntrl", null, null), null));
         
         
         RoutedRequest routed = newRouter(pathInfo).route();
@@ -107,8 +109,8 @@ public void handlesControllerOnly() {
     public void handlesControllerAndAction_NoPathParams() {
         
         String pathInfo = "/cntrl/actn";
-        when(routeMap.getRoute(pathInfo))
-            .thenReturn(new Route("cntrl", "actn", null));
+        when(routeMap.match(pathInfo))
+            .thenReturn(new RouteMatch(new Route("cntrl", "actn", null), null));
         
         RoutedRequest routed = newRouter(pathInfo).route();
         
@@ -121,7 +123,7 @@ public void handlesControllerAndAction_NoPathParams() {
     public void handlesRouteNotFound() {
         
         String pathInfo = "/cntrl/actn/unknown";
-        when(routeMap.getRoute(pathInfo)).thenReturn(null);
+        when(routeMap.match(pathInfo)).thenReturn(null);
         
         try {
             newRouter(pathInfo).route();
@@ -135,8 +137,9 @@ public void handlesRouteNotFound() {
     public void handlesControllerAndAction_OnePathParam() {
         
         String pathInfo = "/cntrl/actn/123";
-        when(routeMap.getRoute(pathInfo))
-            .thenReturn(new Route("cntrl", "actn", ":id"));
+        when(routeMap.match(pathInfo))
+            .thenReturn(new RouteMatch(new Route("cntrl", "actn", ":id"), 
+                    new String[]{"123"}));
         
         RoutedRequest routed = newRouter(pathInfo).route();
         
@@ -152,8 +155,9 @@ public void handlesControllerAndAction_OnePathParam() {
     public void handlesControllerAndAction_TwoPathParams() {
         
         String pathInfo = "/cntrl/actn/123/tom";
-        when(routeMap.getRoute(pathInfo))
-            .thenReturn(new Route("cntrl", "actn", ":id/:name"));
+        when(routeMap.match(pathInfo))
+            .thenReturn(new RouteMatch(new Route("cntrl", "actn", ":id/:name"), 
+                    new String[]{"123", "tom"}));
         
         RoutedRequest routed = newRouter(pathInfo).route();
         
@@ -172,8 +176,9 @@ public void handlesControllerAndAction_TwoPathParams() {
     public void handlesControllerAndAction_OnePathParam_AlreadyExists() {
         
         String pathInfo = "/cntrl/actn/123";
-        when(routeMap.getRoute(pathInfo))
-            .thenReturn(new Route("cntrl", "actn", ":id"));
+        when(routeMap.match(pathInfo))
+            .thenReturn(new RouteMatch(new Route("cntrl", "actn", ":id"), 
+                    new String[]{"123"}));
         paramMap.put("id", new String[]{"456"});
         
         RoutedRequest routed = newRouter(pathInfo).route();
@@ -190,8 +195,9 @@ public void handlesControllerAndAction_OnePathParam_AlreadyExists() {
     public void handlesControllerAndAction_OnePathParam_AnotherExists() {
         
         String pathInfo = "/cntrl/actn/123";
-        when(routeMap.getRoute(pathInfo))
-            .thenReturn(new Route("cntrl", "actn", ":id"));
+        when(routeMap.match(pathInfo))
+            .thenReturn(new RouteMatch(new Route("cntrl", "actn", ":id"), 
+                    new String[]{"123"}));
         paramMap.put("name", new String[]{"tom"});
         
         RoutedRequest routed = newRouter(pathInfo).route();
@@ -207,6 +213,26 @@ public void handlesControllerAndAction_OnePathParam_AnotherExists() {
         assertArrayEquals(new String[]{"tom"}, (String[])val);
     }
     
+    @Test
+    public void handlesControllerAndAction_OnePathParam_IteratesAllParams() {
+        
+        String pathInfo = "/cntrl/actn/123";
+        when(routeMap.match(pathInfo))
+            .thenReturn(new RouteMatch(new Route("cntrl", "actn", ":id"), 
+                    new String[]{"123"}));
+        paramMap.put("id", new String[]{"456"});
+        paramMap.put("name", new String[]{"tom"});
+        
+        RoutedRequest routed = newRouter(pathInfo).route();
+        
+        Map<String, Object> paramMap = routed.getParameterMap();
+        assertEquals(2, paramMap.size());
+        assertArrayEquals(new String[]{"123"}, (String[])paramMap.get("id"));
+        assertArrayEquals(new String[]{"tom"}, (String[])paramMap.get("name"));
+        assertTrue(paramMap.containsKey("name"));
+        assertFalse(paramMap.containsKey("age"));
+    }
+    
     /*----------------------*/
     
     private HttpRequestRouter newRouter(String pathInfo) {
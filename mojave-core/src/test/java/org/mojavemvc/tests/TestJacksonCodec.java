@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.mojavemvc.initialization.AppProperties;
+import org.mojavemvc.marshalling.JSONEntityMarshaller;
+import org.mojavemvc.marshalling.JacksonCodec;
+import org.mojavemvc.marshalling.JacksonCodec.Format;
+import org.mojavemvc.tests.TestEntityMarshallers.SimplePojo;
+import org.mojavemvc.views.JSON;
+import org.mojavemvc.views.StreamingJSON;
+import org.mojavemvc.views.View;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * @author Luis Antunes
+ */
+public class TestJacksonCodec {
+
+    @Test
+    public void readersAndWritersAreReused() {
+        
+        JacksonCodec codec = new JacksonCodec();
+        for (Format format : Format.values()) {
+            ObjectReader reader = codec.readerFor(format, SimplePojo.class);
+            ObjectWriter writer = codec.writerFor(format, SimplePojo.class);
+            assertSame(reader, codec.readerFor(format, SimplePojo.class));
+            assertSame(writer, codec.writerFor(format, SimplePojo.class));
+            assertSame(writer, codec.writerForValue(format, new SimplePojo("test")));
+        }
+        assertNotSame(codec.writerFor(Format.JSON, SimplePojo.class), 
+                codec.writerFor(Format.SMILE, SimplePojo.class));
+    }
+    
+    @Test
+    public void registeredModuleAppliesToViewsAndMarshallers() throws Exception {
+        
+        JacksonCodec codec = new JacksonCodec();
+        codec.registerModule(newUpperCaseModule());
+        
+        SimplePojo entity = new SimplePojo("test");
+        assertEquals("\"TEST\"", new JSON(entity, codec).toString());
+        assertEquals("\"TEST\"", new StreamingJSON(entity, codec).toString());
+        assertEquals("\"TEST\"", new JSONEntityMarshaller(codec).marshall(entity).toString());
+        
+        /* the default codec is unaffected */
+        assertEquals("{\"val\":\"test\"}", new JSON(entity).toString());
+    }
+    
+    @Test
+    public void viewsWithoutCodecRenderThroughApplicationCodec() throws Exception {
+        
+        JacksonCodec codec = new JacksonCodec();
+        codec.registerModule(newUpperCaseModule());
+        AppProperties properties = mock(AppProperties.class);
+        when(properties.getProperty(JacksonCodec.PROPERTY)).thenReturn(codec);
+        assertSame(codec, JacksonCodec.of(properties));
+        assertSame(JacksonCodec.getDefault(), JacksonCodec.of(null));
+        assertSame(JacksonCodec.getDefault(), JacksonCodec.of(mock(AppProperties.class)));
+        
+        SimplePojo entity = new SimplePojo("test");
+        assertEquals("\"TEST\"", render(new JSON(entity), properties));
+        assertEquals("\"TEST\"", render(new StreamingJSON(entity), properties));
+        
+        /* without the app properties, the default codec is used */
+        assertEquals("{\"val\":\"test\"}", render(new JSON(entity), null));
+        assertEquals("{\"val\":\"test\"}", render(new StreamingJSON(entity), null));
+        
+        /* a codec given to the view is used whatever the app properties hold */
+        assertEquals("{\"val\":\"test\"}", 
+                render(new JSON(entity, new JacksonCodec()), properties));
+    }
+    
+    private static String render(View view, AppProperties properties) throws Exception {
+        
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        when(res.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        view.render(mock(HttpServletRequest.class), res, properties);
+        return body.toString("UTF-8");
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void moduleCannotBeRegisteredAfterUse() {
+        
+        JacksonCodec codec = new JacksonCodec();
+        codec.writerFor(Format.JSON, SimplePojo.class);
+        codec.registerModule(newUpperCaseModule());
+    }
+    
+    @Test
+    public void marshallerUnmarshallsWithCodec() {
+        
+        JSONEntityMarshaller m = new JSONEntityMarshaller(new JacksonCodec());
+        m.prewarm(SimplePojo.class);
+        SimplePojo entity = m.unmarshall(
+                new ByteArrayInputStream("{\"val\":\"test\"}".getBytes()), SimplePojo.class);
+        assertEquals("test", entity.getVal());
+    }
+    
+    @Test
+    public void acceleratorIsRegistered() {
+        
+        JacksonCodec codec = new JacksonCodec();
+        assertTrue(codec.registerAccelerator());
+        
+        SimplePojo entity = new SimplePojo("test");
+        assertEquals("{\"val\":\"test\"}", new JSON(entity, codec).toString());
+    }
+    
+    @Test
+    public void prewarmIgnoresTypesItCannotHandle() {
+        
+        JacksonCodec codec = new JacksonCodec();
+        codec.prewarm(Format.JSON, null);
+        codec.prewarm(Format.JSON, Void.TYPE);
+        codec.prewarm(Format.JSON, Runnable.class);
+        codec.prewarm(Format.XML, SimplePojo.class);
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void defaultCodecCannotBeConfigured() {
+        
+        JacksonCodec.getDefault().registerModule(newUpperCaseModule());
+    }
+    
+    private static SimpleModule newUpperCaseModule() {
+        
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(SimplePojo.class, new UpperCaseSerializer());
+        return module;
+    }
+    
+    /*------------------------------------*/
+    
+    private static class UpperCaseSerializer extends JsonSerializer<SimplePojo> {
+        
+        @Override
+        public void serialize(SimplePojo value, JsonGenerator jgen, SerializerProvider provider)
+                throws IOException, JsonProcessingException {
+            jgen.writeString(value.getVal().toUpperCase());
+        }
+    }
+}
@@ -16,49 +16,85 @@
 package org.mojavemvc.tests;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.sf.cglib.reflect.FastClass;
 
 import org.junit.Test;
 import org.mojavemvc.annotations.Action;
+import org.mojavemvc.annotations.Actor;
 import org.mojavemvc.annotations.AfterAction;
 import org.mojavemvc.annotations.AfterConstruct;
 import org.mojavemvc.annotations.BeforeAction;
 import org.mojavemvc.annotations.DELETEAction;
 import org.mojavemvc.annotations.DefaultAction;
 import org.mojavemvc.annotations.DefaultController;
+import org.mojavemvc.annotations.Entity;
+import org.mojavemvc.annotations.EntityTag;
+import org.mojavemvc.annotations.Expects;
 import org.mojavemvc.annotations.GETAction;
 import org.mojavemvc.annotations.HEADAction;
 import org.mojavemvc.annotations.Init;
 import org.mojavemvc.annotations.InterceptedBy;
+import org.mojavemvc.annotations.LastModified;
 import org.mojavemvc.annotations.OPTIONSAction;
 import org.mojavemvc.annotations.POSTAction;
 import org.mojavemvc.annotations.PUTAction;
 import org.mojavemvc.annotations.Param;
 import org.mojavemvc.annotations.ParamPath;
+import org.mojavemvc.annotations.Returns;
 import org.mojavemvc.annotations.SingletonController;
+import org.mojavemvc.annotations.SingletonInterceptor;
+import org.mojavemvc.annotations.SparseFieldsets;
 import org.mojavemvc.annotations.StatefulController;
 import org.mojavemvc.annotations.StatelessController;
 import org.mojavemvc.annotations.TRACEAction;
+import org.mojavemvc.annotations.VirtualThreads;
 import org.mojavemvc.core.ActionSignature;
 import org.mojavemvc.core.ControllerDatabase;
+import org.mojavemvc.core.ControllerScope;
 import org.mojavemvc.core.DefaultActionSignature;
 import org.mojavemvc.core.HttpMethod;
 import org.mojavemvc.core.HttpMethodActionSignature;
+import org.mojavemvc.core.InterceptorPlan;
+import org.mojavemvc.core.InvocationPlan;
 import org.mojavemvc.core.MappedControllerDatabase;
 import org.mojavemvc.core.Route;
 import org.mojavemvc.core.RouteMap;
+import org.mojavemvc.core.RouteMatch;
+import org.mojavemvc.core.SingletonControllerHolder;
 import org.mojavemvc.exception.ConfigurationException;
 import org.mojavemvc.marshalling.EntityMarshaller;
+import org.mojavemvc.marshalling.FieldFilter;
+import org.mojavemvc.marshalling.JSONEntityMarshaller;
+import org.mojavemvc.marshalling.PlainTextEntityMarshaller;
+import org.mojavemvc.marshalling.SmileEntityMarshaller;
+import org.mojavemvc.tests.TestEntityMarshallers.SimplePojo;
 import org.mojavemvc.tests.views.HTMLPage;
+import org.mojavemvc.views.JSON;
+import org.mojavemvc.views.Response;
+import org.mojavemvc.views.Smile;
 import org.mojavemvc.views.View;
 import org.mojavemvc.views.XML;
 
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
 /**
  * 
  * @author Luis Antunes
@@ -185,6 +221,244 @@ public void testInterceptorInheritance() {
         assertTrue(rm.contains(new Route("interceptor4", "someAction", null)));
     }
 
+    @Test
+    public void testInterceptorPlans() {
+    
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestSingletonInterceptorController.class);
+        ControllerDatabase db = new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+        
+        InterceptorPlan singletonPlan = db.getInterceptorPlan(SingletonInterceptor1.class);
+        assertNotNull(singletonPlan);
+        assertTrue(singletonPlan.isSingleton());
+        assertEquals("before", singletonPlan.getBeforeActionSignature().methodName());
+        assertNull(singletonPlan.getAfterActionSignature());
+        
+        InterceptorPlan plan = db.getInterceptorPlan(Interceptor1.class);
+        assertNotNull(plan);
+        assertFalse(plan.isSingleton());
+        
+        assertNull(db.getInterceptorPlan(TestSingletonInterceptorController.class));
+        
+        Injector injector = mock(Injector.class);
+        when(injector.getInstance(SingletonInterceptor1.class)).thenReturn(new SingletonInterceptor1());
+        Object interceptor = singletonPlan.getInterceptor(injector);
+        assertNotNull(interceptor);
+        assertSame(interceptor, singletonPlan.getInterceptor(injector));
+        verify(injector, times(1)).getInstance(SingletonInterceptor1.class);
+    }
+
+    @Test
+    public void testInvocationPlanForVirtualThreadsController() {
+    
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestVirtualThreadsController.class);
+        ControllerDatabase db = new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+        
+        InvocationPlan plan = db.getInvocationPlan(
+                db.getActionMethodSignature(TestVirtualThreadsController.class, "someAction"));
+        assertNotNull(plan);
+        assertTrue(plan.runsOnVirtualThreads());
+    }
+
+    @Test
+    public void testSingletonHolders() throws Exception {
+    
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestStartupController.class);
+        controllerClasses.add(TestCountingSingletonController.class);
+        controllerClasses.add(TestController.class);
+        ControllerDatabase db = new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+        
+        Set<Class<?>> singletons = db.getSingletonControllers();
+        assertEquals(2, singletons.size());
+        assertTrue(singletons.contains(TestStartupController.class));
+        assertTrue(singletons.contains(TestCountingSingletonController.class));
+        
+        assertNull(db.getSingletonHolder(TestController.class));
+        final SingletonControllerHolder holder = db.getSingletonHolder(TestCountingSingletonController.class);
+        assertNotNull(holder);
+        assertEquals(TestCountingSingletonController.class, holder.getControllerClass());
+        assertNull(holder.getInstance());
+        
+        final Injector injector = Guice.createInjector();
+        final CountDownLatch start = new CountDownLatch(1);
+        int threadCount = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Future<Object>> results = new ArrayList<Future<Object>>();
+        for (int i = 0; i < threadCount; i++) {
+            results.add(executor.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    start.await();
+                    return holder.getController(injector);
+                }
+            }));
+        }
+        start.countDown();
+        
+        Object controller = holder.getController(injector);
+        for (Future<Object> result : results) {
+            assertSame(controller, result.get());
+        }
+        executor.shutdown();
+        
+        assertSame(controller, holder.getInstance());
+        assertEquals(1, TestCountingSingletonController.constructed.get());
+        assertEquals(1, TestCountingSingletonController.initialized.get());
+    }
+
+    @Test
+    public void testActorControllers() {
+    
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestActorController.class);
+        controllerClasses.add(TestCountingSingletonController.class);
+        ControllerDatabase db = new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+        
+        assertNotNull(db.getSingletonHolder(TestActorController.class).getMailbox());
+        assertNull(db.getSingletonHolder(TestCountingSingletonController.class).getMailbox());
+        
+        InvocationPlan plan = db.getInvocationPlan(
+                db.getActionMethodSignature(TestActorController.class, "someAction"));
+        assertSame(db.getSingletonHolder(TestActorController.class).getMailbox(), plan.getMailbox());
+        
+        try {
+            controllerClasses = new HashSet<Class<?>>();
+            controllerClasses.add(TestInvalidActorController.class);
+            new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), 
+                    new HashMap<String, EntityMarshaller>());
+            fail("should have thrown exception");
+        } catch (ConfigurationException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void testRevalidationMethods() {
+    
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestRevalidatedController.class);
+        ControllerDatabase db = new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+        
+        assertEquals("modified", db.getLastModifiedMethodFor(
+                TestRevalidatedController.class, "someAction").methodName());
+        assertEquals("modified", db.getLastModifiedMethodFor(
+                TestRevalidatedController.class, "otherAction").methodName());
+        assertEquals("version", db.getEntityTagMethodFor(
+                TestRevalidatedController.class, "someAction").methodName());
+        assertNull(db.getEntityTagMethodFor(TestRevalidatedController.class, "otherAction"));
+        
+        Class<?>[] invalidControllers = { TestInvalidLastModifiedController.class, 
+                TestMissingEntityTagActionController.class };
+        for (Class<?> invalidController : invalidControllers) {
+            try {
+                controllerClasses = new HashSet<Class<?>>();
+                controllerClasses.add(invalidController);
+                new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), 
+                        new HashMap<String, EntityMarshaller>());
+                fail("should have thrown exception");
+            } catch (ConfigurationException e) {
+                /* expected */
+            }
+        }
+    }
+
+    @Test
+    public void testSequenceEntityParameters() {
+    
+        Map<String, EntityMarshaller> marshallers = new HashMap<String, EntityMarshaller>();
+        marshallers.put("application/json", new JSONEntityMarshaller());
+        marshallers.put("text/plain", new PlainTextEntityMarshaller());
+        
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestSequenceEntityController.class);
+        ControllerDatabase db = new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), 
+                marshallers);
+        
+        String body = "[{\"val\":\"a\"},{\"val\":\"b\"}]";
+        ActionSignature sig = db.getActionMethodSignature(TestSequenceEntityController.class, "iterator");
+        Object[] args = sig.getArgs(new HashMap<String, Object>(), 
+                new ByteArrayInputStream(body.getBytes()));
+        Iterator<?> it = (Iterator<?>)args[0];
+        assertEquals("a", ((SimplePojo)it.next()).getVal());
+        assertEquals("b", ((SimplePojo)it.next()).getVal());
+        assertFalse(it.hasNext());
+        
+        sig = db.getActionMethodSignature(TestSequenceEntityController.class, "iterable");
+        args = sig.getArgs(new HashMap<String, Object>(), new ByteArrayInputStream(body.getBytes()));
+        int count = 0;
+        for (Object element : (Iterable<?>)args[0]) {
+            assertTrue(element instanceof SimplePojo);
+            count++;
+        }
+        assertEquals(2, count);
+        
+        try {
+            controllerClasses = new HashSet<Class<?>>();
+            controllerClasses.add(TestInvalidSequenceEntityController.class);
+            new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), marshallers);
+            fail("should have thrown exception");
+        } catch (ConfigurationException e) {
+            /* expected */
+        }
+    }
+
+    @Test
+    public void testNegotiatedReturns() {
+        
+        Map<String, EntityMarshaller> marshallers = new HashMap<String, EntityMarshaller>();
+        marshallers.put("application/json", new JSONEntityMarshaller());
+        marshallers.put("application/x-jackson-smile", new SmileEntityMarshaller());
+        
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestNegotiatedController.class);
+        ControllerDatabase db = new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), 
+                marshallers);
+        
+        ActionSignature sig = db.getActionMethodSignature(TestNegotiatedController.class, "negotiated");
+        assertTrue(sig.isNegotiated());
+        SimplePojo entity = new SimplePojo("test");
+        
+        assertTrue(sig.marshall(entity, null) instanceof JSON);
+        assertTrue(sig.marshall(entity, "*/*") instanceof JSON);
+        assertTrue(sig.marshall(entity, "application/x-jackson-smile") instanceof Smile);
+        assertTrue(sig.marshall(entity, "application/json;q=0.5, application/*;q=0.8") instanceof Smile);
+        assertTrue(sig.marshall(entity, "application/*;q=0.8, application/json") instanceof JSON);
+        assertTrue(sig.marshall(entity, "*/*;q=0.1, application/x-jackson-smile;q=0") instanceof JSON);
+        assertTrue(sig.marshall(entity, "text/html") instanceof Response.NotAcceptable);
+        /* the negotiation is cached, and returns the same result */
+        assertTrue(sig.marshall(entity, "application/x-jackson-smile") instanceof Smile);
+        /* the fields are applied only when the entity is marshalled as JSON */
+        assertEquals("{}", sig.marshall(entity, "application/json", FieldFilter.of("other")).toString());
+        assertTrue(sig.marshall(entity, "application/x-jackson-smile", FieldFilter.of("other")) instanceof Smile);
+        assertTrue(sig.marshall(entity, "text/html", FieldFilter.of("val")) instanceof Response.NotAcceptable);
+        
+        sig = db.getActionMethodSignature(TestNegotiatedController.class, "single");
+        assertFalse(sig.isNegotiated());
+        assertTrue(sig.marshall(entity, "application/x-jackson-smile") instanceof JSON);
+    }
+    
+    @Test
+    public void testSparseFieldsetsRequireJSON() {
+        
+        Map<String, EntityMarshaller> marshallers = new HashMap<String, EntityMarshaller>();
+        marshallers.put("application/x-jackson-smile", new SmileEntityMarshaller());
+        
+        try {
+            Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+            controllerClasses.add(TestInvalidSparseFieldsetsController.class);
+            new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), marshallers);
+            fail("should have thrown exception");
+        } catch (ConfigurationException e) {
+            /* expected */
+        }
+    }
+    
     @Test
     public void testInvalidInterceptors1() {
 
@@ -1074,6 +1348,56 @@ public void testHttpMethodController() {
         assertTrue(rm.contains(new Route("TestHttpMethodController", null, null)));
     }
 
+    @Test
+    public void testInvocationPlansForActions() {
+
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestController.class);
+        ControllerDatabase db = new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+
+        ActionSignature sig = db.getActionMethodSignature(TestController.class, "test1");
+        InvocationPlan plan = db.getInvocationPlan(new Route("test", "test1", null), HttpMethod.GET);
+        assertNotNull(plan);
+        assertSame(sig, plan.getActionSignature());
+        assertSame(plan, db.getInvocationPlan(sig));
+        assertSame(plan, db.getInvocationPlan(new Route("test", "test1", null), HttpMethod.POST));
+        assertSame(plan, db.getInvocationPlan(new Route(null, "test1", null), HttpMethod.GET));
+        assertEquals(TestController.class, plan.getControllerClass());
+        assertEquals(ControllerScope.STATELESS, plan.getScope());
+        assertFalse(plan.runsOnVirtualThreads());
+        
+        ActionSignature defaultSig = db.getDefaultActionMethodFor(TestController.class);
+        plan = db.getInvocationPlan(new Route("test", null, null), HttpMethod.GET);
+        assertSame(defaultSig, plan.getActionSignature());
+        plan = db.getInvocationPlan(null, HttpMethod.DELETE);
+        assertSame(defaultSig, plan.getActionSignature());
+        
+        assertNull(db.getInvocationPlan(new Route("test", "unknown", null), HttpMethod.GET));
+    }
+
+    @Test
+    public void testInvocationPlansForHttpMethodActions() {
+
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestHttpMethodController2.class);
+        ControllerDatabase db = new MappedControllerDatabase(controllerClasses, new FakeRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+
+        Route route = new Route("TestHttpMethodController2", null, null);
+        InvocationPlan plan = db.getInvocationPlan(route, HttpMethod.GET);
+        assertNotNull(plan);
+        assertEquals("getAction", plan.getActionSignature().methodName());
+        plan = db.getInvocationPlan(route, HttpMethod.POST);
+        assertNotNull(plan);
+        assertEquals("postAction", plan.getActionSignature().methodName());
+        
+        /* no PUT action and no default action */
+        assertNull(db.getInvocationPlan(route, HttpMethod.PUT));
+        /* no default controller */
+        assertNull(db.getInvocationPlan(null, HttpMethod.GET));
+    }
+
     @Test
     public void testHttpMethodController2() {
 
@@ -1732,6 +2056,35 @@ public View defaultAction() {
         }
     }
     
+    @StatelessController("singleton-interceptor")
+    @InterceptedBy({SingletonInterceptor1.class, Interceptor1.class})
+    private static class TestSingletonInterceptorController {
+
+        @Action("someAction")
+        public View someAction() {
+            return null;
+        }
+    }
+    
+    @StatelessController("virtual-threads")
+    @VirtualThreads
+    private static class TestVirtualThreadsController {
+
+        @Action("someAction")
+        public View someAction() {
+            return null;
+        }
+    }
+    
+    @SingletonInterceptor
+    private static class SingletonInterceptor1 {
+        
+        @BeforeAction
+        public View before() {
+            return null;
+        }
+    }
+    
     private static abstract class AbstractInterceptor {
         
         @BeforeAction
@@ -1919,6 +2272,154 @@ private void init2() {
         }
     }
 
+    @StatelessController("revalidated")
+    private static class TestRevalidatedController {
+        
+        @LastModified
+        public long modified() {
+            return 0;
+        }
+        
+        @EntityTag("someAction")
+        public String version() {
+            return "1";
+        }
+        
+        @Action("someAction")
+        public View someAction() {
+            return null;
+        }
+        
+        @Action("otherAction")
+        public View otherAction() {
+            return null;
+        }
+    }
+    
+    @StatelessController("sequence-entity")
+    private static class TestSequenceEntityController {
+        
+        @Action("iterator")
+        @Expects("application/json")
+        public View iterator(@Entity Iterator<SimplePojo> pojos) {
+            return null;
+        }
+        
+        @Action("iterable")
+        @Expects("application/json")
+        public View iterable(@Entity Iterable<SimplePojo> pojos) {
+            return null;
+        }
+    }
+    
+    @StatelessController("invalid-sequence-entity")
+    private static class TestInvalidSequenceEntityController {
+        
+        @Action("iterator")
+        @Expects("text/plain")
+        public View iterator(@Entity Iterator<String> lines) {
+            return null;
+        }
+    }
+    
+    @StatelessController("negotiated")
+    private static class TestNegotiatedController {
+        
+        @Action("negotiated")
+        @Returns({"application/json", "application/x-jackson-smile"})
+        public SimplePojo negotiated() {
+            return null;
+        }
+        
+        @Action("single")
+        @Returns("application/json")
+        public SimplePojo single() {
+            return null;
+        }
+    }
+    
+    @StatelessController("invalid-sparse-fieldsets")
+    private static class TestInvalidSparseFieldsetsController {
+        
+        @Action("smile")
+        @SparseFieldsets
+        @Returns("application/x-jackson-smile")
+        public SimplePojo smile() {
+            return null;
+        }
+    }
+    
+    @StatelessController("invalid-last-modified")
+    private static class TestInvalidLastModifiedController {
+        
+        @LastModified
+        public String modified() {
+            return null;
+        }
+        
+        @Action("someAction")
+        public View someAction() {
+            return null;
+        }
+    }
+    
+    @StatelessController("missing-entity-tag-action")
+    private static class TestMissingEntityTagActionController {
+        
+        @EntityTag("missingAction")
+        public String version() {
+            return null;
+        }
+        
+        @Action("someAction")
+        public View someAction() {
+            return null;
+        }
+    }
+    
+    @Actor
+    @SingletonController("actor")
+    private static class TestActorController {
+        
+        @Action("someAction")
+        public View someAction() {
+            return null;
+        }
+    }
+    
+    @Actor
+    @StatelessController("invalid-actor")
+    private static class TestInvalidActorController {
+        
+        @Action("someAction")
+        public View someAction() {
+            return null;
+        }
+    }
+    
+    @SingletonController("counting")
+    private static class TestCountingSingletonController {
+        
+        private static final AtomicInteger constructed = new AtomicInteger();
+        private static final AtomicInteger initialized = new AtomicInteger();
+
+        public TestCountingSingletonController() {
+            constructed.incrementAndGet();
+        }
+
+        @AfterConstruct
+        public void init() throws InterruptedException {
+            /* widen the window in which other threads would race */
+            Thread.sleep(50);
+            initialized.incrementAndGet();
+        }
+        
+        @Action("someAction")
+        public View someAction() {
+            return null;
+        }
+    }
+
     @DefaultController
     @StatelessController("test")
     private static class TestController {
@@ -1995,5 +2496,10 @@ public int size() {
         public Route getRoute(String path) {
             return null;
         }
+        
+        @Override
+        public RouteMatch match(String path) {
+            return null;
+        }
     }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+
+import net.sf.cglib.reflect.FastClass;
+
+import org.junit.Test;
+import org.mojavemvc.core.ConstantHandleInvoker;
+import org.mojavemvc.core.MethodHandleInvokerFactory;
+import org.mojavemvc.core.MethodInvoker;
+import org.mojavemvc.core.MethodInvokerFactory;
+
+/**
+ * 
+ * @author Luis Antunes
+ */
+public class TestMethodHandleInvokerFactory extends MethodInvokerFactoryContractTest {
+
+    @Override
+    protected MethodInvokerFactory newFactory() {
+        return new MethodHandleInvokerFactory();
+    }
+    
+    @Test
+    public void eachInvokerHoldsItsOwnHandle() throws Exception {
+        MethodInvokerFactory factory = newFactory();
+        FastClass fastClass = FastClass.create(Target.class);
+        MethodInvoker name = factory.createInvoker(fastClass, Target.class.getMethod("name"));
+        MethodInvoker add = factory.createInvoker(fastClass, 
+                Target.class.getMethod("add", int.class, int.class));
+        
+        assertNotSame(name.getClass(), add.getClass());
+        assertNotSame(ConstantHandleInvoker.class, name.getClass());
+        assertEquals("target", name.invoke(new Target(), new Object[]{}));
+        assertEquals(Integer.valueOf(3), add.invoke(new Target(), new Object[]{1, 2}));
+    }
+    
+    @Test(expected = ExceptionInInitializerError.class)
+    public void invokerCannotBeCreatedDirectly() {
+        new ConstantHandleInvoker();
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.mojavemvc.annotations.Coalesced;
+import org.mojavemvc.annotations.GETAction;
+import org.mojavemvc.annotations.InterceptedBy;
+import org.mojavemvc.annotations.StatefulController;
+import org.mojavemvc.annotations.StatelessController;
+import org.mojavemvc.core.MappedControllerDatabase;
+import org.mojavemvc.core.RegexRouteMap;
+import org.mojavemvc.core.RequestCoalescer;
+import org.mojavemvc.core.RoutedRequest;
+import org.mojavemvc.exception.ConfigurationException;
+import org.mojavemvc.marshalling.EntityMarshaller;
+import org.mojavemvc.tests.interceptors.Interceptor1;
+import org.mojavemvc.views.View;
+
+/**
+ * @author Luis Antunes
+ */
+public class TestRequestCoalescer {
+
+    @Test
+    public void firstRequestRendersTheResponse() throws Exception {
+        
+        RequestCoalescer coalescer = new RequestCoalescer(1000);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = newResponse(body);
+        
+        assertTrue(coalescer.coalesce(newRouted("id", "1"), res, new TextRenderer("hello", null)));
+        
+        assertEquals("hello", body.toString("UTF-8"));
+        verify(res).setContentType("text/plain");
+        assertEquals(0, coalescer.getCoalesced());
+    }
+    
+    @Test
+    public void concurrentRequestsShareTheResponse() throws Exception {
+        
+        final RequestCoalescer coalescer = new RequestCoalescer(5000);
+        final CountDownLatch rendering = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ByteArrayOutputStream leaderBody = new ByteArrayOutputStream();
+            final HttpServletResponse leaderRes = newResponse(leaderBody);
+            Future<Boolean> leader = executor.submit(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    return coalescer.coalesce(newRouted("a", "1", "b", "2"), leaderRes, 
+                            new TextRenderer("shared", rendering, proceed));
+                }
+            });
+            assertTrue(rendering.await(5, TimeUnit.SECONDS));
+            
+            ByteArrayOutputStream followerBody = new ByteArrayOutputStream();
+            final HttpServletResponse followerRes = newResponse(followerBody);
+            Future<Boolean> follower = executor.submit(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    /* the parameters are in a different order */
+                    return coalescer.coalesce(newRouted("b", "2", "a", "1"), followerRes, 
+                            new TextRenderer("not shared", null));
+                }
+            });
+            
+            Thread.sleep(100);
+            proceed.countDown();
+            
+            assertTrue(leader.get(5, TimeUnit.SECONDS));
+            assertTrue(follower.get(5, TimeUnit.SECONDS));
+            assertEquals("shared", leaderBody.toString("UTF-8"));
+            assertEquals("shared", followerBody.toString("UTF-8"));
+            verify(followerRes).setContentType("text/plain");
+            verify(followerRes).setHeader("X-Test", "value");
+            assertEquals(1, coalescer.getCoalesced());
+            
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void requestsWithDifferentParametersAreNotCoalesced() throws Exception {
+        
+        final RequestCoalescer coalescer = new RequestCoalescer(5000);
+        final CountDownLatch rendering = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final HttpServletResponse leaderRes = newResponse(new ByteArrayOutputStream());
+            Future<Boolean> leader = executor.submit(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    return coalescer.coalesce(newRouted("id", "1"), leaderRes, 
+                            new TextRenderer("one", rendering, proceed));
+                }
+            });
+            assertTrue(rendering.await(5, TimeUnit.SECONDS));
+            
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            assertTrue(coalescer.coalesce(newRouted("id", "2"), newResponse(body), 
+                    new TextRenderer("two", null)));
+            assertEquals("two", body.toString("UTF-8"));
+            
+            proceed.countDown();
+            assertTrue(leader.get(5, TimeUnit.SECONDS));
+            assertEquals(0, coalescer.getCoalesced());
+            
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void parameterValuesCannotForgeAnotherKey() throws Exception {
+        
+        final RequestCoalescer coalescer = new RequestCoalescer(5000);
+        final CountDownLatch rendering = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            /* ?a=x]%26b%3D[y */
+            final HttpServletResponse leaderRes = newResponse(new ByteArrayOutputStream());
+            Future<Boolean> leader = executor.submit(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    return coalescer.coalesce(newRouted("a", "x]&b=[y"), leaderRes, 
+                            new TextRenderer("forged", rendering, proceed));
+                }
+            });
+            assertTrue(rendering.await(5, TimeUnit.SECONDS));
+            
+            /* ?a=x&b=y */
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            assertTrue(coalescer.coalesce(newRouted("a", "x", "b", "y"), newResponse(body), 
+                    new TextRenderer("genuine", null)));
+            assertEquals("genuine", body.toString("UTF-8"));
+            
+            proceed.countDown();
+            assertTrue(leader.get(5, TimeUnit.SECONDS));
+            assertEquals(0, coalescer.getCoalesced());
+            
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void waitingRequestTimesOut() throws Exception {
+        
+        final RequestCoalescer coalescer = new RequestCoalescer(50);
+        final CountDownLatch rendering = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final HttpServletResponse leaderRes = newResponse(new ByteArrayOutputStream());
+            Future<Boolean> leader = executor.submit(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    return coalescer.coalesce(newRouted("id", "1"), leaderRes, 
+                            new TextRenderer("slow", rendering, proceed));
+                }
+            });
+            assertTrue(rendering.await(5, TimeUnit.SECONDS));
+            
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            assertFalse(coalescer.coalesce(newRouted("id", "1"), newResponse(body), 
+                    new TextRenderer("unused", null)));
+            assertEquals(0, body.size());
+            
+            proceed.countDown();
+            assertTrue(leader.get(5, TimeUnit.SECONDS));
+            
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void failedFlightIsNotShared() throws Exception {
+        
+        RequestCoalescer coalescer = new RequestCoalescer(1000);
+        try {
+            coalescer.coalesce(newRouted("id", "1"), newResponse(new ByteArrayOutputStream()), 
+                    new RequestCoalescer.ResponseRenderer() {
+                        public void render(HttpServletResponse response) throws Exception {
+                            throw new IllegalStateException("failed");
+                        }
+                    });
+            fail("exception expected");
+        } catch (IllegalStateException e) {
+            /* the flight has landed, so the next request renders again */
+        }
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        assertTrue(coalescer.coalesce(newRouted("id", "1"), newResponse(body), 
+                new TextRenderer("again", null)));
+        assertEquals("again", body.toString("UTF-8"));
+    }
+    
+    @Test(expected = ConfigurationException.class)
+    public void statefulActionsCannotBeCoalesced() {
+        
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestCoalescedStatefulController.class);
+        new MappedControllerDatabase(controllerClasses, new RegexRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+    }
+    
+    @Test(expected = ConfigurationException.class)
+    public void interceptedActionsCannotBeCoalesced() {
+        
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestCoalescedInterceptedController.class);
+        new MappedControllerDatabase(controllerClasses, new RegexRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+    }
+    
+    private static RoutedRequest newRouted(String... nameValuePairs) {
+        
+        Map<String, Object> params = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < nameValuePairs.length; i += 2) {
+            params.put(nameValuePairs[i], new String[] { nameValuePairs[i + 1] });
+        }
+        return new RoutedRequest("controller", "action", params);
+    }
+    
+    private static HttpServletResponse newResponse(final ByteArrayOutputStream body) throws IOException {
+        
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        when(res.getCharacterEncoding()).thenReturn("UTF-8");
+        when(res.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        return res;
+    }
+    
+    private static class TextRenderer implements RequestCoalescer.ResponseRenderer {
+        
+        private final String text;
+        private final CountDownLatch rendering;
+        private final CountDownLatch proceed;
+        
+        private TextRenderer(String text, CountDownLatch rendering) {
+            this(text, rendering, null);
+        }
+        
+        private TextRenderer(String text, CountDownLatch rendering, CountDownLatch proceed) {
+            this.text = text;
+            this.rendering = rendering;
+            this.proceed = proceed;
+        }
+        
+        public void render(HttpServletResponse response) throws Exception {
+            
+            response.setContentType("text/plain");
+            response.setHeader("X-Test", "value");
+            response.getWriter().write(text);
+            if (rendering != null) {
+                rendering.countDown();
+            }
+            if (proceed != null) {
+                proceed.await(5, TimeUnit.SECONDS);
+            }
+        }
+    }
+    
+    @StatefulController("coalesced-stateful")
+    public static class TestCoalescedStatefulController {
+        
+        @Coalesced
+        @GETAction
+        public View get() {
+            return null;
+        }
+    }
+    
+    @StatelessController("coalesced-intercepted")
+    @InterceptedBy(Interceptor1.class)
+    public static class TestCoalescedInterceptedController {
+        
+        @Coalesced
+        @GETAction
+        public View get() {
+            return null;
+        }
+    }
+}
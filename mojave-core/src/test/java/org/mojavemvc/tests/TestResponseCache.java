@@ -0,0 +1,360 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.mojavemvc.annotations.BeforeAction;
+import org.mojavemvc.annotations.Cached;
+import org.mojavemvc.annotations.GETAction;
+import org.mojavemvc.annotations.InterceptedBy;
+import org.mojavemvc.annotations.StatelessController;
+import org.mojavemvc.core.CachePolicy;
+import org.mojavemvc.core.DefaultAppProperties;
+import org.mojavemvc.core.MappedControllerDatabase;
+import org.mojavemvc.core.RegexRouteMap;
+import org.mojavemvc.core.ResponseCache;
+import org.mojavemvc.core.ResponseSnapshot;
+import org.mojavemvc.core.RoutedRequest;
+import org.mojavemvc.core.ServletResourceModule;
+import org.mojavemvc.exception.ConfigurationException;
+import org.mojavemvc.marshalling.EntityMarshaller;
+import org.mojavemvc.tests.interceptors.Interceptor1;
+import org.mojavemvc.views.View;
+
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+/**
+ * @author Luis Antunes
+ */
+public class TestResponseCache {
+
+    @Test
+    public void cachedResponseIsSent() throws Exception {
+        
+        ResponseCache cache = new ResponseCache(10);
+        assertNull(cache.get("key"));
+        
+        cache.put("key", newSnapshot("hello"), 60000);
+        ResponseSnapshot snapshot = cache.get("key");
+        assertNotNull(snapshot);
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = newResponse(body);
+        snapshot.sendTo(res);
+        
+        verify(res).setStatus(200);
+        verify(res).setContentType("text/plain");
+        assertEquals("hello", body.toString("UTF-8"));
+        
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRatio(), 0.0001);
+    }
+    
+    @Test
+    public void expiredResponseIsRemoved() throws Exception {
+        
+        ResponseCache cache = new ResponseCache(10);
+        cache.put("key", newSnapshot("hello"), 1);
+        Thread.sleep(10);
+        
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.getMemorySize());
+    }
+    
+    @Test
+    public void leastRecentlyUsedResponseIsEvicted() {
+        
+        ResponseCache cache = new ResponseCache(2);
+        cache.put("a", newSnapshot("a"), 60000);
+        cache.put("b", newSnapshot("b"), 60000);
+        cache.get("a");
+        cache.put("c", newSnapshot("c"), 60000);
+        
+        assertEquals(2, cache.getMemorySize());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+    
+    @Test
+    public void evictedResponseMovesToDisk() throws Exception {
+        
+        File file = File.createTempFile("mojave-test-responses", ".dat");
+        ResponseCache cache = new ResponseCache(1, file, true, 1024 * 1024);
+        try {
+            cache.put("a", newSnapshot("first"), 60000);
+            cache.put("b", newSnapshot("second"), 60000);
+            assertEquals(1, cache.getMemorySize());
+            assertEquals(1, cache.getDiskSize());
+            
+            ResponseSnapshot snapshot = cache.get("a");
+            assertNotNull(snapshot);
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            snapshot.sendTo(newResponse(body));
+            assertEquals("first", body.toString("UTF-8"));
+            
+            /* "a" is back in memory, and "b" is now on disk */
+            assertEquals(1, cache.getMemorySize());
+            assertEquals(1, cache.getDiskSize());
+            assertNotNull(cache.get("b"));
+            
+        } finally {
+            cache.destroy();
+        }
+    }
+    
+    @Test
+    public void responsesAreInvalidated() {
+        
+        ResponseCache cache = new ResponseCache(10);
+        CachePolicy listPolicy = newPolicy("list");
+        CachePolicy showPolicy = newPolicy("show");
+        String listKey = listPolicy.newKey(newRouted("category", "books"), newRequest(null));
+        String showKey = showPolicy.newKey(newRouted("id", "1"), newRequest(null));
+        cache.put(listKey, newSnapshot("list"), 60000);
+        cache.put(showKey, newSnapshot("show"), 60000);
+        
+        cache.invalidate(TestCachedController.class, "list");
+        assertNull(cache.get(listKey));
+        assertNotNull(cache.get(showKey));
+        
+        cache.put(listKey, newSnapshot("list"), 60000);
+        cache.invalidate(TestCachedController.class);
+        assertNull(cache.get(listKey));
+        assertNull(cache.get(showKey));
+        
+        cache.put(listKey, newSnapshot("list"), 60000);
+        cache.invalidateAll();
+        assertEquals(0, cache.getMemorySize());
+    }
+    
+    @Test
+    public void keyUsesSelectedParamsAndVaryHeaders() {
+        
+        CachePolicy policy = newPolicy("list");
+        assertEquals(30000, policy.getTtl());
+        
+        String key = policy.newKey(newRouted("category", "books", "page", "1"), newRequest("en"));
+        
+        /* page is not a key parameter */
+        assertEquals(key, policy.newKey(newRouted("category", "books", "page", "2"), newRequest("en")));
+        assertFalse(key.equals(policy.newKey(newRouted("category", "films", "page", "1"), 
+                newRequest("en"))));
+        assertFalse(key.equals(policy.newKey(newRouted("category", "books", "page", "1"), 
+                newRequest("fr"))));
+    }
+    
+    @Test
+    public void negotiatedKeyUsesAcceptHeader() throws Exception {
+        
+        CachePolicy policy = new CachePolicy(TestCachedController.class, "list", 
+                TestCachedController.class.getMethod("list").getAnnotation(Cached.class), true);
+        
+        HttpServletRequest json = newRequest("en");
+        when(json.getHeader("Accept")).thenReturn("application/json");
+        HttpServletRequest smile = newRequest("en");
+        when(smile.getHeader("Accept")).thenReturn("application/x-jackson-smile");
+        
+        RoutedRequest routed = newRouted("category", "books");
+        assertFalse(policy.newKey(routed, json).equals(policy.newKey(routed, smile)));
+        assertEquals(policy.newKey(routed, json), policy.newKey(routed, json));
+        assertEquals(newPolicy("list").newKey(routed, json), newPolicy("list").newKey(routed, smile));
+    }
+    
+    @Test
+    public void keyUsesFieldsParameter() throws Exception {
+        
+        CachePolicy policy = new CachePolicy(TestCachedController.class, "list", 
+                TestCachedController.class.getMethod("list").getAnnotation(Cached.class), 
+                false, "fields");
+        RoutedRequest all = newRouted("category", "books");
+        RoutedRequest sparse = newRouted("category", "books", "fields", "id,name");
+        
+        assertFalse(policy.newKey(all, newRequest("en")).equals(policy.newKey(sparse, newRequest("en"))));
+        assertEquals(policy.newKey(sparse, newRequest("en")), policy.newKey(sparse, newRequest("en")));
+        
+        /* the fields parameter is an ordinary parameter of other actions */
+        assertEquals(newPolicy("list").newKey(all, newRequest("en")), 
+                newPolicy("list").newKey(sparse, newRequest("en")));
+    }
+    
+    @Test
+    public void headerValuesCannotForgeAnotherKey() {
+        
+        CachePolicy policy = newPolicy("list");
+        assertFalse(policy.newKey(newRouted("category", "books]&|Accept-Language=en"), newRequest(null))
+                .equals(policy.newKey(newRouted("category", "books"), newRequest("en"))));
+    }
+    
+    @Test
+    public void cacheIsInjected() {
+        
+        ResponseCache cache = new ResponseCache();
+        Injector injector = Guice.createInjector(
+                new ServletResourceModule(new DefaultAppProperties(), cache));
+        
+        assertSame(cache, injector.getInstance(CacheInvalidatingService.class).responseCache);
+    }
+    
+    @Test(expected = ConfigurationException.class)
+    public void ttlMustBePositive() {
+        
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestInvalidCachedController.class);
+        new MappedControllerDatabase(controllerClasses, new RegexRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+    }
+    
+    @Test(expected = ConfigurationException.class)
+    public void interceptedActionsCannotBeCached() {
+        
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestInterceptedCachedController.class);
+        new MappedControllerDatabase(controllerClasses, new RegexRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+    }
+    
+    @Test(expected = ConfigurationException.class)
+    public void actionsWithBeforeActionCannotBeCached() {
+        
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestGuardedCachedController.class);
+        new MappedControllerDatabase(controllerClasses, new RegexRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+    }
+    
+    private static CachePolicy newPolicy(String action) {
+        
+        try {
+            return new CachePolicy(TestCachedController.class, action, 
+                    TestCachedController.class.getMethod(action).getAnnotation(Cached.class));
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    private static ResponseSnapshot newSnapshot(String text) {
+        
+        try {
+            return new ResponseSnapshot(200, "text/plain", text.getBytes("UTF-8"));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    private static RoutedRequest newRouted(String... nameValuePairs) {
+        
+        Map<String, Object> params = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < nameValuePairs.length; i += 2) {
+            params.put(nameValuePairs[i], new String[] { nameValuePairs[i + 1] });
+        }
+        return new RoutedRequest("controller", "action", params);
+    }
+    
+    private static HttpServletRequest newRequest(String language) {
+        
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getHeader("Accept-Language")).thenReturn(language);
+        return req;
+    }
+    
+    private static HttpServletResponse newResponse(final ByteArrayOutputStream body) throws Exception {
+        
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        when(res.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        return res;
+    }
+    
+    public static class CacheInvalidatingService {
+        
+        @Inject
+        private ResponseCache responseCache;
+    }
+    
+    @StatelessController("cached")
+    public static class TestCachedController {
+        
+        @Cached(ttl = 30000, params = "category", vary = "Accept-Language")
+        @GETAction
+        public View list() {
+            return null;
+        }
+        
+        @Cached
+        public View show() {
+            return null;
+        }
+    }
+    
+    @StatelessController("invalid-cached")
+    public static class TestInvalidCachedController {
+        
+        @Cached(ttl = 0)
+        @GETAction
+        public View list() {
+            return null;
+        }
+    }
+    
+    @StatelessController("intercepted-cached")
+    public static class TestInterceptedCachedController {
+        
+        @Cached
+        @InterceptedBy(Interceptor1.class)
+        @GETAction
+        public View list() {
+            return null;
+        }
+    }
+    
+    @StatelessController("guarded-cached")
+    public static class TestGuardedCachedController {
+        
+        @BeforeAction
+        public View authenticate() {
+            return null;
+        }
+        
+        @Cached
+        @GETAction
+        public View list() {
+            return null;
+        }
+    }
+}
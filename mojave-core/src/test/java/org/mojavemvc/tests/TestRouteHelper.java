@@ -55,6 +55,19 @@ public void getPathElements_NoController_NoAction_WithParamPathWithRegex() {
         assertTrue(Arrays.equals(expected, actual));
     }
     
+    @Test
+    public void getRouteElements_Root() {
+        String[] actual = RouteHelper.getRouteElements("/");
+        assertEquals(0, actual.length);
+    }
+    
+    @Test
+    public void getRouteElements_CustomRegexWithSeparator() {
+        String[] expected = new String[]{"files",":path<.+/.+>","info"};
+        String[] actual = RouteHelper.getRouteElements("/files/:path<.+/.+>/info");
+        assertTrue(Arrays.equals(expected, actual));
+    }
+    
     @Test
     public void escapeNonCustomRegex() {
         String path = "/cntrl/[](){}*^?$.\\/a+b/:id<[^/]+>/:name<[a-z]+>";
@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.mojavemvc.annotations.Action;
+import org.mojavemvc.annotations.Reinject;
+import org.mojavemvc.annotations.Reinject.Policy;
+import org.mojavemvc.annotations.StatefulController;
+import org.mojavemvc.core.BoundedControllerStore;
+import org.mojavemvc.core.ControllerDatabase;
+import org.mojavemvc.core.ControllerLocator;
+import org.mojavemvc.core.FrameworkContext;
+import org.mojavemvc.core.MappedControllerDatabase;
+import org.mojavemvc.core.MappedFileControllerStore;
+import org.mojavemvc.core.RegexRouteMap;
+import org.mojavemvc.core.StatefulControllerLease;
+import org.mojavemvc.core.StatefulControllerStore;
+import org.mojavemvc.marshalling.EntityMarshaller;
+import org.mojavemvc.views.View;
+
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+/**
+ * @author Luis Antunes
+ */
+public class TestStatefulControllerStores {
+
+    @Test
+    public void boundedStoreEvictsLeastRecentlyUsed() {
+        
+        BoundedControllerStore store = new BoundedControllerStore(2, -1);
+        HttpServletRequest req1 = newRequest("s1");
+        HttpServletRequest req2 = newRequest("s2");
+        HttpServletRequest req3 = newRequest("s3");
+        
+        store.put(req1, Counter.class, new Counter());
+        store.put(req2, Counter.class, new Counter());
+        assertNotNull(store.get(req1, Counter.class));
+        store.put(req3, Counter.class, new Counter());
+        
+        assertEquals(2, store.size());
+        assertNotNull(store.get(req1, Counter.class));
+        assertNull(store.get(req2, Counter.class));
+        assertNotNull(store.get(req3, Counter.class));
+    }
+    
+    @Test
+    public void boundedStoreDiscardsIdleInstances() throws Exception {
+        
+        BoundedControllerStore store = new BoundedControllerStore(10, 20);
+        HttpServletRequest req = newRequest("s1");
+        
+        Counter counter = new Counter();
+        store.put(req, Counter.class, counter);
+        assertSame(counter, store.get(req, Counter.class));
+        
+        Thread.sleep(50);
+        assertNull(store.get(req, Counter.class));
+        assertEquals(0, store.size());
+    }
+    
+    @Test
+    public void mappedFileStoreKeepsCopies() throws Exception {
+        
+        File file = File.createTempFile("mojave-test", ".dat");
+        MappedFileControllerStore store = new MappedFileControllerStore(file, true, 4096, -1);
+        try {
+            HttpServletRequest req = newRequest("s1");
+            assertNull(store.get(req, Counter.class));
+            
+            Counter counter = new Counter();
+            counter.count = 5;
+            store.put(req, Counter.class, counter);
+            
+            Counter copy = (Counter) store.get(req, Counter.class);
+            assertNotSame(counter, copy);
+            assertEquals(5, copy.count);
+            
+            /* rewriting the instance repeatedly forces compaction */
+            for (int i = 0; i < 200; i++) {
+                copy.count++;
+                store.put(req, Counter.class, copy);
+            }
+            store.put(newRequest("s2"), Counter.class, new Counter());
+            
+            assertEquals(2, store.size());
+            assertEquals(205, ((Counter) store.get(req, Counter.class)).count);
+            assertEquals(0, ((Counter) store.get(newRequest("s2"), Counter.class)).count);
+        } finally {
+            store.destroy();
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void mappedFileStoreRequiresSerializable() throws Exception {
+        
+        File file = File.createTempFile("mojave-test", ".dat");
+        MappedFileControllerStore store = new MappedFileControllerStore(file, true, 4096, -1);
+        try {
+            store.put(newRequest("s1"), Object.class, new Object());
+        } finally {
+            store.destroy();
+        }
+    }
+    
+    @Test
+    public void requestsOfOneSessionAreSerialized() throws Exception {
+        
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestCounterController.class);
+        ControllerDatabase db = new MappedControllerDatabase(controllerClasses, new RegexRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+        final ControllerLocator locator = db.getControllerLocator(TestCounterController.class);
+        
+        final FrameworkContext context = new FrameworkContext();
+        context.setAttribute(StatefulControllerStore.KEY, new BoundedControllerStore());
+        final Injector injector = Guice.createInjector();
+        
+        HttpServletRequest req1 = newRequest("s1");
+        final HttpServletRequest req2 = newRequest("s1");
+        HttpServletRequest other = newRequest("s2");
+        
+        Object controller = locator.locate(context, req1, injector);
+        
+        /* a request of another session does not wait */
+        Object otherController = locator.locate(context, other, injector);
+        assertNotSame(controller, otherController);
+        StatefulControllerLease.release(other);
+        
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> second = executor.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    return locator.locate(context, req2, injector);
+                }
+            });
+            
+            try {
+                second.get(100, TimeUnit.MILLISECONDS);
+                fail("the second request should wait for the first");
+            } catch (TimeoutException e) {
+                /* expected */
+            }
+            
+            StatefulControllerLease.release(req1);
+            assertSame(controller, second.get(5, TimeUnit.SECONDS));
+            StatefulControllerLease.release(req2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void detachedLeaseKeepsTurnOfSession() throws Exception {
+        
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestCounterController.class);
+        ControllerDatabase db = new MappedControllerDatabase(controllerClasses, new RegexRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+        final ControllerLocator locator = db.getControllerLocator(TestCounterController.class);
+        
+        final FrameworkContext context = new FrameworkContext();
+        StatefulControllerStore store = new BoundedControllerStore();
+        context.setAttribute(StatefulControllerStore.KEY, store);
+        final Injector injector = Guice.createInjector();
+        
+        HttpServletRequest req1 = newRequest("s1");
+        final HttpServletRequest req2 = newRequest("s1");
+        
+        Object controller = locator.locate(context, req1, injector);
+        
+        /* the instance is stored while the request can still be used */
+        Runnable turn = StatefulControllerLease.detach(req1);
+        assertNotNull(turn);
+        assertSame(controller, store.get(req1, TestCounterController.class));
+        assertNull(StatefulControllerLease.detach(req1));
+        
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> second = executor.submit(new Callable<Object>() {
+                public Object call() throws Exception {
+                    return locator.locate(context, req2, injector);
+                }
+            });
+            
+            try {
+                second.get(100, TimeUnit.MILLISECONDS);
+                fail("the second request should wait for the detached turn");
+            } catch (TimeoutException e) {
+                /* expected */
+            }
+            
+            turn.run();
+            assertSame(controller, second.get(5, TimeUnit.SECONDS));
+            StatefulControllerLease.release(req2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void copiesFromMappedFileStoreAreInjected() throws Exception {
+        
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(TestSerializableController.class);
+        ControllerDatabase db = new MappedControllerDatabase(controllerClasses, new RegexRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+        ControllerLocator locator = db.getControllerLocator(TestSerializableController.class);
+        
+        File file = File.createTempFile("mojave-test", ".dat");
+        MappedFileControllerStore store = new MappedFileControllerStore(file, true, 4096, -1);
+        FrameworkContext context = new FrameworkContext();
+        context.setAttribute(StatefulControllerStore.KEY, store);
+        Injector injector = Guice.createInjector();
+        try {
+            HttpServletRequest req1 = newRequest("s1");
+            TestSerializableController controller = 
+                    (TestSerializableController) locator.locate(context, req1, injector);
+            assertNotNull(controller.service);
+            controller.count = 3;
+            StatefulControllerLease.release(req1);
+            
+            /* the copy read back from the file has no transient dependencies */
+            HttpServletRequest req2 = newRequest("s1");
+            TestSerializableController copy = 
+                    (TestSerializableController) locator.locate(context, req2, injector);
+            assertNotSame(controller, copy);
+            assertEquals(3, copy.count);
+            assertNotNull(copy.service);
+            StatefulControllerLease.release(req2);
+        } finally {
+            store.destroy();
+        }
+    }
+    
+    private static HttpServletRequest newRequest(String sessionId) {
+        
+        HttpSession session = mock(HttpSession.class);
+        when(session.getId()).thenReturn(sessionId);
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getSession()).thenReturn(session);
+        
+        /* request attributes */
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        when(req.getAttribute(anyString())).thenAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                return attributes.get(invocation.getArguments()[0]);
+            }
+        });
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                Object[] args = invocation.getArguments();
+                attributes.put((String) args[0], args[1]);
+                return null;
+            }
+        }).when(req).setAttribute(anyString(), any());
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                attributes.remove(invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(req).removeAttribute(anyString());
+        
+        return req;
+    }
+    
+    public static class Counter implements Serializable {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private int count;
+    }
+    
+    public static class CounterService {
+    }
+    
+    @StatefulController("serializable-counter")
+    @Reinject(Policy.NEVER)
+    public static class TestSerializableController implements Serializable {
+        
+        private static final long serialVersionUID = 1L;
+        
+        @Inject
+        private transient CounterService service;
+        
+        private int count;
+        
+        @Action("count")
+        public View count() {
+            return null;
+        }
+    }
+    
+    @StatefulController("counter")
+    public static class TestCounterController {
+        
+        @Action("count")
+        public View count() {
+            return null;
+        }
+    }
+}
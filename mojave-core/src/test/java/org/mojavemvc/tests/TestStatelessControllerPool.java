@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.mojavemvc.annotations.Action;
+import org.mojavemvc.annotations.AfterConstruct;
+import org.mojavemvc.annotations.Pooled;
+import org.mojavemvc.annotations.SingletonController;
+import org.mojavemvc.annotations.StatelessController;
+import org.mojavemvc.core.ControllerDatabase;
+import org.mojavemvc.core.ControllerLocator;
+import org.mojavemvc.core.FrameworkContext;
+import org.mojavemvc.core.MappedControllerDatabase;
+import org.mojavemvc.core.RegexRouteMap;
+import org.mojavemvc.core.StatelessControllerPool;
+import org.mojavemvc.exception.ConfigurationException;
+import org.mojavemvc.marshalling.EntityMarshaller;
+import org.mojavemvc.views.View;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+/**
+ * @author Luis Antunes
+ */
+public class TestStatelessControllerPool {
+
+    @Test
+    public void poolIsBounded() {
+        
+        StatelessControllerPool pool = new StatelessControllerPool(1);
+        assertNull(pool.take());
+        assertTrue(pool.offer(new Object()));
+        assertFalse(pool.offer(new Object()));
+        assertEquals(1, pool.getIdleCount());
+        assertNotNull(pool.take());
+        
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getMisses());
+    }
+    
+    @Test
+    public void pooledControllersAreReused() throws Exception {
+        
+        ControllerDatabase db = newControllerDatabase(TestPooledController.class);
+        ControllerLocator locator = db.getControllerLocator(TestPooledController.class);
+        StatelessControllerPool pool = locator.getPool();
+        assertNotNull(pool);
+        assertEquals(2, pool.getMaxSize());
+        
+        FrameworkContext context = new FrameworkContext();
+        Injector injector = Guice.createInjector();
+        
+        HttpServletRequest req1 = newRequest();
+        HttpServletRequest req2 = newRequest();
+        Object controller1 = locator.locate(context, req1, injector);
+        Object controller2 = locator.locate(context, req2, injector);
+        assertNotSame(controller1, controller2);
+        assertEquals(2, pool.getMisses());
+        
+        StatelessControllerPool.release(req1);
+        StatelessControllerPool.release(req2);
+        assertEquals(2, pool.getIdleCount());
+        
+        HttpServletRequest req3 = newRequest();
+        Object controller3 = locator.locate(context, req3, injector);
+        assertTrue(controller3 == controller1 || controller3 == controller2);
+        assertEquals(1, pool.getHits());
+        assertEquals(2, TestPooledController.initialized.get());
+        
+        StatelessControllerPool.release(req3);
+        /* releasing again has no effect */
+        StatelessControllerPool.release(req3);
+        assertEquals(2, pool.getIdleCount());
+    }
+    
+    @Test
+    public void detachedControllerIsNotReusedUntilReleased() throws Exception {
+        
+        ControllerDatabase db = newControllerDatabase(TestPooledController.class);
+        ControllerLocator locator = db.getControllerLocator(TestPooledController.class);
+        StatelessControllerPool pool = locator.getPool();
+        
+        FrameworkContext context = new FrameworkContext();
+        Injector injector = Guice.createInjector();
+        
+        HttpServletRequest req = newRequest();
+        locator.locate(context, req, injector);
+        
+        Runnable held = StatelessControllerPool.detach(req);
+        assertNotNull(held);
+        assertNull(StatelessControllerPool.detach(req));
+        StatelessControllerPool.release(req);
+        assertEquals(0, pool.getIdleCount());
+        
+        held.run();
+        assertEquals(1, pool.getIdleCount());
+    }
+    
+    @Test
+    public void unpooledControllersHaveNoPool() {
+        
+        ControllerDatabase db = newControllerDatabase(TestUnpooledController.class);
+        assertNull(db.getControllerLocator(TestUnpooledController.class).getPool());
+    }
+    
+    @Test(expected = ConfigurationException.class)
+    public void onlyStatelessControllersArePooled() {
+        
+        newControllerDatabase(TestInvalidPooledController.class);
+    }
+    
+    private static ControllerDatabase newControllerDatabase(Class<?> controllerClass) {
+        
+        Set<Class<?>> controllerClasses = new HashSet<Class<?>>();
+        controllerClasses.add(controllerClass);
+        return new MappedControllerDatabase(controllerClasses, new RegexRouteMap(), 
+                new HashMap<String, EntityMarshaller>());
+    }
+    
+    private static HttpServletRequest newRequest() {
+        
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        when(req.getAttribute(anyString())).thenAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                return attributes.get(invocation.getArguments()[0]);
+            }
+        });
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                Object[] args = invocation.getArguments();
+                attributes.put((String) args[0], args[1]);
+                return null;
+            }
+        }).when(req).setAttribute(anyString(), any());
+        doAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) {
+                attributes.remove(invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(req).removeAttribute(anyString());
+        return req;
+    }
+    
+    @Pooled(2)
+    @StatelessController("pooled")
+    public static class TestPooledController {
+        
+        private static final AtomicInteger initialized = new AtomicInteger();
+        
+        @AfterConstruct
+        public void init() {
+            initialized.incrementAndGet();
+        }
+        
+        @Action("someAction")
+        public View someAction() {
+            return null;
+        }
+    }
+    
+    @StatelessController("unpooled")
+    public static class TestUnpooledController {
+        
+        @Action("someAction")
+        public View someAction() {
+            return null;
+        }
+    }
+    
+    @Pooled
+    @SingletonController("invalid-pooled")
+    public static class TestInvalidPooledController {
+        
+        @Action("someAction")
+        public View someAction() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.mojavemvc.initialization.AppProperties;
+import org.mojavemvc.tests.TestJSON.SimplePojo;
+import org.mojavemvc.views.EntityTags;
+import org.mojavemvc.views.HTTPHeader;
+import org.mojavemvc.views.StreamView;
+import org.mojavemvc.views.StreamingJSON;
+import org.mojavemvc.views.StreamingXML;
+
+/**
+ * @author Luis Antunes
+ */
+public class TestStreamingViews {
+
+    @Test
+    public void returnsCorrectContentTypes() {
+        
+        assertEquals("application/json", new StreamingJSON(null).getContentType());
+        assertEquals("application/xml", new StreamingXML(null).getContentType());
+    }
+    
+    @Test
+    public void toStringReturnsSerializedEntity() {
+        
+        assertEquals("{\"val\":\"test\"}", new StreamingJSON(new SimplePojo("test")).toString());
+        assertEquals("<SimplePojo><val>test</val></SimplePojo>", 
+                new StreamingXML(new SimplePojo("test")).toString());
+    }
+    
+    @Test
+    public void jsonIsStreamedWithoutContentLength() throws Exception {
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = newResponse(body);
+        new StreamingJSON(new SimplePojo("test")).render(newRequest(null), res, newProperties(false));
+        
+        verify(res).setContentType("application/json");
+        verify(res, never()).setContentLength(anyInt());
+        verify(res, never()).setHeader(eq(HTTPHeader.ETAG), anyString());
+        assertEquals("{\"val\":\"test\"}", body.toString("UTF-8"));
+    }
+    
+    @Test
+    public void xmlIsStreamedWithoutContentLength() throws Exception {
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = newResponse(body);
+        new StreamingXML(new SimplePojo("test")).render(newRequest(null), res, newProperties(false));
+        
+        verify(res).setContentType("application/xml");
+        verify(res, never()).setContentLength(anyInt());
+        assertEquals("<SimplePojo><val>test</val></SimplePojo>", body.toString("UTF-8"));
+    }
+    
+    @Test
+    public void payloadIsEncodedAsUTF8() throws Exception {
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        new StreamingJSON(new SimplePojo("café")).render(newRequest(null), 
+                newResponse(body), newProperties(false));
+        
+        byte[] expected = "{\"val\":\"café\"}".getBytes("UTF-8");
+        assertArrayEquals(expected, body.toByteArray());
+    }
+    
+    @Test
+    public void contentLengthBuffersPayload() throws Exception {
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = newResponse(body);
+        new StreamingJSON(new SimplePojo("test")).withContentLength()
+            .render(newRequest(null), res, newProperties(false));
+        
+        verify(res).setContentLength(14);
+        assertEquals("{\"val\":\"test\"}", body.toString("UTF-8"));
+    }
+    
+    @Test
+    public void autoTagBuffersPayload() throws Exception {
+        
+        byte[] payload = "{\"val\":\"test\"}".getBytes("UTF-8");
+        String tag = EntityTags.newTag(payload);
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        HttpServletResponse res = newResponse(body);
+        new StreamingJSON(new SimplePojo("test")).render(newRequest(null), res, newProperties(true));
+        verify(res).setHeader(HTTPHeader.ETAG, tag);
+        verify(res).setContentLength(payload.length);
+        assertEquals("{\"val\":\"test\"}", body.toString("UTF-8"));
+        
+        body = new ByteArrayOutputStream();
+        res = newResponse(body);
+        new StreamingJSON(new SimplePojo("test")).withAutoTag()
+            .render(newRequest(tag), res, newProperties(false));
+        verify(res).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(0, body.size());
+    }
+    
+    @Test
+    public void outputStreamIsNotClosed() throws Exception {
+        
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        ServletOutputStream out = mock(ServletOutputStream.class);
+        when(res.getOutputStream()).thenReturn(out);
+        new StreamingJSON(new SimplePojo("test")).render(newRequest(null), res, newProperties(false));
+        
+        verify(out, never()).close();
+    }
+    
+    private static HttpServletRequest newRequest(String ifNoneMatch) {
+        
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getHeader(HTTPHeader.IF_NONE_MATCH)).thenReturn(ifNoneMatch);
+        return req;
+    }
+    
+    private static HttpServletResponse newResponse(final ByteArrayOutputStream body) throws Exception {
+        
+        HttpServletResponse res = mock(HttpServletResponse.class);
+        when(res.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        return res;
+    }
+    
+    private static AppProperties newProperties(boolean autoTag) {
+        
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        if (autoTag) {
+            properties.put(StreamView.AUTO_TAG_PROPERTY, Boolean.TRUE);
+        }
+        return new AppProperties() {
+            public Object getProperty(String name) {
+                return properties.get(name);
+            }
+        };
+    }
+}
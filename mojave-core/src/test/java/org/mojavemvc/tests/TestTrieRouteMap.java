@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.mojavemvc.core.Route;
+import org.mojavemvc.core.RouteMap;
+import org.mojavemvc.core.TrieRouteMap;
+
+/**
+ * 
+ * @author Luis Antunes
+ */
+public class TestTrieRouteMap extends RouteMapContractTest {
+
+    @Override
+    protected RouteMap newRouteMap() {
+        return new TrieRouteMap();
+    }
+    
+    @Test
+    public void getRoute_BacktracksFromConstantToParam() {
+        RouteMap rm = newRouteMap();
+        Route r1 = new Route(null, null, "clients/all/active");
+        Route r2 = new Route(null, null, "clients/:id/orders");
+        rm.add(r1);
+        rm.add(r2);
+        assertEquals(r2, rm.getRoute("/clients/all/orders"));
+    }
+    
+    @Test
+    public void getRoute_CustomRegexSpanningSegments() {
+        RouteMap rm = newRouteMap();
+        Route r1 = new Route("files", null, ":path<.+/.+>");
+        rm.add(r1);
+        assertEquals(r1, rm.getRoute("/files/docs/readme.txt"));
+        assertNull(rm.getRoute("/files/readme.txt"));
+    }
+    
+    @Test
+    public void getRoute_CustomRegexFollowedByConstant() {
+        RouteMap rm = newRouteMap();
+        Route r1 = new Route("cntrl", null, ":id<[0-9]+>/edit");
+        rm.add(r1);
+        assertEquals(r1, rm.getRoute("/cntrl/123/edit"));
+        assertNull(rm.getRoute("/cntrl/abc/edit"));
+    }
+    
+    @Test
+    public void getRoute_TrailingSeparatorNotFound() {
+        RouteMap rm = newRouteMap();
+        rm.add(new Route("cntrl", null, null));
+        assertNull(rm.getRoute("/cntrl/"));
+    }
+    
+    @Test
+    public void getRoute_EmptyParamNotFound() {
+        RouteMap rm = newRouteMap();
+        rm.add(new Route("cntrl", null, ":id/edit"));
+        assertNull(rm.getRoute("/cntrl//edit"));
+    }
+    
+    @Test
+    public void getRoute_FirstAddedWins() {
+        RouteMap rm = newRouteMap();
+        Route r1 = new Route("cntrl", null, ":id");
+        Route r2 = new Route("cntrl", null, ":name");
+        rm.add(r1);
+        rm.add(r2);
+        assertEquals(r1, rm.getRoute("/cntrl/123"));
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests.controllers;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mojavemvc.annotations.Action;
+import org.mojavemvc.annotations.Coalesced;
+import org.mojavemvc.annotations.LastModified;
+import org.mojavemvc.annotations.Param;
+import org.mojavemvc.annotations.SingletonController;
+import org.mojavemvc.tests.views.HTMLPage;
+import org.mojavemvc.views.View;
+
+@SingletonController("coalesced-revalidated")
+public class CoalescedRevalidatedController {
+
+    public static final long MODIFIED = 1357000000000L;
+    
+    public static final AtomicInteger reportCount = new AtomicInteger();
+    public static volatile CountDownLatch entered = new CountDownLatch(1);
+    public static volatile CountDownLatch proceed = new CountDownLatch(1);
+    
+    @LastModified("report")
+    public Date reportModified(@Param("id") String id) {
+        return new Date(MODIFIED);
+    }
+    
+    @Coalesced(timeout = 5000)
+    @Action
+    public View report(@Param("id") String id) throws InterruptedException {
+        reportCount.incrementAndGet();
+        entered.countDown();
+        proceed.await(5, TimeUnit.SECONDS);
+        return new HTMLPage().withH2Content("report " + id);
+    }
+}
@@ -23,6 +23,7 @@
 import org.mojavemvc.annotations.Param;
 import org.mojavemvc.annotations.ParamPath;
 import org.mojavemvc.annotations.Returns;
+import org.mojavemvc.annotations.SparseFieldsets;
 import org.mojavemvc.annotations.StatelessController;
 import org.mojavemvc.marshalling.Marshallable;
 import org.mojavemvc.tests.views.HTMLPage;
@@ -105,6 +106,19 @@ public SimplePojo returnJSON() {
         return new SimplePojo("marshalledJSON");
     }
     
+    @Action("returns/json/sparse")
+    @SparseFieldsets
+    @Returns("application/json")
+    public SimplePojo returnSparseJSON() {
+        return new SimplePojo("marshalledJSON");
+    }
+    
+    @Action("returns/json/fields")
+    @Returns("application/json")
+    public SimplePojo returnJSONWithFieldsParam(@Param("fields") String fields) {
+        return new SimplePojo(fields);
+    }
+    
     @Action("returns/xml")
     @Returns("application/xml")
     public SimplePojo returnXML() {
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests.controllers;
+
+import java.util.Date;
+
+import org.mojavemvc.annotations.Action;
+import org.mojavemvc.annotations.EntityTag;
+import org.mojavemvc.annotations.LastModified;
+import org.mojavemvc.annotations.Param;
+import org.mojavemvc.annotations.SingletonController;
+import org.mojavemvc.tests.views.HTMLPage;
+import org.mojavemvc.views.View;
+
+@SingletonController("revalidated")
+public class RevalidatedController {
+
+    public static final long MODIFIED = 1357000000000L;
+    
+    public int reportCount;
+    public int pageCount;
+    
+    @LastModified("report")
+    public Date reportModified(@Param("id") String id) {
+        return "missing".equals(id) ? null : new Date(MODIFIED);
+    }
+    
+    @EntityTag("page")
+    public String pageVersion(@Param("id") String id) {
+        return "v" + id;
+    }
+    
+    @Action
+    public View report(@Param("id") String id) {
+        reportCount++;
+        return new HTMLPage().withH2Content("report " + id);
+    }
+    
+    @Action
+    public View page(@Param("id") String id) {
+        pageCount++;
+        return new HTMLPage().withH2Content("page " + id);
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.mojavemvc.tests.controllers;
 
+import java.util.concurrent.Callable;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
@@ -56,6 +58,17 @@ public View doSomething() {
             .withH2Content("test");
     }
 
+    @Action("do-something-later")
+    public Callable<View> doSomethingLater() {
+
+        return new Callable<View>() {
+            public View call() {
+                return new HTMLPage()
+                    .withH2Content("later");
+            }
+        };
+    }
+
     @AfterAction
     public void doSomethingAfter() {
         afterInvokeCount++;
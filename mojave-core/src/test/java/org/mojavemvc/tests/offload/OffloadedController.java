@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests.offload;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.mojavemvc.annotations.Action;
+import org.mojavemvc.annotations.InterceptedBy;
+import org.mojavemvc.annotations.Pooled;
+import org.mojavemvc.annotations.StatelessController;
+import org.mojavemvc.annotations.VirtualThreads;
+import org.mojavemvc.views.View;
+
+/**
+ * @author Luis Antunes
+ */
+@StatelessController("offloaded")
+@Pooled(1)
+@VirtualThreads
+@InterceptedBy(ThreadInterceptor.class)
+public class OffloadedController {
+
+    /*
+     * the steps of each request, each with the name of the thread it ran on
+     */
+    public static final List<String> invocations = Collections.synchronizedList(new ArrayList<String>());
+    
+    public static final List<Object> instances = Collections.synchronizedList(new ArrayList<Object>());
+
+    @Action("run")
+    public View run() {
+
+        invocations.add("action:" + Thread.currentThread().getName());
+        instances.add(this);
+        return new ThreadView();
+    }
+}
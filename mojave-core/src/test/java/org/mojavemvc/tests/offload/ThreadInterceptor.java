@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2011-2013 Mojavemvc.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.mojavemvc.tests.offload;
+
+import org.mojavemvc.annotations.AfterAction;
+import org.mojavemvc.annotations.BeforeAction;
+
+/**
+ * @author Luis Antunes
+ */
+public class ThreadInterceptor {
+
+    @BeforeAction
+    public void beforeAction() {
+
+        OffloadedController.invocations.add("before:" + Thread.currentThread().getName());
+    }
+
+    @AfterAction
+    public void afterAction() {
+
+        OffloadedController.invocations.add("after:" + Thread.currentThread().getName());
+    }
+}